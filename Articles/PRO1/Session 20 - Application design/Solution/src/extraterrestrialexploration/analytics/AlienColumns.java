@@ -0,0 +1,40 @@
+package extraterrestrialexploration.analytics;
+
+import extraterrestrialexploration.domain.Alien;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The species of every alien, dictionary encoded: each distinct species gets a code, and the code of an
+// alien is found in an array indexed by alien id (holding code + 1, 0 for no alien).
+final class AlienColumns {
+    final List<String> species = new ArrayList<>();
+    private final Map<String, Integer> codes = new HashMap<>();
+    int[] speciesOfAlien = new int[64];
+
+    void put(Alien alien) {
+        int id = alien.getId();
+        if (id <= 0) {
+            return;
+        }
+        if (id >= speciesOfAlien.length) {
+            speciesOfAlien = Arrays.copyOf(speciesOfAlien, Math.max(id + 1, speciesOfAlien.length * 2));
+        }
+        String name = alien.getSpecies() != null ? alien.getSpecies() : "";
+        Integer code = codes.get(name);
+        if (code == null) {
+            code = species.size();
+            species.add(name);
+            codes.put(name, code);
+        }
+        speciesOfAlien[id] = code + 1;
+    }
+
+    void remove(int id) {
+        if (id > 0 && id < speciesOfAlien.length) {
+            speciesOfAlien[id] = 0;
+        }
+    }
+}
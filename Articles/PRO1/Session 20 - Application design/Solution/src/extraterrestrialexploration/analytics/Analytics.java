@@ -0,0 +1,218 @@
+package extraterrestrialexploration.analytics;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataContainer;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Report queries over planets, aliens and encounters, answered from primitive column arrays instead of the
+// entity objects: distances in a double[], hasAtmosphere and hasLife as bitmaps, references as int[] of ids
+// and dates as epoch days. Queries walk the columns in segments on the fork-join pool; filters on the
+// bitmaps are combined 64 rows at a time.
+//
+// Get one that is kept up to date from an AnalyticsDataManager, or build one from a loaded DataContainer
+// with of(data). Queries may run while the columns are changed; they see the data before or after a change.
+public class Analytics {
+    private final PlanetColumns planets = new PlanetColumns();
+    private final AlienColumns aliens = new AlienColumns();
+    private final EncounterColumns encounters = new EncounterColumns();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    Analytics() {
+    }
+
+    public static Analytics of(DataContainer data) {
+        Analytics analytics = new Analytics();
+        data.getPlanets().forEach(analytics::putPlanet);
+        data.getAliens().forEach(analytics::putAlien);
+        data.getEncounters().forEach(analytics::putEncounter);
+        return analytics;
+    }
+
+    // Statistics of the planets' distanceFromStarAU, e.g. getAverage(). A null condition matches every planet
+    public DoubleSummaryStatistics distanceFromStar(Boolean hasAtmosphere, Boolean hasLife) {
+        lock.readLock().lock();
+        try {
+            long[] live = planets.live.toLongArray();
+            long[] atmosphere = planets.atmosphere.toLongArray();
+            long[] life = planets.life.toLongArray();
+            double[] distances = planets.distances;
+            return ColumnScan.run(planets.size, (from, to) -> {
+                DoubleSummaryStatistics statistics = new DoubleSummaryStatistics();
+                for (int word = from >>> 6; word < (to + 63) >>> 6; word++) {
+                    long selected = word(live, word);
+                    if (hasAtmosphere != null) {
+                        selected &= hasAtmosphere ? word(atmosphere, word) : ~word(atmosphere, word);
+                    }
+                    if (hasLife != null) {
+                        selected &= hasLife ? word(life, word) : ~word(life, word);
+                    }
+                    while (selected != 0) {
+                        statistics.accept(distances[word << 6 | Long.numberOfTrailingZeros(selected)]);
+                        selected &= selected - 1;
+                    }
+                }
+                return statistics;
+            }, (left, right) -> {
+                left.combine(right);
+                return left;
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The number of encounters per planet id and month, from and to inclusive; null means no limit.
+    // Encounters without a readable date are left out
+    public SortedMap<Integer, SortedMap<YearMonth, Long>> encountersPerPlanetPerMonth(LocalDate from, LocalDate to) {
+        int fromDay = from != null ? (int) from.toEpochDay() : EncounterColumns.NO_DATE + 1;
+        int toDay = to != null ? (int) to.toEpochDay() : Integer.MAX_VALUE;
+        LongCounts counts;
+        lock.readLock().lock();
+        try {
+            long[] live = encounters.live.toLongArray();
+            int[] planetIds = encounters.planetIds;
+            int[] epochDays = encounters.epochDays;
+            int[] epochMonths = encounters.epochMonths;
+            counts = ColumnScan.run(encounters.size, (first, end) -> {
+                LongCounts segment = new LongCounts();
+                for (int row = first; row < end; row++) {
+                    int day = epochDays[row];
+                    if (day >= fromDay && day <= toDay && (word(live, row >>> 6) & 1L << row) != 0) {
+                        segment.add(LongCounts.key(planetIds[row], epochMonths[row]), 1);
+                    }
+                }
+                return segment;
+            }, LongCounts::merge);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        SortedMap<Integer, SortedMap<YearMonth, Long>> result = new TreeMap<>();
+        counts.forEach((key, count) -> {
+            int month = LongCounts.low(key);
+            result.computeIfAbsent(LongCounts.high(key), planetId -> new TreeMap<>())
+                    .put(YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1), count);
+        });
+        return result;
+    }
+
+    // The species with the most encounters, most first. Encounters with an alien that no longer exists are left out
+    public List<Map.Entry<String, Long>> topSpeciesByEncounters(int limit) {
+        long[] perSpecies;
+        List<String> species;
+        lock.readLock().lock();
+        try {
+            long[] live = encounters.live.toLongArray();
+            int[] alienIds = encounters.alienIds;
+            int[] speciesOfAlien = aliens.speciesOfAlien;
+            int speciesCount = aliens.species.size();
+            perSpecies = ColumnScan.run(encounters.size, (from, to) -> {
+                long[] counts = new long[speciesCount];
+                for (int row = from; row < to; row++) {
+                    int alienId = alienIds[row];
+                    if (alienId > 0 && alienId < speciesOfAlien.length && speciesOfAlien[alienId] > 0
+                            && (word(live, row >>> 6) & 1L << row) != 0) {
+                        counts[speciesOfAlien[alienId] - 1]++;
+                    }
+                }
+                return counts;
+            }, (left, right) -> {
+                for (int i = 0; i < left.length; i++) {
+                    left[i] += right[i];
+                }
+                return left;
+            });
+            species = new ArrayList<>(aliens.species);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Map.Entry<String, Long>> top = new ArrayList<>();
+        for (int code = 0; code < perSpecies.length; code++) {
+            if (perSpecies[code] > 0) {
+                top.add(Map.entry(species.get(code), perSpecies[code]));
+            }
+        }
+        top.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        return top.subList(0, Math.min(limit, top.size()));
+    }
+
+    // Bitmaps from BitSet.toLongArray() end at their last set bit, so the words after that are 0
+    private static long word(long[] words, int index) {
+        return index < words.length ? words[index] : 0;
+    }
+
+    // Applies the changes of a transaction at once, so no query sees only part of them
+    void apply(List<Runnable> changes) {
+        lock.writeLock().lock();
+        try {
+            changes.forEach(Runnable::run);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putPlanet(Planet planet) {
+        lock.writeLock().lock();
+        try {
+            planets.put(planet);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removePlanet(int id) {
+        lock.writeLock().lock();
+        try {
+            planets.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putAlien(Alien alien) {
+        lock.writeLock().lock();
+        try {
+            aliens.put(alien);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeAlien(int id) {
+        lock.writeLock().lock();
+        try {
+            aliens.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void putEncounter(Encounter encounter) {
+        lock.writeLock().lock();
+        try {
+            encounters.put(encounter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeEncounter(int id) {
+        lock.writeLock().lock();
+        try {
+            encounters.remove(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
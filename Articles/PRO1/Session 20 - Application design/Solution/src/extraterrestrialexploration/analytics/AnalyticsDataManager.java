@@ -0,0 +1,132 @@
+package extraterrestrialexploration.analytics;
+
+import extraterrestrialexploration.domain.*;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.ForwardingDataManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Keeps an Analytics up to date with another DataManager. The columns are built by streaming the data once,
+// and after that every add, update and delete that succeeds is applied to them as well.
+// Changes are made one at a time, so the columns see them in the same order as the DataManager;
+// reads and report queries are not held up by that.
+public class AnalyticsDataManager extends ForwardingDataManager {
+    private final Analytics analytics;
+    private final ReentrantLock changes;
+    // Inside a transaction the changes are collected here and only applied once it has succeeded
+    private final List<Runnable> pending;
+
+    public AnalyticsDataManager(DataManager delegate) {
+        super(delegate);
+        analytics = new Analytics();
+        changes = new ReentrantLock();
+        pending = null;
+        try (Stream<Planet> planets = delegate.streamPlanets()) {
+            planets.forEach(analytics::putPlanet);
+        }
+        try (Stream<Alien> aliens = delegate.streamAliens()) {
+            aliens.forEach(analytics::putAlien);
+        }
+        try (Stream<Encounter> encounters = delegate.streamEncounters()) {
+            encounters.forEach(analytics::putEncounter);
+        }
+    }
+
+    private AnalyticsDataManager(DataManager batch, Analytics analytics, List<Runnable> pending) {
+        super(batch);
+        this.analytics = analytics;
+        this.changes = new ReentrantLock();
+        this.pending = pending;
+    }
+
+    public Analytics getAnalytics() {
+        return analytics;
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        if (pending != null) {
+            // A nested transaction that fails may be caught by the outer work, so its changes only join the
+            // outer ones once it has succeeded
+            List<Runnable> nestedChanges = new ArrayList<>();
+            delegate.transaction(batch -> work.accept(new AnalyticsDataManager(batch, analytics, nestedChanges)));
+            pending.addAll(nestedChanges);
+            return;
+        }
+        changes.lock();
+        try {
+            List<Runnable> batchChanges = new ArrayList<>();
+            delegate.transaction(batch -> work.accept(new AnalyticsDataManager(batch, analytics, batchChanges)));
+            analytics.apply(batchChanges);
+        } finally {
+            changes.unlock();
+        }
+    }
+
+    // Makes the change and then updates the columns, or records the update until the transaction ends
+    private void change(Runnable change, Runnable update) {
+        if (pending != null) {
+            change.run();
+            pending.add(update);
+            return;
+        }
+        changes.lock();
+        try {
+            change.run();
+            update.run();
+        } finally {
+            changes.unlock();
+        }
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        change(() -> delegate.addPlanet(planet), () -> analytics.putPlanet(planet));
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        change(() -> delegate.updatePlanet(planet), () -> analytics.putPlanet(planet));
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        change(() -> delegate.deletePlanet(id), () -> analytics.removePlanet(id));
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        change(() -> delegate.addAlien(alien), () -> analytics.putAlien(alien));
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        change(() -> delegate.updateAlien(alien), () -> analytics.putAlien(alien));
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        change(() -> delegate.deleteAlien(id), () -> analytics.removeAlien(id));
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        change(() -> delegate.addEncounter(encounter), () -> analytics.putEncounter(encounter));
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        change(() -> delegate.updateEncounter(encounter), () -> analytics.putEncounter(encounter));
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        change(() -> delegate.deleteEncounter(id), () -> analytics.removeEncounter(id));
+    }
+}
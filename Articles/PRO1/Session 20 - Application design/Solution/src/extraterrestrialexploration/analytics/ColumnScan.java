@@ -0,0 +1,55 @@
+package extraterrestrialexploration.analytics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+
+// Runs a scan over the rows of the columns in segments, in parallel on the common fork-join pool, and combines
+// the results of the segments. Small tables are scanned on the calling thread.
+final class ColumnScan {
+    // A multiple of 64, so every segment starts at a word of the bitmaps
+    static final int SEGMENT_ROWS = 1 << 16;
+
+    interface Segment<R> {
+        R scan(int from, int to);
+    }
+
+    private ColumnScan() {
+    }
+
+    static <R> R run(int rows, Segment<R> segment, BinaryOperator<R> combine) {
+        if (rows <= SEGMENT_ROWS) {
+            return segment.scan(0, rows);
+        }
+        return ForkJoinPool.commonPool().invoke(new Task<>(0, rows, segment, combine));
+    }
+
+    private static class Task<R> extends RecursiveTask<R> {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final Segment<R> segment;
+        private final BinaryOperator<R> combine;
+
+        private Task(int from, int to, Segment<R> segment, BinaryOperator<R> combine) {
+            this.from = from;
+            this.to = to;
+            this.segment = segment;
+            this.combine = combine;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= SEGMENT_ROWS) {
+                return segment.scan(from, to);
+            }
+            int segments = (to - from + SEGMENT_ROWS - 1) / SEGMENT_ROWS;
+            int middle = from + segments / 2 * SEGMENT_ROWS;
+            Task<R> left = new Task<>(from, middle, segment, combine);
+            left.fork();
+            R right = new Task<>(middle, to, segment, combine).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+}
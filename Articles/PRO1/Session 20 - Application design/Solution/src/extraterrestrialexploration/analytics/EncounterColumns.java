@@ -0,0 +1,91 @@
+package extraterrestrialexploration.analytics;
+
+import extraterrestrialexploration.domain.Encounter;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// The encounters as columns, kept the same way as PlanetColumns. References are stored as ids, and the
+// date both as epoch day and as epoch month (year * 12 + month - 1) so month reports need no date arithmetic.
+final class EncounterColumns {
+    static final int NO_DATE = Integer.MIN_VALUE;
+
+    private static final int MIN_ROWS_BEFORE_COMPACTION = 1024;
+
+    int size;
+    int[] ids = new int[64];
+    int[] planetIds = new int[64];
+    int[] alienIds = new int[64];
+    int[] explorerIds = new int[64];
+    int[] epochDays = new int[64];
+    int[] epochMonths = new int[64];
+    final BitSet live = new BitSet();
+    private int[] rowOfId = new int[64];
+    private int dead;
+
+    void put(Encounter encounter) {
+        int row = row(encounter.getId());
+        if (row < 0) {
+            row = append(encounter.getId());
+        }
+        planetIds[row] = encounter.getPlanetId();
+        alienIds[row] = encounter.getAlienId();
+        explorerIds[row] = encounter.getExplorerId();
+        LocalDate date = encounter.getDate();
+        epochDays[row] = date != null ? (int) date.toEpochDay() : NO_DATE;
+        epochMonths[row] = date != null ? date.getYear() * 12 + date.getMonthValue() - 1 : NO_DATE;
+    }
+
+    void remove(int id) {
+        int row = row(id);
+        if (row < 0) {
+            return;
+        }
+        live.clear(row);
+        rowOfId[id] = 0;
+        if (++dead > size / 2 && dead > MIN_ROWS_BEFORE_COMPACTION) {
+            compact();
+        }
+    }
+
+    private int row(int id) {
+        return id > 0 && id < rowOfId.length ? rowOfId[id] - 1 : -1;
+    }
+
+    private int append(int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            planetIds = Arrays.copyOf(planetIds, size * 2);
+            alienIds = Arrays.copyOf(alienIds, size * 2);
+            explorerIds = Arrays.copyOf(explorerIds, size * 2);
+            epochDays = Arrays.copyOf(epochDays, size * 2);
+            epochMonths = Arrays.copyOf(epochMonths, size * 2);
+        }
+        if (id >= rowOfId.length) {
+            rowOfId = Arrays.copyOf(rowOfId, Math.max(id + 1, rowOfId.length * 2));
+        }
+        int row = size++;
+        ids[row] = id;
+        rowOfId[id] = row + 1;
+        live.set(row);
+        return row;
+    }
+
+    private void compact() {
+        int to = 0;
+        for (int from = live.nextSetBit(0); from >= 0; from = live.nextSetBit(from + 1)) {
+            ids[to] = ids[from];
+            planetIds[to] = planetIds[from];
+            alienIds[to] = alienIds[from];
+            explorerIds[to] = explorerIds[from];
+            epochDays[to] = epochDays[from];
+            epochMonths[to] = epochMonths[from];
+            rowOfId[ids[to]] = to + 1;
+            to++;
+        }
+        live.clear();
+        live.set(0, to);
+        size = to;
+        dead = 0;
+    }
+}
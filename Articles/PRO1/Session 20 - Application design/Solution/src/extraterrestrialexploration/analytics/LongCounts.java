@@ -0,0 +1,82 @@
+package extraterrestrialexploration.analytics;
+
+import java.util.Arrays;
+
+// Counts per long key in an open addressing hash table, without boxing keys or counts.
+// Used for group-by queries whose keys combine two ints, such as planet and month.
+final class LongCounts {
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private long[] counts;
+    private int size;
+
+    LongCounts() {
+        keys = new long[64];
+        Arrays.fill(keys, EMPTY);
+        counts = new long[64];
+    }
+
+    static long key(int high, int low) {
+        return (long) high << 32 | low & 0xFFFFFFFFL;
+    }
+
+    static int high(long key) {
+        return (int) (key >> 32);
+    }
+
+    static int low(long key) {
+        return (int) key;
+    }
+
+    void add(long key, long count) {
+        int mask = keys.length - 1;
+        int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        counts[slot] += count;
+        if (size > keys.length / 2) {
+            grow();
+        }
+    }
+
+    LongCounts merge(LongCounts other) {
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            if (other.keys[slot] != EMPTY) {
+                add(other.keys[slot], other.counts[slot]);
+            }
+        }
+        return this;
+    }
+
+    interface Entry {
+        void accept(long key, long count);
+    }
+
+    void forEach(Entry entry) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                entry.accept(keys[slot], counts[slot]);
+            }
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        counts = new long[oldKeys.length * 2];
+        size = 0;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                add(oldKeys[slot], oldCounts[slot]);
+            }
+        }
+    }
+}
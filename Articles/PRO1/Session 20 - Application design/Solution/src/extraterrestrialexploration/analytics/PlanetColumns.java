@@ -0,0 +1,82 @@
+package extraterrestrialexploration.analytics;
+
+import extraterrestrialexploration.domain.Planet;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// The planets as columns: one array per field that reports use, one row per planet.
+// A planet keeps its row when it is updated. A deleted planet's row is only marked dead in the live bitmap,
+// and the columns are compacted once half of the rows are dead.
+// Ids come from a sequence, so the row of an id is found in an array indexed by id (holding row + 1).
+final class PlanetColumns {
+    private static final int MIN_ROWS_BEFORE_COMPACTION = 1024;
+
+    int size;
+    int[] ids = new int[64];
+    double[] distances = new double[64];
+    final BitSet atmosphere = new BitSet();
+    final BitSet life = new BitSet();
+    final BitSet live = new BitSet();
+    private int[] rowOfId = new int[64];
+    private int dead;
+
+    void put(Planet planet) {
+        int row = row(planet.getId());
+        if (row < 0) {
+            row = append(planet.getId());
+        }
+        distances[row] = planet.getDistanceFromStarAU();
+        atmosphere.set(row, planet.hasAtmosphere());
+        life.set(row, planet.hasLife());
+    }
+
+    void remove(int id) {
+        int row = row(id);
+        if (row < 0) {
+            return;
+        }
+        live.clear(row);
+        rowOfId[id] = 0;
+        if (++dead > size / 2 && dead > MIN_ROWS_BEFORE_COMPACTION) {
+            compact();
+        }
+    }
+
+    private int row(int id) {
+        return id > 0 && id < rowOfId.length ? rowOfId[id] - 1 : -1;
+    }
+
+    private int append(int id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            distances = Arrays.copyOf(distances, size * 2);
+        }
+        if (id >= rowOfId.length) {
+            rowOfId = Arrays.copyOf(rowOfId, Math.max(id + 1, rowOfId.length * 2));
+        }
+        int row = size++;
+        ids[row] = id;
+        rowOfId[id] = row + 1;
+        live.set(row);
+        return row;
+    }
+
+    // Moves the live rows down over the dead ones, keeping their order
+    private void compact() {
+        int to = 0;
+        for (int from = live.nextSetBit(0); from >= 0; from = live.nextSetBit(from + 1)) {
+            ids[to] = ids[from];
+            distances[to] = distances[from];
+            atmosphere.set(to, atmosphere.get(from));
+            life.set(to, life.get(from));
+            rowOfId[ids[to]] = to + 1;
+            to++;
+        }
+        atmosphere.clear(to, size);
+        life.clear(to, size);
+        live.clear();
+        live.set(0, to);
+        size = to;
+        dead = 0;
+    }
+}
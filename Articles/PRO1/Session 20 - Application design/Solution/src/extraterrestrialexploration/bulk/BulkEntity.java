@@ -0,0 +1,357 @@
+package extraterrestrialexploration.bulk;
+
+import extraterrestrialexploration.domain.*;
+import extraterrestrialexploration.persistence.DataManager;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+// How the entities of one type are turned into bulk records and back, and stored through a DataManager.
+// References to other entities are written as ids; an id of 0 or an empty id field means none.
+public abstract class BulkEntity<T> {
+    public static final BulkEntity<Planet> PLANETS = new BulkEntity<>("planets",
+            "id", "name", "climateDescription", "distanceFromStarAU", "hasAtmosphere", "hasLife") {
+        @Override
+        Planet fromValues(String[] values) {
+            double distance = decimal(values, 3);
+            if (distance < 0) {
+                throw new IllegalArgumentException("distanceFromStarAU must not be negative: " + distance);
+            }
+            Planet planet = new Planet(required(values, 1), values[2], distance, bool(values, 4), bool(values, 5));
+            planet.setId(id(values, 0));
+            return planet;
+        }
+
+        @Override
+        Object[] toValues(Planet planet) {
+            return new Object[]{planet.getId(), planet.getName(), planet.getClimateDescription(),
+                    planet.getDistanceFromStarAU(), planet.hasAtmosphere(), planet.hasLife()};
+        }
+
+        @Override
+        public int idOf(Planet planet) {
+            return planet.getId();
+        }
+
+        @Override
+        public void setId(Planet planet, int id) {
+            planet.setId(id);
+        }
+
+        @Override
+        boolean exists(DataManager dataManager, int id) {
+            return dataManager.getPlanet(id) != null;
+        }
+
+        @Override
+        int reserveIds(DataManager dataManager, int count) {
+            return dataManager.reservePlanetIds(count);
+        }
+
+        @Override
+        void add(DataManager dataManager, Planet planet) {
+            dataManager.addPlanet(planet);
+        }
+
+        @Override
+        Stream<Planet> stream(DataManager dataManager) {
+            return dataManager.streamPlanets();
+        }
+    };
+
+    public static final BulkEntity<Alien> ALIENS = new BulkEntity<>("aliens",
+            "id", "name", "species", "physicalDescription") {
+        @Override
+        Alien fromValues(String[] values) {
+            Alien alien = new Alien(required(values, 1), values[2], values[3]);
+            alien.setId(id(values, 0));
+            return alien;
+        }
+
+        @Override
+        Object[] toValues(Alien alien) {
+            return new Object[]{alien.getId(), alien.getName(), alien.getSpecies(), alien.getPhysicalDescription()};
+        }
+
+        @Override
+        public int idOf(Alien alien) {
+            return alien.getId();
+        }
+
+        @Override
+        public void setId(Alien alien, int id) {
+            alien.setId(id);
+        }
+
+        @Override
+        boolean exists(DataManager dataManager, int id) {
+            return dataManager.getAlien(id) != null;
+        }
+
+        @Override
+        int reserveIds(DataManager dataManager, int count) {
+            return dataManager.reserveAlienIds(count);
+        }
+
+        @Override
+        void add(DataManager dataManager, Alien alien) {
+            dataManager.addAlien(alien);
+        }
+
+        @Override
+        Stream<Alien> stream(DataManager dataManager) {
+            return dataManager.streamAliens();
+        }
+    };
+
+    public static final BulkEntity<Explorer> EXPLORERS = new BulkEntity<>("explorers",
+            "id", "name", "currentPlanetId") {
+        @Override
+        Explorer fromValues(String[] values) {
+            Explorer explorer = new Explorer(required(values, 1), id(values, 2));
+            explorer.setId(id(values, 0));
+            return explorer;
+        }
+
+        @Override
+        Object[] toValues(Explorer explorer) {
+            return new Object[]{explorer.getId(), explorer.getName(), explorer.getCurrentPlanetId()};
+        }
+
+        @Override
+        public int idOf(Explorer explorer) {
+            return explorer.getId();
+        }
+
+        @Override
+        public void setId(Explorer explorer, int id) {
+            explorer.setId(id);
+        }
+
+        @Override
+        boolean exists(DataManager dataManager, int id) {
+            return dataManager.getExplorer(id) != null;
+        }
+
+        @Override
+        public String checkReferences(DataManager dataManager, Explorer explorer) {
+            int planetId = explorer.getCurrentPlanetId();
+            return planetId != 0 && dataManager.getPlanet(planetId) == null ? "No planet with id " + planetId : null;
+        }
+
+        @Override
+        int reserveIds(DataManager dataManager, int count) {
+            return dataManager.reserveExplorerIds(count);
+        }
+
+        @Override
+        void add(DataManager dataManager, Explorer explorer) {
+            dataManager.addExplorer(explorer);
+        }
+
+        @Override
+        Stream<Explorer> stream(DataManager dataManager) {
+            return dataManager.streamExplorers();
+        }
+    };
+
+    public static final BulkEntity<Encounter> ENCOUNTERS = new BulkEntity<>("encounters",
+            "id", "date", "alienId", "planetId", "explorerId", "description") {
+        @Override
+        Encounter fromValues(String[] values) {
+            Encounter encounter = new Encounter(date(values, 1), id(values, 2), id(values, 3), id(values, 4), values[5]);
+            encounter.setId(id(values, 0));
+            return encounter;
+        }
+
+        @Override
+        Object[] toValues(Encounter encounter) {
+            return new Object[]{encounter.getId(), encounter.getDate() != null ? encounter.getDate().toString() : null, encounter.getAlienId(),
+                    encounter.getPlanetId(), encounter.getExplorerId(), encounter.getDescriptionOfTheEncounter()};
+        }
+
+        @Override
+        public int idOf(Encounter encounter) {
+            return encounter.getId();
+        }
+
+        @Override
+        public void setId(Encounter encounter, int id) {
+            encounter.setId(id);
+        }
+
+        @Override
+        boolean exists(DataManager dataManager, int id) {
+            return dataManager.getEncounter(id) != null;
+        }
+
+        @Override
+        public String checkReferences(DataManager dataManager, Encounter encounter) {
+            if (encounter.getAlienId() != 0 && dataManager.getAlien(encounter.getAlienId()) == null) {
+                return "No alien with id " + encounter.getAlienId();
+            }
+            if (encounter.getPlanetId() != 0 && dataManager.getPlanet(encounter.getPlanetId()) == null) {
+                return "No planet with id " + encounter.getPlanetId();
+            }
+            if (encounter.getExplorerId() != 0 && dataManager.getExplorer(encounter.getExplorerId()) == null) {
+                return "No explorer with id " + encounter.getExplorerId();
+            }
+            return null;
+        }
+
+        @Override
+        int reserveIds(DataManager dataManager, int count) {
+            return dataManager.reserveEncounterIds(count);
+        }
+
+        @Override
+        void add(DataManager dataManager, Encounter encounter) {
+            dataManager.addEncounter(encounter);
+        }
+
+        @Override
+        Stream<Encounter> stream(DataManager dataManager) {
+            return dataManager.streamEncounters();
+        }
+    };
+
+    private final String name;
+    private final List<String> fields;
+
+    private BulkEntity(String name, String... fields) {
+        this.name = name;
+        this.fields = List.of(fields);
+    }
+
+    public static BulkEntity<?> forName(String name) {
+        for (BulkEntity<?> entity : List.of(PLANETS, ALIENS, EXPLORERS, ENCOUNTERS)) {
+            if (entity.name.equalsIgnoreCase(name)) {
+                return entity;
+            }
+        }
+        throw new IllegalArgumentException("Unknown entity type " + name + ", choose planets, aliens, explorers or encounters");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    List<String> getFields() {
+        return fields;
+    }
+
+    // The entity as one JSON object, in the NDJSON form of a bulk export
+    public String toJson(T entity) {
+        StringWriter json = new StringWriter();
+        try {
+            BulkFormat.NDJSON.writeRecord(json, fields, toValues(entity));
+        } catch (IOException e) {
+            // A StringWriter does not fail
+            throw new RuntimeException("Failed to write JSON: " + e.getMessage(), e);
+        }
+        return json.toString().trim();
+    }
+
+    public String toJson(List<T> entities) {
+        StringBuilder json = new StringBuilder("[");
+        for (T entity : entities) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append(toJson(entity));
+        }
+        return json.append(']').toString();
+    }
+
+    // Reads one JSON object with any of the fields. Throws an IllegalArgumentException for invalid JSON or values
+    public T fromJson(String json) {
+        return fromValues(BulkFormat.NDJSON.parser(fields, null).apply(json.trim()));
+    }
+
+    // True if the JSON object gives a value for the id field
+    public boolean hasId(String json) {
+        return BulkFormat.NDJSON.parser(fields, null).apply(json.trim())[0] != null;
+    }
+
+    // Builds the entity from values in the order of the fields. Throws an IllegalArgumentException for invalid values
+    abstract T fromValues(String[] values);
+
+    abstract Object[] toValues(T entity);
+
+    public abstract int idOf(T entity);
+
+    public abstract void setId(T entity, int id);
+
+    abstract boolean exists(DataManager dataManager, int id);
+
+    // A description of the first reference to a missing entity, or null if all references can be resolved
+    public String checkReferences(DataManager dataManager, T entity) {
+        return null;
+    }
+
+    abstract int reserveIds(DataManager dataManager, int count);
+
+    abstract void add(DataManager dataManager, T entity);
+
+    abstract Stream<T> stream(DataManager dataManager);
+
+    String required(String[] values, int field) {
+        String value = values[field];
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(fields.get(field) + " is required");
+        }
+        return value;
+    }
+
+    int id(String[] values, int field) {
+        String value = values[field];
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            int id = Integer.parseInt(value.trim());
+            if (id < 0) {
+                throw new IllegalArgumentException(fields.get(field) + " must not be negative: " + value);
+            }
+            return id;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fields.get(field) + " is not a whole number: " + value);
+        }
+    }
+
+    double decimal(String[] values, int field) {
+        String value = required(values, field);
+        try {
+            double number = Double.parseDouble(value.trim());
+            if (!Double.isFinite(number)) {
+                throw new IllegalArgumentException(fields.get(field) + " must be a finite number: " + value);
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fields.get(field) + " is not a number: " + value);
+        }
+    }
+
+    boolean bool(String[] values, int field) {
+        String value = required(values, field).trim();
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(fields.get(field) + " must be true or false: " + value);
+    }
+
+    // Exported dates are ISO dates; the day/month/year form is also read
+    LocalDate date(String[] values, int field) {
+        String value = required(values, field);
+        try {
+            return Encounter.parseDate(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(fields.get(field) + " is not a date like 2024-03-14 or 14/03/2024: " + value.trim());
+        }
+    }
+}
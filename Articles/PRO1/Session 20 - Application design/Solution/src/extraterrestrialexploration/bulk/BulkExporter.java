@@ -0,0 +1,50 @@
+package extraterrestrialexploration.bulk;
+
+import extraterrestrialexploration.persistence.DataManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Writes the entities of one type from a DataManager to a CSV or NDJSON file that BulkImporter can read.
+// Entities are taken from the DataManager's stream and written one at a time, so a file based DataManager
+// decodes them from its file as they are written out instead of loading all of them first.
+public class BulkExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final DataManager dataManager;
+
+    public BulkExporter(DataManager dataManager) {
+        this.dataManager = dataManager;
+    }
+
+    // Returns the number of entities written
+    public <T> long exportFile(BulkEntity<T> entity, Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            return exportTo(entity, out, BulkFormat.forFile(file));
+        }
+    }
+
+    public <T> long exportTo(BulkEntity<T> entity, OutputStream out, BulkFormat format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        List<String> fields = entity.getFields();
+        format.writeHeader(writer, fields);
+        long count = 0;
+        try (Stream<T> entities = entity.stream(dataManager)) {
+            Iterator<T> iterator = entities.iterator();
+            while (iterator.hasNext()) {
+                format.writeRecord(writer, fields, entity.toValues(iterator.next()));
+                count++;
+            }
+        }
+        writer.flush();
+        return count;
+    }
+}
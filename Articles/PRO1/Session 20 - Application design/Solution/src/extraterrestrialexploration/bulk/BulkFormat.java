@@ -0,0 +1,383 @@
+package extraterrestrialexploration.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// The file formats of bulk imports and exports, both with one record per line in UTF-8.
+//
+// CSV:    a header line naming the fields, then one line per entity. Fields holding a comma, quote or line
+//         break are quoted, with quotes doubled. An empty field is null, a quoted empty field ("") is empty.
+// NDJSON: one flat JSON object per line, e.g. {"id":1,"name":"Mars","hasLife":false}.
+//
+// Records are found by scanning the bytes for line breaks, so a file can be cut into chunks that are
+// parsed in parallel; only CSV has to look at quotes to tell a line break inside a field from a record end.
+public enum BulkFormat {
+    CSV {
+        @Override
+        int lastRecordEnd(byte[] bytes, int length) {
+            int end = 0;
+            boolean quoted = false;
+            for (int i = 0; i < length; i++) {
+                if (bytes[i] == '"') {
+                    quoted = !quoted;
+                } else if (bytes[i] == '\n' && !quoted) {
+                    end = i + 1;
+                }
+            }
+            return end;
+        }
+
+        @Override
+        void forEachRecord(String chunk, Consumer<String> record) {
+            int start = 0;
+            boolean quoted = false;
+            for (int i = 0; i < chunk.length(); i++) {
+                char c = chunk.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (c == '\n' && !quoted) {
+                    acceptLine(chunk, start, i, record);
+                    start = i + 1;
+                }
+            }
+            acceptLine(chunk, start, chunk.length(), record);
+        }
+
+        @Override
+        boolean hasHeader() {
+            return true;
+        }
+
+        // The header may list the fields in any order; unknown columns are an error rather than silently dropped
+        @Override
+        Function<String, String[]> parser(List<String> fields, String header) {
+            List<String> columns = splitCsv(header);
+            int[] fieldOfColumn = new int[columns.size()];
+            for (int column = 0; column < columns.size(); column++) {
+                String name = columns.get(column) == null ? "" : columns.get(column).trim();
+                fieldOfColumn[column] = fields.indexOf(name);
+                if (fieldOfColumn[column] < 0) {
+                    throw new IllegalArgumentException("Unknown column " + name + ", expected " + fields);
+                }
+            }
+            return record -> {
+                List<String> cells = splitCsv(record);
+                if (cells.size() != fieldOfColumn.length) {
+                    throw new IllegalArgumentException("Expected " + fieldOfColumn.length + " fields but found " + cells.size());
+                }
+                String[] values = new String[fields.size()];
+                for (int column = 0; column < cells.size(); column++) {
+                    values[fieldOfColumn[column]] = cells.get(column);
+                }
+                return values;
+            };
+        }
+
+        @Override
+        void writeHeader(Writer out, List<String> fields) throws IOException {
+            out.write(String.join(",", fields));
+            out.write('\n');
+        }
+
+        @Override
+        void writeRecord(Writer out, List<String> fields, Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                Object value = values[i];
+                if (value == null) {
+                    continue;
+                }
+                String text = value.toString();
+                if (text.isEmpty() || text.indexOf(',') >= 0 || text.indexOf('"') >= 0
+                        || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                    out.write('"');
+                    out.write(text.replace("\"", "\"\""));
+                    out.write('"');
+                } else {
+                    out.write(text);
+                }
+            }
+            out.write('\n');
+        }
+    },
+
+    NDJSON {
+        @Override
+        int lastRecordEnd(byte[] bytes, int length) {
+            for (int i = length - 1; i >= 0; i--) {
+                if (bytes[i] == '\n') {
+                    return i + 1;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        void forEachRecord(String chunk, Consumer<String> record) {
+            int start = 0;
+            for (int i = chunk.indexOf('\n'); i >= 0; i = chunk.indexOf('\n', start)) {
+                acceptLine(chunk, start, i, record);
+                start = i + 1;
+            }
+            acceptLine(chunk, start, chunk.length(), record);
+        }
+
+        @Override
+        boolean hasHeader() {
+            return false;
+        }
+
+        @Override
+        Function<String, String[]> parser(List<String> fields, String header) {
+            Map<String, Integer> fieldIndexes = new HashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                fieldIndexes.put(fields.get(i), i);
+            }
+            return record -> new JsonObjectParser(record, fieldIndexes, fields.size()).parse();
+        }
+
+        @Override
+        void writeHeader(Writer out, List<String> fields) {
+        }
+
+        @Override
+        void writeRecord(Writer out, List<String> fields, Object[] values) throws IOException {
+            out.write('{');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeJsonString(out, fields.get(i));
+                out.write(':');
+                Object value = values[i];
+                if (value instanceof String) {
+                    writeJsonString(out, (String) value);
+                } else {
+                    out.write(String.valueOf(value));
+                }
+            }
+            out.write("}\n");
+        }
+    };
+
+    // The offset just after the last complete record in the bytes, or 0 if there is none
+    abstract int lastRecordEnd(byte[] bytes, int length);
+
+    // Calls record for each non-blank record in the chunk, which holds complete records only
+    abstract void forEachRecord(String chunk, Consumer<String> record);
+
+    abstract boolean hasHeader();
+
+    // Turns one record into its values, in the order of fields. Throws an IllegalArgumentException for a malformed record
+    abstract Function<String, String[]> parser(List<String> fields, String header);
+
+    abstract void writeHeader(Writer out, List<String> fields) throws IOException;
+
+    // Values are Strings, numbers, booleans or null
+    abstract void writeRecord(Writer out, List<String> fields, Object[] values) throws IOException;
+
+    // Chosen by the file extension: .csv, or .ndjson, .jsonl and .json for NDJSON
+    public static BulkFormat forFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Cannot tell the format of " + file + ", use .csv or .ndjson");
+    }
+
+    private static void acceptLine(String chunk, int start, int end, Consumer<String> record) {
+        if (end > start && chunk.charAt(end - 1) == '\r') {
+            end--;
+        }
+        String line = chunk.substring(start, end);
+        if (!line.isBlank()) {
+            record.accept(line);
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                cells.add(wasQuoted || cell.length() > 0 ? cell.toString() : null);
+                cell.setLength(0);
+                wasQuoted = false;
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        cells.add(wasQuoted || cell.length() > 0 ? cell.toString() : null);
+        return cells;
+    }
+
+    private static void writeJsonString(Writer out, String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.write("\\\"");
+                case '\\' -> out.write("\\\\");
+                case '\n' -> out.write("\\n");
+                case '\r' -> out.write("\\r");
+                case '\t' -> out.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+                }
+            }
+        }
+        out.write('"');
+    }
+
+    // Reads one flat JSON object. Numbers and booleans are returned as their text, JSON null as null
+    private static class JsonObjectParser {
+        private final String text;
+        private final Map<String, Integer> fieldIndexes;
+        private final String[] values;
+        private int position;
+
+        private JsonObjectParser(String text, Map<String, Integer> fieldIndexes, int fieldCount) {
+            this.text = text;
+            this.fieldIndexes = fieldIndexes;
+            this.values = new String[fieldCount];
+        }
+
+        private String[] parse() {
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                do {
+                    String name = readString();
+                    expect(':');
+                    String value = readValue();
+                    Integer index = fieldIndexes.get(name);
+                    if (index == null) {
+                        throw new IllegalArgumentException("Unknown field " + name + ", expected " + fieldIndexes.keySet());
+                    }
+                    values[index] = value;
+                } while (next(',', '}') == ',');
+            }
+            if (peek() != 0) {
+                throw new IllegalArgumentException("Unexpected text after the object at position " + position);
+            }
+            return values;
+        }
+
+        private String readValue() {
+            char c = peek();
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested values are not supported, at position " + position);
+            }
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("Missing value at position " + start);
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    throw new IllegalArgumentException("Unterminated string");
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Incomplete unicode escape");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> throw new IllegalArgumentException("Invalid escape \\" + escaped);
+                }
+            }
+        }
+
+        private void expect(char expected) {
+            if (peek() != expected) {
+                throw new IllegalArgumentException("Expected " + expected + " at position " + position);
+            }
+            position++;
+        }
+
+        private char next(char first, char second) {
+            char c = peek();
+            if (c != first && c != second) {
+                throw new IllegalArgumentException("Expected " + first + " or " + second + " at position " + position);
+            }
+            position++;
+            return c;
+        }
+
+        // The next character that is not white space, or 0 at the end
+        private char peek() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package extraterrestrialexploration.bulk;
+
+import extraterrestrialexploration.persistence.DataManager;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
+
+// Loads a CSV or NDJSON file of entities into a DataManager.
+//
+// The file is read in chunks of whole records, and each chunk is parsed and validated as a separate task on a
+// ForkJoinPool while the next chunk is read. The parsed entities are then checked against the stored data
+// (ids in use, references to missing entities), ids are reserved for all entities without one in one call,
+// and everything is added in a single transaction, so the data file is written once.
+//
+// By default an invalid record stops the import and nothing is added. With skipInvalid(true) invalid
+// records are left out and reported in the result.
+public class BulkImporter {
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final DataManager dataManager;
+    private final ForkJoinPool pool;
+    private boolean skipInvalid;
+
+    public BulkImporter(DataManager dataManager) {
+        this(dataManager, ForkJoinPool.commonPool());
+    }
+
+    public BulkImporter(DataManager dataManager, ForkJoinPool pool) {
+        this.dataManager = dataManager;
+        this.pool = pool;
+    }
+
+    public BulkImporter skipInvalid(boolean skipInvalid) {
+        this.skipInvalid = skipInvalid;
+        return this;
+    }
+
+    public <T> Result importFile(BulkEntity<T> entity, Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importFrom(entity, in, BulkFormat.forFile(file));
+        }
+    }
+
+    public <T> Result importFrom(BulkEntity<T> entity, InputStream in, BulkFormat format) throws IOException {
+        Parsed<T> parsed = parse(entity, in, format);
+        List<String> errors = parsed.errors;
+        if (!errors.isEmpty() && !skipInvalid) {
+            throw failure(entity, errors);
+        }
+        int[] imported = new int[1];
+
+        dataManager.transaction(batch -> {
+            // The add methods keep an id only if it was reserved and never used. Ids from the file that the
+            // sequence already passed were handed out before, so one id is reserved to learn where it stands
+            boolean anyId = parsed.entities.stream().anyMatch(candidate -> entity.idOf(candidate) != 0);
+            int next = anyId ? entity.reserveIds(batch, 1) : 0;
+
+            // Records that would clash with stored data or with each other
+            boolean[] valid = new boolean[parsed.entities.size()];
+            Set<Integer> idsInFile = new HashSet<>();
+            int withoutId = 0;
+            int highestId = 0;
+            for (int i = 0; i < parsed.entities.size(); i++) {
+                T candidate = parsed.entities.get(i);
+                int id = entity.idOf(candidate);
+                String problem = null;
+                if (id != 0 && (!idsInFile.add(id) || entity.exists(batch, id))) {
+                    problem = "Id " + id + " is already in use";
+                } else if (id != 0 && id < next) {
+                    problem = "Id " + id + " was handed out before";
+                }
+                if (problem == null) {
+                    problem = entity.checkReferences(batch, candidate);
+                }
+                if (problem != null) {
+                    report(errors, parsed.recordNumbers[i], problem);
+                } else {
+                    valid[i] = true;
+                    if (id == 0) {
+                        withoutId++;
+                    }
+                    highestId = Math.max(highestId, id);
+                }
+            }
+            if (!errors.isEmpty() && !skipInvalid) {
+                throw failure(entity, errors);
+            }
+
+            // The rest of the ids up to the highest one from the file are reserved as well, and the records
+            // without an id get a fresh range above that
+            if (highestId > next) {
+                entity.reserveIds(batch, highestId - next);
+            }
+            int nextId = withoutId > 0 ? entity.reserveIds(batch, withoutId) : 0;
+            for (int i = 0; i < parsed.entities.size(); i++) {
+                if (valid[i]) {
+                    T candidate = parsed.entities.get(i);
+                    if (entity.idOf(candidate) == 0) {
+                        entity.setId(candidate, nextId++);
+                    }
+                    entity.add(batch, candidate);
+                    imported[0]++;
+                }
+            }
+        });
+        return new Result(imported[0], parsed.recordCount - imported[0], errors);
+    }
+
+    private <T> Parsed<T> parse(BulkEntity<T> entity, InputStream in, BulkFormat format) throws IOException {
+        String header = format.hasHeader() ? readLine(in) : null;
+        if (format.hasHeader() && header == null) {
+            return new Parsed<>(new ArrayList<>(), new int[0], 0, new ArrayList<>());
+        }
+        Function<String, String[]> parser = format.parser(entity.getFields(), header);
+
+        // Chunks are parsed in the order they were read, with a bounded number waiting at a time
+        Deque<ForkJoinTask<Chunk<T>>> pending = new ArrayDeque<>();
+        Parsed<T> parsed = new Parsed<>(new ArrayList<>(), new int[1024], 0, new ArrayList<>());
+        byte[] buffer = new byte[CHUNK_SIZE];
+        int length = 0;
+        boolean endOfFile = false;
+        while (!endOfFile) {
+            int read = in.readNBytes(buffer, length, buffer.length - length);
+            length += read;
+            endOfFile = length < buffer.length;
+            int end = endOfFile ? length : format.lastRecordEnd(buffer, length);
+            if (end == 0) {
+                // A single record longer than the buffer
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            String text = new String(buffer, 0, end, StandardCharsets.UTF_8);
+            pending.add(pool.submit(() -> parseChunk(entity, format, parser, text)));
+            System.arraycopy(buffer, end, buffer, 0, length - end);
+            length -= end;
+            while (pending.size() > pool.getParallelism() * 2) {
+                parsed.add(pending.removeFirst().join());
+            }
+        }
+        while (!pending.isEmpty()) {
+            parsed.add(pending.removeFirst().join());
+        }
+        return parsed;
+    }
+
+    private static <T> Chunk<T> parseChunk(BulkEntity<T> entity, BulkFormat format, Function<String, String[]> parser, String text) {
+        Chunk<T> chunk = new Chunk<>();
+        format.forEachRecord(text, record -> {
+            try {
+                chunk.entities.add(entity.fromValues(parser.apply(record)));
+                chunk.indexes.add(chunk.records);
+            } catch (IllegalArgumentException e) {
+                chunk.errorIndexes.add(chunk.records);
+                chunk.errorMessages.add(e.getMessage());
+            }
+            chunk.records++;
+        });
+        return chunk;
+    }
+
+    private static IllegalArgumentException failure(BulkEntity<?> entity, List<String> errors) {
+        return new IllegalArgumentException("Import of " + entity.getName() + " failed: " + String.join("; ", errors));
+    }
+
+    private static void report(List<String> errors, int recordNumber, String problem) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("Record " + recordNumber + ": " + problem);
+        }
+    }
+
+    // The header line, read a byte at a time so the rest of the stream is left for the chunks
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') {
+            line.write(b);
+        }
+        if (b < 0 && line.size() == 0) {
+            return null;
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        // Spreadsheets often start the file with a byte order mark
+        if (text.startsWith("\uFEFF")) {
+            text = text.substring(1);
+        }
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private static class Chunk<T> {
+        private final List<T> entities = new ArrayList<>();
+        private final List<Integer> indexes = new ArrayList<>();
+        private final List<Integer> errorIndexes = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+        private int records;
+    }
+
+    // The entities of all chunks in file order, with the number of the record each came from (counting from 1)
+    private static class Parsed<T> {
+        private final List<T> entities;
+        private int[] recordNumbers;
+        private int recordCount;
+        private final List<String> errors;
+
+        private Parsed(List<T> entities, int[] recordNumbers, int recordCount, List<String> errors) {
+            this.entities = entities;
+            this.recordNumbers = recordNumbers;
+            this.recordCount = recordCount;
+            this.errors = errors;
+        }
+
+        private void add(Chunk<T> chunk) {
+            if (recordNumbers.length < entities.size() + chunk.entities.size()) {
+                recordNumbers = Arrays.copyOf(recordNumbers, Math.max(recordNumbers.length * 2, entities.size() + chunk.entities.size()));
+            }
+            for (int i = 0; i < chunk.entities.size(); i++) {
+                recordNumbers[entities.size()] = recordCount + chunk.indexes.get(i) + 1;
+                entities.add(chunk.entities.get(i));
+            }
+            for (int i = 0; i < chunk.errorIndexes.size(); i++) {
+                report(errors, recordCount + chunk.errorIndexes.get(i) + 1, chunk.errorMessages.get(i));
+            }
+            recordCount += chunk.records;
+        }
+    }
+
+    public static class Result {
+        private final int imported;
+        private final int skipped;
+        private final List<String> errors;
+
+        private Result(int imported, int skipped, List<String> errors) {
+            this.imported = imported;
+            this.skipped = skipped;
+            this.errors = List.copyOf(errors);
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        // The first problems found, at most 100
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return imported + " imported, " + skipped + " skipped" + (errors.isEmpty() ? "" : ", errors: " + errors);
+        }
+    }
+}
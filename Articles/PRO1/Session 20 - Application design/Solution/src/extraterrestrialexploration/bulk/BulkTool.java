@@ -0,0 +1,40 @@
+package extraterrestrialexploration.bulk;
+
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.DataManagerFactory;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Imports and exports entities from the command line, using the storage engine configured for DataManagerFactory.
+// Run with: java extraterrestrialexploration.bulk.BulkTool import|export planets|aliens|explorers|encounters file [--skip-invalid]
+// The file extension picks the format: .csv or .ndjson
+public class BulkTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.out.println("Usage: BulkTool import|export planets|aliens|explorers|encounters file [--skip-invalid]");
+            return;
+        }
+        BulkEntity<?> entity = BulkEntity.forName(args[1]);
+        Path file = Paths.get(args[2]);
+        boolean skipInvalid = args.length > 3 && args[3].equals("--skip-invalid");
+
+        DataManager dataManager = DataManagerFactory.getShared();
+        try {
+            long start = System.nanoTime();
+            if (args[0].equals("import")) {
+                BulkImporter.Result result = new BulkImporter(dataManager).skipInvalid(skipInvalid).importFile(entity, file);
+                System.out.println("Imported " + entity.getName() + " from " + file + ": " + result);
+            } else {
+                long count = new BulkExporter(dataManager).exportFile(entity, file);
+                System.out.println("Exported " + count + " " + entity.getName() + " to " + file);
+            }
+            System.out.println("Took " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } finally {
+            if (dataManager instanceof Closeable) {
+                ((Closeable) dataManager).close();
+            }
+        }
+    }
+}
@@ -3,10 +3,13 @@ package extraterrestrialexploration.domain;
 import java.io.Serializable;
 
 public class Alien implements Serializable {
+    private static final long serialVersionUID = -2170158140439027812L;
+
     private int id;
     private String name;
     private String species;
     private String physicalDescription;
+    private transient boolean dirty = true;
 
     public Alien(String name, String species, String physicalDescription) {
         this.name = name;
@@ -20,6 +23,7 @@ public class Alien implements Serializable {
 
     public void setId(int id) {
         this.id = id;
+        dirty = true;
     }
 
     public String getName() {
@@ -28,6 +32,7 @@ public class Alien implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        dirty = true;
     }
 
     public String getSpecies() {
@@ -36,6 +41,7 @@ public class Alien implements Serializable {
 
     public void setSpecies(String species) {
         this.species = species;
+        dirty = true;
     }
 
     public String getPhysicalDescription() {
@@ -44,6 +50,15 @@ public class Alien implements Serializable {
 
     public void setPhysicalDescription(String physicalDescription) {
         this.physicalDescription = physicalDescription;
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markClean() {
+        dirty = false;
     }
 
     @Override
@@ -1,61 +1,175 @@
 package extraterrestrialexploration.domain;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 public class Encounter implements Serializable {
+    // Same value the class had when it held the related entities themselves, so existing data files still load
+    private static final long serialVersionUID = -1241340752239442958L;
+
+    // Older files hold the alien, planet and explorer objects, newer ones only their ids
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("date", String.class),
+            new ObjectStreamField("alienId", int.class),
+            new ObjectStreamField("planetId", int.class),
+            new ObjectStreamField("explorerId", int.class),
+            new ObjectStreamField("alienEncountered", Alien.class),
+            new ObjectStreamField("onPlanet", Planet.class),
+            new ObjectStreamField("byExplorer", Explorer.class),
+            new ObjectStreamField("descriptionOfTheEncounter", String.class)
+    };
+
+    // Dates given as text may be ISO dates or the day/month/year form the UI used to ask for
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d/M/uuuu")
+    };
+
     private int id;
-    private String date;
+    private LocalDate date;
+    private int alienId;
+    private int planetId;
+    private int explorerId;
+    // Only held until the encounter is stored, after that the entities are looked up by id
     private Alien alienEncountered;
     private Planet onPlanet;
     private Explorer byExplorer;
     private String descriptionOfTheEncounter;
+    private transient EntityResolver resolver;
+    private transient boolean dirty = true;
 
-    public Encounter(String date, Alien alienEncountered, Planet onPlanet, Explorer byExplorer, String descriptionOfTheEncounter) {
+    public Encounter(LocalDate date, Alien alienEncountered, Planet onPlanet, Explorer byExplorer, String descriptionOfTheEncounter) {
         this.date = date;
-        this.alienEncountered = alienEncountered;
-        this.onPlanet = onPlanet;
-        this.byExplorer = byExplorer;
+        setAlienEncountered(alienEncountered);
+        setOnPlanet(onPlanet);
+        setByExplorer(byExplorer);
+        this.descriptionOfTheEncounter = descriptionOfTheEncounter;
+    }
+
+    public Encounter(LocalDate date, int alienId, int planetId, int explorerId, String descriptionOfTheEncounter) {
+        this.date = date;
+        this.alienId = alienId;
+        this.planetId = planetId;
+        this.explorerId = explorerId;
         this.descriptionOfTheEncounter = descriptionOfTheEncounter;
     }
 
+    // The date is parsed straight away, see parseDate
+    public Encounter(String date, Alien alienEncountered, Planet onPlanet, Explorer byExplorer, String descriptionOfTheEncounter) {
+        this(parseDate(date), alienEncountered, onPlanet, byExplorer, descriptionOfTheEncounter);
+    }
+
+    public Encounter(String date, int alienId, int planetId, int explorerId, String descriptionOfTheEncounter) {
+        this(parseDate(date), alienId, planetId, explorerId, descriptionOfTheEncounter);
+    }
+
+    // Throws an IllegalArgumentException for text that is not a date, so a typo is not stored as one
+    public static LocalDate parseDate(String date) {
+        if (date == null) {
+            return null;
+        }
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return LocalDate.parse(date.trim(), format);
+            } catch (DateTimeParseException e) {
+                // Try the next format
+            }
+        }
+        throw new IllegalArgumentException("Not a date like 2024-03-14 or 14/03/2024: " + date);
+    }
+
     public int getId() {
         return id;
     }
 
     public void setId(int id) {
         this.id = id;
+        dirty = true;
     }
 
-    public String getDate() {
+    public LocalDate getDate() {
         return date;
     }
 
-    public void setDate(String date) {
+    public void setDate(LocalDate date) {
         this.date = date;
+        dirty = true;
     }
 
     public Alien getAlienEncountered() {
-        return alienEncountered;
+        if (alienEncountered != null || resolver == null || alienId == 0) {
+            return alienEncountered;
+        }
+        return resolver.getAlien(alienId);
     }
 
     public void setAlienEncountered(Alien alienEncountered) {
         this.alienEncountered = alienEncountered;
+        this.alienId = alienEncountered != null ? alienEncountered.getId() : 0;
+        dirty = true;
+    }
+
+    public int getAlienId() {
+        return alienEncountered != null ? alienEncountered.getId() : alienId;
+    }
+
+    public void setAlienId(int alienId) {
+        this.alienEncountered = null;
+        this.alienId = alienId;
+        dirty = true;
     }
 
     public Planet getOnPlanet() {
-        return onPlanet;
+        if (onPlanet != null || resolver == null || planetId == 0) {
+            return onPlanet;
+        }
+        return resolver.getPlanet(planetId);
     }
 
     public void setOnPlanet(Planet onPlanet) {
         this.onPlanet = onPlanet;
+        this.planetId = onPlanet != null ? onPlanet.getId() : 0;
+        dirty = true;
+    }
+
+    public int getPlanetId() {
+        return onPlanet != null ? onPlanet.getId() : planetId;
+    }
+
+    public void setPlanetId(int planetId) {
+        this.onPlanet = null;
+        this.planetId = planetId;
+        dirty = true;
     }
 
     public Explorer getByExplorer() {
-        return byExplorer;
+        if (byExplorer != null || resolver == null || explorerId == 0) {
+            return byExplorer;
+        }
+        return resolver.getExplorer(explorerId);
     }
 
     public void setByExplorer(Explorer byExplorer) {
         this.byExplorer = byExplorer;
+        this.explorerId = byExplorer != null ? byExplorer.getId() : 0;
+        dirty = true;
+    }
+
+    public int getExplorerId() {
+        return byExplorer != null ? byExplorer.getId() : explorerId;
+    }
+
+    public void setExplorerId(int explorerId) {
+        this.byExplorer = null;
+        this.explorerId = explorerId;
+        dirty = true;
     }
 
     public String getDescriptionOfTheEncounter() {
@@ -64,13 +178,75 @@ public class Encounter implements Serializable {
 
     public void setDescriptionOfTheEncounter(String descriptionOfTheEncounter) {
         this.descriptionOfTheEncounter = descriptionOfTheEncounter;
+        dirty = true;
+    }
+
+    // Called by the persistence layer when the encounter is stored. Entities that have no id yet are kept as they are
+    public void resolveReferencesWith(EntityResolver resolver) {
+        this.resolver = resolver;
+        if (alienEncountered != null && alienEncountered.getId() != 0) {
+            setAlienId(alienEncountered.getId());
+        }
+        if (onPlanet != null && onPlanet.getId() != 0) {
+            setPlanetId(onPlanet.getId());
+        }
+        if (byExplorer != null && byExplorer.getId() != 0) {
+            setExplorerId(byExplorer.getId());
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("date", date != null ? date.toString() : null);
+        fields.put("alienId", getAlienId());
+        fields.put("planetId", getPlanetId());
+        fields.put("explorerId", getExplorerId());
+        fields.put("alienEncountered", null);
+        fields.put("onPlanet", null);
+        fields.put("byExplorer", null);
+        fields.put("descriptionOfTheEncounter", descriptionOfTheEncounter);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = fields.get("id", 0);
+        date = readDate((String) fields.get("date", null));
+        Alien oldAlien = (Alien) fields.get("alienEncountered", null);
+        Planet oldPlanet = (Planet) fields.get("onPlanet", null);
+        Explorer oldExplorer = (Explorer) fields.get("byExplorer", null);
+        alienId = oldAlien != null ? oldAlien.getId() : fields.get("alienId", 0);
+        planetId = oldPlanet != null ? oldPlanet.getId() : fields.get("planetId", 0);
+        explorerId = oldExplorer != null ? oldExplorer.getId() : fields.get("explorerId", 0);
+        descriptionOfTheEncounter = (String) fields.get("descriptionOfTheEncounter", null);
+    }
+
+    // Older files may hold dates that were never checked; those are kept as no date rather than failing to load
+    private static LocalDate readDate(String date) {
+        try {
+            return parseDate(date);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markClean() {
+        dirty = false;
     }
 
     @Override
     public String toString() {
+        Alien alienEncountered = getAlienEncountered();
+        Planet onPlanet = getOnPlanet();
+        Explorer byExplorer = getByExplorer();
         return "Encounter{" +
                 "id=" + id +
-                ", date='" + date + '\'' +
+                ", date=" + date +
                 ", alienEncountered=" + (alienEncountered != null ? alienEncountered.getName() : "None") +
                 ", onPlanet=" + (onPlanet != null ? onPlanet.getName() : "None") +
                 ", byExplorer=" + (byExplorer != null ? byExplorer.getName() : "None") +
@@ -78,4 +254,3 @@ public class Encounter implements Serializable {
                 '}';
     }
 }
-
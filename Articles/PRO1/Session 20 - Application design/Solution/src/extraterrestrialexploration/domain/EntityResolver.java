@@ -0,0 +1,9 @@
+package extraterrestrialexploration.domain;
+
+// Looks up entities by id. Explorers and encounters only store the ids of the entities they refer to,
+// and ask a resolver for the entities themselves when they are needed.
+public interface EntityResolver {
+    Planet getPlanet(int id);
+    Alien getAlien(int id);
+    Explorer getExplorer(int id);
+}
@@ -1,15 +1,39 @@
 package extraterrestrialexploration.domain;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 public class Explorer implements Serializable {
+    // Same value the class had when it held the planet itself, so existing data files still load
+    private static final long serialVersionUID = -2900631136434619308L;
+
+    // Older files hold the planet object, newer ones only its id
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("id", int.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("currentPlanetId", int.class),
+            new ObjectStreamField("currentPlanet", Planet.class)
+    };
+
     private int id;
     private String name;
+    private int currentPlanetId;
+    // Only held until the explorer is stored, after that the planet is looked up by id
     private Planet currentPlanet;
+    private transient EntityResolver resolver;
+    private transient boolean dirty = true;
 
     public Explorer(String name, Planet currentPlanet) {
         this.name = name;
-        this.currentPlanet = currentPlanet;
+        setCurrentPlanet(currentPlanet);
+    }
+
+    public Explorer(String name, int currentPlanetId) {
+        this.name = name;
+        this.currentPlanetId = currentPlanetId;
     }
 
     public int getId() {
@@ -18,6 +42,7 @@ public class Explorer implements Serializable {
 
     public void setId(int id) {
         this.id = id;
+        dirty = true;
     }
 
     public String getName() {
@@ -26,18 +51,68 @@ public class Explorer implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        dirty = true;
     }
 
     public Planet getCurrentPlanet() {
-        return currentPlanet;
+        if (currentPlanet != null || resolver == null || currentPlanetId == 0) {
+            return currentPlanet;
+        }
+        return resolver.getPlanet(currentPlanetId);
     }
 
     public void setCurrentPlanet(Planet currentPlanet) {
         this.currentPlanet = currentPlanet;
+        this.currentPlanetId = currentPlanet != null ? currentPlanet.getId() : 0;
+        dirty = true;
+    }
+
+    public int getCurrentPlanetId() {
+        return currentPlanet != null ? currentPlanet.getId() : currentPlanetId;
+    }
+
+    public void setCurrentPlanetId(int currentPlanetId) {
+        this.currentPlanet = null;
+        this.currentPlanetId = currentPlanetId;
+        dirty = true;
+    }
+
+    // Called by the persistence layer when the explorer is stored. A planet that has no id yet is kept as is
+    public void resolveReferencesWith(EntityResolver resolver) {
+        this.resolver = resolver;
+        if (currentPlanet != null && currentPlanet.getId() != 0) {
+            setCurrentPlanetId(currentPlanet.getId());
+        }
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("id", id);
+        fields.put("name", name);
+        fields.put("currentPlanetId", getCurrentPlanetId());
+        fields.put("currentPlanet", null);
+        out.writeFields();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        id = fields.get("id", 0);
+        name = (String) fields.get("name", null);
+        Planet oldPlanet = (Planet) fields.get("currentPlanet", null);
+        currentPlanetId = oldPlanet != null ? oldPlanet.getId() : fields.get("currentPlanetId", 0);
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markClean() {
+        dirty = false;
     }
 
     @Override
     public String toString() {
+        Planet currentPlanet = getCurrentPlanet();
         return "Explorer{" +
                 "id=" + id +
                 ", name='" + name + '\'' +
@@ -45,4 +120,3 @@ public class Explorer implements Serializable {
                 '}';
     }
 }
-
@@ -3,12 +3,17 @@ package extraterrestrialexploration.domain;
 import java.io.Serializable;
 
 public class Planet implements Serializable {
+    // Pinned so data files written before the dirty flag was added still load
+    private static final long serialVersionUID = 6602313099660606992L;
+
     private int id;
     private String name;
     private String climateDescription;
     private double distanceFromStarAU;
     private boolean hasAtmosphere;
     private boolean hasLife;
+    // Set by every change and cleared once a DataManager has stored the change, see isDirty
+    private transient boolean dirty = true;
 
     public Planet(String name, String climateDescription, double distanceFromStarAU, boolean hasAtmosphere, boolean hasLife) {
         this.name = name;
@@ -24,6 +29,7 @@ public class Planet implements Serializable {
 
     public void setId(int id) {
         this.id = id;
+        dirty = true;
     }
 
     public String getName() {
@@ -32,6 +38,7 @@ public class Planet implements Serializable {
 
     public void setName(String name) {
         this.name = name;
+        dirty = true;
     }
 
     public String getClimateDescription() {
@@ -40,6 +47,7 @@ public class Planet implements Serializable {
 
     public void setClimateDescription(String climateDescription) {
         this.climateDescription = climateDescription;
+        dirty = true;
     }
 
     public double getDistanceFromStarAU() {
@@ -48,6 +56,7 @@ public class Planet implements Serializable {
 
     public void setDistanceFromStarAU(double distanceFromStarAU) {
         this.distanceFromStarAU = distanceFromStarAU;
+        dirty = true;
     }
 
     public boolean hasAtmosphere() {
@@ -56,6 +65,7 @@ public class Planet implements Serializable {
 
     public void setHasAtmosphere(boolean hasAtmosphere) {
         this.hasAtmosphere = hasAtmosphere;
+        dirty = true;
     }
 
     public boolean hasLife() {
@@ -64,6 +74,17 @@ public class Planet implements Serializable {
 
     public void setHasLife(boolean hasLife) {
         this.hasLife = hasLife;
+        dirty = true;
+    }
+
+    // True for a new entity and after any setter was called, until markClean. DataManagers that save
+    // only what changed use this to skip entities that are already stored as they are
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void markClean() {
+        dirty = false;
     }
 
     @Override
@@ -0,0 +1,195 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+// Keeps the DataContainer in memory between calls and writes every change through to data.bin.
+// The file is only read again when its modification time, size or identity shows that someone else changed it.
+// Every save replaces the file with a new one, so the file key alone catches changes made in the same instant.
+//
+// Many threads may read at once. The cached container is never changed once it is cached: a change is applied
+// to a container of its own, read from the file, and after saving it that container replaces the cached one.
+// Readers still working with the old container are not disturbed. The cached entities are never handed out:
+// reads return copies (see EntityCopies), so changing one changes nothing until it is passed to update.
+public class CachingDataManager extends FileDataManager {
+    private volatile Cache cache;
+
+    public CachingDataManager() {
+        super();
+    }
+
+    public CachingDataManager(String filePath) {
+        super(filePath);
+    }
+
+    @Override
+    protected DataContainer loadData() {
+        Cache current = cache;
+        BasicFileAttributes attributes = readFileAttributes();
+        if (current == null || current.isOutdated(attributes)) {
+            // The stamp is taken before reading, so a write that races with the read is picked up next time
+            DataContainer data = super.loadData();
+            cache = attributes != null ? new Cache(data, attributes) : null;
+            return data;
+        }
+        return current.data;
+    }
+
+    @Override
+    protected DataContainer loadDataForChange() {
+        return super.loadData();
+    }
+
+    @Override
+    protected void saveData(DataContainer data) {
+        try {
+            super.saveData(data);
+        } catch (RuntimeException e) {
+            // The file may or may not have been replaced, so it is read again next time
+            cache = null;
+            throw e;
+        }
+        BasicFileAttributes attributes = readFileAttributes();
+        cache = attributes != null ? new Cache(data, attributes) : null;
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        return EntityCopies.copy(loadData().getPlanet(id));
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return EntityCopies.copies(loadData().getPlanets(), EntityCopies::copy);
+    }
+
+    @Override
+    public Alien getAlien(int id) {
+        return EntityCopies.copy(loadData().getAlien(id));
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return EntityCopies.copies(loadData().getAliens(), EntityCopies::copy);
+    }
+
+    @Override
+    public Explorer getExplorer(int id) {
+        DataContainer data = loadData();
+        return EntityCopies.copy(data.getExplorer(id), copyingResolver(data));
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        DataContainer data = loadData();
+        EntityResolver resolver = copyingResolver(data);
+        return EntityCopies.copies(data.getExplorers(), explorer -> EntityCopies.copy(explorer, resolver));
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        DataContainer data = loadData();
+        return EntityCopies.copy(data.getEncounter(id), copyingResolver(data));
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        DataContainer data = loadData();
+        return encounterCopies(data, data.getEncounters());
+    }
+
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        DataContainer data = loadData();
+        return encounterCopies(data, data.findEncountersByAlien(alienId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        DataContainer data = loadData();
+        return encounterCopies(data, data.findEncountersByPlanet(planetId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        DataContainer data = loadData();
+        return encounterCopies(data, data.findEncountersByExplorer(explorerId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        DataContainer data = loadData();
+        return encounterCopies(data, data.findEncountersBetween(from, to));
+    }
+
+    private List<Encounter> encounterCopies(DataContainer data, List<Encounter> stored) {
+        EntityResolver resolver = copyingResolver(data);
+        return EntityCopies.copies(stored, encounter -> EntityCopies.copy(encounter, resolver));
+    }
+
+    // References of the copies are looked up where the cached entities look them up, and copied as well
+    private EntityResolver copyingResolver(DataContainer data) {
+        return new EntityCopies.CopyingResolver(referenceResolver(data));
+    }
+
+    // The cached lists are already in memory, so streaming them is cheaper than decoding the file again
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return getAllPlanets().stream();
+    }
+
+    @Override
+    public Stream<Alien> streamAliens() {
+        return getAllAliens().stream();
+    }
+
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        return getAllExplorers().stream();
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return getAllEncounters().stream();
+    }
+
+    private BasicFileAttributes readFileAttributes() {
+        Path path = Paths.get(filePath);
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // A loaded container together with the state of the file it was loaded from
+    private static final class Cache {
+        private final DataContainer data;
+        private final FileTime modifiedTime;
+        private final long size;
+        private final Object fileKey;
+
+        private Cache(DataContainer data, BasicFileAttributes attributes) {
+            this.data = data;
+            this.modifiedTime = attributes.lastModifiedTime();
+            this.size = attributes.size();
+            this.fileKey = attributes.fileKey();
+        }
+
+        private boolean isOutdated(BasicFileAttributes attributes) {
+            return attributes == null
+                    || !attributes.lastModifiedTime().equals(modifiedTime)
+                    || attributes.size() != size
+                    || !Objects.equals(attributes.fileKey(), fileKey);
+        }
+    }
+}
@@ -0,0 +1,591 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// A DataManager that many threads can use at once. The data is loaded once and kept in memory.
+//
+// Each entity type has its own StampedLock, so work on planets never waits for work on encounters.
+// getPlanet and the other single-entity reads first try an optimistic read, which takes no lock at all,
+// and only fall back to a read lock if a writer got in the way. Changes take the write lock of their type.
+//
+// Changes are applied in memory and written to data.bin by a single background thread as a group commit:
+// all changes made since the last write go to disk together, once the commit interval has passed since the
+// first of them or as soon as the batch size is reached. The interval is therefore the bound on how long a
+// change can stay in memory only. The async methods return a future that completes when the write holding
+// the change is on disk; the plain DataManager methods wait for that write and throw if it failed.
+// A failed write leaves its changes in memory, so the next write that succeeds still saves them.
+// By default there is no interval and every change is written right away, folding in any changes made
+// while a write is under way. flush() waits until everything changed so far is on disk; close() flushes
+// and stops the thread.
+// The data is only read at startup, so other processes must not change the file while this manager uses it.
+public class ConcurrentDataManager extends FileDataManager implements EntityResolver, Closeable {
+    private final StampedLock planetLock = new StampedLock();
+    private final StampedLock alienLock = new StampedLock();
+    private final StampedLock explorerLock = new StampedLock();
+    private final StampedLock encounterLock = new StampedLock();
+
+    private final DataFile dataFile;
+    private final Ids ids = new Ids();
+    private final ScheduledExecutorService flusher;
+    private final long commitIntervalMillis;
+    private final int commitBatchSize;
+    private final Object commitLock = new Object();
+    private List<CompletableFuture<Void>> pendingCommits = new ArrayList<>();
+    private boolean commitScheduled;
+    private boolean commitDue;
+    private final AtomicLong writeCount = new AtomicLong();
+    // The thread running a transaction holds every write lock and resolves references without locking
+    private volatile Thread transactionOwner;
+    private DataContainer data;
+
+    public ConcurrentDataManager() {
+        this("data.bin");
+    }
+
+    public ConcurrentDataManager(String filePath) {
+        this(filePath, Duration.ZERO, 1);
+    }
+
+    public ConcurrentDataManager(String filePath, Duration commitInterval, int commitBatchSize) {
+        super(filePath);
+        if (commitInterval.isNegative()) {
+            throw new IllegalArgumentException("The commit interval must not be negative: " + commitInterval);
+        }
+        if (commitBatchSize < 1) {
+            throw new IllegalArgumentException("The commit batch size must be at least 1, got " + commitBatchSize);
+        }
+        this.commitIntervalMillis = commitInterval.toMillis();
+        this.commitBatchSize = commitBatchSize;
+        dataFile = new DataFile(filePath);
+        data = loadData();
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "data-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Explorers and encounters look up their references through this manager, so they take the right lock
+    @Override
+    protected EntityResolver referenceResolver(DataContainer data) {
+        return this;
+    }
+
+    // The work runs with all four write locks held, so it must use the DataManager it is given and not this one.
+    // If it throws, the data is put back the way it was before the work started.
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        long planetStamp = planetLock.writeLock();
+        long alienStamp = alienLock.writeLock();
+        long explorerStamp = explorerLock.writeLock();
+        long encounterStamp = encounterLock.writeLock();
+        transactionOwner = Thread.currentThread();
+        try {
+            byte[] before = encode(data);
+            try {
+                work.accept(new InMemoryDataManager(data, ids));
+            } catch (RuntimeException e) {
+                data = decode(before);
+                throw e;
+            }
+        } finally {
+            transactionOwner = null;
+            encounterLock.unlockWrite(encounterStamp);
+            explorerLock.unlockWrite(explorerStamp);
+            alienLock.unlockWrite(alienStamp);
+            planetLock.unlockWrite(planetStamp);
+        }
+        await(scheduleCommit());
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        await(addPlanetAsync(planet));
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        await(updatePlanetAsync(planet));
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        await(deletePlanetAsync(id));
+    }
+
+    public CompletableFuture<Void> addPlanetAsync(Planet planet) {
+        return write(planetLock, () -> {
+            if (!ids.planets.take(planet.getId(), data.getLastPlanetId())) {
+                planet.setId(data.reservePlanetIds(1));
+            }
+            data.addPlanet(planet);
+        });
+    }
+
+    public CompletableFuture<Void> updatePlanetAsync(Planet planet) {
+        return write(planetLock, () -> {
+            if (!data.replacePlanet(planet)) {
+                throw new IllegalArgumentException("No planet with id " + planet.getId());
+            }
+        });
+    }
+
+    public CompletableFuture<Void> deletePlanetAsync(int id) {
+        return write(planetLock, () -> data.removePlanet(id));
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        if (Thread.currentThread() == transactionOwner) {
+            return data.getPlanet(id);
+        }
+        long stamp = planetLock.tryOptimisticRead();
+        Planet planet = data.getPlanet(id);
+        if (planetLock.validate(stamp)) {
+            return planet;
+        }
+        stamp = planetLock.readLock();
+        try {
+            return data.getPlanet(id);
+        } finally {
+            planetLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return read(planetLock, () -> data.getPlanets());
+    }
+
+    // A snapshot of the entities in memory; streaming from the file could miss changes not yet written
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return getAllPlanets().stream();
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        int[] first = new int[1];
+        await(write(planetLock, () -> first[0] = data.reservePlanetIds(count)));
+        return ids.planets.add(first[0], count);
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        await(addAlienAsync(alien));
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        await(updateAlienAsync(alien));
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        await(deleteAlienAsync(id));
+    }
+
+    public CompletableFuture<Void> addAlienAsync(Alien alien) {
+        return write(alienLock, () -> {
+            if (!ids.aliens.take(alien.getId(), data.getLastAlienId())) {
+                alien.setId(data.reserveAlienIds(1));
+            }
+            data.addAlien(alien);
+        });
+    }
+
+    public CompletableFuture<Void> updateAlienAsync(Alien alien) {
+        return write(alienLock, () -> {
+            if (!data.replaceAlien(alien)) {
+                throw new IllegalArgumentException("No alien with id " + alien.getId());
+            }
+        });
+    }
+
+    public CompletableFuture<Void> deleteAlienAsync(int id) {
+        return write(alienLock, () -> data.removeAlien(id));
+    }
+
+    @Override
+    public Alien getAlien(int id) {
+        if (Thread.currentThread() == transactionOwner) {
+            return data.getAlien(id);
+        }
+        long stamp = alienLock.tryOptimisticRead();
+        Alien alien = data.getAlien(id);
+        if (alienLock.validate(stamp)) {
+            return alien;
+        }
+        stamp = alienLock.readLock();
+        try {
+            return data.getAlien(id);
+        } finally {
+            alienLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return read(alienLock, () -> data.getAliens());
+    }
+
+    @Override
+    public Stream<Alien> streamAliens() {
+        return getAllAliens().stream();
+    }
+
+    @Override
+    public int reserveAlienIds(int count) {
+        int[] first = new int[1];
+        await(write(alienLock, () -> first[0] = data.reserveAlienIds(count)));
+        return ids.aliens.add(first[0], count);
+    }
+
+    // Explorer methods
+    @Override
+    public void addExplorer(Explorer explorer) {
+        await(addExplorerAsync(explorer));
+    }
+
+    @Override
+    public void updateExplorer(Explorer explorer) {
+        await(updateExplorerAsync(explorer));
+    }
+
+    @Override
+    public void deleteExplorer(int id) {
+        await(deleteExplorerAsync(id));
+    }
+
+    public CompletableFuture<Void> addExplorerAsync(Explorer explorer) {
+        return write(explorerLock, () -> {
+            if (!ids.explorers.take(explorer.getId(), data.getLastExplorerId())) {
+                explorer.setId(data.reserveExplorerIds(1));
+            }
+            data.addExplorer(explorer);
+        });
+    }
+
+    public CompletableFuture<Void> updateExplorerAsync(Explorer explorer) {
+        return write(explorerLock, () -> {
+            if (!data.replaceExplorer(explorer)) {
+                throw new IllegalArgumentException("No explorer with id " + explorer.getId());
+            }
+        });
+    }
+
+    public CompletableFuture<Void> deleteExplorerAsync(int id) {
+        return write(explorerLock, () -> data.removeExplorer(id));
+    }
+
+    @Override
+    public Explorer getExplorer(int id) {
+        if (Thread.currentThread() == transactionOwner) {
+            return data.getExplorer(id);
+        }
+        long stamp = explorerLock.tryOptimisticRead();
+        Explorer explorer = data.getExplorer(id);
+        if (explorerLock.validate(stamp)) {
+            return explorer;
+        }
+        stamp = explorerLock.readLock();
+        try {
+            return data.getExplorer(id);
+        } finally {
+            explorerLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        return read(explorerLock, () -> data.getExplorers());
+    }
+
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        return getAllExplorers().stream();
+    }
+
+    @Override
+    public int reserveExplorerIds(int count) {
+        int[] first = new int[1];
+        await(write(explorerLock, () -> first[0] = data.reserveExplorerIds(count)));
+        return ids.explorers.add(first[0], count);
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        await(addEncounterAsync(encounter));
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        await(updateEncounterAsync(encounter));
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        await(deleteEncounterAsync(id));
+    }
+
+    public CompletableFuture<Void> addEncounterAsync(Encounter encounter) {
+        return write(encounterLock, () -> {
+            if (!ids.encounters.take(encounter.getId(), data.getLastEncounterId())) {
+                encounter.setId(data.reserveEncounterIds(1));
+            }
+            data.addEncounter(encounter);
+        });
+    }
+
+    public CompletableFuture<Void> updateEncounterAsync(Encounter encounter) {
+        return write(encounterLock, () -> {
+            if (!data.replaceEncounter(encounter)) {
+                throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+            }
+        });
+    }
+
+    public CompletableFuture<Void> deleteEncounterAsync(int id) {
+        return write(encounterLock, () -> data.removeEncounter(id));
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        if (Thread.currentThread() == transactionOwner) {
+            return data.getEncounter(id);
+        }
+        long stamp = encounterLock.tryOptimisticRead();
+        Encounter encounter = data.getEncounter(id);
+        if (encounterLock.validate(stamp)) {
+            return encounter;
+        }
+        stamp = encounterLock.readLock();
+        try {
+            return data.getEncounter(id);
+        } finally {
+            encounterLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return read(encounterLock, () -> data.getEncounters());
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return getAllEncounters().stream();
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        int[] first = new int[1];
+        await(write(encounterLock, () -> first[0] = data.reserveEncounterIds(count)));
+        return ids.encounters.add(first[0], count);
+    }
+
+    // Encounter queries
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return read(encounterLock, () -> data.findEncountersByAlien(alienId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return read(encounterLock, () -> data.findEncountersByPlanet(planetId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return read(encounterLock, () -> data.findEncountersByExplorer(explorerId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return read(encounterLock, () -> data.findEncountersBetween(from, to));
+    }
+
+    // Number of times data.bin has been written since the manager was created
+    public long getWriteCount() {
+        return writeCount.get();
+    }
+
+    // Waits until every change made before the call has been written to data.bin
+    public void flush() {
+        try {
+            flusher.submit(() -> commit(true)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while flushing data", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to flush data: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private <T> T read(StampedLock lock, Supplier<T> reader) {
+        if (Thread.currentThread() == transactionOwner) {
+            return reader.get();
+        }
+        long stamp = lock.readLock();
+        try {
+            return reader.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private CompletableFuture<Void> write(StampedLock lock, Runnable change) {
+        long stamp = lock.writeLock();
+        try {
+            change.run();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return scheduleCommit();
+    }
+
+    // Adds the change to the next group commit, which is started after the commit interval or,
+    // once the batch is full, right away
+    private CompletableFuture<Void> scheduleCommit() {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        synchronized (commitLock) {
+            pendingCommits.add(committed);
+            boolean batchFull = pendingCommits.size() >= commitBatchSize;
+            if (!commitScheduled) {
+                commitScheduled = true;
+                commitDue = batchFull;
+                flusher.schedule(() -> commit(false), batchFull ? 0 : commitIntervalMillis, TimeUnit.MILLISECONDS);
+            } else if (batchFull && !commitDue) {
+                commitDue = true;
+                flusher.execute(() -> commit(false));
+            }
+        }
+        return committed;
+    }
+
+    // Writes every change made so far and completes the futures of the changes that were waiting for it.
+    // Runs on the flusher thread only, so writes never overlap. Without force, nothing is written if no
+    // change is waiting, which happens when a batch was already written before its interval ran out.
+    private void commit(boolean force) {
+        List<CompletableFuture<Void>> batch;
+        synchronized (commitLock) {
+            batch = pendingCommits;
+            pendingCommits = new ArrayList<>();
+            commitScheduled = false;
+            commitDue = false;
+        }
+        if (batch.isEmpty() && !force) {
+            return;
+        }
+        try {
+            writeToDisk();
+        } catch (RuntimeException e) {
+            // The futures take the failure to the callers, who throw it from their write; a flush is also told
+            // directly
+            batch.forEach(committed -> committed.completeExceptionally(e));
+            if (force) {
+                throw e;
+            }
+            return;
+        }
+        batch.forEach(committed -> committed.complete(null));
+    }
+
+    // Lets the plain DataManager methods report a failed write as their own exception
+    private static void await(CompletableFuture<Void> committed) {
+        try {
+            committed.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // The data is encoded in memory under the read locks, then written without holding any lock
+    private void writeToDisk() {
+        long planetStamp = planetLock.readLock();
+        long alienStamp = alienLock.readLock();
+        long explorerStamp = explorerLock.readLock();
+        long encounterStamp = encounterLock.readLock();
+        long start = System.nanoTime();
+        byte[] bytes;
+        DataContainer written;
+        try {
+            bytes = encode(data);
+            written = data;
+        } finally {
+            encounterLock.unlockRead(encounterStamp);
+            explorerLock.unlockRead(explorerStamp);
+            alienLock.unlockRead(alienStamp);
+            planetLock.unlockRead(planetStamp);
+        }
+        dataFile.exclusively(() -> {
+            try {
+                dataFile.write(out -> out.write(bytes));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save data: " + e.getMessage(), e);
+            }
+        });
+        getStorageStatistics().recordSave(bytes.length, System.nanoTime() - start, written);
+        writeCount.incrementAndGet();
+    }
+
+    private static byte[] encode(DataContainer data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            DataContainerCodec.write(out, data);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode data: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private DataContainer decode(byte[] bytes) {
+        try {
+            DataContainer data = DataContainerCodec.read(ByteBuffer.wrap(bytes));
+            data.resolveReferencesWith(this);
+            return data;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to decode data: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+// Serves every read from an immutable version of the data behind an AtomicReference, so readers take no lock
+// and never copy a whole list: getAllPlanets() returns a read-only list over the version it was called on, which
+// stays the same while writers carry on. The versions are PersistentIntMaps, so a change makes a new version that
+// shares everything but the path to the changed entity.
+//
+// Changes are saved by the wrapped DataManager first and then published as the next version. Writers take
+// turns, so the versions follow the order the changes were saved in. A transaction is published once it has
+// succeeded, so readers see all of its changes or none of them; snapshot() gives a view of one version that
+// several reads can share.
+//
+// The stored entities are copies of those passed in and are never handed out. A get method returns a copy of
+// its own, and the lists copy an entity the first time it is read from them, so changing a returned entity changes
+// nothing for other readers until it is passed to update. References are looked up the same way, in the
+// version of the view that handed the entity out: the latest one, the snapshot's or the transaction's own.
+public class CopyOnWriteDataManager extends ForwardingDataManager implements Closeable {
+    private final AtomicReference<Version> versions;
+    // null for a snapshot, which cannot be changed
+    private final ReentrantLock writeLock;
+    private final EntityResolver resolver;
+
+    public CopyOnWriteDataManager() {
+        this("data.bin");
+    }
+
+    public CopyOnWriteDataManager(String filePath) {
+        this(new SnapshotDataManager(filePath));
+    }
+
+    public CopyOnWriteDataManager(DataManager delegate) {
+        super(delegate);
+        this.writeLock = new ReentrantLock();
+        this.resolver = new VersionResolver();
+        this.versions = new AtomicReference<>(load());
+    }
+
+    private CopyOnWriteDataManager(DataManager delegate, ReentrantLock writeLock, AtomicReference<Version> versions) {
+        super(delegate);
+        this.writeLock = writeLock;
+        this.versions = versions;
+        this.resolver = new VersionResolver();
+    }
+
+    private Version load() {
+        try (Stream<Planet> planets = delegate.streamPlanets();
+             Stream<Alien> aliens = delegate.streamAliens();
+             Stream<Explorer> explorers = delegate.streamExplorers();
+             Stream<Encounter> encounters = delegate.streamEncounters()) {
+            return new Version(
+                    sortedById(planets.map(this::copy), Planet::getId),
+                    sortedById(aliens.map(this::copy), Alien::getId),
+                    sortedById(explorers.map(this::copy), Explorer::getId),
+                    sortedById(encounters.map(this::copy), Encounter::getId));
+        }
+    }
+
+    private static <T> PersistentIntMap<T> sortedById(Stream<T> entities, ToIntFunction<T> idOf) {
+        List<T> sorted = new ArrayList<>();
+        entities.forEach(sorted::add);
+        sorted.sort(Comparator.comparingInt(idOf));
+        return PersistentIntMap.ofSorted(sorted, idOf);
+    }
+
+    // A read-only view of the data as it is now, unaffected by later changes
+    public DataManager snapshot() {
+        return new CopyOnWriteDataManager(null, null, new AtomicReference<>(versions.get()));
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            // The work changes a version of its own, which is published once the wrapped transaction succeeded
+            AtomicReference<Version> working = new AtomicReference<>(versions.get());
+            delegate.transaction(dataManager ->
+                    work.accept(new CopyOnWriteDataManager(dataManager, writeLock, working)));
+            versions.set(working.get());
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void change(Runnable save, UnaryOperator<Version> publish) {
+        checkWritable();
+        writeLock.lock();
+        try {
+            save.run();
+            versions.set(publish.apply(versions.get()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void checkWritable() {
+        if (writeLock == null) {
+            throw new UnsupportedOperationException("A snapshot cannot be changed");
+        }
+    }
+
+    private <T> T reserve(Supplier<T> reservation) {
+        checkWritable();
+        return reservation.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        change(() -> delegate.addPlanet(planet), version -> version.withPlanet(copy(planet)));
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        change(() -> delegate.updatePlanet(planet), version -> version.withPlanet(copy(planet)));
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        change(() -> delegate.deletePlanet(id), version -> version.withoutPlanet(id));
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        return copied(versions.get().planets.get(id), this::copy);
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return EntityCopies.copies(versions.get().planets.values(), this::copy);
+    }
+
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return getAllPlanets().stream();
+    }
+
+    @Override
+    public List<Planet> getPlanets(int offset, int limit) {
+        return EntityCopies.copies(page(versions.get().planets, offset, limit), this::copy);
+    }
+
+    @Override
+    public List<Planet> getPlanetsAfter(int afterId, int limit) {
+        return EntityCopies.copies(pageAfter(versions.get().planets, afterId, limit), this::copy);
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        return reserve(() -> delegate.reservePlanetIds(count));
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        change(() -> delegate.addAlien(alien), version -> version.withAlien(copy(alien)));
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        change(() -> delegate.updateAlien(alien), version -> version.withAlien(copy(alien)));
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        change(() -> delegate.deleteAlien(id), version -> version.withoutAlien(id));
+    }
+
+    @Override
+    public Alien getAlien(int id) {
+        return copied(versions.get().aliens.get(id), this::copy);
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return EntityCopies.copies(versions.get().aliens.values(), this::copy);
+    }
+
+    @Override
+    public Stream<Alien> streamAliens() {
+        return getAllAliens().stream();
+    }
+
+    @Override
+    public List<Alien> getAliens(int offset, int limit) {
+        return EntityCopies.copies(page(versions.get().aliens, offset, limit), this::copy);
+    }
+
+    @Override
+    public List<Alien> getAliensAfter(int afterId, int limit) {
+        return EntityCopies.copies(pageAfter(versions.get().aliens, afterId, limit), this::copy);
+    }
+
+    @Override
+    public int reserveAlienIds(int count) {
+        return reserve(() -> delegate.reserveAlienIds(count));
+    }
+
+    // Explorer methods
+    @Override
+    public void addExplorer(Explorer explorer) {
+        change(() -> delegate.addExplorer(explorer), version -> version.withExplorer(copy(explorer)));
+    }
+
+    @Override
+    public void updateExplorer(Explorer explorer) {
+        change(() -> delegate.updateExplorer(explorer), version -> version.withExplorer(copy(explorer)));
+    }
+
+    @Override
+    public void deleteExplorer(int id) {
+        change(() -> delegate.deleteExplorer(id), version -> version.withoutExplorer(id));
+    }
+
+    @Override
+    public Explorer getExplorer(int id) {
+        return copied(versions.get().explorers.get(id), this::copy);
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        return EntityCopies.copies(versions.get().explorers.values(), this::copy);
+    }
+
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        return getAllExplorers().stream();
+    }
+
+    @Override
+    public List<Explorer> getExplorers(int offset, int limit) {
+        return EntityCopies.copies(page(versions.get().explorers, offset, limit), this::copy);
+    }
+
+    @Override
+    public List<Explorer> getExplorersAfter(int afterId, int limit) {
+        return EntityCopies.copies(pageAfter(versions.get().explorers, afterId, limit), this::copy);
+    }
+
+    @Override
+    public int reserveExplorerIds(int count) {
+        return reserve(() -> delegate.reserveExplorerIds(count));
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        change(() -> delegate.addEncounter(encounter), version -> version.withEncounter(copy(encounter)));
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        change(() -> delegate.updateEncounter(encounter), version -> version.withEncounter(copy(encounter)));
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        change(() -> delegate.deleteEncounter(id), version -> version.withoutEncounter(id));
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        return copied(versions.get().encounters.get(id), this::copy);
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return EntityCopies.copies(versions.get().encounters.values(), this::copy);
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return getAllEncounters().stream();
+    }
+
+    @Override
+    public List<Encounter> getEncounters(int offset, int limit) {
+        return EntityCopies.copies(page(versions.get().encounters, offset, limit), this::copy);
+    }
+
+    @Override
+    public List<Encounter> getEncountersAfter(int afterId, int limit) {
+        return EntityCopies.copies(pageAfter(versions.get().encounters, afterId, limit), this::copy);
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        return reserve(() -> delegate.reserveEncounterIds(count));
+    }
+
+    // Encounter queries. The versions have no indexes, so these scan the encounters of one version
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return findEncounters(encounter -> encounter.getAlienId() == alienId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return findEncounters(encounter -> encounter.getPlanetId() == planetId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return findEncounters(encounter -> encounter.getExplorerId() == explorerId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        List<Encounter> found = new ArrayList<>(findEncounters(encounter -> encounter.getDate() != null
+                && !encounter.getDate().isBefore(from) && !encounter.getDate().isAfter(to)));
+        found.sort(Comparator.comparing(Encounter::getDate));
+        return List.copyOf(found);
+    }
+
+    private List<Encounter> findEncounters(Predicate<Encounter> filter) {
+        List<Encounter> found = new ArrayList<>();
+        for (Encounter encounter : versions.get().encounters.values()) {
+            if (filter.test(encounter)) {
+                found.add(copy(encounter));
+            }
+        }
+        return List.copyOf(found);
+    }
+
+    private static <T> T copied(T stored, UnaryOperator<T> copy) {
+        return stored != null ? copy.apply(stored) : null;
+    }
+
+    // Pages are views of one version, like the lists of getAll
+    private static <T> List<T> page(PersistentIntMap<T> entities, int offset, int limit) {
+        Paging.checkPage(offset, limit);
+        int size = entities.size();
+        int from = Math.min(offset, size);
+        return entities.values().subList(from, (int) Math.min((long) from + limit, size));
+    }
+
+    private static <T> List<T> pageAfter(PersistentIntMap<T> entities, int afterId, int limit) {
+        Paging.checkPage(0, limit);
+        int size = entities.size();
+        int from = entities.rank(afterId);
+        return entities.values().subList(from, (int) Math.min((long) from + limit, size));
+    }
+
+    private Planet copy(Planet planet) {
+        return EntityCopies.copy(planet);
+    }
+
+    private Alien copy(Alien alien) {
+        return EntityCopies.copy(alien);
+    }
+
+    private Explorer copy(Explorer explorer) {
+        return EntityCopies.copy(explorer, resolver);
+    }
+
+    private Encounter copy(Encounter encounter) {
+        return EntityCopies.copy(encounter, resolver);
+    }
+
+    // One immutable version of the data
+    private static final class Version {
+        private final PersistentIntMap<Planet> planets;
+        private final PersistentIntMap<Alien> aliens;
+        private final PersistentIntMap<Explorer> explorers;
+        private final PersistentIntMap<Encounter> encounters;
+
+        private Version(PersistentIntMap<Planet> planets, PersistentIntMap<Alien> aliens,
+                        PersistentIntMap<Explorer> explorers, PersistentIntMap<Encounter> encounters) {
+            this.planets = planets;
+            this.aliens = aliens;
+            this.explorers = explorers;
+            this.encounters = encounters;
+        }
+
+        private Version withPlanet(Planet planet) {
+            return new Version(planets.put(planet.getId(), planet), aliens, explorers, encounters);
+        }
+
+        private Version withoutPlanet(int id) {
+            return new Version(planets.remove(id), aliens, explorers, encounters);
+        }
+
+        private Version withAlien(Alien alien) {
+            return new Version(planets, aliens.put(alien.getId(), alien), explorers, encounters);
+        }
+
+        private Version withoutAlien(int id) {
+            return new Version(planets, aliens.remove(id), explorers, encounters);
+        }
+
+        private Version withExplorer(Explorer explorer) {
+            return new Version(planets, aliens, explorers.put(explorer.getId(), explorer), encounters);
+        }
+
+        private Version withoutExplorer(int id) {
+            return new Version(planets, aliens, explorers.remove(id), encounters);
+        }
+
+        private Version withEncounter(Encounter encounter) {
+            return new Version(planets, aliens, explorers, encounters.put(encounter.getId(), encounter));
+        }
+
+        private Version withoutEncounter(int id) {
+            return new Version(planets, aliens, explorers, encounters.remove(id));
+        }
+    }
+
+    // References are looked up in this view's versions: the latest published one, the version a snapshot was
+    // taken of, or the version a transaction is changing, which holds the entities it added so far
+    private class VersionResolver implements EntityResolver {
+        @Override
+        public Planet getPlanet(int id) {
+            return copied(versions.get().planets.get(id), CopyOnWriteDataManager.this::copy);
+        }
+
+        @Override
+        public Alien getAlien(int id) {
+            return copied(versions.get().aliens.get(id), CopyOnWriteDataManager.this::copy);
+        }
+
+        @Override
+        public Explorer getExplorer(int id) {
+            return copied(versions.get().explorers.get(id), CopyOnWriteDataManager.this::copy);
+        }
+    }
+}
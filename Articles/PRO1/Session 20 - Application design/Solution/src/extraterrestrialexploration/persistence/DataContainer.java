@@ -1,39 +1,241 @@
 package extraterrestrialexploration.persistence;
 
 import extraterrestrialexploration.domain.*;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-public class DataContainer implements Serializable {
-    private List<Alien> aliens;
-    private List<Planet> planets;
-    private List<Explorer> explorers;
-    private List<Encounter> encounters;
+// Also the resolver for the explorers and encounters it holds: their references are looked up here by id,
+// so every reference to an entity yields the one object stored in the container.
+public class DataContainer implements Serializable, EntityResolver {
+    // Same value the class had before the id indexes were added, so existing data.bin files still load
+    private static final long serialVersionUID = -3784577674385995983L;
+
+    // The serialized form is four plain lists and the id sequences; the indexed tables are rebuilt when loading
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("aliens", List.class),
+            new ObjectStreamField("planets", List.class),
+            new ObjectStreamField("explorers", List.class),
+            new ObjectStreamField("encounters", List.class),
+            new ObjectStreamField("lastAlienId", int.class),
+            new ObjectStreamField("lastPlanetId", int.class),
+            new ObjectStreamField("lastExplorerId", int.class),
+            new ObjectStreamField("lastEncounterId", int.class)
+    };
+
+    private transient EntityTable<Alien> aliens;
+    private transient EntityTable<Planet> planets;
+    private transient EntityTable<Explorer> explorers;
+    private transient EntityTable<Encounter> encounters;
+    // Built by the first find call, so loading the data does not pay for it; null until then
+    private transient volatile EncounterIndex encounterIndex;
+    private transient EntityResolver resolver;
 
     public DataContainer() {
-        this.aliens = new ArrayList<>();
-        this.planets = new ArrayList<>();
-        this.explorers = new ArrayList<>();
-        this.encounters = new ArrayList<>();
+        createTables();
+    }
+
+    private void createTables() {
+        this.aliens = new EntityTable<>(Alien::getId);
+        this.planets = new EntityTable<>(Planet::getId);
+        this.explorers = new EntityTable<>(Explorer::getId);
+        this.encounters = new EntityTable<>(Encounter::getId);
+        this.encounterIndex = null;
+        this.resolver = this;
+    }
+
+    // Makes the stored explorers and encounters, and those added later, look up their references elsewhere
+    void resolveReferencesWith(EntityResolver resolver) {
+        this.resolver = resolver;
+        for (Explorer explorer : explorers.toList()) {
+            explorer.resolveReferencesWith(resolver);
+        }
+        for (Encounter encounter : encounters.toList()) {
+            encounter.resolveReferencesWith(resolver);
+        }
     }
 
+    // The whole container in the binary format, to be put back with restore if a change must be taken back
+    byte[] snapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            DataContainerCodec.write(out, this);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to copy data: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Replaces the entities and id sequences with those of a snapshot; references resolve where they did before
+    void restore(byte[] snapshot) {
+        DataContainer copy;
+        try {
+            copy = DataContainerCodec.read(ByteBuffer.wrap(snapshot));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to restore data: " + e.getMessage(), e);
+        }
+        aliens = copy.aliens;
+        planets = copy.planets;
+        explorers = copy.explorers;
+        encounters = copy.encounters;
+        encounterIndex = copy.encounterIndex;
+        resolveReferencesWith(resolver);
+    }
+
+    // The returned lists are read-only snapshots in insertion order
     public List<Alien> getAliens() {
-        return aliens;
+        return aliens.toList();
     }
 
     public List<Planet> getPlanets() {
-        return planets;
+        return planets.toList();
     }
 
     public List<Explorer> getExplorers() {
-        return explorers;
+        return explorers.toList();
     }
 
     public List<Encounter> getEncounters() {
-        return encounters;
+        return encounters.toList();
+    }
+
+    // Counts without building the snapshot lists
+    int alienCount() {
+        return aliens.size();
+    }
+
+    int planetCount() {
+        return planets.size();
+    }
+
+    int explorerCount() {
+        return explorers.size();
+    }
+
+    int encounterCount() {
+        return encounters.size();
+    }
+
+    public Alien getAlien(int id) {
+        return aliens.get(id);
+    }
+
+    public Planet getPlanet(int id) {
+        return planets.get(id);
+    }
+
+    public Explorer getExplorer(int id) {
+        return explorers.get(id);
+    }
+
+    public Encounter getEncounter(int id) {
+        return encounters.get(id);
+    }
+
+    // The find methods use the encounter indexes and return read-only lists; encounters in a date range
+    // come earliest first, the others in insertion order
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return encountersWithIds(encounterIndex().byAlien(alienId));
+    }
+
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return encountersWithIds(encounterIndex().byPlanet(planetId));
+    }
+
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return encountersWithIds(encounterIndex().byExplorer(explorerId));
+    }
+
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return encountersWithIds(encounterIndex().between(from, to));
+    }
+
+    // Readers sharing a container may all ask for the index at once, so only one of them builds it
+    private EncounterIndex encounterIndex() {
+        EncounterIndex index = encounterIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = encounterIndex;
+                if (index == null) {
+                    index = new EncounterIndex();
+                    for (Encounter encounter : encounters.toList()) {
+                        index.add(encounter);
+                    }
+                    encounterIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    private List<Encounter> encountersWithIds(Collection<Integer> ids) {
+        List<Encounter> result = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            result.add(encounters.get(id));
+        }
+        return List.copyOf(result);
+    }
+
+    // Each entity type has its own id sequence. The reserve methods hand out count ids that were never
+    // used before, even by entities that have since been deleted, and return the first of them.
+    public int reserveAlienIds(int count) {
+        return aliens.reserveIds(count);
+    }
+
+    public int reservePlanetIds(int count) {
+        return planets.reserveIds(count);
     }
 
+    public int reserveExplorerIds(int count) {
+        return explorers.reserveIds(count);
+    }
+
+    public int reserveEncounterIds(int count) {
+        return encounters.reserveIds(count);
+    }
+
+    public int getLastAlienId() {
+        return aliens.lastId();
+    }
+
+    public int getLastPlanetId() {
+        return planets.lastId();
+    }
+
+    public int getLastExplorerId() {
+        return explorers.lastId();
+    }
+
+    public int getLastEncounterId() {
+        return encounters.lastId();
+    }
+
+    void skipAlienIdsTo(int id) {
+        aliens.skipIdsTo(id);
+    }
+
+    void skipPlanetIdsTo(int id) {
+        planets.skipIdsTo(id);
+    }
+
+    void skipExplorerIdsTo(int id) {
+        explorers.skipIdsTo(id);
+    }
+
+    void skipEncounterIdsTo(int id) {
+        encounters.skipIdsTo(id);
+    }
+
+    // The add methods store the entity with the id it already has, see the reserve methods for new ids
     public void addAlien(Alien alien) {
         aliens.add(alien);
     }
@@ -44,10 +246,105 @@ public class DataContainer implements Serializable {
 
     public void addExplorer(Explorer explorer) {
         explorers.add(explorer);
+        explorer.resolveReferencesWith(resolver);
     }
 
     public void addEncounter(Encounter encounter) {
         encounters.add(encounter);
+        encounter.resolveReferencesWith(resolver);
+        EncounterIndex index = encounterIndex;
+        if (index != null) {
+            index.add(encounter);
+        }
     }
-}
 
+    // The replace methods keep the entity's position and return false if there is nothing with its id
+    public boolean replaceAlien(Alien alien) {
+        return aliens.replace(alien);
+    }
+
+    public boolean replacePlanet(Planet planet) {
+        return planets.replace(planet);
+    }
+
+    public boolean replaceExplorer(Explorer explorer) {
+        if (!explorers.replace(explorer)) {
+            return false;
+        }
+        explorer.resolveReferencesWith(resolver);
+        return true;
+    }
+
+    public boolean replaceEncounter(Encounter encounter) {
+        if (!encounters.replace(encounter)) {
+            return false;
+        }
+        encounter.resolveReferencesWith(resolver);
+        EncounterIndex index = encounterIndex;
+        if (index != null) {
+            index.remove(encounter.getId());
+            index.add(encounter);
+        }
+        return true;
+    }
+
+    public boolean removeAlien(int id) {
+        return aliens.remove(id);
+    }
+
+    public boolean removePlanet(int id) {
+        return planets.remove(id);
+    }
+
+    public boolean removeExplorer(int id) {
+        return explorers.remove(id);
+    }
+
+    public boolean removeEncounter(int id) {
+        EncounterIndex index = encounterIndex;
+        if (index != null) {
+            index.remove(id);
+        }
+        return encounters.remove(id);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("aliens", new ArrayList<>(aliens.toList()));
+        fields.put("planets", new ArrayList<>(planets.toList()));
+        fields.put("explorers", new ArrayList<>(explorers.toList()));
+        fields.put("encounters", new ArrayList<>(encounters.toList()));
+        fields.put("lastAlienId", aliens.lastId());
+        fields.put("lastPlanetId", planets.lastId());
+        fields.put("lastExplorerId", explorers.lastId());
+        fields.put("lastEncounterId", encounters.lastId());
+        out.writeFields();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        createTables();
+        for (Alien alien : (List<Alien>) fields.get("aliens", new ArrayList<>())) {
+            aliens.remove(alien.getId());
+            aliens.add(alien);
+        }
+        for (Planet planet : (List<Planet>) fields.get("planets", new ArrayList<>())) {
+            planets.remove(planet.getId());
+            planets.add(planet);
+        }
+        for (Explorer explorer : (List<Explorer>) fields.get("explorers", new ArrayList<>())) {
+            explorers.remove(explorer.getId());
+            addExplorer(explorer);
+        }
+        for (Encounter encounter : (List<Encounter>) fields.get("encounters", new ArrayList<>())) {
+            removeEncounter(encounter.getId());
+            addEncounter(encounter);
+        }
+        // Files written before the sequences existed fall back to the highest id that is still present
+        aliens.skipIdsTo(fields.get("lastAlienId", 0));
+        planets.skipIdsTo(fields.get("lastPlanetId", 0));
+        explorers.skipIdsTo(fields.get("lastExplorerId", 0));
+        encounters.skipIdsTo(fields.get("lastEncounterId", 0));
+    }
+}
@@ -0,0 +1,174 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// The data.bin file format: a header followed by one section per entity type.
+//
+// Header:  int magic "ETXD", int format version, then the last id handed out for
+//          planets, aliens, explorers and encounters.
+// Section: int count, then count entities encoded by EntityCodec.
+//
+// Version 1 files hold the encounter dates as text. They are still read, and written as version 2
+// the next time the data is saved.
+final class DataContainerCodec {
+    static final int MAGIC = 0x45545844;
+    static final int VERSION = 2;
+    private static final int TEXT_DATE_VERSION = 1;
+
+    // The sections in the order they are written
+    static final int PLANETS = 0;
+    static final int ALIENS = 1;
+    static final int EXPLORERS = 2;
+    static final int ENCOUNTERS = 3;
+
+    private static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+    private static final RecordReader.Decoder<?>[] SECTION_DECODERS = {
+            EntityCodec::readPlanet, EntityCodec::readAlien, EntityCodec::readExplorer, EntityCodec::readEncounter
+    };
+    private static final RecordReader.Decoder<?>[] TEXT_DATE_SECTION_DECODERS = {
+            EntityCodec::readPlanet, EntityCodec::readAlien, EntityCodec::readExplorer, EntityCodec::readEncounterWithTextDate
+    };
+
+    private DataContainerCodec() {
+    }
+
+    static void write(DataOutputStream out, DataContainer data) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(data.getLastPlanetId());
+        out.writeInt(data.getLastAlienId());
+        out.writeInt(data.getLastExplorerId());
+        out.writeInt(data.getLastEncounterId());
+
+        out.writeInt(data.getPlanets().size());
+        for (Planet planet : data.getPlanets()) {
+            EntityCodec.writePlanet(out, planet);
+        }
+        out.writeInt(data.getAliens().size());
+        for (Alien alien : data.getAliens()) {
+            EntityCodec.writeAlien(out, alien);
+        }
+        out.writeInt(data.getExplorers().size());
+        for (Explorer explorer : data.getExplorers()) {
+            EntityCodec.writeExplorer(out, explorer);
+        }
+        out.writeInt(data.getEncounters().size());
+        for (Encounter encounter : data.getEncounters()) {
+            EntityCodec.writeEncounter(out, encounter);
+        }
+    }
+
+    static DataContainer read(ByteBuffer in) throws IOException {
+        try {
+            return readContainer(in);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Data file is truncated", e);
+        }
+    }
+
+    // Decodes the entities of one section one at a time as the stream is consumed, skipping the sections
+    // before it. The stream closes the reader when it is closed or read to the end.
+    // Returns null for a file in the old Java serialization format, which has to be loaded instead.
+    @SuppressWarnings("unchecked")
+    static <T> Stream<T> stream(RecordReader in, int section) throws IOException {
+        int magic = in.readInt();
+        if (magic >>> 16 == JAVA_SERIALIZATION_MAGIC) {
+            return null;
+        }
+        RecordReader.Decoder<?>[] decoders = checkHeader(magic, in.readInt());
+        for (int i = 0; i < 4; i++) {
+            in.readInt(); // last ids
+        }
+        for (int skipped = 0; skipped < section; skipped++) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                in.read(decoders[skipped]);
+            }
+        }
+
+        RecordReader.Decoder<T> decoder = (RecordReader.Decoder<T>) decoders[section];
+        int count = in.readInt();
+        Spliterator<T> entities = new Spliterators.AbstractSpliterator<T>(count,
+                Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL) {
+            private int remaining = count;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (remaining == 0) {
+                        in.close();
+                        return false;
+                    }
+                    remaining--;
+                    action.accept(in.read(decoder));
+                    return true;
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read data: " + e.getMessage(), e);
+                }
+            }
+        };
+        return StreamSupport.stream(entities, false).onClose(() -> {
+            try {
+                in.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close data file: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Returns the section decoders for the file's version
+    private static RecordReader.Decoder<?>[] checkHeader(int magic, int version) throws IOException {
+        if (magic != MAGIC) {
+            throw new IOException("Not a data file, unexpected header " + Integer.toHexString(magic));
+        }
+        if (version == VERSION) {
+            return SECTION_DECODERS;
+        }
+        if (version == TEXT_DATE_VERSION) {
+            return TEXT_DATE_SECTION_DECODERS;
+        }
+        throw new IOException("Unsupported data file version " + version);
+    }
+
+    private static DataContainer readContainer(ByteBuffer in) throws IOException {
+        boolean textDates = checkHeader(in.getInt(), in.getInt()) == TEXT_DATE_SECTION_DECODERS;
+
+        DataContainer data = new DataContainer();
+        data.skipPlanetIdsTo(in.getInt());
+        data.skipAlienIdsTo(in.getInt());
+        data.skipExplorerIdsTo(in.getInt());
+        data.skipEncounterIdsTo(in.getInt());
+
+        int planetCount = in.getInt();
+        for (int i = 0; i < planetCount; i++) {
+            data.addPlanet(EntityCodec.readPlanet(in));
+        }
+        int alienCount = in.getInt();
+        for (int i = 0; i < alienCount; i++) {
+            data.addAlien(EntityCodec.readAlien(in));
+        }
+        int explorerCount = in.getInt();
+        for (int i = 0; i < explorerCount; i++) {
+            data.addExplorer(EntityCodec.readExplorer(in));
+        }
+        int encounterCount = in.getInt();
+        for (int i = 0; i < encounterCount; i++) {
+            data.addEncounter(textDates ? EntityCodec.readEncounterWithTextDate(in) : EntityCodec.readEncounter(in));
+        }
+        return data;
+    }
+
+    // Files written before this format existed hold a serialized DataContainer
+    static boolean isJavaSerialization(byte[] content) {
+        return content.length >= 2 && (((content[0] & 0xFF) << 8) | (content[1] & 0xFF)) == JAVA_SERIALIZATION_MAGIC;
+    }
+}
@@ -0,0 +1,123 @@
+package extraterrestrialexploration.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+// A data file that several threads and processes can share.
+//
+// The file is never changed in place. New content is written to a temporary file in the same directory,
+// forced to disk and then moved over the old file in one atomic step, so a reader always sees either
+// the complete old file or the complete new one and needs no lock.
+//
+// Changes that read the file, modify the data and write it back run while holding an exclusive lock on
+// a separate lock file next to it (data.bin.lock), so changes from different processes cannot overwrite
+// each other. File locks are held per process, so threads in the same process also share a lock per file.
+final class DataFile {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final ConcurrentHashMap<Path, ReentrantLock> PROCESS_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path path;
+    private final Path lockPath;
+
+    interface Content {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    DataFile(String filePath) {
+        this.path = Paths.get(filePath).toAbsolutePath().normalize();
+        this.lockPath = path.resolveSibling(path.getFileName() + ".lock");
+    }
+
+    Path path() {
+        return path;
+    }
+
+    boolean exists() {
+        return Files.exists(path);
+    }
+
+    byte[] read() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    // Reads the file a buffer at a time; the reader keeps reading the same file even if it is replaced meanwhile
+    RecordReader reader() throws IOException {
+        return new RecordReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    // Returns the number of bytes written
+    long write(Content content) throws IOException {
+        // Unlike Files.createTempFile, which always gives 0600, the file gets the permissions new files get here
+        Path temporary = path.resolveSibling(path.getFileName() + "." + ThreadLocalRandom.current().nextLong(Long.MAX_VALUE) + ".tmp");
+        long written;
+        try {
+            try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(file), BUFFER_SIZE))) {
+                content.writeTo(out);
+                out.flush();
+                file.force(true);
+                written = file.size();
+            }
+            keepPermissions(temporary);
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        forceDirectory(path.getParent());
+        return written;
+    }
+
+    // Runs the action while this thread holds the file exclusively. Calls may be nested.
+    // The process lock is only created here, so files that are written but never locked leave nothing behind
+    void exclusively(Runnable action) {
+        ReentrantLock processLock = PROCESS_LOCKS.computeIfAbsent(path, p -> new ReentrantLock());
+        processLock.lock();
+        try {
+            if (processLock.getHoldCount() > 1) {
+                action.run();
+                return;
+            }
+            try (FileChannel channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    action.run();
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to lock data file: " + e.getMessage(), e);
+            }
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    // A file that replaces the data file keeps the permissions it was given, where the file system has them
+    private void keepPermissions(Path temporary) throws IOException {
+        if (Files.exists(path) && Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(temporary, Files.getPosixFilePermissions(path));
+        }
+    }
+
+    // Makes the rename itself durable. Not every platform can open a directory, which only costs durability
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Nothing more can be done here
+        }
+    }
+}
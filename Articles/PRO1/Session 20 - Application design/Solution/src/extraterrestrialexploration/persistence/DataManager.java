@@ -1,31 +1,129 @@
 package extraterrestrialexploration.persistence;
 
 import extraterrestrialexploration.domain.*;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+// The add methods give an entity the next id of its type. Only an entity that carries an id a reserve method of
+// the same DataManager handed out, and that nothing was added with yet, keeps its id.
+// The update methods replace the entity with the same id where it is, and throw an IllegalArgumentException
+// if there is no such entity. The reserve methods hand out count ids in one call and return the first one.
+//
+// Besides the getAll methods, the entities of each type can be read a few at a time:
+// - stream methods decode entities as they are consumed, where the storage allows it. Close the stream
+//   (or read it to the end) so the file it reads is released.
+// - getX(offset, limit) returns one page in the order of getAll.
+// - getXAfter(afterId, limit) returns the limit entities with the lowest ids above afterId, lowest first.
+//   Passing the last id of one page gets the next page, which stays correct while entities are added or deleted.
 public interface DataManager {
+    // Runs all changes the work makes through the given DataManager as one batch: the data is loaded once,
+    // every change is applied in memory and the result is saved once. If the work throws, nothing is saved.
+    void transaction(Consumer<DataManager> work);
+
+    default void addPlanets(Collection<Planet> planets) {
+        transaction(dataManager -> planets.forEach(dataManager::addPlanet));
+    }
+
+    default void addAliens(Collection<Alien> aliens) {
+        transaction(dataManager -> aliens.forEach(dataManager::addAlien));
+    }
+
+    default void addExplorers(Collection<Explorer> explorers) {
+        transaction(dataManager -> explorers.forEach(dataManager::addExplorer));
+    }
+
+    default void addEncounters(Collection<Encounter> encounters) {
+        transaction(dataManager -> encounters.forEach(dataManager::addEncounter));
+    }
+
     void addPlanet(Planet planet);
     void updatePlanet(Planet planet);
     void deletePlanet(int id);
     Planet getPlanet(int id);
     List<Planet> getAllPlanets();
+
+    default Stream<Planet> streamPlanets() {
+        return getAllPlanets().stream();
+    }
+
+    default List<Planet> getPlanets(int offset, int limit) {
+        return Paging.page(streamPlanets(), offset, limit);
+    }
+
+    default List<Planet> getPlanetsAfter(int afterId, int limit) {
+        return Paging.after(streamPlanets(), Planet::getId, afterId, limit);
+    }
+
+    int reservePlanetIds(int count);
     
     void addAlien(Alien alien);
     void updateAlien(Alien alien);
     void deleteAlien(int id);
     Alien getAlien(int id);
     List<Alien> getAllAliens();
+
+    default Stream<Alien> streamAliens() {
+        return getAllAliens().stream();
+    }
+
+    default List<Alien> getAliens(int offset, int limit) {
+        return Paging.page(streamAliens(), offset, limit);
+    }
+
+    default List<Alien> getAliensAfter(int afterId, int limit) {
+        return Paging.after(streamAliens(), Alien::getId, afterId, limit);
+    }
+
+    int reserveAlienIds(int count);
     
     void addExplorer(Explorer explorer);
     void updateExplorer(Explorer explorer);
     void deleteExplorer(int id);
     Explorer getExplorer(int id);
     List<Explorer> getAllExplorers();
+
+    default Stream<Explorer> streamExplorers() {
+        return getAllExplorers().stream();
+    }
+
+    default List<Explorer> getExplorers(int offset, int limit) {
+        return Paging.page(streamExplorers(), offset, limit);
+    }
+
+    default List<Explorer> getExplorersAfter(int afterId, int limit) {
+        return Paging.after(streamExplorers(), Explorer::getId, afterId, limit);
+    }
+
+    int reserveExplorerIds(int count);
     
     void addEncounter(Encounter encounter);
     void updateEncounter(Encounter encounter);
     void deleteEncounter(int id);
     Encounter getEncounter(int id);
     List<Encounter> getAllEncounters();
+
+    default Stream<Encounter> streamEncounters() {
+        return getAllEncounters().stream();
+    }
+
+    default List<Encounter> getEncounters(int offset, int limit) {
+        return Paging.page(streamEncounters(), offset, limit);
+    }
+
+    default List<Encounter> getEncountersAfter(int afterId, int limit) {
+        return Paging.after(streamEncounters(), Encounter::getId, afterId, limit);
+    }
+
+    int reserveEncounterIds(int count);
+
+    // Queries answered from indexes on the encounters. Encounters between two dates (both included)
+    // are returned earliest first, the other queries keep the order the encounters were added in.
+    List<Encounter> findEncountersByAlien(int alienId);
+    List<Encounter> findEncountersByPlanet(int planetId);
+    List<Encounter> findEncountersByExplorer(int explorerId);
+    List<Encounter> findEncountersBetween(LocalDate from, LocalDate to);
 }
 
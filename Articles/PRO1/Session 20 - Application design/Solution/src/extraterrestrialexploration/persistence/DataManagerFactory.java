@@ -0,0 +1,90 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+// Creates DataManagers by engine name, so the storage engine can be chosen per deployment without
+// changing the code that uses it. The engines are the DataManagerProviders found by ServiceLoader:
+// file, cached, concurrent, log, snapshot, copy-on-write, partitioned, mmap, in-memory and off-heap come with
+// the application. If ServiceLoader finds none, e.g. because META-INF/services was left out of the classpath,
+// those built-in engines are used.
+//
+// The engine and its location are configured with the system properties datamanager.engine and
+// datamanager.location, or the environment variables DATAMANAGER_ENGINE and DATAMANAGER_LOCATION.
+// Without configuration the file engine with data.bin is used.
+// With datamanager.metrics=true (or DATAMANAGER_METRICS) every DataManager is wrapped in a MetricsDataManager.
+public final class DataManagerFactory {
+    public static final String ENGINE_PROPERTY = "datamanager.engine";
+    public static final String LOCATION_PROPERTY = "datamanager.location";
+    public static final String METRICS_PROPERTY = "datamanager.metrics";
+    private static final String DEFAULT_ENGINE = "file";
+
+    private static final ServiceLoader<DataManagerProvider> PROVIDERS = ServiceLoader.load(DataManagerProvider.class);
+    private static DataManager shared;
+
+    private DataManagerFactory() {
+    }
+
+    // Creates a new DataManager of the named engine, at its default location if location is null
+    public static DataManager create(String engine, String location) {
+        return getProvider(engine).create(location);
+    }
+
+    // Creates a new DataManager as configured
+    public static DataManager createConfigured() {
+        return createConfigured(DEFAULT_ENGINE);
+    }
+
+    // Creates a new DataManager as configured, of the given engine if none is configured
+    public static DataManager createConfigured(String defaultEngine) {
+        DataManager dataManager = create(setting(ENGINE_PROPERTY, defaultEngine), setting(LOCATION_PROPERTY, null));
+        if (Boolean.parseBoolean(setting(METRICS_PROPERTY, "false"))) {
+            return new MetricsDataManager(dataManager);
+        }
+        return dataManager;
+    }
+
+    // The configured DataManager, created on first use and then shared by every caller
+    public static DataManager getShared() {
+        return getShared(DEFAULT_ENGINE);
+    }
+
+    // The same, but the first caller decides the engine used if none is configured
+    public static synchronized DataManager getShared(String defaultEngine) {
+        if (shared == null) {
+            shared = createConfigured(defaultEngine);
+        }
+        return shared;
+    }
+
+    public static synchronized List<String> getEngineNames() {
+        List<String> names = new ArrayList<>();
+        for (DataManagerProvider provider : providers()) {
+            names.add(provider.getName());
+        }
+        return names;
+    }
+
+    private static synchronized DataManagerProvider getProvider(String engine) {
+        for (DataManagerProvider provider : providers()) {
+            if (provider.getName().equalsIgnoreCase(engine)) {
+                return provider;
+            }
+        }
+        throw new IllegalArgumentException("Unknown storage engine " + engine + ", choose from " + getEngineNames());
+    }
+
+    private static Iterable<DataManagerProvider> providers() {
+        return PROVIDERS.iterator().hasNext() ? PROVIDERS : DataManagerProviders.builtIn();
+    }
+
+    // A system property wins over the environment variable of the same name, e.g. DATAMANAGER_ENGINE
+    private static String setting(String property, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(property.toUpperCase().replace('.', '_'));
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+}
@@ -0,0 +1,12 @@
+package extraterrestrialexploration.persistence;
+
+// A storage engine that DataManagerFactory can create by name.
+// Engines are found with ServiceLoader, so another jar can add one by listing its provider class in
+// META-INF/services/extraterrestrialexploration.persistence.DataManagerProvider.
+public interface DataManagerProvider {
+    // The name used to choose this engine, e.g. "file"
+    String getName();
+
+    // Creates the engine storing its data at location, or at its default location if location is null
+    DataManager create(String location);
+}
@@ -0,0 +1,105 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.List;
+import java.util.function.Function;
+
+// The storage engines that come with the application. Each one is registered in
+// META-INF/services/extraterrestrialexploration.persistence.DataManagerProvider.
+public final class DataManagerProviders {
+    private DataManagerProviders() {
+    }
+
+    // The same engines in the same order as the services file, for when that file is not on the classpath
+    static List<DataManagerProvider> builtIn() {
+        return List.of(new File(), new Cached(), new Concurrent(), new Log(), new Snapshot(), new CopyOnWrite(),
+                new Partitioned(), new Mapped(), new InMemory(), new OffHeap());
+    }
+
+    private abstract static class BuiltInProvider implements DataManagerProvider {
+        private final String name;
+        private final String defaultLocation;
+        private final Function<String, DataManager> constructor;
+
+        private BuiltInProvider(String name, String defaultLocation, Function<String, DataManager> constructor) {
+            this.name = name;
+            this.defaultLocation = defaultLocation;
+            this.constructor = constructor;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public DataManager create(String location) {
+            return constructor.apply(location != null ? location : defaultLocation);
+        }
+    }
+
+    public static class File extends BuiltInProvider {
+        public File() {
+            super("file", "data.bin", FileDataManager::new);
+        }
+    }
+
+    public static class Cached extends BuiltInProvider {
+        public Cached() {
+            super("cached", "data.bin", CachingDataManager::new);
+        }
+    }
+
+    public static class Concurrent extends BuiltInProvider {
+        public Concurrent() {
+            super("concurrent", "data.bin", ConcurrentDataManager::new);
+        }
+    }
+
+    public static class Log extends BuiltInProvider {
+        public Log() {
+            super("log", "data.log", LogDataManager::new);
+        }
+    }
+
+    // Deltas go next to the snapshot, e.g. data.bin.00000001.delta
+    public static class Snapshot extends BuiltInProvider {
+        public Snapshot() {
+            super("snapshot", "data.bin", SnapshotDataManager::new);
+        }
+    }
+
+    // Reads from immutable versions in memory and saves through the snapshot engine
+    public static class CopyOnWrite extends BuiltInProvider {
+        public CopyOnWrite() {
+            super("copy-on-write", "data.bin", CopyOnWriteDataManager::new);
+        }
+    }
+
+    // Encounters go into a directory next to the data file, e.g. data.bin.encounters
+    public static class Partitioned extends BuiltInProvider {
+        public Partitioned() {
+            super("partitioned", "data.bin", PartitionedDataManager::new);
+        }
+    }
+
+    // Planets go next to the data file, e.g. data.bin gets data-planets.dat and data-planets.str
+    public static class Mapped extends BuiltInProvider {
+        public Mapped() {
+            super("mmap", "data.bin", MappedDataManager::new);
+        }
+    }
+
+    // Keeps nothing between runs; the location is ignored
+    public static class InMemory extends BuiltInProvider {
+        public InMemory() {
+            super("in-memory", null, location -> new InMemoryDataManager());
+        }
+    }
+
+    // Keeps nothing between runs either, but outside the Java heap; the location is ignored
+    public static class OffHeap extends BuiltInProvider {
+        public OffHeap() {
+            super("off-heap", null, location -> new OffHeapDataManager());
+        }
+    }
+}
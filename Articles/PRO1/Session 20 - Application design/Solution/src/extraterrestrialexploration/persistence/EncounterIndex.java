@@ -0,0 +1,94 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.Encounter;
+import java.time.LocalDate;
+import java.util.*;
+
+// Secondary indexes over the encounters of a DataContainer: the ids of the encounters per alien, planet
+// and explorer, and per date in a sorted map, so a query only visits the encounters it returns.
+//
+// The keys an encounter was indexed under are remembered, so it is removed from the right buckets even
+// if the encounter object was changed before it was replaced.
+class EncounterIndex {
+    private final Map<Integer, Set<Integer>> byAlien = new HashMap<>();
+    private final Map<Integer, Set<Integer>> byPlanet = new HashMap<>();
+    private final Map<Integer, Set<Integer>> byExplorer = new HashMap<>();
+    private final TreeMap<LocalDate, Set<Integer>> byDate = new TreeMap<>();
+    private final Map<Integer, Keys> keysById = new HashMap<>();
+
+    void add(Encounter encounter) {
+        Keys keys = new Keys(encounter.getAlienId(), encounter.getPlanetId(), encounter.getExplorerId(),
+                encounter.getDate());
+        keysById.put(encounter.getId(), keys);
+        addTo(byAlien, keys.alienId, encounter.getId());
+        addTo(byPlanet, keys.planetId, encounter.getId());
+        addTo(byExplorer, keys.explorerId, encounter.getId());
+        if (keys.date != null) {
+            addTo(byDate, keys.date, encounter.getId());
+        }
+    }
+
+    void remove(int id) {
+        Keys keys = keysById.remove(id);
+        if (keys == null) {
+            return;
+        }
+        removeFrom(byAlien, keys.alienId, id);
+        removeFrom(byPlanet, keys.planetId, id);
+        removeFrom(byExplorer, keys.explorerId, id);
+        if (keys.date != null) {
+            removeFrom(byDate, keys.date, id);
+        }
+    }
+
+    // The ids are returned in the order the encounters were indexed
+    Collection<Integer> byAlien(int alienId) {
+        return byAlien.getOrDefault(alienId, Collections.emptySet());
+    }
+
+    Collection<Integer> byPlanet(int planetId) {
+        return byPlanet.getOrDefault(planetId, Collections.emptySet());
+    }
+
+    Collection<Integer> byExplorer(int explorerId) {
+        return byExplorer.getOrDefault(explorerId, Collections.emptySet());
+    }
+
+    // Ids of the encounters dated from and to, both included, earliest first.
+    // Encounters without a date are not in the date index.
+    List<Integer> between(LocalDate from, LocalDate to) {
+        List<Integer> ids = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return ids;
+        }
+        for (Set<Integer> bucket : byDate.subMap(from, true, to, true).values()) {
+            ids.addAll(bucket);
+        }
+        return ids;
+    }
+
+    private static <K> void addTo(Map<K, Set<Integer>> index, K key, int id) {
+        index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(id);
+    }
+
+    private static <K> void removeFrom(Map<K, Set<Integer>> index, K key, int id) {
+        Set<Integer> bucket = index.get(key);
+        if (bucket != null && bucket.remove(id) && bucket.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static class Keys {
+        private final int alienId;
+        private final int planetId;
+        private final int explorerId;
+        private final LocalDate date;
+
+        private Keys(int alienId, int planetId, int explorerId, LocalDate date) {
+            this.alienId = alienId;
+            this.planetId = planetId;
+            this.explorerId = explorerId;
+            this.date = date;
+        }
+    }
+}
@@ -0,0 +1,581 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.EntityResolver;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+// Encounters stored in one partition file per month of their date, in a directory next to the data file:
+// data.bin.encounters/2024-05.part, 2024-06.part, ... and undated.part for encounters without a date.
+//
+// Partition files are never changed. Changes are appended to changes.log in the same directory and kept in
+// memory on top of the partition they belong to, until compact() writes new files for the partitions that
+// changed and empties the log. A query between two dates only reads the partitions of the months in between.
+// Only the ids of each partition are read at startup; the encounters are read when a query needs them, and
+// the most recently read partitions are kept in memory.
+//
+// Partition layout: magic number, version, month (year * 12 + month - 1, or Long.MIN_VALUE when undated),
+// count, the ids in ascending order, the offset of each encounter after the offsets, then the encounters.
+// Log layout: int payload length, int CRC32 of the payload, then the payload: one or more changes, each a byte
+// operation followed by the encoded encounter (UPSERT), its id (DELETE) or the last id handed out (SEQUENCE).
+// All changes of one call or transaction share a payload, so they are replayed completely or not at all.
+// Replaying a change that a compaction already wrote changes nothing. Only one process may use the files at a time.
+final class EncounterPartitions implements Closeable {
+    private static final int MAGIC = 0x45545054;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final long UNDATED = Long.MIN_VALUE;
+    private static final String EXTENSION = ".part";
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+    private static final byte SEQUENCE = 3;
+
+    private static final long COMPACTION_LOG_BYTES = 8L << 20;
+    private static final int LOADED_PARTITIONS = 24;
+
+    private final Path directory;
+    private final Path logPath;
+    private final TreeMap<Long, Partition> partitions = new TreeMap<>();
+    // Which partition holds each encounter, indexed by id
+    private Partition[] partitionOfId = new Partition[64];
+    private final LinkedHashMap<Partition, byte[]> loaded = new LinkedHashMap<>(LOADED_PARTITIONS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Partition, byte[]> eldest) {
+            return size() > LOADED_PARTITIONS;
+        }
+    };
+    private final Ids.Reservations reserved = new Ids.Reservations();
+    private int lastId;
+    private long logBytes;
+    private long partitionsRead;
+    private FileOutputStream log;
+    private DataOutputStream batch;
+    private ByteArrayOutputStream batchBytes;
+    private EntityResolver resolver;
+
+    EncounterPartitions(Path directory) {
+        this.directory = directory;
+        this.logPath = directory.resolve("changes.log");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create encounter partitions: " + e.getMessage(), e);
+        }
+        load();
+        openLog();
+    }
+
+    // Where the encounters that are read look up the entities they refer to
+    synchronized void resolveReferencesWith(EntityResolver resolver) {
+        this.resolver = resolver;
+    }
+
+    private void load() {
+        partitions.clear();
+        partitionOfId = new Partition[64];
+        loaded.clear();
+        lastId = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                Partition partition = readIds(file);
+                partitions.put(partition.month, partition);
+                for (int id : partition.ids) {
+                    setPartitionOf(id, partition);
+                }
+            }
+            replayLog();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load encounters: " + e.getMessage(), e);
+        }
+    }
+
+    private Partition readIds(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException(file.getFileName() + " is not an encounter partition of this version");
+            }
+            long month = header.getLong();
+            int count = header.getInt();
+            ByteBuffer ids = read(channel, HEADER_BYTES, 4 * count);
+            Partition partition = new Partition(month, file);
+            partition.ids = new int[count];
+            ids.asIntBuffer().get(partition.ids);
+            return partition;
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Encounter partition is truncated");
+            }
+        }
+        return buffer.flip();
+    }
+
+    // Replays every complete record and cuts off a record that was only partly written when the process died
+    private void replayLog() throws IOException {
+        logBytes = 0;
+        if (!Files.exists(logPath)) {
+            return;
+        }
+        byte[] content = Files.readAllBytes(logPath);
+        ByteBuffer in = ByteBuffer.wrap(content);
+        while (in.remaining() >= 8) {
+            int length = in.getInt();
+            int checksum = in.getInt();
+            if (length <= 0 || length > in.remaining()) {
+                break;
+            }
+            ByteBuffer payload = in.slice().limit(length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            try {
+                while (payload.hasRemaining()) {
+                    applyChange(payload);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Encounter log record is truncated", e);
+            }
+            in.position(in.position() + length);
+            logBytes = in.position();
+        }
+        if (logBytes < content.length) {
+            try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.WRITE)) {
+                channel.truncate(logBytes);
+            }
+        }
+    }
+
+    private void applyChange(ByteBuffer in) throws IOException {
+        byte operation = in.get();
+        switch (operation) {
+            case UPSERT -> {
+                int start = in.position();
+                Encounter encounter = EntityCodec.readEncounter(in);
+                byte[] encoded = new byte[in.position() - start];
+                in.get(start, encoded);
+                put(encounter.getId(), monthOf(encounter.getDate()), encoded);
+            }
+            case DELETE -> remove(in.getInt());
+            case SEQUENCE -> lastId = Math.max(lastId, in.getInt());
+            default -> throw new IOException("Unknown operation in encounter log: " + operation);
+        }
+    }
+
+    private void put(int id, long month, byte[] encoded) {
+        Partition partition = partitions.computeIfAbsent(month, m -> new Partition(m, pathOf(m)));
+        Partition current = partitionOf(id);
+        if (current != null && current != partition) {
+            current.changed.remove(id);
+            current.removed.add(id);
+        }
+        partition.changed.put(id, encoded);
+        setPartitionOf(id, partition);
+        lastId = Math.max(lastId, id);
+    }
+
+    private void remove(int id) {
+        Partition current = partitionOf(id);
+        if (current != null) {
+            current.changed.remove(id);
+            current.removed.add(id);
+            partitionOfId[id] = null;
+        }
+    }
+
+    private Partition partitionOf(int id) {
+        return id > 0 && id < partitionOfId.length ? partitionOfId[id] : null;
+    }
+
+    private void setPartitionOf(int id, Partition partition) {
+        if (id >= partitionOfId.length) {
+            partitionOfId = Arrays.copyOf(partitionOfId, Math.max(id + 1, partitionOfId.length * 2));
+        }
+        partitionOfId[id] = partition;
+    }
+
+    private static long monthOf(LocalDate date) {
+        return date != null ? date.getYear() * 12L + date.getMonthValue() - 1 : UNDATED;
+    }
+
+    private Path pathOf(long month) {
+        if (month == UNDATED) {
+            return directory.resolve("undated" + EXTENSION);
+        }
+        return directory.resolve(YearMonth.of((int) Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1) + EXTENSION);
+    }
+
+    // Changes
+
+    synchronized boolean contains(int id) {
+        return partitionOf(id) != null;
+    }
+
+    // Keeps the id of an encounter only if reserveIds handed it out and it is unused, otherwise gives it the next id,
+    // and stores it
+    synchronized void add(Encounter encounter) {
+        if (!reserved.take(encounter.getId(), lastId)) {
+            encounter.setId(nextIds(1));
+        }
+        upsert(encounter);
+    }
+
+    synchronized void update(Encounter encounter) {
+        if (!contains(encounter.getId())) {
+            throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+        }
+        upsert(encounter);
+    }
+
+    synchronized void upsert(Encounter encounter) {
+        byte[] encoded = encode(encounter);
+        byte[] record = new byte[encoded.length + 1];
+        record[0] = UPSERT;
+        System.arraycopy(encoded, 0, record, 1, encoded.length);
+        append(record);
+        put(encounter.getId(), monthOf(encounter.getDate()), encoded);
+    }
+
+    synchronized void delete(int id) {
+        if (contains(id)) {
+            append(ByteBuffer.allocate(5).put(DELETE).putInt(id).array());
+            remove(id);
+        }
+    }
+
+    synchronized int reserveIds(int count) {
+        return reserved.add(nextIds(count), count);
+    }
+
+    private int nextIds(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one id must be reserved, got " + count);
+        }
+        if (lastId > Integer.MAX_VALUE - count) {
+            throw new IllegalStateException("No more ids available");
+        }
+        int first = lastId + 1;
+        append(ByteBuffer.allocate(5).put(SEQUENCE).putInt(lastId + count).array());
+        lastId += count;
+        return first;
+    }
+
+    // Makes sure ids up to and including the given one are never handed out again
+    synchronized void skipIdsTo(int id) {
+        if (id > lastId) {
+            append(ByteBuffer.allocate(5).put(SEQUENCE).putInt(id).array());
+            lastId = id;
+        }
+    }
+
+    // Runs the changes as one log record. If the work throws, nothing is written and the changes are undone
+    synchronized void transaction(Runnable work) {
+        if (batch != null) {
+            work.run();
+            return;
+        }
+        batchBytes = new ByteArrayOutputStream();
+        batch = new DataOutputStream(batchBytes);
+        try {
+            work.run();
+            byte[] payload = batchBytes.toByteArray();
+            batch = null;
+            if (payload.length > 0) {
+                append(payload);
+            }
+        } catch (RuntimeException e) {
+            batch = null;
+            load();
+            throw e;
+        } finally {
+            batch = null;
+            batchBytes = null;
+        }
+    }
+
+    private void append(byte[] changes) {
+        try {
+            if (batch != null) {
+                batch.write(changes);
+                return;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(changes);
+            ByteBuffer record = ByteBuffer.allocate(changes.length + 8)
+                    .putInt(changes.length).putInt((int) crc.getValue()).put(changes);
+            log.write(record.array());
+            logBytes += record.capacity();
+        } catch (IOException e) {
+            load();
+            throw new RuntimeException("Failed to save encounters: " + e.getMessage(), e);
+        }
+        if (logBytes > COMPACTION_LOG_BYTES) {
+            compact();
+        }
+    }
+
+    private static byte[] encode(Encounter encounter) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            EntityCodec.writeEncounter(new DataOutputStream(bytes), encounter);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode encounter: " + e.getMessage(), e);
+        }
+    }
+
+    private void openLog() {
+        try {
+            log = new FileOutputStream(logPath.toFile(), true);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open encounter log: " + e.getMessage(), e);
+        }
+    }
+
+    // Queries
+
+    synchronized Encounter get(int id) {
+        Partition partition = partitionOf(id);
+        if (partition == null) {
+            return null;
+        }
+        byte[] changed = partition.changed.get(id);
+        if (changed != null) {
+            return decode(ByteBuffer.wrap(changed));
+        }
+        int index = Arrays.binarySearch(partition.ids, id);
+        ByteBuffer content = ByteBuffer.wrap(content(partition));
+        return decode(content.position(recordPosition(content, partition, index)));
+    }
+
+    // Earliest first, and by id on the same day
+    synchronized List<Encounter> between(LocalDate from, LocalDate to) {
+        List<Encounter> result = new ArrayList<>();
+        if (from.isAfter(to)) {
+            return result;
+        }
+        for (Partition partition : partitions.subMap(monthOf(from), true, monthOf(to), true).values()) {
+            forEachIn(partition, encounter -> {
+                if (!encounter.getDate().isBefore(from) && !encounter.getDate().isAfter(to)) {
+                    result.add(encounter);
+                }
+            });
+        }
+        result.sort(Comparator.comparing(Encounter::getDate).thenComparingInt(Encounter::getId));
+        return result;
+    }
+
+    // Reads every partition; lowest id first
+    synchronized List<Encounter> matching(Predicate<Encounter> filter) {
+        List<Encounter> result = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            forEachIn(partition, encounter -> {
+                if (filter.test(encounter)) {
+                    result.add(encounter);
+                }
+            });
+        }
+        result.sort(Comparator.comparingInt(Encounter::getId));
+        return result;
+    }
+
+    synchronized List<Encounter> after(int afterId, int limit) {
+        List<Encounter> result = new ArrayList<>(Math.min(limit, 1024));
+        for (int id = Math.max(afterId, 0) + 1; id <= lastId && result.size() < limit; id++) {
+            if (partitionOf(id) != null) {
+                result.add(get(id));
+            }
+        }
+        return result;
+    }
+
+    synchronized int getPartitionCount() {
+        return partitions.size();
+    }
+
+    // How often a partition file was read since startup
+    synchronized long getPartitionsRead() {
+        return partitionsRead;
+    }
+
+    private void forEachIn(Partition partition, Consumer<Encounter> action) {
+        if (partition.ids.length > 0) {
+            ByteBuffer content = ByteBuffer.wrap(content(partition));
+            for (int index = 0; index < partition.ids.length; index++) {
+                int id = partition.ids[index];
+                if (!partition.removed.contains(id) && !partition.changed.containsKey(id)) {
+                    action.accept(decode(content.position(recordPosition(content, partition, index))));
+                }
+            }
+        }
+        for (byte[] changed : partition.changed.values()) {
+            action.accept(decode(ByteBuffer.wrap(changed)));
+        }
+    }
+
+    private static int recordPosition(ByteBuffer content, Partition partition, int index) {
+        int count = partition.ids.length;
+        return HEADER_BYTES + 8 * count + content.getInt(HEADER_BYTES + 4 * count + 4 * index);
+    }
+
+    private byte[] content(Partition partition) {
+        byte[] content = loaded.get(partition);
+        if (content == null) {
+            try {
+                content = Files.readAllBytes(partition.path);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read encounters: " + e.getMessage(), e);
+            }
+            partitionsRead++;
+            loaded.put(partition, content);
+        }
+        return content;
+    }
+
+    private Encounter decode(ByteBuffer in) {
+        try {
+            Encounter encounter = EntityCodec.readEncounter(in);
+            if (resolver != null) {
+                encounter.resolveReferencesWith(resolver);
+            }
+            return encounter;
+        } catch (IOException | BufferUnderflowException e) {
+            throw new RuntimeException("Failed to read encounters: " + e.getMessage(), e);
+        }
+    }
+
+    // Compaction
+
+    // Writes new files for the partitions that changed and empties the log. Partitions that lost encounters are
+    // written first, so a crash part way through never leaves an encounter in two files; the log still holds
+    // every change until the end, and replaying it puts back what is missing.
+    synchronized void compact() {
+        try {
+            for (Partition partition : new ArrayList<>(partitions.values())) {
+                if (!partition.removed.isEmpty()) {
+                    rewrite(partition, false);
+                }
+            }
+            for (Partition partition : new ArrayList<>(partitions.values())) {
+                if (!partition.changed.isEmpty()) {
+                    rewrite(partition, true);
+                }
+            }
+
+            log.close();
+            new DataFile(logPath.toString()).write(out -> {
+                out.writeInt(5);
+                out.writeInt(sequenceChecksum());
+                out.writeByte(SEQUENCE);
+                out.writeInt(lastId);
+            });
+            logBytes = 13;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact encounters: " + e.getMessage(), e);
+        } finally {
+            openLog();
+        }
+    }
+
+    private int sequenceChecksum() {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(5).put(SEQUENCE).putInt(lastId).array());
+        return (int) crc.getValue();
+    }
+
+    // Writes the partition without its removed encounters, and with the changed ones if withChanges is set
+    private void rewrite(Partition partition, boolean withChanges) throws IOException {
+        TreeMap<Integer, byte[]> encounters = new TreeMap<>();
+        if (partition.ids.length > 0) {
+            ByteBuffer content = ByteBuffer.wrap(content(partition));
+            for (int index = 0; index < partition.ids.length; index++) {
+                int id = partition.ids[index];
+                if (!partition.removed.contains(id)) {
+                    int start = recordPosition(content, partition, index);
+                    int end = index + 1 < partition.ids.length
+                            ? recordPosition(content, partition, index + 1) : content.capacity();
+                    encounters.put(id, Arrays.copyOfRange(content.array(), start, end));
+                }
+            }
+        }
+        if (withChanges) {
+            encounters.putAll(partition.changed);
+        }
+        loaded.remove(partition);
+
+        if (encounters.isEmpty()) {
+            Files.deleteIfExists(partition.path);
+            partition.ids = new int[0];
+        } else {
+            int[] ids = new int[encounters.size()];
+            new DataFile(partition.path.toString()).write(out -> {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(partition.month);
+                out.writeInt(encounters.size());
+                int index = 0;
+                for (int id : encounters.keySet()) {
+                    ids[index++] = id;
+                    out.writeInt(id);
+                }
+                int offset = 0;
+                for (byte[] encoded : encounters.values()) {
+                    out.writeInt(offset);
+                    offset += encoded.length;
+                }
+                for (byte[] encoded : encounters.values()) {
+                    out.write(encoded);
+                }
+            });
+            partition.ids = ids;
+        }
+        partition.removed.clear();
+        if (withChanges) {
+            partition.changed.clear();
+        }
+        if (partition.ids.length == 0 && partition.changed.isEmpty()) {
+            partitions.remove(partition.month);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close encounter log: " + e.getMessage(), e);
+        }
+    }
+
+    private static class Partition {
+        private final long month;
+        private final Path path;
+        // Ids in the file, ascending
+        private int[] ids = new int[0];
+        // Encoded encounters added or updated since the file was written, and ids in the file that were
+        // deleted or moved to another month since
+        private final Map<Integer, byte[]> changed = new HashMap<>();
+        private final Set<Integer> removed = new HashSet<>();
+
+        private Partition(long month, Path path) {
+            this.month = month;
+            this.path = path;
+        }
+    }
+}
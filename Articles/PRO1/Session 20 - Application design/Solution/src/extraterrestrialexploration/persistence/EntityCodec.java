@@ -0,0 +1,144 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Compact binary form of the domain entities.
+// References to other entities are stored as ids (0 means none); the DataContainer the entities are
+// added to resolves them when they are asked for.
+// Entities are written to any DataOutput and read back from a ByteBuffer, which avoids the per-byte
+// stream calls of DataInputStream; a truncated buffer shows up as a BufferUnderflowException.
+final class EntityCodec {
+    // Encounter dates are stored as a day count since 1970-01-01, this marks an encounter without a date
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private EntityCodec() {
+    }
+
+    static void writePlanet(DataOutput out, Planet planet) throws IOException {
+        out.writeInt(planet.getId());
+        writeString(out, planet.getName());
+        writeString(out, planet.getClimateDescription());
+        out.writeDouble(planet.getDistanceFromStarAU());
+        out.writeBoolean(planet.hasAtmosphere());
+        out.writeBoolean(planet.hasLife());
+    }
+
+    static Planet readPlanet(ByteBuffer in) throws IOException {
+        int id = in.getInt();
+        String name = readString(in);
+        String climateDescription = readString(in);
+        double distanceFromStarAU = in.getDouble();
+        boolean hasAtmosphere = in.get() != 0;
+        boolean hasLife = in.get() != 0;
+        Planet planet = new Planet(name, climateDescription, distanceFromStarAU, hasAtmosphere, hasLife);
+        planet.setId(id);
+        return planet;
+    }
+
+    static void writeAlien(DataOutput out, Alien alien) throws IOException {
+        out.writeInt(alien.getId());
+        writeString(out, alien.getName());
+        writeString(out, alien.getSpecies());
+        writeString(out, alien.getPhysicalDescription());
+    }
+
+    static Alien readAlien(ByteBuffer in) throws IOException {
+        int id = in.getInt();
+        String name = readString(in);
+        String species = readString(in);
+        String physicalDescription = readString(in);
+        Alien alien = new Alien(name, species, physicalDescription);
+        alien.setId(id);
+        return alien;
+    }
+
+    static void writeExplorer(DataOutput out, Explorer explorer) throws IOException {
+        out.writeInt(explorer.getId());
+        writeString(out, explorer.getName());
+        out.writeInt(explorer.getCurrentPlanetId());
+    }
+
+    static Explorer readExplorer(ByteBuffer in) throws IOException {
+        int id = in.getInt();
+        String name = readString(in);
+        int currentPlanetId = in.getInt();
+        Explorer explorer = new Explorer(name, currentPlanetId);
+        explorer.setId(id);
+        return explorer;
+    }
+
+    static void writeEncounter(DataOutput out, Encounter encounter) throws IOException {
+        out.writeInt(encounter.getId());
+        out.writeLong(encounter.getDate() != null ? encounter.getDate().toEpochDay() : NO_DATE);
+        out.writeInt(encounter.getAlienId());
+        out.writeInt(encounter.getPlanetId());
+        out.writeInt(encounter.getExplorerId());
+        writeString(out, encounter.getDescriptionOfTheEncounter());
+    }
+
+    static Encounter readEncounter(ByteBuffer in) throws IOException {
+        int id = in.getInt();
+        long epochDay = in.getLong();
+        LocalDate date = epochDay != NO_DATE ? LocalDate.ofEpochDay(epochDay) : null;
+        return readEncounter(in, id, date);
+    }
+
+    // Encounters written before dates were stored as days hold the date as it was typed. Text that is
+    // not a date is dropped, so the encounter still loads, but without a date
+    static Encounter readEncounterWithTextDate(ByteBuffer in) throws IOException {
+        int id = in.getInt();
+        String text = readString(in);
+        LocalDate date;
+        try {
+            date = Encounter.parseDate(text);
+        } catch (IllegalArgumentException e) {
+            date = null;
+        }
+        return readEncounter(in, id, date);
+    }
+
+    private static Encounter readEncounter(ByteBuffer in, int id, LocalDate date) throws IOException {
+        int alienId = in.getInt();
+        int planetId = in.getInt();
+        int explorerId = in.getInt();
+        String description = readString(in);
+        Encounter encounter = new Encounter(date, alienId, planetId, explorerId, description);
+        encounter.setId(id);
+        return encounter;
+    }
+
+    // Strings are written as a length followed by UTF-8 bytes, -1 marks null
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
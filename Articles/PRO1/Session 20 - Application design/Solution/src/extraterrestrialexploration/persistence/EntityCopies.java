@@ -0,0 +1,129 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.UnaryOperator;
+
+// Copies of stored entities for DataManagers that share the stored ones between callers, so changing an entity
+// that was read changes nothing for anyone else until it is passed to update. Explorers and encounters look up
+// the entities they refer to with the resolver they are given, which should hand out copies as well.
+final class EntityCopies {
+    private EntityCopies() {
+    }
+
+    static Planet copy(Planet planet) {
+        if (planet == null) {
+            return null;
+        }
+        Planet copy = new Planet(planet.getName(), planet.getClimateDescription(), planet.getDistanceFromStarAU(),
+                planet.hasAtmosphere(), planet.hasLife());
+        copy.setId(planet.getId());
+        copy.markClean();
+        return copy;
+    }
+
+    static Alien copy(Alien alien) {
+        if (alien == null) {
+            return null;
+        }
+        Alien copy = new Alien(alien.getName(), alien.getSpecies(), alien.getPhysicalDescription());
+        copy.setId(alien.getId());
+        copy.markClean();
+        return copy;
+    }
+
+    static Explorer copy(Explorer explorer, EntityResolver resolver) {
+        if (explorer == null) {
+            return null;
+        }
+        Explorer copy = new Explorer(explorer.getName(), explorer.getCurrentPlanetId());
+        copy.setId(explorer.getId());
+        copy.resolveReferencesWith(resolver);
+        copy.markClean();
+        return copy;
+    }
+
+    static Encounter copy(Encounter encounter, EntityResolver resolver) {
+        if (encounter == null) {
+            return null;
+        }
+        Encounter copy = new Encounter(encounter.getDate(), encounter.getAlienId(), encounter.getPlanetId(),
+                encounter.getExplorerId(), encounter.getDescriptionOfTheEncounter());
+        copy.setId(encounter.getId());
+        copy.resolveReferencesWith(resolver);
+        copy.markClean();
+        return copy;
+    }
+
+    // A read-only view that copies a stored entity when it is first read, so no list is copied as a whole
+    static <T> List<T> copies(List<T> stored, UnaryOperator<T> copy) {
+        return new CopyingList<>(stored, copy);
+    }
+
+    // Each element is copied the first time it is read and the copy is kept, so a list hands out the same
+    // object every time, as a real list does, and iterating it twice copies nothing the second time.
+    // The copies are kept in blocks made when first needed, so a list that is barely read stays cheap to make
+    private static final class CopyingList<T> extends AbstractList<T> implements RandomAccess {
+        private static final int BLOCK_BITS = 6;
+
+        private final List<T> stored;
+        private final UnaryOperator<T> copy;
+        private final AtomicReferenceArray<AtomicReferenceArray<T>> blocks;
+
+        private CopyingList(List<T> stored, UnaryOperator<T> copy) {
+            this.stored = stored;
+            this.copy = copy;
+            this.blocks = new AtomicReferenceArray<>((stored.size() >> BLOCK_BITS) + 1);
+        }
+
+        @Override
+        public T get(int index) {
+            T original = stored.get(index);
+            AtomicReferenceArray<T> block = blocks.get(index >> BLOCK_BITS);
+            if (block == null) {
+                blocks.compareAndSet(index >> BLOCK_BITS, null, new AtomicReferenceArray<>(1 << BLOCK_BITS));
+                block = blocks.get(index >> BLOCK_BITS);
+            }
+            int slot = index & ((1 << BLOCK_BITS) - 1);
+            T copied = block.get(slot);
+            if (copied == null) {
+                // Readers sharing the list agree on whichever copy was kept first
+                block.compareAndSet(slot, null, copy.apply(original));
+                copied = block.get(slot);
+            }
+            return copied;
+        }
+
+        @Override
+        public int size() {
+            return stored.size();
+        }
+    }
+
+    // Looks references up in a container that is shared, handing out copies of what it finds there
+    static final class CopyingResolver implements EntityResolver {
+        private final EntityResolver stored;
+
+        CopyingResolver(EntityResolver stored) {
+            this.stored = stored;
+        }
+
+        @Override
+        public Planet getPlanet(int id) {
+            return copy(stored.getPlanet(id));
+        }
+
+        @Override
+        public Alien getAlien(int id) {
+            return copy(stored.getAlien(id));
+        }
+
+        @Override
+        public Explorer getExplorer(int id) {
+            return copy(stored.getExplorer(id), this);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Entities of one type, kept in insertion order and indexed by id.
+// Get, replace and remove are O(1): removal leaves a gap that is squeezed out once gaps outnumber entities.
+// The table also remembers the highest id it has handed out, so ids are never reused after a delete.
+final class EntityTable<T> {
+    private static final int MIN_CAPACITY = 16;
+
+    private final ToIntFunction<T> idOf;
+    private final IntIndex positions = new IntIndex();
+    private Object[] entries = new Object[MIN_CAPACITY];
+    private int end;
+    private int size;
+    private int lastId;
+    private List<T> snapshot;
+
+    EntityTable(ToIntFunction<T> idOf) {
+        this.idOf = idOf;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int lastId() {
+        return lastId;
+    }
+
+    // Hands out count consecutive ids that have never been used and returns the first of them
+    int reserveIds(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one id must be reserved, got " + count);
+        }
+        if (lastId > Integer.MAX_VALUE - count) {
+            throw new IllegalStateException("No more ids available");
+        }
+        int first = lastId + 1;
+        lastId += count;
+        return first;
+    }
+
+    // Makes sure ids up to and including the given one are never handed out again
+    void skipIdsTo(int id) {
+        if (id > lastId) {
+            lastId = id;
+        }
+    }
+
+    boolean contains(int id) {
+        return positions.containsKey(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int id) {
+        int position = positions.get(id);
+        if (position < 0) {
+            return null;
+        }
+        Object[] entries = this.entries;
+        return position < entries.length ? (T) entries[position] : null;
+    }
+
+    void add(T entity) {
+        int id = idOf.applyAsInt(entity);
+        if (positions.containsKey(id)) {
+            throw new IllegalArgumentException("An entity with id " + id + " already exists");
+        }
+        if (end == entries.length) {
+            growOrCompact();
+        }
+        entries[end] = entity;
+        positions.put(id, end);
+        end++;
+        size++;
+        skipIdsTo(id);
+        snapshot = null;
+    }
+
+    // Puts the entity in the place of the one with the same id, keeping its position in the order
+    boolean replace(T entity) {
+        int position = positions.get(idOf.applyAsInt(entity));
+        if (position < 0) {
+            return false;
+        }
+        entries[position] = entity;
+        snapshot = null;
+        return true;
+    }
+
+    boolean remove(int id) {
+        int position = positions.remove(id);
+        if (position < 0) {
+            return false;
+        }
+        entries[position] = null;
+        size--;
+        snapshot = null;
+        if (end - size > size && end > MIN_CAPACITY) {
+            compact(entries.length);
+        }
+        return true;
+    }
+
+    // Read-only list of the entities in insertion order, shared until the table changes
+    @SuppressWarnings("unchecked")
+    List<T> toList() {
+        List<T> list = snapshot;
+        if (list == null) {
+            List<T> copy = new ArrayList<>(size);
+            for (int i = 0; i < end; i++) {
+                if (entries[i] != null) {
+                    copy.add((T) entries[i]);
+                }
+            }
+            list = Collections.unmodifiableList(copy);
+            snapshot = list;
+        }
+        return list;
+    }
+
+    private void growOrCompact() {
+        if (end - size > size) {
+            compact(entries.length);
+        } else {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compact(int capacity) {
+        Object[] compacted = new Object[Math.max(capacity, MIN_CAPACITY)];
+        int next = 0;
+        for (int i = 0; i < end; i++) {
+            if (entries[i] != null) {
+                compacted[next] = entries[i];
+                positions.put(idOf.applyAsInt((T) entries[i]), next);
+                next++;
+            }
+        }
+        entries = compacted;
+        end = next;
+    }
+}
@@ -2,74 +2,180 @@ package extraterrestrialexploration.persistence;
 
 import extraterrestrialexploration.domain.*;
 import java.io.*;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+// Reads data.bin for every call and writes it back after every change. Changes hold an exclusive lock on
+// the file from reading to writing, and the file is replaced atomically (see DataFile), so several threads
+// and processes can share one data file without losing changes or reading a half-written file.
 public class FileDataManager implements DataManager {
-    private final String filePath = "data.bin";
+    protected final String filePath;
+    private final DataFile dataFile;
+    private final StorageStatistics statistics = new StorageStatistics();
+    private final Ids ids = new Ids();
 
     public FileDataManager() {
-        if (!Files.exists(Paths.get(filePath))) {
-            saveData(new DataContainer());
-        }
+        this("data.bin");
+    }
+
+    public FileDataManager(String filePath) {
+        this.filePath = filePath;
+        this.dataFile = new DataFile(filePath);
+        dataFile.exclusively(() -> {
+            if (!dataFile.exists()) {
+                saveData(new DataContainer());
+            }
+        });
     }
 
-    private void saveData(DataContainer data) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-            oos.writeObject(data);
+    protected void saveData(DataContainer data) {
+        try {
+            long start = System.nanoTime();
+            long bytes = dataFile.write(out -> DataContainerCodec.write(out, data));
+            statistics.recordSave(bytes, System.nanoTime() - start, data);
         } catch (IOException e) {
             throw new RuntimeException("Failed to save data: " + e.getMessage(), e);
         }
     }
 
-    private DataContainer loadData() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-            return (DataContainer) ois.readObject();
+    protected DataContainer loadData() {
+        DataContainer data;
+        boolean oldFormat;
+        try {
+            long start = System.nanoTime();
+            byte[] content = dataFile.read();
+            oldFormat = DataContainerCodec.isJavaSerialization(content);
+            data = oldFormat ? readSerialized(content) : DataContainerCodec.read(ByteBuffer.wrap(content));
+            statistics.recordLoad(content.length, System.nanoTime() - start, data);
         } catch (IOException | ClassNotFoundException e) {
             throw new RuntimeException("Failed to load data: " + e.getMessage(), e);
         }
+
+        if (oldFormat) {
+            // Files from before the binary format are converted the first time they are read
+            convertOldFormat(data);
+        }
+        EntityResolver resolver = referenceResolver(data);
+        if (resolver != data) {
+            data.resolveReferencesWith(resolver);
+        }
+        return data;
+    }
+
+    // The container a change is applied to. Subclasses that share loaded containers between callers return one
+    // of the change's own here
+    protected DataContainer loadDataForChange() {
+        return loadData();
+    }
+
+    // How often and how long the data file was loaded and saved, and how many bytes that moved
+    public StorageStatistics getStorageStatistics() {
+        return statistics;
+    }
+
+    // Loads the data, applies the change and saves the result, holding the file exclusively throughout
+    protected void modify(Consumer<DataContainer> change) {
+        dataFile.exclusively(() -> {
+            DataContainer data = loadDataForChange();
+            change.accept(data);
+            saveData(data);
+        });
+    }
+
+    private void convertOldFormat(DataContainer data) {
+        dataFile.exclusively(() -> {
+            try {
+                // Another process may have converted and changed the file since it was read
+                if (DataContainerCodec.isJavaSerialization(dataFile.read())) {
+                    saveData(data);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to convert data file: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // Where explorers and encounters look up the entities they refer to. By default that is the loaded
+    // container itself; subclasses that keep some entities elsewhere override this
+    protected EntityResolver referenceResolver(DataContainer data) {
+        return data;
+    }
+
+    // Decodes the entities of one section straight from the file as the stream is consumed, instead of
+    // loading the whole file. Files in the old format are loaded, which converts them
+    private <T> Stream<T> streamSection(int section, Function<DataContainer, List<T>> loaded) {
+        RecordReader in = null;
+        try {
+            in = dataFile.reader();
+            Stream<T> entities = DataContainerCodec.stream(in, section);
+            if (entities != null) {
+                return entities;
+            }
+            in.close();
+        } catch (IOException e) {
+            closeQuietly(in);
+            throw new RuntimeException("Failed to read data: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            closeQuietly(in);
+            throw e;
+        }
+        return loaded.apply(loadData()).stream();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (IOException e) {
+            // Already failing, the original exception is the one worth reporting
+        }
+    }
+
+    private DataContainer readSerialized(byte[] content) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(content))) {
+            return (DataContainer) ois.readObject();
+        }
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        modify(data -> work.accept(new InMemoryDataManager(data, ids)));
     }
 
     // Planet methods
     @Override
     public void addPlanet(Planet planet) {
-        DataContainer data = loadData();
-        int maxId = 0;
-        for (Planet p : data.getPlanets()) {
-            if (p.getId() > maxId) {
-                maxId = p.getId();
+        modify(data -> {
+            if (!ids.planets.take(planet.getId(), data.getLastPlanetId())) {
+                planet.setId(data.reservePlanetIds(1));
             }
-        }
-        planet.setId(maxId + 1);
-        data.addPlanet(planet);
-        saveData(data);
+            data.addPlanet(planet);
+        });
     }
 
     @Override
     public void updatePlanet(Planet planet) {
-        deletePlanet(planet.getId());
-        DataContainer data = loadData();
-        data.addPlanet(planet);
-        saveData(data);
+        modify(data -> {
+            if (!data.replacePlanet(planet)) {
+                throw new IllegalArgumentException("No planet with id " + planet.getId());
+            }
+        });
     }
 
     @Override
     public void deletePlanet(int id) {
-        DataContainer data = loadData();
-        data.getPlanets().removeIf(p -> p.getId() == id);
-        saveData(data);
+        modify(data -> data.removePlanet(id));
     }
 
     @Override
     public Planet getPlanet(int id) {
         DataContainer data = loadData();
-        for (Planet planet : data.getPlanets()) {
-            if (planet.getId() == id) {
-                return planet;
-            }
-        }
-        return null;
+        return data.getPlanet(id);
     }
 
     @Override
@@ -78,45 +184,47 @@ public class FileDataManager implements DataManager {
         return data.getPlanets();
     }
 
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return streamSection(DataContainerCodec.PLANETS, DataContainer::getPlanets);
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        int[] first = new int[1];
+        modify(data -> first[0] = data.reservePlanetIds(count));
+        return ids.planets.add(first[0], count);
+    }
+
     // Alien methods
     @Override
     public void addAlien(Alien alien) {
-        DataContainer data = loadData();
-        int maxId = 0;
-        for (Alien a : data.getAliens()) {
-            if (a.getId() > maxId) {
-                maxId = a.getId();
+        modify(data -> {
+            if (!ids.aliens.take(alien.getId(), data.getLastAlienId())) {
+                alien.setId(data.reserveAlienIds(1));
             }
-        }
-        alien.setId(maxId + 1);
-        data.addAlien(alien);
-        saveData(data);
+            data.addAlien(alien);
+        });
     }
 
     @Override
     public void updateAlien(Alien alien) {
-        deleteAlien(alien.getId());
-        DataContainer data = loadData();
-        data.addAlien(alien);
-        saveData(data);
+        modify(data -> {
+            if (!data.replaceAlien(alien)) {
+                throw new IllegalArgumentException("No alien with id " + alien.getId());
+            }
+        });
     }
 
     @Override
     public void deleteAlien(int id) {
-        DataContainer data = loadData();
-        data.getAliens().removeIf(a -> a.getId() == id);
-        saveData(data);
+        modify(data -> data.removeAlien(id));
     }
 
     @Override
     public Alien getAlien(int id) {
         DataContainer data = loadData();
-        for (Alien alien : data.getAliens()) {
-            if (alien.getId() == id) {
-                return alien;
-            }
-        }
-        return null;
+        return data.getAlien(id);
     }
 
     @Override
@@ -125,45 +233,47 @@ public class FileDataManager implements DataManager {
         return data.getAliens();
     }
 
+    @Override
+    public Stream<Alien> streamAliens() {
+        return streamSection(DataContainerCodec.ALIENS, DataContainer::getAliens);
+    }
+
+    @Override
+    public int reserveAlienIds(int count) {
+        int[] first = new int[1];
+        modify(data -> first[0] = data.reserveAlienIds(count));
+        return ids.aliens.add(first[0], count);
+    }
+
     // Explorer methods
     @Override
     public void addExplorer(Explorer explorer) {
-        DataContainer data = loadData();
-        int maxId = 0;
-        for (Explorer e : data.getExplorers()) {
-            if (e.getId() > maxId) {
-                maxId = e.getId();
+        modify(data -> {
+            if (!ids.explorers.take(explorer.getId(), data.getLastExplorerId())) {
+                explorer.setId(data.reserveExplorerIds(1));
             }
-        }
-        explorer.setId(maxId + 1);
-        data.addExplorer(explorer);
-        saveData(data);
+            data.addExplorer(explorer);
+        });
     }
 
     @Override
     public void updateExplorer(Explorer explorer) {
-        deleteExplorer(explorer.getId());
-        DataContainer data = loadData();
-        data.addExplorer(explorer);
-        saveData(data);
+        modify(data -> {
+            if (!data.replaceExplorer(explorer)) {
+                throw new IllegalArgumentException("No explorer with id " + explorer.getId());
+            }
+        });
     }
 
     @Override
     public void deleteExplorer(int id) {
-        DataContainer data = loadData();
-        data.getExplorers().removeIf(e -> e.getId() == id);
-        saveData(data);
+        modify(data -> data.removeExplorer(id));
     }
 
     @Override
     public Explorer getExplorer(int id) {
         DataContainer data = loadData();
-        for (Explorer explorer : data.getExplorers()) {
-            if (explorer.getId() == id) {
-                return explorer;
-            }
-        }
-        return null;
+        return data.getExplorer(id);
     }
 
     @Override
@@ -172,45 +282,52 @@ public class FileDataManager implements DataManager {
         return data.getExplorers();
     }
 
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        EntityResolver resolver = new LoadingResolver();
+        return this.<Explorer>streamSection(DataContainerCodec.EXPLORERS, DataContainer::getExplorers)
+                .map(explorer -> {
+                    explorer.resolveReferencesWith(resolver);
+                    return explorer;
+                });
+    }
+
+    @Override
+    public int reserveExplorerIds(int count) {
+        int[] first = new int[1];
+        modify(data -> first[0] = data.reserveExplorerIds(count));
+        return ids.explorers.add(first[0], count);
+    }
+
     // Encounter methods
     @Override
     public void addEncounter(Encounter encounter) {
-        DataContainer data = loadData();
-        int maxId = 0;
-        for (Encounter e : data.getEncounters()) {
-            if (e.getId() > maxId) {
-                maxId = e.getId();
+        modify(data -> {
+            if (!ids.encounters.take(encounter.getId(), data.getLastEncounterId())) {
+                encounter.setId(data.reserveEncounterIds(1));
             }
-        }
-        encounter.setId(maxId + 1);
-        data.addEncounter(encounter);
-        saveData(data);
+            data.addEncounter(encounter);
+        });
     }
 
     @Override
     public void updateEncounter(Encounter encounter) {
-        deleteEncounter(encounter.getId());
-        DataContainer data = loadData();
-        data.addEncounter(encounter);
-        saveData(data);
+        modify(data -> {
+            if (!data.replaceEncounter(encounter)) {
+                throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+            }
+        });
     }
 
     @Override
     public void deleteEncounter(int id) {
-        DataContainer data = loadData();
-        data.getEncounters().removeIf(e -> e.getId() == id);
-        saveData(data);
+        modify(data -> data.removeEncounter(id));
     }
 
     @Override
     public Encounter getEncounter(int id) {
         DataContainer data = loadData();
-        for (Encounter encounter : data.getEncounters()) {
-            if (encounter.getId() == id) {
-                return encounter;
-            }
-        }
-        return null;
+        return data.getEncounter(id);
     }
 
     @Override
@@ -218,5 +335,74 @@ public class FileDataManager implements DataManager {
         DataContainer data = loadData();
         return data.getEncounters();
     }
-}
 
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        EntityResolver resolver = new LoadingResolver();
+        return this.<Encounter>streamSection(DataContainerCodec.ENCOUNTERS, DataContainer::getEncounters)
+                .map(encounter -> {
+                    encounter.resolveReferencesWith(resolver);
+                    return encounter;
+                });
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        int[] first = new int[1];
+        modify(data -> first[0] = data.reserveEncounterIds(count));
+        return ids.encounters.add(first[0], count);
+    }
+
+    // Encounter queries
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        DataContainer data = loadData();
+        return data.findEncountersByAlien(alienId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        DataContainer data = loadData();
+        return data.findEncountersByPlanet(planetId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        DataContainer data = loadData();
+        return data.findEncountersByExplorer(explorerId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        DataContainer data = loadData();
+        return data.findEncountersBetween(from, to);
+    }
+
+    // Streamed explorers and encounters look up the entities they refer to in data that is loaded the first
+    // time a reference is followed, so streams that never follow one stay in constant memory
+    private class LoadingResolver implements EntityResolver {
+        private EntityResolver resolver;
+
+        private EntityResolver resolver() {
+            if (resolver == null) {
+                resolver = referenceResolver(loadData());
+            }
+            return resolver;
+        }
+
+        @Override
+        public Planet getPlanet(int id) {
+            return resolver().getPlanet(id);
+        }
+
+        @Override
+        public Alien getAlien(int id) {
+            return resolver().getAlien(id);
+        }
+
+        @Override
+        public Explorer getExplorer(int id) {
+            return resolver().getExplorer(id);
+        }
+    }
+}
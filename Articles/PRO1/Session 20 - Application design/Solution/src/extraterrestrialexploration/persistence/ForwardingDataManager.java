@@ -0,0 +1,228 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Passes every call on to another DataManager. Managers that change how some of the calls are handled
+// extend this and override only those calls.
+public abstract class ForwardingDataManager implements DataManager {
+    protected final DataManager delegate;
+
+    protected ForwardingDataManager(DataManager delegate) {
+        this.delegate = delegate;
+    }
+
+    // Subclasses that override other calls must also override this, so the work sees their version too
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        delegate.transaction(work);
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        delegate.addPlanet(planet);
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        delegate.updatePlanet(planet);
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        delegate.deletePlanet(id);
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        return delegate.getPlanet(id);
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return delegate.getAllPlanets();
+    }
+
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return delegate.streamPlanets();
+    }
+
+    @Override
+    public List<Planet> getPlanets(int offset, int limit) {
+        return delegate.getPlanets(offset, limit);
+    }
+
+    @Override
+    public List<Planet> getPlanetsAfter(int afterId, int limit) {
+        return delegate.getPlanetsAfter(afterId, limit);
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        return delegate.reservePlanetIds(count);
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        delegate.addAlien(alien);
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        delegate.updateAlien(alien);
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        delegate.deleteAlien(id);
+    }
+
+    @Override
+    public Alien getAlien(int id) {
+        return delegate.getAlien(id);
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return delegate.getAllAliens();
+    }
+
+    @Override
+    public Stream<Alien> streamAliens() {
+        return delegate.streamAliens();
+    }
+
+    @Override
+    public List<Alien> getAliens(int offset, int limit) {
+        return delegate.getAliens(offset, limit);
+    }
+
+    @Override
+    public List<Alien> getAliensAfter(int afterId, int limit) {
+        return delegate.getAliensAfter(afterId, limit);
+    }
+
+    @Override
+    public int reserveAlienIds(int count) {
+        return delegate.reserveAlienIds(count);
+    }
+
+    // Explorer methods
+    @Override
+    public void addExplorer(Explorer explorer) {
+        delegate.addExplorer(explorer);
+    }
+
+    @Override
+    public void updateExplorer(Explorer explorer) {
+        delegate.updateExplorer(explorer);
+    }
+
+    @Override
+    public void deleteExplorer(int id) {
+        delegate.deleteExplorer(id);
+    }
+
+    @Override
+    public Explorer getExplorer(int id) {
+        return delegate.getExplorer(id);
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        return delegate.getAllExplorers();
+    }
+
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        return delegate.streamExplorers();
+    }
+
+    @Override
+    public List<Explorer> getExplorers(int offset, int limit) {
+        return delegate.getExplorers(offset, limit);
+    }
+
+    @Override
+    public List<Explorer> getExplorersAfter(int afterId, int limit) {
+        return delegate.getExplorersAfter(afterId, limit);
+    }
+
+    @Override
+    public int reserveExplorerIds(int count) {
+        return delegate.reserveExplorerIds(count);
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        delegate.addEncounter(encounter);
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        delegate.updateEncounter(encounter);
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        delegate.deleteEncounter(id);
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        return delegate.getEncounter(id);
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return delegate.getAllEncounters();
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return delegate.streamEncounters();
+    }
+
+    @Override
+    public List<Encounter> getEncounters(int offset, int limit) {
+        return delegate.getEncounters(offset, limit);
+    }
+
+    @Override
+    public List<Encounter> getEncountersAfter(int afterId, int limit) {
+        return delegate.getEncountersAfter(afterId, limit);
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        return delegate.reserveEncounterIds(count);
+    }
+
+    // Encounter queries
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return delegate.findEncountersByAlien(alienId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return delegate.findEncountersByPlanet(planetId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return delegate.findEncountersByExplorer(explorerId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return delegate.findEncountersBetween(from, to);
+    }
+}
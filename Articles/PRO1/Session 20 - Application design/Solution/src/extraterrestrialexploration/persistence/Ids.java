@@ -0,0 +1,47 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// The add methods hand out ids themselves. An entity keeps the id it brings only if a reserve method of the same
+// DataManager handed that id out and nothing was added with it yet. Any other id, such as that of a deleted
+// entity or one the caller made up, is replaced by the next id, as id 0 is. So an id is never used twice, and a
+// caller cannot move the sequence, e.g. up to Integer.MAX_VALUE so that no id is left.
+// Open reservations are only kept in memory, so an id reserved before a restart is replaced as well.
+final class Ids {
+    final Reservations planets = new Reservations();
+    final Reservations aliens = new Reservations();
+    final Reservations explorers = new Reservations();
+    final Reservations encounters = new Reservations();
+
+    // The reserved ids of one type that were not used yet, as ranges from their first to their last id
+    static final class Reservations {
+        private final TreeMap<Integer, Integer> open = new TreeMap<>();
+
+        // Records the ids a reserve method handed out and returns the first one
+        synchronized int add(int first, int count) {
+            open.put(first, first + count - 1);
+            return first;
+        }
+
+        // Uses the id up if it was reserved and not used yet. Ids above the sequence are never taken, in case
+        // the transaction that reserved them was rolled back
+        synchronized boolean take(int id, int lastId) {
+            if (id < 1 || id > lastId) {
+                return false;
+            }
+            Map.Entry<Integer, Integer> range = open.floorEntry(id);
+            if (range == null || range.getValue() < id) {
+                return false;
+            }
+            open.remove(range.getKey());
+            if (range.getKey() < id) {
+                open.put(range.getKey(), id - 1);
+            }
+            if (id < range.getValue()) {
+                open.put(id + 1, range.getValue());
+            }
+            return true;
+        }
+    }
+}
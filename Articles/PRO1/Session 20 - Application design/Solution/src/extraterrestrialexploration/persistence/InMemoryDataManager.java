@@ -0,0 +1,206 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Works directly on a DataContainer in memory and never touches a file.
+// The file based managers hand one of these to transaction work, so a whole batch runs against a
+// single loaded container before it is saved once.
+public class InMemoryDataManager implements DataManager {
+    private final DataContainer data;
+    private final Ids ids;
+
+    public InMemoryDataManager() {
+        this(new DataContainer());
+    }
+
+    public InMemoryDataManager(DataContainer data) {
+        this(data, new Ids());
+    }
+
+    // The file based managers pass their own reservations, so ids reserved outside a transaction can be used in it
+    InMemoryDataManager(DataContainer data, Ids ids) {
+        this.data = data;
+        this.ids = ids;
+    }
+
+    // There is nothing to save, so the work is applied to the container directly. The container is copied
+    // first and put back if the work throws
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        byte[] before = data.snapshot();
+        try {
+            work.accept(this);
+        } catch (RuntimeException e) {
+            data.restore(before);
+            throw e;
+        }
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        if (!ids.planets.take(planet.getId(), data.getLastPlanetId())) {
+            planet.setId(data.reservePlanetIds(1));
+        }
+        data.addPlanet(planet);
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        if (!data.replacePlanet(planet)) {
+            throw new IllegalArgumentException("No planet with id " + planet.getId());
+        }
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        data.removePlanet(id);
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        return data.getPlanet(id);
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return data.getPlanets();
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        return ids.planets.add(data.reservePlanetIds(count), count);
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        if (!ids.aliens.take(alien.getId(), data.getLastAlienId())) {
+            alien.setId(data.reserveAlienIds(1));
+        }
+        data.addAlien(alien);
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        if (!data.replaceAlien(alien)) {
+            throw new IllegalArgumentException("No alien with id " + alien.getId());
+        }
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        data.removeAlien(id);
+    }
+
+    @Override
+    public Alien getAlien(int id) {
+        return data.getAlien(id);
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return data.getAliens();
+    }
+
+    @Override
+    public int reserveAlienIds(int count) {
+        return ids.aliens.add(data.reserveAlienIds(count), count);
+    }
+
+    // Explorer methods
+    @Override
+    public void addExplorer(Explorer explorer) {
+        if (!ids.explorers.take(explorer.getId(), data.getLastExplorerId())) {
+            explorer.setId(data.reserveExplorerIds(1));
+        }
+        data.addExplorer(explorer);
+    }
+
+    @Override
+    public void updateExplorer(Explorer explorer) {
+        if (!data.replaceExplorer(explorer)) {
+            throw new IllegalArgumentException("No explorer with id " + explorer.getId());
+        }
+    }
+
+    @Override
+    public void deleteExplorer(int id) {
+        data.removeExplorer(id);
+    }
+
+    @Override
+    public Explorer getExplorer(int id) {
+        return data.getExplorer(id);
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        return data.getExplorers();
+    }
+
+    @Override
+    public int reserveExplorerIds(int count) {
+        return ids.explorers.add(data.reserveExplorerIds(count), count);
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        if (!ids.encounters.take(encounter.getId(), data.getLastEncounterId())) {
+            encounter.setId(data.reserveEncounterIds(1));
+        }
+        data.addEncounter(encounter);
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        if (!data.replaceEncounter(encounter)) {
+            throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+        }
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        data.removeEncounter(id);
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        return data.getEncounter(id);
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return data.getEncounters();
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        return ids.encounters.add(data.reserveEncounterIds(count), count);
+    }
+
+    // Encounter queries
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return data.findEncountersByAlien(alienId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return data.findEncountersByPlanet(planetId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return data.findEncountersByExplorer(explorerId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return data.findEncountersBetween(from, to);
+    }
+}
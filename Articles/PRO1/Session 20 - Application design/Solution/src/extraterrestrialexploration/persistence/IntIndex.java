@@ -0,0 +1,135 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.Arrays;
+
+// Hash map from int keys to non-negative int values, without boxing either of them.
+// Keys and values are interleaved in one array and found by linear probing.
+// Removal shifts later entries back, so no tombstones are needed.
+final class IntIndex {
+    private static final int NOT_FOUND = -1;
+    private static final int MIN_CAPACITY = 16;
+
+    // table[2 * slot] is the key, table[2 * slot + 1] the value, or -1 for an empty slot
+    private int[] table;
+    private int size;
+
+    IntIndex() {
+        clear();
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Returns the value stored for the key, or -1 if there is none
+    int get(int key) {
+        int[] table = this.table;
+        int mask = (table.length >> 1) - 1;
+        int slot = slotOf(key, mask);
+        // Bounded so a reader racing with a writer can never loop forever
+        for (int probes = 0; probes <= mask; probes++) {
+            int value = table[2 * slot + 1];
+            if (value == NOT_FOUND) {
+                return NOT_FOUND;
+            }
+            if (table[2 * slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != NOT_FOUND;
+    }
+
+    void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Index values must not be negative: " + value);
+        }
+        int mask = (table.length >> 1) - 1;
+        int slot = slotOf(key, mask);
+        while (table[2 * slot + 1] != NOT_FOUND) {
+            if (table[2 * slot] == key) {
+                table[2 * slot + 1] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[2 * slot] = key;
+        table[2 * slot + 1] = value;
+        size++;
+        // Keep the table at most half full so probe sequences stay short
+        if (size * 2 > mask + 1) {
+            resize((mask + 1) * 2);
+        }
+    }
+
+    // Removes the key and returns the value it had, or -1 if it was not present
+    int remove(int key) {
+        int mask = (table.length >> 1) - 1;
+        int slot = slotOf(key, mask);
+        while (table[2 * slot + 1] != NOT_FOUND) {
+            if (table[2 * slot] == key) {
+                int removed = table[2 * slot + 1];
+                shiftBack(slot, mask);
+                size--;
+                return removed;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    void clear() {
+        table = emptyTable(MIN_CAPACITY);
+        size = 0;
+    }
+
+    // Moves entries after the freed slot back, so every key stays reachable from its home slot
+    private void shiftBack(int freed, int mask) {
+        int slot = (freed + 1) & mask;
+        while (table[2 * slot + 1] != NOT_FOUND) {
+            int home = slotOf(table[2 * slot], mask);
+            boolean canMove = freed <= slot
+                    ? home <= freed || home > slot
+                    : home <= freed && home > slot;
+            if (canMove) {
+                table[2 * freed] = table[2 * slot];
+                table[2 * freed + 1] = table[2 * slot + 1];
+                freed = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[2 * freed + 1] = NOT_FOUND;
+    }
+
+    private void resize(int capacity) {
+        int[] oldTable = table;
+        int[] newTable = emptyTable(capacity);
+        int mask = capacity - 1;
+        for (int i = 0; i < oldTable.length; i += 2) {
+            if (oldTable[i + 1] != NOT_FOUND) {
+                int slot = slotOf(oldTable[i], mask);
+                while (newTable[2 * slot + 1] != NOT_FOUND) {
+                    slot = (slot + 1) & mask;
+                }
+                newTable[2 * slot] = oldTable[i];
+                newTable[2 * slot + 1] = oldTable[i + 1];
+            }
+        }
+        table = newTable;
+    }
+
+    private static int[] emptyTable(int capacity) {
+        int[] table = new int[capacity * 2];
+        Arrays.fill(table, NOT_FOUND);
+        return table;
+    }
+
+    private static int slotOf(int key, int mask) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
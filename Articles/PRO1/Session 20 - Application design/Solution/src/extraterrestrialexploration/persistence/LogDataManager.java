@@ -0,0 +1,680 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Stores every add, update and delete as a small record appended to data.log.
+// The data is rebuilt by replaying the log at startup, and a background task rewrites the log
+// with only the live entities once it has grown large enough.
+//
+// Record layout: int payload length, int CRC32 of the payload, then the payload itself
+// (byte operation, byte entity type, then the encoded entity, the id being deleted,
+// or for SEQUENCE records the last id handed out for that type).
+// A transaction is written as one BATCH record holding all its records, so it is replayed completely or not at all.
+// A record that was only partly written when the process died fails the length or CRC check
+// and is cut off on the next startup.
+// Appended records are handed to the operating system right away but not forced to disk, which would cost a disk
+// flush per change: a crash of the process loses nothing, a crash of the machine can lose the latest changes.
+// A compacted log is forced to disk before it replaces the old one, and close forces the log. A background
+// compaction that fails leaves the old log in place; getLastCompactionFailure tells why.
+// Encounters are written with the entity type DATED_ENCOUNTER; ENCOUNTER records from older logs hold the
+// date as text. Deletes and sequences of encounters keep the type ENCOUNTER.
+public class LogDataManager implements DataManager, Closeable {
+    private static final byte ADD = 1;
+    private static final byte UPDATE = 2;
+    private static final byte DELETE = 3;
+    private static final byte SEQUENCE = 4;
+    private static final byte BATCH = 5;
+
+    private static final byte PLANET = 1;
+    private static final byte ALIEN = 2;
+    private static final byte EXPLORER = 3;
+    private static final byte ENCOUNTER = 4;
+    private static final byte DATED_ENCOUNTER = 5;
+
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 1000;
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+
+    private final String filePath;
+    private final ScheduledExecutorService compactor;
+    private final Ids ids = new Ids();
+    private final Object compactionLock = new Object();
+    private volatile RuntimeException lastCompactionFailure;
+    private DataContainer data;
+    private FileOutputStream log;
+    private int recordCount;
+    private DataOutputStream batch;
+    private ByteArrayOutputStream batchBytes;
+
+    public LogDataManager() {
+        this("data.log");
+    }
+
+    public LogDataManager(String filePath) {
+        this.filePath = filePath;
+        replayLog();
+        openLog();
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "data-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+                COMPACTION_INTERVAL_SECONDS, COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void replayLog() {
+        data = new DataContainer();
+        recordCount = 0;
+        Path path = Paths.get(filePath);
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)))) {
+            long fileLength = Files.size(path);
+            while (true) {
+                byte[] payload = readRecord(in, fileLength - validLength - 8);
+                if (payload == null) {
+                    break;
+                }
+                applyRecord(payload);
+                validLength += 8 + payload.length;
+                recordCount++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load data: " + e.getMessage(), e);
+        }
+
+        // Drop whatever is left after the last complete record, e.g. a write interrupted by a crash
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > validLength) {
+                channel.truncate(validLength);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to repair data log: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] readRecord(DataInputStream in, long bytesLeft) throws IOException {
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length <= 0 || length > bytesLeft) {
+                return null;
+            }
+            byte[] payload = new byte[length];
+            in.readFully(payload);
+            return checksum(payload) == checksum ? payload : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private void applyRecord(byte[] payload) throws IOException {
+        try {
+            applyRecord(ByteBuffer.wrap(payload));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Data log record is truncated", e);
+        }
+    }
+
+    private void applyRecord(ByteBuffer in) throws IOException {
+        byte operation = in.get();
+
+        if (operation == BATCH) {
+            while (in.hasRemaining()) {
+                int length = in.getInt();
+                applyRecord(in.slice().limit(length));
+                in.position(in.position() + length);
+            }
+            return;
+        }
+
+        byte type = in.get();
+        if (operation == DELETE) {
+            removeFromContainer(type, in.getInt());
+            return;
+        }
+        if (operation == SEQUENCE) {
+            skipIdsTo(type, in.getInt());
+            return;
+        }
+
+        switch (type) {
+            case PLANET -> {
+                Planet planet = EntityCodec.readPlanet(in);
+                if (operation == ADD || !data.replacePlanet(planet)) {
+                    data.addPlanet(planet);
+                }
+            }
+            case ALIEN -> {
+                Alien alien = EntityCodec.readAlien(in);
+                if (operation == ADD || !data.replaceAlien(alien)) {
+                    data.addAlien(alien);
+                }
+            }
+            case EXPLORER -> {
+                Explorer explorer = EntityCodec.readExplorer(in);
+                if (operation == ADD || !data.replaceExplorer(explorer)) {
+                    data.addExplorer(explorer);
+                }
+            }
+            case ENCOUNTER, DATED_ENCOUNTER -> {
+                Encounter encounter = type == DATED_ENCOUNTER
+                        ? EntityCodec.readEncounter(in) : EntityCodec.readEncounterWithTextDate(in);
+                if (operation == ADD || !data.replaceEncounter(encounter)) {
+                    data.addEncounter(encounter);
+                }
+            }
+            default -> throw new IOException("Unknown entity type in data log: " + type);
+        }
+    }
+
+    private void removeFromContainer(byte type, int id) {
+        switch (type) {
+            case PLANET -> data.removePlanet(id);
+            case ALIEN -> data.removeAlien(id);
+            case EXPLORER -> data.removeExplorer(id);
+            case ENCOUNTER -> data.removeEncounter(id);
+            default -> throw new IllegalArgumentException("Unknown entity type: " + type);
+        }
+    }
+
+    private void skipIdsTo(byte type, int lastId) {
+        switch (type) {
+            case PLANET -> data.skipPlanetIdsTo(lastId);
+            case ALIEN -> data.skipAlienIdsTo(lastId);
+            case EXPLORER -> data.skipExplorerIdsTo(lastId);
+            case ENCOUNTER -> data.skipEncounterIdsTo(lastId);
+            default -> throw new IllegalArgumentException("Unknown entity type: " + type);
+        }
+    }
+
+    private void openLog() {
+        try {
+            log = new FileOutputStream(filePath, true);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open data log: " + e.getMessage(), e);
+        }
+    }
+
+    private void append(byte[] payload) {
+        try {
+            if (batch != null) {
+                batch.writeInt(payload.length);
+                batch.write(payload);
+            } else {
+                log.write(frame(payload));
+            }
+            recordCount++;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save data: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] frame(byte[] payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(payload.length);
+        out.writeInt(checksum(payload));
+        out.write(payload);
+        return bytes.toByteArray();
+    }
+
+    private int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private byte[] planetRecord(byte operation, Planet planet) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeByte(PLANET);
+            EntityCodec.writePlanet(out, planet);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode planet: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] alienRecord(byte operation, Alien alien) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeByte(ALIEN);
+            EntityCodec.writeAlien(out, alien);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode alien: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] explorerRecord(byte operation, Explorer explorer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeByte(EXPLORER);
+            EntityCodec.writeExplorer(out, explorer);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode explorer: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] encounterRecord(byte operation, Encounter encounter) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeByte(DATED_ENCOUNTER);
+            EntityCodec.writeEncounter(out, encounter);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode encounter: " + e.getMessage(), e);
+        }
+    }
+
+    private byte[] deleteRecord(byte type, int id) {
+        return idRecord(DELETE, type, id);
+    }
+
+    private byte[] sequenceRecord(byte type, int lastId) {
+        return idRecord(SEQUENCE, type, lastId);
+    }
+
+    private byte[] idRecord(byte operation, byte type, int id) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(operation);
+            out.writeByte(type);
+            out.writeInt(id);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode record: " + e.getMessage(), e);
+        }
+    }
+
+    private void compactIfNeeded() {
+        synchronized (this) {
+            int liveCount = data.getPlanets().size() + data.getAliens().size()
+                    + data.getExplorers().size() + data.getEncounters().size();
+            if (recordCount < MIN_RECORDS_BEFORE_COMPACTION || recordCount < 2 * liveCount) {
+                return;
+            }
+        }
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            // The old log is still intact, so the next run simply tries again
+            lastCompactionFailure = e;
+        }
+    }
+
+    // The failure of the latest background compaction that failed, or null if none has failed
+    public RuntimeException getLastCompactionFailure() {
+        return lastCompactionFailure;
+    }
+
+    // Writes the id sequences and one ADD record per live entity to a new file and swaps it in place of the old log.
+    // Planets and aliens go first, so the references from explorers and encounters resolve on replay.
+    // The new file is written from a copy of the data, so reads and writes go on meanwhile. Only the swap holds
+    // the lock: it copies the records appended since the copy was taken to the end of the new file first.
+    public void compact() {
+        if (Thread.holdsLock(this)) {
+            throw new IllegalStateException("The data log cannot be compacted inside a transaction");
+        }
+        synchronized (compactionLock) {
+            byte[] state;
+            long logLength;
+            int recordsBefore;
+            synchronized (this) {
+                state = data.snapshot();
+                logLength = logLength();
+                recordsBefore = recordCount;
+            }
+
+            Path path = Paths.get(filePath);
+            Path compacted = Paths.get(filePath + ".compact");
+            int written = writeCompacted(state, compacted);
+
+            synchronized (this) {
+                if (!log.getChannel().isOpen()) {
+                    // Closed meanwhile
+                    compacted.toFile().delete();
+                    return;
+                }
+                try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                     FileChannel in = FileChannel.open(path, StandardOpenOption.READ)) {
+                    long end = in.size();
+                    for (long position = logLength; position < end; ) {
+                        position += in.transferTo(position, end - position, out);
+                    }
+                    out.force(true);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to compact data log: " + e.getMessage(), e);
+                }
+
+                try {
+                    log.close();
+                    Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    DataFile.forceDirectory(path.toAbsolutePath().getParent());
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to compact data log: " + e.getMessage(), e);
+                } finally {
+                    openLog();
+                }
+                recordCount = written + recordCount - recordsBefore;
+            }
+        }
+    }
+
+    private long logLength() {
+        try {
+            return log.getChannel().size();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save data: " + e.getMessage(), e);
+        }
+    }
+
+    // Writes the live entities of a snapshot to the file and forces it to disk; returns the number of records
+    private int writeCompacted(byte[] state, Path compacted) {
+        int written = 4;
+        try (FileOutputStream file = new FileOutputStream(compacted.toFile());
+             OutputStream out = new BufferedOutputStream(file)) {
+            DataContainer live = DataContainerCodec.read(ByteBuffer.wrap(state));
+            out.write(frame(sequenceRecord(PLANET, live.getLastPlanetId())));
+            out.write(frame(sequenceRecord(ALIEN, live.getLastAlienId())));
+            out.write(frame(sequenceRecord(EXPLORER, live.getLastExplorerId())));
+            out.write(frame(sequenceRecord(ENCOUNTER, live.getLastEncounterId())));
+            for (Planet planet : live.getPlanets()) {
+                out.write(frame(planetRecord(ADD, planet)));
+                written++;
+            }
+            for (Alien alien : live.getAliens()) {
+                out.write(frame(alienRecord(ADD, alien)));
+                written++;
+            }
+            for (Explorer explorer : live.getExplorers()) {
+                out.write(frame(explorerRecord(ADD, explorer)));
+                written++;
+            }
+            for (Encounter encounter : live.getEncounters()) {
+                out.write(frame(encounterRecord(ADD, encounter)));
+                written++;
+            }
+            out.flush();
+            file.getChannel().force(true);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to compact data log: " + e.getMessage(), e);
+        }
+        return written;
+    }
+
+    @Override
+    public synchronized void transaction(Consumer<DataManager> work) {
+        if (batch != null) {
+            // Already inside a transaction, so this work simply becomes part of it
+            work.accept(this);
+            return;
+        }
+
+        long logLength = logLength();
+        batchBytes = new ByteArrayOutputStream();
+        batch = new DataOutputStream(batchBytes);
+        try {
+            batch.writeByte(BATCH);
+            work.accept(this);
+            byte[] payload = batchBytes.toByteArray();
+            batch = null;
+            if (payload.length > 1) {
+                log.write(frame(payload));
+            }
+        } catch (IOException e) {
+            rollBack(logLength);
+            throw new RuntimeException("Failed to save data: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            rollBack(logLength);
+            throw e;
+        } finally {
+            batch = null;
+            batchBytes = null;
+        }
+    }
+
+    // The container already holds part of the batch, so the log is cut back to where it was and replayed
+    private void rollBack(long logLength) {
+        batch = null;
+        try {
+            log.getChannel().truncate(logLength);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to roll back data log: " + e.getMessage(), e);
+        }
+        replayLog();
+    }
+
+    @Override
+    public synchronized void close() {
+        compactor.shutdownNow();
+        try {
+            if (log.getChannel().isOpen()) {
+                log.getChannel().force(true);
+            }
+            log.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close data log: " + e.getMessage(), e);
+        }
+    }
+
+    // Planet methods
+    @Override
+    public synchronized void addPlanet(Planet planet) {
+        if (!ids.planets.take(planet.getId(), data.getLastPlanetId())) {
+            planet.setId(data.reservePlanetIds(1));
+        }
+        append(planetRecord(ADD, planet));
+        data.addPlanet(planet);
+    }
+
+    @Override
+    public synchronized void updatePlanet(Planet planet) {
+        if (data.getPlanet(planet.getId()) == null) {
+            throw new IllegalArgumentException("No planet with id " + planet.getId());
+        }
+        append(planetRecord(UPDATE, planet));
+        data.replacePlanet(planet);
+    }
+
+    @Override
+    public synchronized void deletePlanet(int id) {
+        append(deleteRecord(PLANET, id));
+        removeFromContainer(PLANET, id);
+    }
+
+    @Override
+    public synchronized Planet getPlanet(int id) {
+        return data.getPlanet(id);
+    }
+
+    @Override
+    public synchronized List<Planet> getAllPlanets() {
+        return data.getPlanets();
+    }
+
+    @Override
+    public synchronized int reservePlanetIds(int count) {
+        int first = data.reservePlanetIds(count);
+        append(sequenceRecord(PLANET, data.getLastPlanetId()));
+        return ids.planets.add(first, count);
+    }
+
+    // Alien methods
+    @Override
+    public synchronized void addAlien(Alien alien) {
+        if (!ids.aliens.take(alien.getId(), data.getLastAlienId())) {
+            alien.setId(data.reserveAlienIds(1));
+        }
+        append(alienRecord(ADD, alien));
+        data.addAlien(alien);
+    }
+
+    @Override
+    public synchronized void updateAlien(Alien alien) {
+        if (data.getAlien(alien.getId()) == null) {
+            throw new IllegalArgumentException("No alien with id " + alien.getId());
+        }
+        append(alienRecord(UPDATE, alien));
+        data.replaceAlien(alien);
+    }
+
+    @Override
+    public synchronized void deleteAlien(int id) {
+        append(deleteRecord(ALIEN, id));
+        removeFromContainer(ALIEN, id);
+    }
+
+    @Override
+    public synchronized Alien getAlien(int id) {
+        return data.getAlien(id);
+    }
+
+    @Override
+    public synchronized List<Alien> getAllAliens() {
+        return data.getAliens();
+    }
+
+    @Override
+    public synchronized int reserveAlienIds(int count) {
+        int first = data.reserveAlienIds(count);
+        append(sequenceRecord(ALIEN, data.getLastAlienId()));
+        return ids.aliens.add(first, count);
+    }
+
+    // Explorer methods
+    @Override
+    public synchronized void addExplorer(Explorer explorer) {
+        if (!ids.explorers.take(explorer.getId(), data.getLastExplorerId())) {
+            explorer.setId(data.reserveExplorerIds(1));
+        }
+        append(explorerRecord(ADD, explorer));
+        data.addExplorer(explorer);
+    }
+
+    @Override
+    public synchronized void updateExplorer(Explorer explorer) {
+        if (data.getExplorer(explorer.getId()) == null) {
+            throw new IllegalArgumentException("No explorer with id " + explorer.getId());
+        }
+        append(explorerRecord(UPDATE, explorer));
+        data.replaceExplorer(explorer);
+    }
+
+    @Override
+    public synchronized void deleteExplorer(int id) {
+        append(deleteRecord(EXPLORER, id));
+        removeFromContainer(EXPLORER, id);
+    }
+
+    @Override
+    public synchronized Explorer getExplorer(int id) {
+        return data.getExplorer(id);
+    }
+
+    @Override
+    public synchronized List<Explorer> getAllExplorers() {
+        return data.getExplorers();
+    }
+
+    @Override
+    public synchronized int reserveExplorerIds(int count) {
+        int first = data.reserveExplorerIds(count);
+        append(sequenceRecord(EXPLORER, data.getLastExplorerId()));
+        return ids.explorers.add(first, count);
+    }
+
+    // Encounter methods
+    @Override
+    public synchronized void addEncounter(Encounter encounter) {
+        if (!ids.encounters.take(encounter.getId(), data.getLastEncounterId())) {
+            encounter.setId(data.reserveEncounterIds(1));
+        }
+        append(encounterRecord(ADD, encounter));
+        data.addEncounter(encounter);
+    }
+
+    @Override
+    public synchronized void updateEncounter(Encounter encounter) {
+        if (data.getEncounter(encounter.getId()) == null) {
+            throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+        }
+        append(encounterRecord(UPDATE, encounter));
+        data.replaceEncounter(encounter);
+    }
+
+    @Override
+    public synchronized void deleteEncounter(int id) {
+        append(deleteRecord(ENCOUNTER, id));
+        removeFromContainer(ENCOUNTER, id);
+    }
+
+    @Override
+    public synchronized Encounter getEncounter(int id) {
+        return data.getEncounter(id);
+    }
+
+    @Override
+    public synchronized List<Encounter> getAllEncounters() {
+        return data.getEncounters();
+    }
+
+    @Override
+    public synchronized int reserveEncounterIds(int count) {
+        int first = data.reserveEncounterIds(count);
+        append(sequenceRecord(ENCOUNTER, data.getLastEncounterId()));
+        return ids.encounters.add(first, count);
+    }
+
+    // Encounter queries
+    @Override
+    public synchronized List<Encounter> findEncountersByAlien(int alienId) {
+        return data.findEncountersByAlien(alienId);
+    }
+
+    @Override
+    public synchronized List<Encounter> findEncountersByPlanet(int planetId) {
+        return data.findEncountersByPlanet(planetId);
+    }
+
+    @Override
+    public synchronized List<Encounter> findEncountersByExplorer(int explorerId) {
+        return data.findEncountersByExplorer(explorerId);
+    }
+
+    @Override
+    public synchronized List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return data.findEncountersBetween(from, to);
+    }
+}
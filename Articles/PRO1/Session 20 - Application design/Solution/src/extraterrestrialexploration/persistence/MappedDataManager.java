@@ -0,0 +1,155 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.Closeable;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Keeps planets in a MappedPlanetStore (data-planets.dat and data-planets.str next to data.bin), so reading or
+// updating one planet touches only its own slot instead of loading and saving the whole data file.
+// Aliens, explorers and encounters stay in data.bin; references to planets from there are looked up
+// in the store. The first time a data file is used with an empty store, its planets and their id sequence
+// are moved into the store. Planet changes made inside a transaction go straight to the store and are not
+// undone if the work throws.
+public class MappedDataManager extends ForwardingDataManager implements Closeable {
+    private final MappedPlanetStore planets;
+
+    public MappedDataManager() {
+        this("data.bin");
+    }
+
+    // The planet files are named after the data file: data.bin gets data-planets.dat and data-planets.str
+    public MappedDataManager(String dataFilePath) {
+        this(dataFilePath, planetFilePath(dataFilePath, ".dat"), planetFilePath(dataFilePath, ".str"));
+    }
+
+    public MappedDataManager(String dataFilePath, String planetFilePath, String planetStringFilePath) {
+        this(new MappedPlanetStore(planetFilePath, planetStringFilePath), dataFilePath);
+    }
+
+    private MappedDataManager(MappedPlanetStore planets, String dataFilePath) {
+        this(planets, new FileDataManager(dataFilePath) {
+            @Override
+            protected EntityResolver referenceResolver(DataContainer data) {
+                return new StoreResolver(planets, data);
+            }
+        });
+        if (planets.isEmpty()) {
+            movePlanetsIntoStore((FileDataManager) delegate);
+        }
+    }
+
+    private MappedDataManager(MappedPlanetStore planets, DataManager delegate) {
+        super(delegate);
+        this.planets = planets;
+    }
+
+    private static String planetFilePath(String dataFilePath, String extension) {
+        int dot = dataFilePath.lastIndexOf('.');
+        String base = dot > Math.max(dataFilePath.lastIndexOf('/'), dataFilePath.lastIndexOf('\\'))
+                ? dataFilePath.substring(0, dot) : dataFilePath;
+        return base + "-planets" + extension;
+    }
+
+    // The planets are in the store, forced to disk, before they are removed from the data file. If the process
+    // dies in between, the store is no longer empty and the planets left in the data file are never read again
+    private void movePlanetsIntoStore(FileDataManager dataFile) {
+        if (dataFile.loadData().getLastPlanetId() == 0) {
+            return;
+        }
+        dataFile.modify(data -> {
+            planets.skipIdsTo(data.getLastPlanetId());
+            for (Planet planet : data.getPlanets()) {
+                planets.put(planet);
+                data.removePlanet(planet.getId());
+            }
+            planets.flush();
+        });
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        delegate.transaction(dataManager -> work.accept(new MappedDataManager(planets, dataManager)));
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        planets.add(planet);
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        if (!planets.update(planet)) {
+            throw new IllegalArgumentException("No planet with id " + planet.getId());
+        }
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        planets.delete(id);
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        return planets.get(id);
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return planets.getAll();
+    }
+
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return planets.stream();
+    }
+
+    @Override
+    public List<Planet> getPlanets(int offset, int limit) {
+        return Paging.page(planets.stream(), offset, limit);
+    }
+
+    @Override
+    public List<Planet> getPlanetsAfter(int afterId, int limit) {
+        Paging.checkPage(0, limit);
+        return planets.getAfter(afterId, limit);
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        return planets.reserveIds(count);
+    }
+
+    @Override
+    public void close() {
+        planets.close();
+    }
+
+    // Planets come from the store, everything else from the container loaded from data.bin
+    private static class StoreResolver implements EntityResolver {
+        private final MappedPlanetStore planets;
+        private final DataContainer data;
+
+        private StoreResolver(MappedPlanetStore planets, DataContainer data) {
+            this.planets = planets;
+            this.data = data;
+        }
+
+        @Override
+        public Planet getPlanet(int id) {
+            return planets.get(id);
+        }
+
+        @Override
+        public Alien getAlien(int id) {
+            return data.getAlien(id);
+        }
+
+        @Override
+        public Explorer getExplorer(int id) {
+            return data.getExplorer(id);
+        }
+    }
+}
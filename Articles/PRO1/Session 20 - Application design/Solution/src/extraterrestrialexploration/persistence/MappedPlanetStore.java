@@ -0,0 +1,331 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Planets in two memory-mapped files.
+//
+// The slot file has a 64 byte header (magic, version, last id handed out, end of the string heap, and from
+// byte 24 the redo slot) followed by one 40 byte slot per id, so the slot of a planet is found from its id alone:
+//   0 flags (in use, has atmosphere, has life)   4 id   8 distance from star
+//  16 name offset   24 climate offset   32 name length   36 climate length
+//
+// The strings live in a separate heap file that is only ever appended to. Updating a planet only appends
+// the strings that actually changed. The new slot is first written to the redo slot, whose in-use flag is set
+// last, then copied over the planet's slot, and then the redo slot is cleared. A process that dies in the middle
+// of the copy leaves a complete redo slot, which is copied again when the store is opened, so a slot is never
+// left half old and half new.
+// Changes reach the files through the operating system's page cache; flush() forces them to disk.
+public class MappedPlanetStore implements Closeable {
+    private static final int MAGIC = 0x45545850;
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_LAST_ID = 8;
+    private static final int HEADER_HEAP_END = 16;
+    private static final int REDO_SLOT = 24;
+
+    private static final int SLOT_SIZE = 40;
+    private static final int SLOT_FLAGS = 0;
+    private static final int SLOT_ID = 4;
+    private static final int SLOT_DISTANCE = 8;
+    private static final int SLOT_NAME_OFFSET = 16;
+    private static final int SLOT_CLIMATE_OFFSET = 24;
+    private static final int SLOT_NAME_LENGTH = 32;
+    private static final int SLOT_CLIMATE_LENGTH = 36;
+
+    private static final byte IN_USE = 1;
+    private static final byte HAS_ATMOSPHERE = 2;
+    private static final byte HAS_LIFE = 4;
+
+    private static final int INITIAL_SLOTS = 1024;
+    private static final int INITIAL_HEAP_SIZE = 64 * 1024;
+
+    private final FileChannel slotChannel;
+    private final FileChannel heapChannel;
+    private final Ids.Reservations reserved = new Ids.Reservations();
+    private MappedByteBuffer slots;
+    private MappedByteBuffer heap;
+
+    public MappedPlanetStore(String slotFilePath, String heapFilePath) {
+        try {
+            Path slotPath = Paths.get(slotFilePath);
+            Path heapPath = Paths.get(heapFilePath);
+            slotChannel = FileChannel.open(slotPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            heapChannel = FileChannel.open(heapPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            boolean newStore = slotChannel.size() == 0;
+            slots = slotChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(slotChannel.size(), HEADER_SIZE + (long) INITIAL_SLOTS * SLOT_SIZE));
+            heap = heapChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.max(heapChannel.size(), INITIAL_HEAP_SIZE));
+
+            if (newStore) {
+                slots.putInt(0, MAGIC);
+                slots.putInt(4, VERSION);
+                slots.putInt(HEADER_LAST_ID, 0);
+                slots.putLong(HEADER_HEAP_END, 0);
+            } else if (slots.getInt(0) != MAGIC || slots.getInt(4) != VERSION) {
+                throw new IOException("Not a planet store: " + slotFilePath);
+            } else if ((slots.get(REDO_SLOT + SLOT_FLAGS) & IN_USE) != 0) {
+                // An update did not finish
+                redo(ensureSlot(slots.getInt(REDO_SLOT + SLOT_ID)));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open planet store: " + e.getMessage(), e);
+        }
+    }
+
+    // True until the first id is handed out
+    public synchronized boolean isEmpty() {
+        return lastId() == 0;
+    }
+
+    public synchronized Planet get(int id) {
+        if (!isStored(id)) {
+            return null;
+        }
+        return readSlot(slotOffset(id));
+    }
+
+    public synchronized List<Planet> getAll() {
+        List<Planet> planets = new ArrayList<>();
+        int lastId = lastId();
+        for (int id = 1; id <= lastId; id++) {
+            if (isStored(id)) {
+                planets.add(readSlot(slotOffset(id)));
+            }
+        }
+        return planets;
+    }
+
+    // Reads the slots one at a time as the stream is consumed
+    public Stream<Planet> stream() {
+        int lastId;
+        synchronized (this) {
+            lastId = lastId();
+        }
+        return IntStream.rangeClosed(1, lastId).mapToObj(this::get).filter(Objects::nonNull);
+    }
+
+    // The slots are ordered by id, so a page after an id starts right at that id's slot
+    public synchronized List<Planet> getAfter(int afterId, int limit) {
+        List<Planet> planets = new ArrayList<>(Math.min(limit, 1024));
+        int lastId = lastId();
+        for (int id = Math.max(afterId, 0) + 1; id <= lastId && planets.size() < limit; id++) {
+            if (isStored(id)) {
+                planets.add(readSlot(slotOffset(id)));
+            }
+        }
+        return planets;
+    }
+
+    // Stores a planet under its own id if reserveIds handed that id out and it is unused, otherwise under the next id
+    public synchronized void add(Planet planet) {
+        if (!reserved.take(planet.getId(), lastId())) {
+            planet.setId(nextIds(1));
+        }
+        put(planet);
+    }
+
+    // Stores a planet under the id it already has, which must not be in use
+    synchronized void put(Planet planet) {
+        if (isStored(planet.getId())) {
+            throw new IllegalArgumentException("A planet with id " + planet.getId() + " already exists");
+        }
+        // The slot is not in use yet, so it is written directly
+        int slot = ensureSlot(planet.getId());
+        writeSlot(slot, slot, planet, false);
+    }
+
+    public synchronized boolean update(Planet planet) {
+        if (!isStored(planet.getId())) {
+            return false;
+        }
+        int slot = slotOffset(planet.getId());
+        writeSlot(slot, REDO_SLOT, planet, true);
+        redo(slot);
+        return true;
+    }
+
+    public synchronized boolean delete(int id) {
+        if (!isStored(id)) {
+            return false;
+        }
+        slots.put(slotOffset(id) + SLOT_FLAGS, (byte) 0);
+        return true;
+    }
+
+    public synchronized int reserveIds(int count) {
+        return reserved.add(nextIds(count), count);
+    }
+
+    // Makes sure ids up to and including the given one are never handed out again
+    synchronized void skipIdsTo(int id) {
+        if (id > lastId()) {
+            slots.putInt(HEADER_LAST_ID, id);
+        }
+    }
+
+    private int nextIds(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one id must be reserved, got " + count);
+        }
+        int lastId = lastId();
+        if (lastId > Integer.MAX_VALUE - count) {
+            throw new IllegalStateException("No more ids available");
+        }
+        slots.putInt(HEADER_LAST_ID, lastId + count);
+        return lastId + 1;
+    }
+
+    public synchronized void flush() {
+        slots.force();
+        heap.force();
+    }
+
+    @Override
+    public synchronized void close() {
+        flush();
+        try {
+            slotChannel.close();
+            heapChannel.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to close planet store: " + e.getMessage(), e);
+        }
+    }
+
+    private int lastId() {
+        return slots.getInt(HEADER_LAST_ID);
+    }
+
+    // Offset of the id's slot in the slot file, or -1 if the id lies outside the mapped slots
+    private int slotOffset(int id) {
+        long offset = HEADER_SIZE + (long) (id - 1) * SLOT_SIZE;
+        if (id < 1 || offset + SLOT_SIZE > slots.capacity()) {
+            return -1;
+        }
+        return (int) offset;
+    }
+
+    private boolean isStored(int id) {
+        int slot = slotOffset(id);
+        return slot >= 0 && (slots.get(slot + SLOT_FLAGS) & IN_USE) != 0;
+    }
+
+    private int ensureSlot(int id) {
+        long needed = HEADER_SIZE + (long) id * SLOT_SIZE;
+        if (needed > slots.capacity()) {
+            slots = remap(slotChannel, Math.max(needed, 2L * slots.capacity()));
+        }
+        return slotOffset(id);
+    }
+
+    private Planet readSlot(int slot) {
+        byte flags = slots.get(slot + SLOT_FLAGS);
+        String name = readString(slots.getLong(slot + SLOT_NAME_OFFSET), slots.getInt(slot + SLOT_NAME_LENGTH));
+        String climate = readString(slots.getLong(slot + SLOT_CLIMATE_OFFSET), slots.getInt(slot + SLOT_CLIMATE_LENGTH));
+        Planet planet = new Planet(name, climate, slots.getDouble(slot + SLOT_DISTANCE),
+                (flags & HAS_ATMOSPHERE) != 0, (flags & HAS_LIFE) != 0);
+        planet.setId(slots.getInt(slot + SLOT_ID));
+        return planet;
+    }
+
+    // Copies the redo slot over the given slot, then clears it
+    private void redo(int slot) {
+        for (int i = SLOT_SIZE - 1; i >= 0; i--) {
+            slots.put(slot + i, slots.get(REDO_SLOT + i));
+        }
+        slots.put(REDO_SLOT + SLOT_FLAGS, (byte) 0);
+    }
+
+    // Writes the planet into target, keeping the strings of slot where they did not change. The strings are
+    // written before the slot and the in-use flag last, so a slot never points at missing text
+    private void writeSlot(int slot, int target, Planet planet, boolean reuseStrings) {
+        long nameOffset = slots.getLong(slot + SLOT_NAME_OFFSET);
+        int nameLength = slots.getInt(slot + SLOT_NAME_LENGTH);
+        if (!reuseStrings || !equal(planet.getName(), readString(nameOffset, nameLength))) {
+            nameLength = lengthOf(planet.getName());
+            nameOffset = appendString(planet.getName());
+        }
+        long climateOffset = slots.getLong(slot + SLOT_CLIMATE_OFFSET);
+        int climateLength = slots.getInt(slot + SLOT_CLIMATE_LENGTH);
+        if (!reuseStrings || !equal(planet.getClimateDescription(), readString(climateOffset, climateLength))) {
+            climateLength = lengthOf(planet.getClimateDescription());
+            climateOffset = appendString(planet.getClimateDescription());
+        }
+
+        slots.putInt(target + SLOT_ID, planet.getId());
+        slots.putDouble(target + SLOT_DISTANCE, planet.getDistanceFromStarAU());
+        slots.putLong(target + SLOT_NAME_OFFSET, nameOffset);
+        slots.putInt(target + SLOT_NAME_LENGTH, nameLength);
+        slots.putLong(target + SLOT_CLIMATE_OFFSET, climateOffset);
+        slots.putInt(target + SLOT_CLIMATE_LENGTH, climateLength);
+
+        byte flags = IN_USE;
+        if (planet.hasAtmosphere()) {
+            flags |= HAS_ATMOSPHERE;
+        }
+        if (planet.hasLife()) {
+            flags |= HAS_LIFE;
+        }
+        slots.put(target + SLOT_FLAGS, flags);
+    }
+
+    private String readString(long offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        heap.get((int) offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Returns the heap offset of the string; null strings are not stored, only marked by length -1
+    private long appendString(String value) {
+        long heapEnd = slots.getLong(HEADER_HEAP_END);
+        if (value == null) {
+            return heapEnd;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (heapEnd + bytes.length > heap.capacity()) {
+            heap = remap(heapChannel, Math.max(heapEnd + bytes.length, 2L * heap.capacity()));
+        }
+        heap.put((int) heapEnd, bytes);
+        slots.putLong(HEADER_HEAP_END, heapEnd + bytes.length);
+        return heapEnd;
+    }
+
+    private static int lengthOf(String value) {
+        return value == null ? -1 : value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static boolean equal(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static MappedByteBuffer remap(FileChannel channel, long size) {
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Planet store cannot grow beyond 2 GB");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to grow planet store: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,550 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Measures every call to another DataManager: how often each operation was called, how often it failed and
+// a latency histogram with its p50, p99 and p999. If the DataManager (or one it forwards to) works on a data
+// file, the loads and saves of that file, the bytes they moved and the number of entities are reported too.
+//
+// The numbers are available from getOperation and getStorageStatistics, as text in the Prometheus format
+// from toText, through JMX (one MBean per operation under extraterrestrialexploration:type=DataManager),
+// and printed periodically by startReporting.
+// Calls made inside a transaction run against the in-memory batch and are counted as part of the transaction.
+public class MetricsDataManager extends ForwardingDataManager implements Closeable {
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final String name;
+    private final ConcurrentHashMap<String, Operation> operations = new ConcurrentHashMap<>();
+    private final StorageStatistics storage;
+    private final List<ObjectName> registered = new ArrayList<>();
+    private boolean jmx;
+    private ScheduledExecutorService reporter;
+
+    public MetricsDataManager(DataManager delegate) {
+        this(delegate, "data-manager-" + INSTANCES.incrementAndGet());
+    }
+
+    // The name tells the managers of one JVM apart in JMX
+    public MetricsDataManager(DataManager delegate, String name) {
+        super(delegate);
+        this.name = name;
+        this.storage = findStorageStatistics(delegate);
+    }
+
+    // The numbers of one operation. Public for JMX, which reads them through OperationMXBean
+    public static class Operation implements OperationMXBean {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            return latency.getMeanNanos() / 1_000_000;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return latency.getValueAtPercentile(50) / 1_000_000.0;
+        }
+
+        @Override
+        public double getP99Millis() {
+            return latency.getValueAtPercentile(99) / 1_000_000.0;
+        }
+
+        @Override
+        public double getP999Millis() {
+            return latency.getValueAtPercentile(99.9) / 1_000_000.0;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return latency.getMaxNanos() / 1_000_000.0;
+        }
+    }
+
+    public interface OperationMXBean {
+        long getCount();
+        long getErrors();
+        double getMeanMillis();
+        double getP50Millis();
+        double getP99Millis();
+        double getP999Millis();
+        double getMaxMillis();
+    }
+
+    public interface StorageMXBean {
+        long getLoads();
+        long getSaves();
+        double getLoadP99Millis();
+        double getSaveP99Millis();
+        long getBytesRead();
+        long getBytesWritten();
+        int getPlanetCount();
+        int getAlienCount();
+        int getExplorerCount();
+        int getEncounterCount();
+    }
+
+    // The operation's numbers, or null if it was never called
+    public Operation getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    // Null if the DataManager does not work on a data file
+    public StorageStatistics getStorageStatistics() {
+        return storage;
+    }
+
+    // Registers the operations with the platform MBean server; operations first called later are registered then
+    public synchronized void registerWithJmx() {
+        if (jmx) {
+            return;
+        }
+        jmx = true;
+        operations.forEach(this::register);
+        if (storage != null) {
+            register(objectName("storage", "data file"), new StorageMXBean() {
+                public long getLoads() {
+                    return storage.getLoads().getCount();
+                }
+
+                public long getSaves() {
+                    return storage.getSaves().getCount();
+                }
+
+                public double getLoadP99Millis() {
+                    return storage.getLoads().getValueAtPercentile(99) / 1_000_000.0;
+                }
+
+                public double getSaveP99Millis() {
+                    return storage.getSaves().getValueAtPercentile(99) / 1_000_000.0;
+                }
+
+                public long getBytesRead() {
+                    return storage.getBytesRead();
+                }
+
+                public long getBytesWritten() {
+                    return storage.getBytesWritten();
+                }
+
+                public int getPlanetCount() {
+                    return storage.getPlanetCount();
+                }
+
+                public int getAlienCount() {
+                    return storage.getAlienCount();
+                }
+
+                public int getExplorerCount() {
+                    return storage.getExplorerCount();
+                }
+
+                public int getEncounterCount() {
+                    return storage.getEncounterCount();
+                }
+            });
+        }
+    }
+
+    // Prints toText every interval on a background thread, e.g. startReporting(Duration.ofMinutes(1), System.out::println)
+    public synchronized void startReporting(Duration interval, Consumer<String> output) {
+        if (reporter != null) {
+            throw new IllegalStateException("Already reporting");
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        reporter.scheduleAtFixedRate(() -> output.accept(toText()), millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // All numbers in the Prometheus text format, with latencies in seconds
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append("# TYPE datamanager_operations_total counter\n");
+        Map<String, Operation> sorted = new TreeMap<>(operations);
+        sorted.forEach((operation, metrics) -> line(text, "datamanager_operations_total", operation, null, metrics.getCount()));
+        text.append("# TYPE datamanager_operation_errors_total counter\n");
+        sorted.forEach((operation, metrics) -> line(text, "datamanager_operation_errors_total", operation, null, metrics.getErrors()));
+        text.append("# TYPE datamanager_operation_seconds summary\n");
+        sorted.forEach((operation, metrics) -> {
+            LatencyHistogram latency = metrics.getLatency();
+            line(text, "datamanager_operation_seconds", operation, "0.5", latency.getValueAtPercentile(50) / 1e9);
+            line(text, "datamanager_operation_seconds", operation, "0.99", latency.getValueAtPercentile(99) / 1e9);
+            line(text, "datamanager_operation_seconds", operation, "0.999", latency.getValueAtPercentile(99.9) / 1e9);
+            line(text, "datamanager_operation_seconds", operation, "1", latency.getMaxNanos() / 1e9);
+        });
+        if (storage != null) {
+            storageLines(text, "load", storage.getLoads());
+            storageLines(text, "save", storage.getSaves());
+            text.append("datamanager_bytes_read_total ").append(storage.getBytesRead()).append('\n');
+            text.append("datamanager_bytes_written_total ").append(storage.getBytesWritten()).append('\n');
+            text.append("datamanager_entities{type=\"planets\"} ").append(storage.getPlanetCount()).append('\n');
+            text.append("datamanager_entities{type=\"aliens\"} ").append(storage.getAlienCount()).append('\n');
+            text.append("datamanager_entities{type=\"explorers\"} ").append(storage.getExplorerCount()).append('\n');
+            text.append("datamanager_entities{type=\"encounters\"} ").append(storage.getEncounterCount()).append('\n');
+        }
+        return text.toString();
+    }
+
+    // Stops reporting, unregisters from JMX and closes the DataManager it measures if that can be closed
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (reporter != null) {
+                reporter.shutdownNow();
+            }
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (ObjectName objectName : registered) {
+                try {
+                    server.unregisterMBean(objectName);
+                } catch (JMException e) {
+                    // Already gone
+                }
+            }
+            registered.clear();
+            jmx = false;
+        }
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        time("transaction", () -> delegate.transaction(work));
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        time("addPlanet", () -> delegate.addPlanet(planet));
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        time("updatePlanet", () -> delegate.updatePlanet(planet));
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        time("deletePlanet", () -> delegate.deletePlanet(id));
+    }
+
+    @Override
+    public Planet getPlanet(int id) {
+        return time("getPlanet", () -> delegate.getPlanet(id));
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return time("getAllPlanets", () -> delegate.getAllPlanets());
+    }
+
+    // Times creating the stream; the entities are decoded later, while the caller consumes it
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return time("streamPlanets", () -> delegate.streamPlanets());
+    }
+
+    @Override
+    public List<Planet> getPlanets(int offset, int limit) {
+        return time("getPlanets", () -> delegate.getPlanets(offset, limit));
+    }
+
+    @Override
+    public List<Planet> getPlanetsAfter(int afterId, int limit) {
+        return time("getPlanetsAfter", () -> delegate.getPlanetsAfter(afterId, limit));
+    }
+
+    @Override
+    public int reservePlanetIds(int count) {
+        return time("reservePlanetIds", () -> delegate.reservePlanetIds(count));
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        time("addAlien", () -> delegate.addAlien(alien));
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        time("updateAlien", () -> delegate.updateAlien(alien));
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        time("deleteAlien", () -> delegate.deleteAlien(id));
+    }
+
+    @Override
+    public Alien getAlien(int id) {
+        return time("getAlien", () -> delegate.getAlien(id));
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return time("getAllAliens", () -> delegate.getAllAliens());
+    }
+
+    @Override
+    public Stream<Alien> streamAliens() {
+        return time("streamAliens", () -> delegate.streamAliens());
+    }
+
+    @Override
+    public List<Alien> getAliens(int offset, int limit) {
+        return time("getAliens", () -> delegate.getAliens(offset, limit));
+    }
+
+    @Override
+    public List<Alien> getAliensAfter(int afterId, int limit) {
+        return time("getAliensAfter", () -> delegate.getAliensAfter(afterId, limit));
+    }
+
+    @Override
+    public int reserveAlienIds(int count) {
+        return time("reserveAlienIds", () -> delegate.reserveAlienIds(count));
+    }
+
+    // Explorer methods
+    @Override
+    public void addExplorer(Explorer explorer) {
+        time("addExplorer", () -> delegate.addExplorer(explorer));
+    }
+
+    @Override
+    public void updateExplorer(Explorer explorer) {
+        time("updateExplorer", () -> delegate.updateExplorer(explorer));
+    }
+
+    @Override
+    public void deleteExplorer(int id) {
+        time("deleteExplorer", () -> delegate.deleteExplorer(id));
+    }
+
+    @Override
+    public Explorer getExplorer(int id) {
+        return time("getExplorer", () -> delegate.getExplorer(id));
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        return time("getAllExplorers", () -> delegate.getAllExplorers());
+    }
+
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        return time("streamExplorers", () -> delegate.streamExplorers());
+    }
+
+    @Override
+    public List<Explorer> getExplorers(int offset, int limit) {
+        return time("getExplorers", () -> delegate.getExplorers(offset, limit));
+    }
+
+    @Override
+    public List<Explorer> getExplorersAfter(int afterId, int limit) {
+        return time("getExplorersAfter", () -> delegate.getExplorersAfter(afterId, limit));
+    }
+
+    @Override
+    public int reserveExplorerIds(int count) {
+        return time("reserveExplorerIds", () -> delegate.reserveExplorerIds(count));
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        time("addEncounter", () -> delegate.addEncounter(encounter));
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        time("updateEncounter", () -> delegate.updateEncounter(encounter));
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        time("deleteEncounter", () -> delegate.deleteEncounter(id));
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        return time("getEncounter", () -> delegate.getEncounter(id));
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return time("getAllEncounters", () -> delegate.getAllEncounters());
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return time("streamEncounters", () -> delegate.streamEncounters());
+    }
+
+    @Override
+    public List<Encounter> getEncounters(int offset, int limit) {
+        return time("getEncounters", () -> delegate.getEncounters(offset, limit));
+    }
+
+    @Override
+    public List<Encounter> getEncountersAfter(int afterId, int limit) {
+        return time("getEncountersAfter", () -> delegate.getEncountersAfter(afterId, limit));
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        return time("reserveEncounterIds", () -> delegate.reserveEncounterIds(count));
+    }
+
+    // Encounter queries
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return time("findEncountersByAlien", () -> delegate.findEncountersByAlien(alienId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return time("findEncountersByPlanet", () -> delegate.findEncountersByPlanet(planetId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return time("findEncountersByExplorer", () -> delegate.findEncountersByExplorer(explorerId));
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return time("findEncountersBetween", () -> delegate.findEncountersBetween(from, to));
+    }
+
+    private <R> R time(String operation, Supplier<R> call) {
+        Operation metrics = operation(operation);
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            metrics.errors.increment();
+            throw e;
+        } finally {
+            metrics.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    private void time(String operation, Runnable call) {
+        time(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private Operation operation(String operation) {
+        Operation metrics = operations.get(operation);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operation, key -> new Operation());
+            synchronized (this) {
+                if (jmx && !isRegistered(operation)) {
+                    register(operation, metrics);
+                }
+            }
+        }
+        return metrics;
+    }
+
+    private boolean isRegistered(String operation) {
+        return registered.stream().anyMatch(objectName -> operation.equals(objectName.getKeyProperty("operation")));
+    }
+
+    private void register(String operation, Operation metrics) {
+        register(objectName("operation", operation), metrics);
+    }
+
+    private void register(ObjectName objectName, Object bean) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            throw new RuntimeException("Failed to register metrics with JMX: " + e.getMessage(), e);
+        }
+    }
+
+    private ObjectName objectName(String key, String value) {
+        try {
+            return new ObjectName("extraterrestrialexploration:type=DataManager,name=" + ObjectName.quote(name)
+                    + "," + key + "=" + ObjectName.quote(value));
+        } catch (JMException e) {
+            throw new RuntimeException("Invalid JMX name: " + e.getMessage(), e);
+        }
+    }
+
+    private static void storageLines(StringBuilder text, String kind, LatencyHistogram latency) {
+        text.append("datamanager_file_").append(kind).append("s_total ").append(latency.getCount()).append('\n');
+        text.append(String.format(Locale.ROOT, "datamanager_file_%s_seconds{quantile=\"0.99\"} %.9f%n",
+                kind, latency.getValueAtPercentile(99) / 1e9));
+    }
+
+    private static void line(StringBuilder text, String metric, String operation, String quantile, double value) {
+        text.append(metric).append("{operation=\"").append(operation).append('"');
+        if (quantile != null) {
+            text.append(",quantile=\"").append(quantile).append('"');
+        }
+        text.append("} ").append(String.format(Locale.ROOT, "%.9f", value)).append('\n');
+    }
+
+    private static void line(StringBuilder text, String metric, String operation, String quantile, long value) {
+        text.append(metric).append("{operation=\"").append(operation).append("\"} ").append(value).append('\n');
+    }
+
+    // The statistics of the data file behind the delegate, looking through managers that forward to others
+    private static StorageStatistics findStorageStatistics(DataManager dataManager) {
+        while (dataManager instanceof ForwardingDataManager) {
+            dataManager = ((ForwardingDataManager) dataManager).delegate;
+        }
+        if (dataManager instanceof SnapshotDataManager) {
+            return ((SnapshotDataManager) dataManager).getStorageStatistics();
+        }
+        return dataManager instanceof FileDataManager ? ((FileDataManager) dataManager).getStorageStatistics() : null;
+    }
+}
@@ -0,0 +1,1018 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Keeps all entities outside the Java heap, so the garbage collector has nothing to walk however much is stored.
+// Every entity type has an OffHeapTable of fixed-size records, one per id, and the strings of all of them are kept
+// in a SlabAllocator. Nothing is kept between runs. Transaction work holds this manager's lock throughout, and
+// the changes it made are taken back if it throws.
+//
+// The get and find methods return views: a Planet, Alien, Explorer or Encounter holding only its id, whose getters
+// read the record each time, so they show later changes to the entity. The heap holds only the views a caller keeps.
+// The first setter called on a view copies the stored values into it, and from then on the view is an ordinary
+// entity until it is passed to the update method. Reading a view of a deleted entity throws an IllegalStateException.
+// Entities come out in id order, encounters between two dates earliest first.
+//
+// Records (the first byte holds IN_USE and the entity's flags, strings are SlabAllocator handles):
+//   planet     8 distance from star  16 name  24 climate description
+//   alien      8 name  16 species  24 physical description
+//   explorer   4 current planet id  8 name
+//   encounter  4 alien id  8 planet id  12 explorer id  16 date as epoch day  24 description
+public class OffHeapDataManager implements DataManager {
+    private static final byte HAS_ATMOSPHERE = 2;
+    private static final byte HAS_LIFE = 4;
+
+    private static final int PLANET_DISTANCE = 8;
+    private static final int PLANET_NAME = 16;
+    private static final int PLANET_CLIMATE = 24;
+
+    private static final int ALIEN_NAME = 8;
+    private static final int ALIEN_SPECIES = 16;
+    private static final int ALIEN_DESCRIPTION = 24;
+
+    private static final int EXPLORER_PLANET_ID = 4;
+    private static final int EXPLORER_NAME = 8;
+
+    private static final int ENCOUNTER_ALIEN_ID = 4;
+    private static final int ENCOUNTER_PLANET_ID = 8;
+    private static final int ENCOUNTER_EXPLORER_ID = 12;
+    private static final int ENCOUNTER_DATE = 16;
+    private static final int ENCOUNTER_DESCRIPTION = 24;
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private final OffHeapTable planets = new OffHeapTable(32);
+    private final OffHeapTable aliens = new OffHeapTable(32);
+    private final OffHeapTable explorers = new OffHeapTable(16);
+    private final OffHeapTable encounters = new OffHeapTable(32);
+    private final SlabAllocator strings = new SlabAllocator();
+    private final Ids ids = new Ids();
+    private final EntityResolver resolver = new ViewResolver();
+
+    // Ids reserved by work that fails stay used, as ids are never handed out twice
+    @Override
+    public synchronized void transaction(Consumer<DataManager> work) {
+        new UndoLog().transaction(work);
+    }
+
+    // Direct memory taken by records and strings, including freed string blocks kept for reuse
+    public synchronized long getOffHeapBytes() {
+        return planets.getReservedBytes() + aliens.getReservedBytes() + explorers.getReservedBytes()
+                + encounters.getReservedBytes() + strings.getReservedBytes();
+    }
+
+    // Planet methods
+    @Override
+    public synchronized void addPlanet(Planet planet) {
+        if (!ids.planets.take(planet.getId(), planets.lastId())) {
+            planet.setId(planets.reserveIds(1));
+        }
+        writePlanet(planets.claim(planet.getId()), planets.offsetOf(planet.getId()), planet, false);
+    }
+
+    @Override
+    public synchronized void updatePlanet(Planet planet) {
+        if (!planets.contains(planet.getId())) {
+            throw new IllegalArgumentException("No planet with id " + planet.getId());
+        }
+        if (planet instanceof StoredView && ((StoredView) planet).isStoredIn(this) && !planet.isDirty()) {
+            return;
+        }
+        writePlanet(planets.chunkOf(planet.getId()), planets.offsetOf(planet.getId()), planet, true);
+    }
+
+    @Override
+    public synchronized void deletePlanet(int id) {
+        if (planets.contains(id)) {
+            ByteBuffer record = planets.chunkOf(id);
+            int offset = planets.offsetOf(id);
+            strings.free(record.getLong(offset + PLANET_NAME));
+            strings.free(record.getLong(offset + PLANET_CLIMATE));
+            planets.release(id);
+        }
+    }
+
+    @Override
+    public synchronized Planet getPlanet(int id) {
+        return planets.contains(id) ? new PlanetView(id) : null;
+    }
+
+    @Override
+    public List<Planet> getAllPlanets() {
+        return streamPlanets().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Planet> streamPlanets() {
+        return stream(planets, PlanetView::new);
+    }
+
+    @Override
+    public List<Planet> getPlanetsAfter(int afterId, int limit) {
+        return after(planets, PlanetView::new, afterId, limit);
+    }
+
+    @Override
+    public synchronized int reservePlanetIds(int count) {
+        return ids.planets.add(planets.reserveIds(count), count);
+    }
+
+    private void writePlanet(ByteBuffer record, int offset, Planet planet, boolean replacing) {
+        record.putDouble(offset + PLANET_DISTANCE, planet.getDistanceFromStarAU());
+        putString(record, offset + PLANET_NAME, planet.getName(), replacing);
+        putString(record, offset + PLANET_CLIMATE, planet.getClimateDescription(), replacing);
+        byte flags = OffHeapTable.IN_USE;
+        if (planet.hasAtmosphere()) {
+            flags |= HAS_ATMOSPHERE;
+        }
+        if (planet.hasLife()) {
+            flags |= HAS_LIFE;
+        }
+        record.put(offset, flags);
+    }
+
+    // Alien methods
+    @Override
+    public synchronized void addAlien(Alien alien) {
+        if (!ids.aliens.take(alien.getId(), aliens.lastId())) {
+            alien.setId(aliens.reserveIds(1));
+        }
+        writeAlien(aliens.claim(alien.getId()), aliens.offsetOf(alien.getId()), alien, false);
+    }
+
+    @Override
+    public synchronized void updateAlien(Alien alien) {
+        if (!aliens.contains(alien.getId())) {
+            throw new IllegalArgumentException("No alien with id " + alien.getId());
+        }
+        if (alien instanceof StoredView && ((StoredView) alien).isStoredIn(this) && !alien.isDirty()) {
+            return;
+        }
+        writeAlien(aliens.chunkOf(alien.getId()), aliens.offsetOf(alien.getId()), alien, true);
+    }
+
+    @Override
+    public synchronized void deleteAlien(int id) {
+        if (aliens.contains(id)) {
+            ByteBuffer record = aliens.chunkOf(id);
+            int offset = aliens.offsetOf(id);
+            strings.free(record.getLong(offset + ALIEN_NAME));
+            strings.free(record.getLong(offset + ALIEN_SPECIES));
+            strings.free(record.getLong(offset + ALIEN_DESCRIPTION));
+            aliens.release(id);
+        }
+    }
+
+    @Override
+    public synchronized Alien getAlien(int id) {
+        return aliens.contains(id) ? new AlienView(id) : null;
+    }
+
+    @Override
+    public List<Alien> getAllAliens() {
+        return streamAliens().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Alien> streamAliens() {
+        return stream(aliens, AlienView::new);
+    }
+
+    @Override
+    public List<Alien> getAliensAfter(int afterId, int limit) {
+        return after(aliens, AlienView::new, afterId, limit);
+    }
+
+    @Override
+    public synchronized int reserveAlienIds(int count) {
+        return ids.aliens.add(aliens.reserveIds(count), count);
+    }
+
+    private void writeAlien(ByteBuffer record, int offset, Alien alien, boolean replacing) {
+        putString(record, offset + ALIEN_NAME, alien.getName(), replacing);
+        putString(record, offset + ALIEN_SPECIES, alien.getSpecies(), replacing);
+        putString(record, offset + ALIEN_DESCRIPTION, alien.getPhysicalDescription(), replacing);
+        record.put(offset, OffHeapTable.IN_USE);
+    }
+
+    // Explorer methods
+    @Override
+    public synchronized void addExplorer(Explorer explorer) {
+        if (!ids.explorers.take(explorer.getId(), explorers.lastId())) {
+            explorer.setId(explorers.reserveIds(1));
+        }
+        writeExplorer(explorers.claim(explorer.getId()), explorers.offsetOf(explorer.getId()), explorer, false);
+    }
+
+    @Override
+    public synchronized void updateExplorer(Explorer explorer) {
+        if (!explorers.contains(explorer.getId())) {
+            throw new IllegalArgumentException("No explorer with id " + explorer.getId());
+        }
+        if (explorer instanceof StoredView && ((StoredView) explorer).isStoredIn(this) && !explorer.isDirty()) {
+            return;
+        }
+        writeExplorer(explorers.chunkOf(explorer.getId()), explorers.offsetOf(explorer.getId()), explorer, true);
+    }
+
+    @Override
+    public synchronized void deleteExplorer(int id) {
+        if (explorers.contains(id)) {
+            strings.free(explorers.chunkOf(id).getLong(explorers.offsetOf(id) + EXPLORER_NAME));
+            explorers.release(id);
+        }
+    }
+
+    @Override
+    public synchronized Explorer getExplorer(int id) {
+        return explorers.contains(id) ? new ExplorerView(id) : null;
+    }
+
+    @Override
+    public List<Explorer> getAllExplorers() {
+        return streamExplorers().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Explorer> streamExplorers() {
+        return stream(explorers, ExplorerView::new);
+    }
+
+    @Override
+    public List<Explorer> getExplorersAfter(int afterId, int limit) {
+        return after(explorers, ExplorerView::new, afterId, limit);
+    }
+
+    @Override
+    public synchronized int reserveExplorerIds(int count) {
+        return ids.explorers.add(explorers.reserveIds(count), count);
+    }
+
+    private void writeExplorer(ByteBuffer record, int offset, Explorer explorer, boolean replacing) {
+        record.putInt(offset + EXPLORER_PLANET_ID, explorer.getCurrentPlanetId());
+        putString(record, offset + EXPLORER_NAME, explorer.getName(), replacing);
+        record.put(offset, OffHeapTable.IN_USE);
+    }
+
+    // Encounter methods
+    @Override
+    public synchronized void addEncounter(Encounter encounter) {
+        if (!ids.encounters.take(encounter.getId(), encounters.lastId())) {
+            encounter.setId(encounters.reserveIds(1));
+        }
+        writeEncounter(encounters.claim(encounter.getId()), encounters.offsetOf(encounter.getId()), encounter, false);
+    }
+
+    @Override
+    public synchronized void updateEncounter(Encounter encounter) {
+        if (!encounters.contains(encounter.getId())) {
+            throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+        }
+        if (encounter instanceof StoredView && ((StoredView) encounter).isStoredIn(this) && !encounter.isDirty()) {
+            return;
+        }
+        writeEncounter(encounters.chunkOf(encounter.getId()), encounters.offsetOf(encounter.getId()), encounter, true);
+    }
+
+    @Override
+    public synchronized void deleteEncounter(int id) {
+        if (encounters.contains(id)) {
+            strings.free(encounters.chunkOf(id).getLong(encounters.offsetOf(id) + ENCOUNTER_DESCRIPTION));
+            encounters.release(id);
+        }
+    }
+
+    @Override
+    public synchronized Encounter getEncounter(int id) {
+        return encounters.contains(id) ? new EncounterView(id) : null;
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return streamEncounters().collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return stream(encounters, EncounterView::new);
+    }
+
+    @Override
+    public List<Encounter> getEncountersAfter(int afterId, int limit) {
+        return after(encounters, EncounterView::new, afterId, limit);
+    }
+
+    @Override
+    public synchronized int reserveEncounterIds(int count) {
+        return ids.encounters.add(encounters.reserveIds(count), count);
+    }
+
+    private void writeEncounter(ByteBuffer record, int offset, Encounter encounter, boolean replacing) {
+        record.putInt(offset + ENCOUNTER_ALIEN_ID, encounter.getAlienId());
+        record.putInt(offset + ENCOUNTER_PLANET_ID, encounter.getPlanetId());
+        record.putInt(offset + ENCOUNTER_EXPLORER_ID, encounter.getExplorerId());
+        LocalDate date = encounter.getDate();
+        record.putLong(offset + ENCOUNTER_DATE, date != null ? date.toEpochDay() : NO_DATE);
+        putString(record, offset + ENCOUNTER_DESCRIPTION, encounter.getDescriptionOfTheEncounter(), replacing);
+        record.put(offset, OffHeapTable.IN_USE);
+    }
+
+    // Encounter queries. There are no indexes; the records are scanned without creating an object per encounter
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return findEncounters(ENCOUNTER_ALIEN_ID, alienId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return findEncounters(ENCOUNTER_PLANET_ID, planetId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return findEncounters(ENCOUNTER_EXPLORER_ID, explorerId);
+    }
+
+    // Encounters without a date are stored as NO_DATE, which lies before every date
+    @Override
+    public synchronized List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        List<Encounter> found = new ArrayList<>();
+        long fromDay = from.toEpochDay();
+        long toDay = to.toEpochDay();
+        for (int id = 1; id <= encounters.lastId(); id++) {
+            if (encounters.contains(id)) {
+                long day = encounters.chunkOf(id).getLong(encounters.offsetOf(id) + ENCOUNTER_DATE);
+                if (day >= fromDay && day <= toDay) {
+                    found.add(new EncounterView(id));
+                }
+            }
+        }
+        found.sort(Comparator.comparing(Encounter::getDate));
+        return found;
+    }
+
+    private synchronized List<Encounter> findEncounters(int field, int value) {
+        List<Encounter> found = new ArrayList<>();
+        for (int id = 1; id <= encounters.lastId(); id++) {
+            if (encounters.contains(id) && encounters.chunkOf(id).getInt(encounters.offsetOf(id) + field) == value) {
+                found.add(new EncounterView(id));
+            }
+        }
+        return found;
+    }
+
+    // Creates the views as the stream is consumed, so streaming all entities keeps one on the heap at a time
+    private <T> Stream<T> stream(OffHeapTable table, IntFunction<T> view) {
+        int lastId;
+        synchronized (this) {
+            lastId = table.lastId();
+        }
+        return IntStream.rangeClosed(1, lastId).filter(id -> isStored(table, id)).mapToObj(view);
+    }
+
+    private synchronized <T> List<T> after(OffHeapTable table, IntFunction<T> view, int afterId, int limit) {
+        Paging.checkPage(0, limit);
+        List<T> page = new ArrayList<>(Math.min(limit, 1024));
+        for (int id = Math.max(afterId, 0) + 1; id > 0 && id <= table.lastId() && page.size() < limit; id++) {
+            if (table.contains(id)) {
+                page.add(view.apply(id));
+            }
+        }
+        return page;
+    }
+
+    private void putString(ByteBuffer record, int position, String value, boolean replacing) {
+        record.putLong(position, replacing ? strings.replace(record.getLong(position), value) : strings.allocate(value));
+    }
+
+    // Reads for the views
+    private synchronized boolean isStored(OffHeapTable table, int id) {
+        return table.contains(id);
+    }
+
+    private synchronized String readString(OffHeapTable table, int id, int field) {
+        return strings.read(stored(table, id).getLong(table.offsetOf(id) + field));
+    }
+
+    private synchronized int readInt(OffHeapTable table, int id, int field) {
+        return stored(table, id).getInt(table.offsetOf(id) + field);
+    }
+
+    private synchronized double readDouble(OffHeapTable table, int id, int field) {
+        return stored(table, id).getDouble(table.offsetOf(id) + field);
+    }
+
+    private synchronized boolean readFlag(OffHeapTable table, int id, byte flag) {
+        return (stored(table, id).get(table.offsetOf(id)) & flag) != 0;
+    }
+
+    private synchronized LocalDate readDate(OffHeapTable table, int id, int field) {
+        long day = stored(table, id).getLong(table.offsetOf(id) + field);
+        return day != NO_DATE ? LocalDate.ofEpochDay(day) : null;
+    }
+
+    private ByteBuffer stored(OffHeapTable table, int id) {
+        if (!table.contains(id)) {
+            throw new IllegalStateException("The entity with id " + id + " was deleted");
+        }
+        return table.chunkOf(id);
+    }
+
+    // Passes the transaction work's changes on and remembers for each one the change that takes it back.
+    // A deleted or replaced entity is remembered as a copy, since its record is gone or overwritten. A deleted
+    // one is written back under its own id directly, as addX would give it a new one
+    private final class UndoLog extends ForwardingDataManager {
+        private final List<Runnable> undo = new ArrayList<>();
+
+        private UndoLog() {
+            super(OffHeapDataManager.this);
+        }
+
+        // A nested transaction that fails takes back only its own changes
+        @Override
+        public void transaction(Consumer<DataManager> work) {
+            int start = undo.size();
+            try {
+                work.accept(this);
+            } catch (RuntimeException e) {
+                // The latest change first, so each one is taken back from the state it left
+                for (int i = undo.size() - 1; i >= start; i--) {
+                    undo.remove(i).run();
+                }
+                throw e;
+            }
+        }
+
+        @Override
+        public void addPlanet(Planet planet) {
+            delegate.addPlanet(planet);
+            int id = planet.getId();
+            undo.add(() -> delegate.deletePlanet(id));
+        }
+
+        @Override
+        public void updatePlanet(Planet planet) {
+            Planet before = planets.contains(planet.getId()) ? new PlanetView(planet.getId()).copy() : null;
+            delegate.updatePlanet(planet);
+            undo.add(() -> delegate.updatePlanet(before));
+        }
+
+        @Override
+        public void deletePlanet(int id) {
+            if (planets.contains(id)) {
+                Planet before = new PlanetView(id).copy();
+                delegate.deletePlanet(id);
+                undo.add(() -> writePlanet(planets.claim(id), planets.offsetOf(id), before, false));
+            }
+        }
+
+        @Override
+        public void addAlien(Alien alien) {
+            delegate.addAlien(alien);
+            int id = alien.getId();
+            undo.add(() -> delegate.deleteAlien(id));
+        }
+
+        @Override
+        public void updateAlien(Alien alien) {
+            Alien before = aliens.contains(alien.getId()) ? new AlienView(alien.getId()).copy() : null;
+            delegate.updateAlien(alien);
+            undo.add(() -> delegate.updateAlien(before));
+        }
+
+        @Override
+        public void deleteAlien(int id) {
+            if (aliens.contains(id)) {
+                Alien before = new AlienView(id).copy();
+                delegate.deleteAlien(id);
+                undo.add(() -> writeAlien(aliens.claim(id), aliens.offsetOf(id), before, false));
+            }
+        }
+
+        @Override
+        public void addExplorer(Explorer explorer) {
+            delegate.addExplorer(explorer);
+            int id = explorer.getId();
+            undo.add(() -> delegate.deleteExplorer(id));
+        }
+
+        @Override
+        public void updateExplorer(Explorer explorer) {
+            Explorer before = explorers.contains(explorer.getId()) ? new ExplorerView(explorer.getId()).copy() : null;
+            delegate.updateExplorer(explorer);
+            undo.add(() -> delegate.updateExplorer(before));
+        }
+
+        @Override
+        public void deleteExplorer(int id) {
+            if (explorers.contains(id)) {
+                Explorer before = new ExplorerView(id).copy();
+                delegate.deleteExplorer(id);
+                undo.add(() -> writeExplorer(explorers.claim(id), explorers.offsetOf(id), before, false));
+            }
+        }
+
+        @Override
+        public void addEncounter(Encounter encounter) {
+            delegate.addEncounter(encounter);
+            int id = encounter.getId();
+            undo.add(() -> delegate.deleteEncounter(id));
+        }
+
+        @Override
+        public void updateEncounter(Encounter encounter) {
+            Encounter before = encounters.contains(encounter.getId()) ? new EncounterView(encounter.getId()).copy() : null;
+            delegate.updateEncounter(encounter);
+            undo.add(() -> delegate.updateEncounter(before));
+        }
+
+        @Override
+        public void deleteEncounter(int id) {
+            if (encounters.contains(id)) {
+                Encounter before = new EncounterView(id).copy();
+                delegate.deleteEncounter(id);
+                undo.add(() -> writeEncounter(encounters.claim(id), encounters.offsetOf(id), before, false));
+            }
+        }
+    }
+
+    // Lets the update methods recognise their own views that were not changed, so there is nothing to write
+    private interface StoredView {
+        boolean isStoredIn(OffHeapDataManager dataManager);
+    }
+
+    // The views read their record until detach copies it into the entity's own fields. Java serialization
+    // writes them as plain entities
+    private final class PlanetView extends Planet implements StoredView {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private boolean detached;
+
+        private PlanetView(int id) {
+            super(null, null, 0, false, false);
+            this.id = id;
+            markClean();
+        }
+
+        @Override
+        public boolean isStoredIn(OffHeapDataManager dataManager) {
+            return dataManager == OffHeapDataManager.this;
+        }
+
+        @Override
+        public int getId() {
+            return detached ? super.getId() : id;
+        }
+
+        @Override
+        public void setId(int id) {
+            detach();
+            super.setId(id);
+        }
+
+        @Override
+        public String getName() {
+            return detached ? super.getName() : readString(planets, id, PLANET_NAME);
+        }
+
+        @Override
+        public void setName(String name) {
+            detach();
+            super.setName(name);
+        }
+
+        @Override
+        public String getClimateDescription() {
+            return detached ? super.getClimateDescription() : readString(planets, id, PLANET_CLIMATE);
+        }
+
+        @Override
+        public void setClimateDescription(String climateDescription) {
+            detach();
+            super.setClimateDescription(climateDescription);
+        }
+
+        @Override
+        public double getDistanceFromStarAU() {
+            return detached ? super.getDistanceFromStarAU() : readDouble(planets, id, PLANET_DISTANCE);
+        }
+
+        @Override
+        public void setDistanceFromStarAU(double distanceFromStarAU) {
+            detach();
+            super.setDistanceFromStarAU(distanceFromStarAU);
+        }
+
+        @Override
+        public boolean hasAtmosphere() {
+            return detached ? super.hasAtmosphere() : readFlag(planets, id, HAS_ATMOSPHERE);
+        }
+
+        @Override
+        public void setHasAtmosphere(boolean hasAtmosphere) {
+            detach();
+            super.setHasAtmosphere(hasAtmosphere);
+        }
+
+        @Override
+        public boolean hasLife() {
+            return detached ? super.hasLife() : readFlag(planets, id, HAS_LIFE);
+        }
+
+        @Override
+        public void setHasLife(boolean hasLife) {
+            detach();
+            super.setHasLife(hasLife);
+        }
+
+        private void detach() {
+            if (!detached) {
+                Planet stored = copy();
+                detached = true;
+                super.setId(stored.getId());
+                super.setName(stored.getName());
+                super.setClimateDescription(stored.getClimateDescription());
+                super.setDistanceFromStarAU(stored.getDistanceFromStarAU());
+                super.setHasAtmosphere(stored.hasAtmosphere());
+                super.setHasLife(stored.hasLife());
+            }
+        }
+
+        // Reads through the getters, so a detached view is copied from its own fields
+        private Planet copy() {
+            synchronized (OffHeapDataManager.this) {
+                Planet planet = new Planet(getName(), getClimateDescription(), getDistanceFromStarAU(), hasAtmosphere(), hasLife());
+                planet.setId(getId());
+                return planet;
+            }
+        }
+
+        private Object writeReplace() {
+            return copy();
+        }
+
+        @Override
+        public String toString() {
+            return detached ? super.toString() : copy().toString();
+        }
+    }
+
+    private final class AlienView extends Alien implements StoredView {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private boolean detached;
+
+        private AlienView(int id) {
+            super(null, null, null);
+            this.id = id;
+            markClean();
+        }
+
+        @Override
+        public boolean isStoredIn(OffHeapDataManager dataManager) {
+            return dataManager == OffHeapDataManager.this;
+        }
+
+        @Override
+        public int getId() {
+            return detached ? super.getId() : id;
+        }
+
+        @Override
+        public void setId(int id) {
+            detach();
+            super.setId(id);
+        }
+
+        @Override
+        public String getName() {
+            return detached ? super.getName() : readString(aliens, id, ALIEN_NAME);
+        }
+
+        @Override
+        public void setName(String name) {
+            detach();
+            super.setName(name);
+        }
+
+        @Override
+        public String getSpecies() {
+            return detached ? super.getSpecies() : readString(aliens, id, ALIEN_SPECIES);
+        }
+
+        @Override
+        public void setSpecies(String species) {
+            detach();
+            super.setSpecies(species);
+        }
+
+        @Override
+        public String getPhysicalDescription() {
+            return detached ? super.getPhysicalDescription() : readString(aliens, id, ALIEN_DESCRIPTION);
+        }
+
+        @Override
+        public void setPhysicalDescription(String physicalDescription) {
+            detach();
+            super.setPhysicalDescription(physicalDescription);
+        }
+
+        private void detach() {
+            if (!detached) {
+                Alien stored = copy();
+                detached = true;
+                super.setId(stored.getId());
+                super.setName(stored.getName());
+                super.setSpecies(stored.getSpecies());
+                super.setPhysicalDescription(stored.getPhysicalDescription());
+            }
+        }
+
+        private Alien copy() {
+            synchronized (OffHeapDataManager.this) {
+                Alien alien = new Alien(getName(), getSpecies(), getPhysicalDescription());
+                alien.setId(getId());
+                return alien;
+            }
+        }
+
+        private Object writeReplace() {
+            return copy();
+        }
+
+        @Override
+        public String toString() {
+            return detached ? super.toString() : copy().toString();
+        }
+    }
+
+    private final class ExplorerView extends Explorer implements StoredView {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private boolean detached;
+
+        private ExplorerView(int id) {
+            super(null, 0);
+            this.id = id;
+            markClean();
+        }
+
+        @Override
+        public boolean isStoredIn(OffHeapDataManager dataManager) {
+            return dataManager == OffHeapDataManager.this;
+        }
+
+        @Override
+        public int getId() {
+            return detached ? super.getId() : id;
+        }
+
+        @Override
+        public void setId(int id) {
+            detach();
+            super.setId(id);
+        }
+
+        @Override
+        public String getName() {
+            return detached ? super.getName() : readString(explorers, id, EXPLORER_NAME);
+        }
+
+        @Override
+        public void setName(String name) {
+            detach();
+            super.setName(name);
+        }
+
+        @Override
+        public Planet getCurrentPlanet() {
+            return detached ? super.getCurrentPlanet() : resolver.getPlanet(getCurrentPlanetId());
+        }
+
+        @Override
+        public void setCurrentPlanet(Planet currentPlanet) {
+            detach();
+            super.setCurrentPlanet(currentPlanet);
+        }
+
+        @Override
+        public int getCurrentPlanetId() {
+            return detached ? super.getCurrentPlanetId() : readInt(explorers, id, EXPLORER_PLANET_ID);
+        }
+
+        @Override
+        public void setCurrentPlanetId(int currentPlanetId) {
+            detach();
+            super.setCurrentPlanetId(currentPlanetId);
+        }
+
+        private void detach() {
+            if (!detached) {
+                Explorer stored = copy();
+                detached = true;
+                super.setId(stored.getId());
+                super.setName(stored.getName());
+                super.setCurrentPlanetId(stored.getCurrentPlanetId());
+                resolveReferencesWith(resolver);
+            }
+        }
+
+        private Explorer copy() {
+            synchronized (OffHeapDataManager.this) {
+                Explorer explorer = new Explorer(getName(), getCurrentPlanetId());
+                explorer.setId(getId());
+                explorer.resolveReferencesWith(resolver);
+                return explorer;
+            }
+        }
+
+        private Object writeReplace() {
+            return copy();
+        }
+
+        @Override
+        public String toString() {
+            return detached ? super.toString() : copy().toString();
+        }
+    }
+
+    private final class EncounterView extends Encounter implements StoredView {
+        private static final long serialVersionUID = 1L;
+
+        private final int id;
+        private boolean detached;
+
+        private EncounterView(int id) {
+            super((LocalDate) null, 0, 0, 0, null);
+            this.id = id;
+            markClean();
+        }
+
+        @Override
+        public boolean isStoredIn(OffHeapDataManager dataManager) {
+            return dataManager == OffHeapDataManager.this;
+        }
+
+        @Override
+        public int getId() {
+            return detached ? super.getId() : id;
+        }
+
+        @Override
+        public void setId(int id) {
+            detach();
+            super.setId(id);
+        }
+
+        @Override
+        public LocalDate getDate() {
+            return detached ? super.getDate() : readDate(encounters, id, ENCOUNTER_DATE);
+        }
+
+        @Override
+        public void setDate(LocalDate date) {
+            detach();
+            super.setDate(date);
+        }
+
+        @Override
+        public Alien getAlienEncountered() {
+            return detached ? super.getAlienEncountered() : resolver.getAlien(getAlienId());
+        }
+
+        @Override
+        public void setAlienEncountered(Alien alienEncountered) {
+            detach();
+            super.setAlienEncountered(alienEncountered);
+        }
+
+        @Override
+        public int getAlienId() {
+            return detached ? super.getAlienId() : readInt(encounters, id, ENCOUNTER_ALIEN_ID);
+        }
+
+        @Override
+        public void setAlienId(int alienId) {
+            detach();
+            super.setAlienId(alienId);
+        }
+
+        @Override
+        public Planet getOnPlanet() {
+            return detached ? super.getOnPlanet() : resolver.getPlanet(getPlanetId());
+        }
+
+        @Override
+        public void setOnPlanet(Planet onPlanet) {
+            detach();
+            super.setOnPlanet(onPlanet);
+        }
+
+        @Override
+        public int getPlanetId() {
+            return detached ? super.getPlanetId() : readInt(encounters, id, ENCOUNTER_PLANET_ID);
+        }
+
+        @Override
+        public void setPlanetId(int planetId) {
+            detach();
+            super.setPlanetId(planetId);
+        }
+
+        @Override
+        public Explorer getByExplorer() {
+            return detached ? super.getByExplorer() : resolver.getExplorer(getExplorerId());
+        }
+
+        @Override
+        public void setByExplorer(Explorer byExplorer) {
+            detach();
+            super.setByExplorer(byExplorer);
+        }
+
+        @Override
+        public int getExplorerId() {
+            return detached ? super.getExplorerId() : readInt(encounters, id, ENCOUNTER_EXPLORER_ID);
+        }
+
+        @Override
+        public void setExplorerId(int explorerId) {
+            detach();
+            super.setExplorerId(explorerId);
+        }
+
+        @Override
+        public String getDescriptionOfTheEncounter() {
+            return detached ? super.getDescriptionOfTheEncounter() : readString(encounters, id, ENCOUNTER_DESCRIPTION);
+        }
+
+        @Override
+        public void setDescriptionOfTheEncounter(String descriptionOfTheEncounter) {
+            detach();
+            super.setDescriptionOfTheEncounter(descriptionOfTheEncounter);
+        }
+
+        private void detach() {
+            if (!detached) {
+                Encounter stored = copy();
+                detached = true;
+                super.setId(stored.getId());
+                super.setDate(stored.getDate());
+                super.setAlienId(stored.getAlienId());
+                super.setPlanetId(stored.getPlanetId());
+                super.setExplorerId(stored.getExplorerId());
+                super.setDescriptionOfTheEncounter(stored.getDescriptionOfTheEncounter());
+                resolveReferencesWith(resolver);
+            }
+        }
+
+        private Encounter copy() {
+            synchronized (OffHeapDataManager.this) {
+                Encounter encounter = new Encounter(getDate(), getAlienId(), getPlanetId(), getExplorerId(),
+                        getDescriptionOfTheEncounter());
+                encounter.setId(getId());
+                encounter.resolveReferencesWith(resolver);
+                return encounter;
+            }
+        }
+
+        private Object writeReplace() {
+            return copy();
+        }
+
+        @Override
+        public String toString() {
+            return detached ? super.toString() : copy().toString();
+        }
+    }
+
+    // References from views are looked up in this manager, ids of 0 meaning no entity
+    private class ViewResolver implements EntityResolver {
+        @Override
+        public Planet getPlanet(int id) {
+            return id != 0 ? OffHeapDataManager.this.getPlanet(id) : null;
+        }
+
+        @Override
+        public Alien getAlien(int id) {
+            return id != 0 ? OffHeapDataManager.this.getAlien(id) : null;
+        }
+
+        @Override
+        public Explorer getExplorer(int id) {
+            return id != 0 ? OffHeapDataManager.this.getExplorer(id) : null;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package extraterrestrialexploration.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Fixed-size records of one entity type outside the Java heap, one per id, so a record is found from its id alone.
+// The records live in direct buffers of 65536 records each, added as the ids grow, so growing never copies.
+// The first byte of a record holds flags; IN_USE marks the ids that are stored, the other bits are free for
+// the entity's own flags. Like EntityTable, the table remembers the highest id it has handed out.
+final class OffHeapTable {
+    static final byte IN_USE = 1;
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final int recordSize;
+    private ByteBuffer[] chunks = new ByteBuffer[16];
+    private int size;
+    private int lastId;
+
+    OffHeapTable(int recordSize) {
+        this.recordSize = recordSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int lastId() {
+        return lastId;
+    }
+
+    int reserveIds(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one id must be reserved, got " + count);
+        }
+        if (lastId > Integer.MAX_VALUE - count) {
+            throw new IllegalStateException("No more ids available");
+        }
+        int first = lastId + 1;
+        lastId += count;
+        return first;
+    }
+
+    boolean contains(int id) {
+        ByteBuffer chunk = chunkOf(id);
+        return chunk != null && (chunk.get(offsetOf(id)) & IN_USE) != 0;
+    }
+
+    // The buffer that holds the id's record, read and written at offsetOf(id). Null for ids never stored
+    ByteBuffer chunkOf(int id) {
+        int chunk = (id - 1) >>> CHUNK_BITS;
+        return id > 0 && chunk < chunks.length ? chunks[chunk] : null;
+    }
+
+    int offsetOf(int id) {
+        return ((id - 1) & CHUNK_MASK) * recordSize;
+    }
+
+    // Takes the id for a new record and returns the buffer to write it into; the caller sets IN_USE last
+    ByteBuffer claim(int id) {
+        if (id < 1) {
+            throw new IllegalArgumentException("Ids must be positive: " + id);
+        }
+        if (contains(id)) {
+            throw new IllegalArgumentException("An entity with id " + id + " already exists");
+        }
+        int chunk = (id - 1) >>> CHUNK_BITS;
+        if (chunk >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = ByteBuffer.allocateDirect(recordSize << CHUNK_BITS).order(ByteOrder.nativeOrder());
+        }
+        if (id > lastId) {
+            lastId = id;
+        }
+        size++;
+        return chunks[chunk];
+    }
+
+    boolean release(int id) {
+        if (!contains(id)) {
+            return false;
+        }
+        chunkOf(id).put(offsetOf(id), (byte) 0);
+        size--;
+        return true;
+    }
+
+    long getReservedBytes() {
+        return Arrays.stream(chunks).mapToLong(chunk -> chunk != null ? chunk.capacity() : 0).sum();
+    }
+}
@@ -0,0 +1,52 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Cuts pages out of a stream of entities without collecting the whole stream first.
+final class Paging {
+    private Paging() {
+    }
+
+    static <T> List<T> page(Stream<T> entities, int offset, int limit) {
+        checkPage(offset, limit);
+        try (entities) {
+            return entities.skip(offset).limit(limit).collect(Collectors.toList());
+        }
+    }
+
+    // Keeps only the limit lowest ids seen so far, so memory depends on the page size and not on the stream
+    static <T> List<T> after(Stream<T> entities, ToIntFunction<T> idOf, int afterId, int limit) {
+        checkPage(0, limit);
+        Comparator<T> byId = Comparator.comparingInt(idOf);
+        PriorityQueue<T> lowest = new PriorityQueue<>(Math.max(1, Math.min(limit, 1024)), byId.reversed());
+        try (entities) {
+            entities.forEach(entity -> {
+                int id = idOf.applyAsInt(entity);
+                if (id <= afterId || limit == 0) {
+                    return;
+                }
+                if (lowest.size() < limit) {
+                    lowest.add(entity);
+                } else if (id < idOf.applyAsInt(lowest.peek())) {
+                    lowest.poll();
+                    lowest.add(entity);
+                }
+            });
+        }
+        List<T> page = new ArrayList<>(lowest);
+        page.sort(byId);
+        return page;
+    }
+
+    static void checkPage(int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit must not be negative, got " + offset + " and " + limit);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.Closeable;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Keeps encounters in EncounterPartitions, one file per month of their date in data.bin.encounters, so
+// findEncountersBetween only reads the months it asks for. Planets, aliens and explorers stay in data.bin.
+// Encounters that are still in data.bin, e.g. because it was written by another engine, are moved into
+// the partitions when it is opened.
+//
+// Encounter changes made inside a transaction are undone if the work throws, like the changes to data.bin.
+public class PartitionedDataManager extends ForwardingDataManager implements Closeable {
+    private final EncounterPartitions encounters;
+
+    public PartitionedDataManager() {
+        this("data.bin");
+    }
+
+    public PartitionedDataManager(String dataFilePath) {
+        this(new FileDataManager(dataFilePath), new EncounterPartitions(Paths.get(dataFilePath + ".encounters")));
+        encounters.resolveReferencesWith(new DelegateResolver(delegate));
+        moveEncountersFromDataFile((FileDataManager) delegate);
+    }
+
+    private PartitionedDataManager(DataManager delegate, EncounterPartitions encounters) {
+        super(delegate);
+        this.encounters = encounters;
+    }
+
+    // The partitions go on from the last encounter id in data.bin, so no id is handed out twice
+    private void moveEncountersFromDataFile(FileDataManager dataFile) {
+        DataContainer data = dataFile.loadData();
+        encounters.skipIdsTo(data.getLastEncounterId());
+        List<Encounter> stored = data.getEncounters();
+        if (stored.isEmpty()) {
+            return;
+        }
+        encounters.transaction(() -> stored.forEach(encounters::upsert));
+        encounters.compact();
+        dataFile.modify(changed -> stored.forEach(encounter -> changed.removeEncounter(encounter.getId())));
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        encounters.transaction(() ->
+                delegate.transaction(dataManager -> work.accept(new PartitionedDataManager(dataManager, encounters))));
+    }
+
+    // Writes the changes collected in the log into the partition files
+    public void compact() {
+        encounters.compact();
+    }
+
+    public int getPartitionCount() {
+        return encounters.getPartitionCount();
+    }
+
+    // How often a partition file was read since the data was opened
+    public long getPartitionsRead() {
+        return encounters.getPartitionsRead();
+    }
+
+    @Override
+    public void close() {
+        encounters.close();
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        encounters.add(encounter);
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        encounters.update(encounter);
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        encounters.delete(id);
+    }
+
+    @Override
+    public Encounter getEncounter(int id) {
+        return encounters.get(id);
+    }
+
+    @Override
+    public List<Encounter> getAllEncounters() {
+        return encounters.matching(encounter -> true);
+    }
+
+    @Override
+    public Stream<Encounter> streamEncounters() {
+        return getAllEncounters().stream();
+    }
+
+    @Override
+    public List<Encounter> getEncounters(int offset, int limit) {
+        return Paging.page(getAllEncounters().stream(), offset, limit);
+    }
+
+    @Override
+    public List<Encounter> getEncountersAfter(int afterId, int limit) {
+        Paging.checkPage(0, limit);
+        return encounters.after(afterId, limit);
+    }
+
+    @Override
+    public int reserveEncounterIds(int count) {
+        return encounters.reserveIds(count);
+    }
+
+    // Encounter queries. Only the date range can skip partitions, the others read them all
+    @Override
+    public List<Encounter> findEncountersByAlien(int alienId) {
+        return encounters.matching(encounter -> encounter.getAlienId() == alienId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByPlanet(int planetId) {
+        return encounters.matching(encounter -> encounter.getPlanetId() == planetId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersByExplorer(int explorerId) {
+        return encounters.matching(encounter -> encounter.getExplorerId() == explorerId);
+    }
+
+    @Override
+    public List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return encounters.between(from, to);
+    }
+
+    // Encounters look up the entities they refer to in data.bin
+    private static class DelegateResolver implements EntityResolver {
+        private final DataManager dataManager;
+
+        private DelegateResolver(DataManager dataManager) {
+            this.dataManager = dataManager;
+        }
+
+        @Override
+        public Planet getPlanet(int id) {
+            return dataManager.getPlanet(id);
+        }
+
+        @Override
+        public Alien getAlien(int id) {
+            return dataManager.getAlien(id);
+        }
+
+        @Override
+        public Explorer getExplorer(int id) {
+            return dataManager.getExplorer(id);
+        }
+    }
+}
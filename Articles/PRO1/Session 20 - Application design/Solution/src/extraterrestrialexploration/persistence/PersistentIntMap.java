@@ -0,0 +1,298 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.ToIntFunction;
+
+// An immutable map from non-negative int keys to values. put and remove return a new map and leave this one
+// as it was; the new map shares every node the change did not touch, so a change copies at most one node
+// per level instead of the whole map.
+//
+// The map is a trie with 32 children per node, indexed by 5 bits of the key from the highest level down, so
+// values come out in key order. Like a HAMT, each node stores only the children that exist, found through a
+// bitmap of which of the 32 are present. Every node also counts the values below it, so the i-th value is
+// found without walking the values before it.
+final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0);
+
+    // null for the empty map. The keys below the root are those that fit in shift + 5 bits
+    private final Node root;
+    private final int shift;
+
+    private PersistentIntMap(Node root, int shift) {
+        this.root = root;
+        this.shift = shift;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    // Builds the map from values sorted by key in one pass, without the copies put would make
+    static <V> PersistentIntMap<V> ofSorted(List<V> values, ToIntFunction<V> keyOf) {
+        if (values.isEmpty()) {
+            return empty();
+        }
+        int shift = shiftFor(keyOf.applyAsInt(values.get(values.size() - 1)));
+        return new PersistentIntMap<>(build(values, keyOf, 0, values.size(), shift), shift);
+    }
+
+    private static <V> Node build(List<V> values, ToIntFunction<V> keyOf, int from, int to, int shift) {
+        Object[] children = new Object[32];
+        int bitmap = 0;
+        int count = 0;
+        int start = from;
+        while (start < to) {
+            int index = (keyOf.applyAsInt(values.get(start)) >>> shift) & MASK;
+            int end = start + 1;
+            while (end < to && ((keyOf.applyAsInt(values.get(end)) >>> shift) & MASK) == index) {
+                end++;
+            }
+            if (keyOf.applyAsInt(values.get(start)) < 0 || (bitmap & (1 << index)) != 0) {
+                throw new IllegalArgumentException("Keys must be unique, not negative and sorted");
+            }
+            bitmap |= 1 << index;
+            children[count++] = shift == 0 ? values.get(start) : build(values, keyOf, start, end, shift - BITS);
+            if (shift == 0 && end > start + 1) {
+                throw new IllegalArgumentException("Keys must be unique, not negative and sorted");
+            }
+            start = end;
+        }
+        Object[] compact = new Object[count];
+        System.arraycopy(children, 0, compact, 0, count);
+        return new Node(bitmap, compact, to - from);
+    }
+
+    // The smallest shift whose root can hold the key
+    private static int shiftFor(int key) {
+        int shift = 0;
+        while (shift + BITS < 32 && key >>> (shift + BITS) != 0) {
+            shift += BITS;
+        }
+        return shift;
+    }
+
+    int size() {
+        return root != null ? root.size : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(int key) {
+        if (root == null || key < 0 || shiftFor(key) > shift) {
+            return null;
+        }
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int bit = 1 << ((key >>> level) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = node.children[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (level == 0) {
+                return (V) child;
+            }
+            node = (Node) child;
+        }
+    }
+
+    PersistentIntMap<V> put(int key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Keys must not be negative: " + key);
+        }
+        Node root = this.root;
+        int shift = this.shift;
+        if (root == null) {
+            shift = shiftFor(key);
+        } else {
+            // A higher root holds the old one as its first child
+            while (shiftFor(key) > shift) {
+                shift += BITS;
+                root = new Node(1, new Object[]{root}, root.size);
+            }
+        }
+        return new PersistentIntMap<>(put(root, shift, key, value), shift);
+    }
+
+    private static Node put(Node node, int shift, int key, Object value) {
+        int index = (key >>> shift) & MASK;
+        int bit = 1 << index;
+        int bitmap = node != null ? node.bitmap : 0;
+        int position = Integer.bitCount(bitmap & (bit - 1));
+        if ((bitmap & bit) != 0) {
+            Object[] children = node.children.clone();
+            if (shift == 0) {
+                children[position] = value;
+                return new Node(bitmap, children, node.size);
+            }
+            Node child = (Node) children[position];
+            Node changed = put(child, shift - BITS, key, value);
+            children[position] = changed;
+            return new Node(bitmap, children, node.size - child.size + changed.size);
+        }
+        Object[] children = new Object[Integer.bitCount(bitmap) + 1];
+        if (node != null) {
+            System.arraycopy(node.children, 0, children, 0, position);
+            System.arraycopy(node.children, position, children, position + 1, node.children.length - position);
+        }
+        children[position] = shift == 0 ? value : put(null, shift - BITS, key, value);
+        return new Node(bitmap | bit, children, (node != null ? node.size : 0) + 1);
+    }
+
+    PersistentIntMap<V> remove(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        Node changed = remove(root, shift, key);
+        return changed != null ? new PersistentIntMap<>(changed, shift) : empty();
+    }
+
+    // Returns null when the node ends up empty
+    private static Node remove(Node node, int shift, int key) {
+        int bit = 1 << ((key >>> shift) & MASK);
+        int position = Integer.bitCount(node.bitmap & (bit - 1));
+        Node changed = shift == 0 ? null : remove((Node) node.children[position], shift - BITS, key);
+        if (changed != null) {
+            Object[] children = node.children.clone();
+            children[position] = changed;
+            return new Node(node.bitmap, children, node.size - 1);
+        }
+        if (node.children.length == 1) {
+            return null;
+        }
+        Object[] children = new Object[node.children.length - 1];
+        System.arraycopy(node.children, 0, children, 0, position);
+        System.arraycopy(node.children, position + 1, children, position, children.length - position);
+        return new Node(node.bitmap & ~bit, children, node.size - 1);
+    }
+
+    // The number of keys up to and including the given one
+    int rank(int key) {
+        if (root == null || key < 0) {
+            return 0;
+        }
+        if (shiftFor(key) > shift) {
+            return root.size;
+        }
+        int rank = 0;
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            int index = (key >>> level) & MASK;
+            int before = Integer.bitCount(node.bitmap & ((1 << index) - 1));
+            if (level == 0) {
+                return rank + before + ((node.bitmap >>> index) & 1);
+            }
+            for (int i = 0; i < before; i++) {
+                rank += ((Node) node.children[i]).size;
+            }
+            if ((node.bitmap & (1 << index)) == 0) {
+                return rank;
+            }
+            node = (Node) node.children[before];
+        }
+    }
+
+    // A read-only list of the values in key order. It reads this map, so it never changes and costs nothing to make
+    List<V> values() {
+        return new Values();
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        Node node = root;
+        for (int level = shift; ; level -= BITS) {
+            if (level == 0) {
+                return (V) node.children[index];
+            }
+            int child = 0;
+            Node next = (Node) node.children[0];
+            while (index >= next.size) {
+                index -= next.size;
+                next = (Node) node.children[++child];
+            }
+            node = next;
+        }
+    }
+
+    private static final class Node {
+        private final int bitmap;
+        private final Object[] children;
+        private final int size;
+
+        private Node(int bitmap, Object[] children, int size) {
+            this.bitmap = bitmap;
+            this.children = children;
+            this.size = size;
+        }
+    }
+
+    private final class Values extends AbstractList<V> {
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size());
+            }
+            return valueAt(index);
+        }
+
+        @Override
+        public int size() {
+            return PersistentIntMap.this.size();
+        }
+
+        // Walks the trie with a stack of positions instead of looking up each index from the root
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<>() {
+                private final Node[] nodes = new Node[8];
+                private final int[] positions = new int[8];
+                private int depth = -1;
+                private int remaining = size();
+
+                {
+                    if (root != null) {
+                        depth = 0;
+                        nodes[0] = root;
+                        for (int level = shift; level > 0; level -= BITS) {
+                            nodes[depth + 1] = (Node) nodes[depth].children[0];
+                            depth++;
+                        }
+                    }
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return remaining > 0;
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public V next() {
+                    if (remaining == 0) {
+                        throw new NoSuchElementException();
+                    }
+                    V value = (V) nodes[depth].children[positions[depth]++];
+                    remaining--;
+                    if (remaining > 0) {
+                        // Climbs to the nearest node with children left, then down to its next leaf
+                        int level = depth;
+                        while (positions[level] == nodes[level].children.length) {
+                            level--;
+                            positions[level]++;
+                        }
+                        while (level < depth) {
+                            nodes[level + 1] = (Node) nodes[level].children[positions[level]];
+                            positions[level + 1] = 0;
+                            level++;
+                        }
+                    }
+                    return value;
+                }
+            };
+        }
+    }
+}
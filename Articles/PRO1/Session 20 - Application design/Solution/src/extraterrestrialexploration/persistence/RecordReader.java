@@ -0,0 +1,66 @@
+package extraterrestrialexploration.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+// Reads encoded records from a channel through a small buffer that is refilled as records are decoded,
+// so a file of any size is read in constant memory. A record that does not fit in the buffer makes it grow.
+final class RecordReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).flip();
+    private boolean endOfFile;
+
+    interface Decoder<T> {
+        T read(ByteBuffer in) throws IOException;
+    }
+
+    RecordReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    // Decodes the next record; a decoder that runs out of bytes is simply retried once more are read
+    <T> T read(Decoder<T> decoder) throws IOException {
+        while (true) {
+            int start = buffer.position();
+            try {
+                return decoder.read(buffer);
+            } catch (BufferUnderflowException e) {
+                buffer.position(start);
+                if (!fill()) {
+                    throw new IOException("Data file is truncated", e);
+                }
+            }
+        }
+    }
+
+    int readInt() throws IOException {
+        return read(ByteBuffer::getInt);
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfFile) {
+            return false;
+        }
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(buffer.flip());
+        }
+        int read = channel.read(buffer);
+        buffer.flip();
+        if (read < 0) {
+            endOfFile = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,185 @@
+package extraterrestrialexploration.persistence;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Strings outside the Java heap, in direct buffers of 1 MB ("slabs").
+//
+// Each slab is cut into blocks of one size: 16, 32, 64, ... up to 64 KB bytes. A string goes into the smallest
+// block that holds its UTF-8 bytes plus a 4 byte length. A freed block is put on the free list of its size and
+// handed out again before a slab is cut further; the list runs through the free blocks themselves, each holding
+// the handle of the next, so freeing takes no memory on the heap. Longer strings get a direct buffer of their own,
+// which is dropped when they are freed.
+//
+// A string is known by a handle: the slab number in the upper 32 bits and the block's offset in the lower ones.
+// Slabs are not handed back to the system, but their free blocks are reused.
+final class SlabAllocator {
+    static final long NULL = -1;
+
+    private static final int SLAB_SIZE = 1 << 20;
+    private static final int MIN_BLOCK_BITS = 4;
+    private static final int MAX_BLOCK_BITS = 16;
+    private static final int LENGTH_SIZE = 4;
+
+    private ByteBuffer[] slabs = new ByteBuffer[16];
+    private int slabCount;
+    // Numbers of slabs that held a long string and were dropped, to be used again
+    private int[] unusedSlabs = new int[16];
+    private int unusedSlabCount;
+    // Per block size: the first free block, and the slab being cut with the offset of its next uncut block
+    private final long[] freeBlocks = new long[MAX_BLOCK_BITS - MIN_BLOCK_BITS + 1];
+    private final int[] cuttingSlab = new int[MAX_BLOCK_BITS - MIN_BLOCK_BITS + 1];
+    private final int[] cuttingOffset = new int[MAX_BLOCK_BITS - MIN_BLOCK_BITS + 1];
+    private long reservedBytes;
+    private long usedBytes;
+
+    SlabAllocator() {
+        Arrays.fill(freeBlocks, NULL);
+        Arrays.fill(cuttingSlab, -1);
+    }
+
+    long allocate(String value) {
+        if (value == null) {
+            return NULL;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int needed = bytes.length + LENGTH_SIZE;
+        long handle = needed > 1 << MAX_BLOCK_BITS ? allocateLarge(needed) : allocateBlock(sizeClass(needed));
+        ByteBuffer slab = slabs[slabOf(handle)];
+        int offset = offsetOf(handle);
+        slab.putInt(offset, bytes.length);
+        slab.put(offset + LENGTH_SIZE, bytes);
+        return handle;
+    }
+
+    String read(long handle) {
+        if (handle == NULL) {
+            return null;
+        }
+        ByteBuffer slab = slabs[slabOf(handle)];
+        int offset = offsetOf(handle);
+        byte[] bytes = new byte[slab.getInt(offset)];
+        slab.get(offset + LENGTH_SIZE, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Keeps the handle when the string is stored as it is, so updating an unchanged field allocates nothing
+    long replace(long handle, String value) {
+        if (handle == NULL ? value == null : value != null && holds(handle, value)) {
+            return handle;
+        }
+        long replacement = allocate(value);
+        free(handle);
+        return replacement;
+    }
+
+    void free(long handle) {
+        if (handle == NULL) {
+            return;
+        }
+        int slabNumber = slabOf(handle);
+        ByteBuffer slab = slabs[slabNumber];
+        int offset = offsetOf(handle);
+        int needed = slab.getInt(offset) + LENGTH_SIZE;
+        if (needed > 1 << MAX_BLOCK_BITS) {
+            reservedBytes -= slab.capacity();
+            usedBytes -= slab.capacity();
+            slabs[slabNumber] = null;
+            if (unusedSlabCount == unusedSlabs.length) {
+                unusedSlabs = Arrays.copyOf(unusedSlabs, unusedSlabCount * 2);
+            }
+            unusedSlabs[unusedSlabCount++] = slabNumber;
+            return;
+        }
+        int sizeClass = sizeClass(needed);
+        slab.putLong(offset, freeBlocks[sizeClass]);
+        freeBlocks[sizeClass] = handle;
+        usedBytes -= blockSize(sizeClass);
+    }
+
+    // Direct memory taken by slabs, whether their blocks are in use or not
+    long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    // Bytes in blocks that hold a string
+    long getUsedBytes() {
+        return usedBytes;
+    }
+
+    private boolean holds(long handle, String value) {
+        ByteBuffer slab = slabs[slabOf(handle)];
+        int offset = offsetOf(handle);
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (slab.getInt(offset) != bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (slab.get(offset + LENGTH_SIZE + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long allocateBlock(int sizeClass) {
+        int blockSize = blockSize(sizeClass);
+        usedBytes += blockSize;
+        long free = freeBlocks[sizeClass];
+        if (free != NULL) {
+            freeBlocks[sizeClass] = slabs[slabOf(free)].getLong(offsetOf(free));
+            return free;
+        }
+        if (cuttingSlab[sizeClass] < 0 || cuttingOffset[sizeClass] + blockSize > SLAB_SIZE) {
+            cuttingSlab[sizeClass] = addSlab(SLAB_SIZE);
+            cuttingOffset[sizeClass] = 0;
+        }
+        int offset = cuttingOffset[sizeClass];
+        cuttingOffset[sizeClass] += blockSize;
+        return handle(cuttingSlab[sizeClass], offset);
+    }
+
+    private long allocateLarge(int needed) {
+        usedBytes += needed;
+        return handle(addSlab(needed), 0);
+    }
+
+    private int addSlab(int size) {
+        int slabNumber;
+        if (unusedSlabCount > 0) {
+            slabNumber = unusedSlabs[--unusedSlabCount];
+        } else {
+            if (slabCount == slabs.length) {
+                slabs = Arrays.copyOf(slabs, slabCount * 2);
+            }
+            slabNumber = slabCount++;
+        }
+        slabs[slabNumber] = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        reservedBytes += size;
+        return slabNumber;
+    }
+
+    // The smallest block size that holds the given number of bytes, counted from 16 bytes as 0
+    private static int sizeClass(int needed) {
+        int bits = 32 - Integer.numberOfLeadingZeros(Math.max(needed, 1 << MIN_BLOCK_BITS) - 1);
+        return bits - MIN_BLOCK_BITS;
+    }
+
+    private static int blockSize(int sizeClass) {
+        return 1 << (sizeClass + MIN_BLOCK_BITS);
+    }
+
+    private static long handle(int slab, int offset) {
+        return (long) slab << 32 | offset;
+    }
+
+    private static int slabOf(long handle) {
+        return (int) (handle >>> 32);
+    }
+
+    private static int offsetOf(long handle) {
+        return (int) handle;
+    }
+}
@@ -0,0 +1,618 @@
+package extraterrestrialexploration.persistence;
+
+import extraterrestrialexploration.domain.*;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Keeps the data in memory, with a full snapshot in data.bin and the changes made since then in small delta
+// files next to it (data.bin.00000001.delta, data.bin.00000002.delta, ...). Every change writes one delta with
+// only the entities it touched, so a save costs the same however large the data grows. The dirty flags of the
+// entities tell what has to be written: updating with an entity that is already stored unchanged writes nothing.
+//
+// A background task folds the deltas into a new snapshot once there are many of them. It reads the snapshot
+// and the deltas from disk, so it does not hold up the callers. At startup the deltas are replayed oldest
+// first; replaying a delta that was already folded into the snapshot changes nothing, so a crash during a
+// merge loses no data. A merge that fails is tried again on the next run; getLastMergeFailure tells why it failed.
+// The snapshot is an ordinary data file, but only up to the last merge.
+//
+// Delta layout: magic number, version, the last id handed out per entity type, the number of records,
+// then per record a byte operation (UPSERT or DELETE), a byte entity type and the encoded entity or the deleted id.
+// Version 1 deltas hold encounter dates as text and are still replayed.
+// Unlike data.bin, the files are not locked, so only one process may use them at a time.
+public class SnapshotDataManager implements DataManager, Closeable {
+    private static final int MAGIC = 0x45544444;
+    private static final int VERSION = 2;
+    private static final int TEXT_DATE_VERSION = 1;
+    private static final String DELTA_EXTENSION = ".delta";
+
+    private static final byte UPSERT = 1;
+    private static final byte DELETE = 2;
+
+    private static final byte PLANET = 1;
+    private static final byte ALIEN = 2;
+    private static final byte EXPLORER = 3;
+    private static final byte ENCOUNTER = 4;
+
+    private static final int MAX_DELTAS_BEFORE_MERGE = 100;
+    private static final long MERGE_CHECK_INTERVAL_SECONDS = 5;
+
+    private final Path path;
+    private final FileDataManager snapshot;
+    private final ScheduledExecutorService merger;
+    private final Object mergeLock = new Object();
+    private final Ids ids = new Ids();
+    private final AtomicInteger deltaCount = new AtomicInteger();
+    private final AtomicLong deltaBytes = new AtomicLong();
+    private volatile Exception lastMergeFailure;
+    private DataContainer data;
+    private int nextDelta = 1;
+    private int transactionDepth;
+
+    // The ids changed since the last save; the entity is written if it is still there, otherwise its deletion
+    private final Set<Integer> changedPlanets = new LinkedHashSet<>();
+    private final Set<Integer> changedAliens = new LinkedHashSet<>();
+    private final Set<Integer> changedExplorers = new LinkedHashSet<>();
+    private final Set<Integer> changedEncounters = new LinkedHashSet<>();
+    private boolean idsReserved;
+
+    public SnapshotDataManager() {
+        this("data.bin");
+    }
+
+    public SnapshotDataManager(String filePath) {
+        this.path = Paths.get(filePath).toAbsolutePath().normalize();
+        this.snapshot = new FileDataManager(filePath);
+        load();
+
+        merger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "data-snapshot-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        merger.scheduleWithFixedDelay(this::mergeIfNeeded,
+                MERGE_CHECK_INTERVAL_SECONDS, MERGE_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    // Reads the snapshot and replays the deltas. Holds the merge lock, so a merge cannot delete deltas
+    // between reading the old snapshot and listing them
+    private void load() {
+        synchronized (mergeLock) {
+            DataContainer loaded = snapshot.loadData();
+            List<Path> deltas = deltaFiles();
+            long bytes = 0;
+            try {
+                for (Path delta : deltas) {
+                    bytes += applyDelta(loaded, delta);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to load data: " + e.getMessage(), e);
+            }
+            if (!deltas.isEmpty()) {
+                nextDelta = Math.max(nextDelta, deltaNumber(deltas.get(deltas.size() - 1)) + 1);
+            }
+            deltaCount.set(deltas.size());
+            deltaBytes.set(bytes);
+
+            loaded.getPlanets().forEach(Planet::markClean);
+            loaded.getAliens().forEach(Alien::markClean);
+            loaded.getExplorers().forEach(Explorer::markClean);
+            loaded.getEncounters().forEach(Encounter::markClean);
+            data = loaded;
+        }
+        changedPlanets.clear();
+        changedAliens.clear();
+        changedExplorers.clear();
+        changedEncounters.clear();
+        idsReserved = false;
+    }
+
+    // Returns the size of the delta file
+    private static int applyDelta(DataContainer data, Path delta) throws IOException {
+        byte[] content = Files.readAllBytes(delta);
+        ByteBuffer in = ByteBuffer.wrap(content);
+        try {
+            int magic = in.getInt();
+            int version = in.getInt();
+            if (magic != MAGIC || version != VERSION && version != TEXT_DATE_VERSION) {
+                throw new IOException(delta.getFileName() + " is not a delta file of this version");
+            }
+            data.skipPlanetIdsTo(in.getInt());
+            data.skipAlienIdsTo(in.getInt());
+            data.skipExplorerIdsTo(in.getInt());
+            data.skipEncounterIdsTo(in.getInt());
+            int records = in.getInt();
+            for (int i = 0; i < records; i++) {
+                applyRecord(data, in, version == TEXT_DATE_VERSION);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException(delta.getFileName() + " is truncated", e);
+        }
+        return content.length;
+    }
+
+    private static void applyRecord(DataContainer data, ByteBuffer in, boolean textDates) throws IOException {
+        byte operation = in.get();
+        byte type = in.get();
+        if (operation == DELETE) {
+            int id = in.getInt();
+            switch (type) {
+                case PLANET -> data.removePlanet(id);
+                case ALIEN -> data.removeAlien(id);
+                case EXPLORER -> data.removeExplorer(id);
+                case ENCOUNTER -> data.removeEncounter(id);
+                default -> throw new IOException("Unknown entity type in delta: " + type);
+            }
+            return;
+        }
+        switch (type) {
+            case PLANET -> {
+                Planet planet = EntityCodec.readPlanet(in);
+                if (!data.replacePlanet(planet)) {
+                    data.addPlanet(planet);
+                }
+            }
+            case ALIEN -> {
+                Alien alien = EntityCodec.readAlien(in);
+                if (!data.replaceAlien(alien)) {
+                    data.addAlien(alien);
+                }
+            }
+            case EXPLORER -> {
+                Explorer explorer = EntityCodec.readExplorer(in);
+                if (!data.replaceExplorer(explorer)) {
+                    data.addExplorer(explorer);
+                }
+            }
+            case ENCOUNTER -> {
+                Encounter encounter = textDates ? EntityCodec.readEncounterWithTextDate(in) : EntityCodec.readEncounter(in);
+                if (!data.replaceEncounter(encounter)) {
+                    data.addEncounter(encounter);
+                }
+            }
+            default -> throw new IOException("Unknown entity type in delta: " + type);
+        }
+    }
+
+    // Writes the changes since the last save as the next delta. Outside a transaction every change saves
+    private void save() {
+        if (transactionDepth > 0 || !idsReserved && changedPlanets.isEmpty() && changedAliens.isEmpty()
+                && changedExplorers.isEmpty() && changedEncounters.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        Path delta = deltaPath(nextDelta++);
+        try {
+            long bytes = new DataFile(delta.toString()).write(this::writeDelta);
+            deltaCount.incrementAndGet();
+            deltaBytes.addAndGet(bytes);
+            snapshot.getStorageStatistics().recordSave(bytes, System.nanoTime() - start, data);
+        } catch (IOException | RuntimeException e) {
+            // The data in memory is ahead of the files now, so it is read back from them
+            load();
+            throw new RuntimeException("Failed to save data: " + e.getMessage(), e);
+        }
+        changedPlanets.clear();
+        changedAliens.clear();
+        changedExplorers.clear();
+        changedEncounters.clear();
+        idsReserved = false;
+    }
+
+    private void writeDelta(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(data.getLastPlanetId());
+        out.writeInt(data.getLastAlienId());
+        out.writeInt(data.getLastExplorerId());
+        out.writeInt(data.getLastEncounterId());
+        out.writeInt(changedPlanets.size() + changedAliens.size() + changedExplorers.size() + changedEncounters.size());
+
+        for (int id : changedPlanets) {
+            Planet planet = data.getPlanet(id);
+            if (planet == null) {
+                writeDelete(out, PLANET, id);
+            } else {
+                out.writeByte(UPSERT);
+                out.writeByte(PLANET);
+                EntityCodec.writePlanet(out, planet);
+                planet.markClean();
+            }
+        }
+        for (int id : changedAliens) {
+            Alien alien = data.getAlien(id);
+            if (alien == null) {
+                writeDelete(out, ALIEN, id);
+            } else {
+                out.writeByte(UPSERT);
+                out.writeByte(ALIEN);
+                EntityCodec.writeAlien(out, alien);
+                alien.markClean();
+            }
+        }
+        for (int id : changedExplorers) {
+            Explorer explorer = data.getExplorer(id);
+            if (explorer == null) {
+                writeDelete(out, EXPLORER, id);
+            } else {
+                out.writeByte(UPSERT);
+                out.writeByte(EXPLORER);
+                EntityCodec.writeExplorer(out, explorer);
+                explorer.markClean();
+            }
+        }
+        for (int id : changedEncounters) {
+            Encounter encounter = data.getEncounter(id);
+            if (encounter == null) {
+                writeDelete(out, ENCOUNTER, id);
+            } else {
+                out.writeByte(UPSERT);
+                out.writeByte(ENCOUNTER);
+                EntityCodec.writeEncounter(out, encounter);
+                encounter.markClean();
+            }
+        }
+    }
+
+    private static void writeDelete(DataOutputStream out, byte type, int id) throws IOException {
+        out.writeByte(DELETE);
+        out.writeByte(type);
+        out.writeInt(id);
+    }
+
+    private Path deltaPath(int number) {
+        return path.resolveSibling(String.format("%s.%08d%s", path.getFileName(), number, DELTA_EXTENSION));
+    }
+
+    private int deltaNumber(Path delta) {
+        String name = delta.getFileName().toString();
+        return Integer.parseInt(name.substring(path.getFileName().toString().length() + 1,
+                name.length() - DELTA_EXTENSION.length()));
+    }
+
+    // The delta files on disk, oldest first
+    private List<Path> deltaFiles() {
+        List<Path> deltas = new ArrayList<>();
+        String pattern = path.getFileName() + ".*" + DELTA_EXTENSION;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path.getParent(), pattern)) {
+            for (Path file : files) {
+                deltas.add(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list delta files: " + e.getMessage(), e);
+        }
+        deltas.sort(Comparator.comparingInt(this::deltaNumber));
+        return deltas;
+    }
+
+    // The number of delta files not yet folded into the snapshot
+    public int getDeltaCount() {
+        return deltaCount.get();
+    }
+
+    // The saves of the deltas and snapshots, and the loads at startup
+    public StorageStatistics getStorageStatistics() {
+        return snapshot.getStorageStatistics();
+    }
+
+    // Merges once there are many deltas, or they add up to half the size of the snapshot
+    private void mergeIfNeeded() {
+        try {
+            int deltas = deltaCount.get();
+            if (deltas == 0 || deltas < MAX_DELTAS_BEFORE_MERGE && deltaBytes.get() < Files.size(path) / 2) {
+                return;
+            }
+            merge();
+        } catch (IOException | RuntimeException e) {
+            // The snapshot and deltas are still intact, so the next run simply tries again
+            lastMergeFailure = e;
+        }
+    }
+
+    // The failure of the latest background merge that failed, or null if none has failed
+    public Exception getLastMergeFailure() {
+        return lastMergeFailure;
+    }
+
+    // Folds every delta on disk into a new snapshot and deletes them, oldest first, so whatever a crash
+    // leaves behind is replayed in the right order
+    public void merge() {
+        synchronized (mergeLock) {
+            List<Path> deltas = deltaFiles();
+            if (deltas.isEmpty()) {
+                return;
+            }
+            snapshot.modify(merged -> {
+                try {
+                    for (Path delta : deltas) {
+                        applyDelta(merged, delta);
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to merge deltas: " + e.getMessage(), e);
+                }
+            });
+            try {
+                for (Path delta : deltas) {
+                    long size = Files.size(delta);
+                    Files.delete(delta);
+                    deltaCount.decrementAndGet();
+                    deltaBytes.addAndGet(-size);
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to delete merged deltas: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void transaction(Consumer<DataManager> work) {
+        boolean completed = false;
+        transactionDepth++;
+        try {
+            work.accept(this);
+            completed = true;
+        } finally {
+            transactionDepth--;
+            if (!completed && transactionDepth == 0) {
+                // Drops the changes the work made before it failed
+                load();
+            }
+        }
+        save();
+    }
+
+    // Stops the merger, letting a merge that is running finish
+    @Override
+    public void close() {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Planet methods
+    @Override
+    public synchronized void addPlanet(Planet planet) {
+        if (!ids.planets.take(planet.getId(), data.getLastPlanetId())) {
+            planet.setId(data.reservePlanetIds(1));
+        }
+        data.addPlanet(planet);
+        changedPlanets.add(planet.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void updatePlanet(Planet planet) {
+        Planet stored = data.getPlanet(planet.getId());
+        if (stored == null) {
+            throw new IllegalArgumentException("No planet with id " + planet.getId());
+        }
+        if (stored == planet && !planet.isDirty()) {
+            // Already stored exactly like this
+            return;
+        }
+        data.replacePlanet(planet);
+        changedPlanets.add(planet.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void deletePlanet(int id) {
+        if (data.removePlanet(id)) {
+            changedPlanets.add(id);
+            save();
+        }
+    }
+
+    @Override
+    public synchronized Planet getPlanet(int id) {
+        return data.getPlanet(id);
+    }
+
+    @Override
+    public synchronized List<Planet> getAllPlanets() {
+        return data.getPlanets();
+    }
+
+    @Override
+    public synchronized int reservePlanetIds(int count) {
+        int first = data.reservePlanetIds(count);
+        idsReserved = true;
+        save();
+        return ids.planets.add(first, count);
+    }
+
+    // Alien methods
+    @Override
+    public synchronized void addAlien(Alien alien) {
+        if (!ids.aliens.take(alien.getId(), data.getLastAlienId())) {
+            alien.setId(data.reserveAlienIds(1));
+        }
+        data.addAlien(alien);
+        changedAliens.add(alien.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void updateAlien(Alien alien) {
+        Alien stored = data.getAlien(alien.getId());
+        if (stored == null) {
+            throw new IllegalArgumentException("No alien with id " + alien.getId());
+        }
+        if (stored == alien && !alien.isDirty()) {
+            return;
+        }
+        data.replaceAlien(alien);
+        changedAliens.add(alien.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void deleteAlien(int id) {
+        if (data.removeAlien(id)) {
+            changedAliens.add(id);
+            save();
+        }
+    }
+
+    @Override
+    public synchronized Alien getAlien(int id) {
+        return data.getAlien(id);
+    }
+
+    @Override
+    public synchronized List<Alien> getAllAliens() {
+        return data.getAliens();
+    }
+
+    @Override
+    public synchronized int reserveAlienIds(int count) {
+        int first = data.reserveAlienIds(count);
+        idsReserved = true;
+        save();
+        return ids.aliens.add(first, count);
+    }
+
+    // Explorer methods
+    @Override
+    public synchronized void addExplorer(Explorer explorer) {
+        if (!ids.explorers.take(explorer.getId(), data.getLastExplorerId())) {
+            explorer.setId(data.reserveExplorerIds(1));
+        }
+        data.addExplorer(explorer);
+        changedExplorers.add(explorer.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void updateExplorer(Explorer explorer) {
+        Explorer stored = data.getExplorer(explorer.getId());
+        if (stored == null) {
+            throw new IllegalArgumentException("No explorer with id " + explorer.getId());
+        }
+        if (stored == explorer && !explorer.isDirty()) {
+            return;
+        }
+        data.replaceExplorer(explorer);
+        changedExplorers.add(explorer.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void deleteExplorer(int id) {
+        if (data.removeExplorer(id)) {
+            changedExplorers.add(id);
+            save();
+        }
+    }
+
+    @Override
+    public synchronized Explorer getExplorer(int id) {
+        return data.getExplorer(id);
+    }
+
+    @Override
+    public synchronized List<Explorer> getAllExplorers() {
+        return data.getExplorers();
+    }
+
+    @Override
+    public synchronized int reserveExplorerIds(int count) {
+        int first = data.reserveExplorerIds(count);
+        idsReserved = true;
+        save();
+        return ids.explorers.add(first, count);
+    }
+
+    // Encounter methods
+    @Override
+    public synchronized void addEncounter(Encounter encounter) {
+        if (!ids.encounters.take(encounter.getId(), data.getLastEncounterId())) {
+            encounter.setId(data.reserveEncounterIds(1));
+        }
+        data.addEncounter(encounter);
+        changedEncounters.add(encounter.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void updateEncounter(Encounter encounter) {
+        Encounter stored = data.getEncounter(encounter.getId());
+        if (stored == null) {
+            throw new IllegalArgumentException("No encounter with id " + encounter.getId());
+        }
+        if (stored == encounter && !encounter.isDirty()) {
+            return;
+        }
+        data.replaceEncounter(encounter);
+        changedEncounters.add(encounter.getId());
+        save();
+    }
+
+    @Override
+    public synchronized void deleteEncounter(int id) {
+        if (data.removeEncounter(id)) {
+            changedEncounters.add(id);
+            save();
+        }
+    }
+
+    @Override
+    public synchronized Encounter getEncounter(int id) {
+        return data.getEncounter(id);
+    }
+
+    @Override
+    public synchronized List<Encounter> getAllEncounters() {
+        return data.getEncounters();
+    }
+
+    @Override
+    public synchronized int reserveEncounterIds(int count) {
+        int first = data.reserveEncounterIds(count);
+        idsReserved = true;
+        save();
+        return ids.encounters.add(first, count);
+    }
+
+    // Encounter queries
+    @Override
+    public synchronized List<Encounter> findEncountersByAlien(int alienId) {
+        return data.findEncountersByAlien(alienId);
+    }
+
+    @Override
+    public synchronized List<Encounter> findEncountersByPlanet(int planetId) {
+        return data.findEncountersByPlanet(planetId);
+    }
+
+    @Override
+    public synchronized List<Encounter> findEncountersByExplorer(int explorerId) {
+        return data.findEncountersByExplorer(explorerId);
+    }
+
+    @Override
+    public synchronized List<Encounter> findEncountersBetween(LocalDate from, LocalDate to) {
+        return data.findEncountersBetween(from, to);
+    }
+}
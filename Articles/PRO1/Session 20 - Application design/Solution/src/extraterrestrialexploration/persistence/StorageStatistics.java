@@ -0,0 +1,67 @@
+package extraterrestrialexploration.persistence;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// What a file based DataManager did with its data file: how often and how long it loaded and saved the data,
+// how many bytes that moved, and how many entities of each type the data held at the last load or save.
+public class StorageStatistics {
+    private final LatencyHistogram loads = new LatencyHistogram();
+    private final LatencyHistogram saves = new LatencyHistogram();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private volatile int planets;
+    private volatile int aliens;
+    private volatile int explorers;
+    private volatile int encounters;
+
+    void recordLoad(long bytes, long nanos, DataContainer data) {
+        bytesRead.add(bytes);
+        loads.record(nanos);
+        recordSizes(data);
+    }
+
+    void recordSave(long bytes, long nanos, DataContainer data) {
+        bytesWritten.add(bytes);
+        saves.record(nanos);
+        recordSizes(data);
+    }
+
+    private void recordSizes(DataContainer data) {
+        planets = data.planetCount();
+        aliens = data.alienCount();
+        explorers = data.explorerCount();
+        encounters = data.encounterCount();
+    }
+
+    public LatencyHistogram getLoads() {
+        return loads;
+    }
+
+    public LatencyHistogram getSaves() {
+        return saves;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    public int getPlanetCount() {
+        return planets;
+    }
+
+    public int getAlienCount() {
+        return aliens;
+    }
+
+    public int getExplorerCount() {
+        return explorers;
+    }
+
+    public int getEncounterCount() {
+        return encounters;
+    }
+}
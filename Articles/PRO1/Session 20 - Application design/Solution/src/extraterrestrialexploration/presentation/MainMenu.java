@@ -1,12 +1,15 @@
 package extraterrestrialexploration.presentation;
 
+import extraterrestrialexploration.persistence.DataManager;
 import extraterrestrialexploration.presentation.planetmanagement.PlanetMenu;
 import java.util.Scanner;
 
 public class MainMenu {
+    private DataManager dataManager;
     private Scanner scanner;
 
-    public MainMenu() {
+    public MainMenu(DataManager dataManager) {
+        this.dataManager = dataManager;
         this.scanner = new Scanner(System.in);
     }
 
@@ -16,7 +19,7 @@ public class MainMenu {
             int choice = getUserChoice();
 
             switch (choice) {
-                case 1 -> new PlanetMenu().handlePlanetMenu();
+                case 1 -> new PlanetMenu(dataManager).handlePlanetMenu();
                 case 2 -> {
                     System.out.println("Goodbye!");
                     return;
@@ -1,10 +1,22 @@
 package extraterrestrialexploration.presentation;
 
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.DataManagerFactory;
+import java.io.Closeable;
+import java.io.IOException;
+
 public class RunApplication {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         System.out.println("=== Welcome to Extraterrestrial Exploration System ===");
-        MainMenu mainMenu = new MainMenu();
-        mainMenu.handleMainMenu();
+        // One DataManager for the whole application, of the engine chosen with -Ddatamanager.engine
+        DataManager dataManager = DataManagerFactory.getShared();
+        try {
+            MainMenu mainMenu = new MainMenu(dataManager);
+            mainMenu.handleMainMenu();
+        } finally {
+            if (dataManager instanceof Closeable) {
+                ((Closeable) dataManager).close();
+            }
+        }
     }
 }
-
@@ -0,0 +1,183 @@
+package extraterrestrialexploration.presentation.http;
+
+import com.sun.net.httpserver.HttpServer;
+import extraterrestrialexploration.bulk.BulkEntity;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.DataManagerFactory;
+import extraterrestrialexploration.persistence.MetricsDataManager;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves planets, aliens, explorers and encounters as JSON over HTTP, from one shared DataManager.
+// See EntityHandler for the requests. Encounters can also be searched with
+// /encounters?planetId=3, ?alienId=, ?explorerId= or ?from=2024-01-01&to=2024-12-31.
+// GET /metrics returns the number of requests, errors and their latency per resource. If the DataManager is a
+// MetricsDataManager, GET /metrics/data returns its numbers per DataManager call as Prometheus text.
+//
+// Every request runs on its own virtual thread where the JVM has them (Java 21 and later), so thousands of
+// blocked requests cost little. Older JVMs use a fixed pool of platform threads instead.
+// The DataManager is called from many threads at once, so it has to be thread safe; main uses the
+// concurrent engine unless another one is configured.
+public class ApiServer implements Closeable {
+    private static final int BACKLOG = 1024;
+    private static final int PLATFORM_THREADS = 256;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Map<String, RequestMetrics> metrics = new LinkedHashMap<>();
+
+    public ApiServer(DataManager dataManager, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        virtualThreads = virtual != null;
+        executor = virtual != null ? virtual : newPlatformThreadExecutor();
+        server.setExecutor(executor);
+
+        server.createContext("/planets", new EntityHandler<>(BulkEntity.PLANETS, dataManager, metrics("planets"),
+                dataManager::getPlanet, dataManager::getPlanetsAfter, dataManager::addPlanet,
+                dataManager::updatePlanet, dataManager::deletePlanet, null));
+        server.createContext("/aliens", new EntityHandler<>(BulkEntity.ALIENS, dataManager, metrics("aliens"),
+                dataManager::getAlien, dataManager::getAliensAfter, dataManager::addAlien,
+                dataManager::updateAlien, dataManager::deleteAlien, null));
+        server.createContext("/explorers", new EntityHandler<>(BulkEntity.EXPLORERS, dataManager, metrics("explorers"),
+                dataManager::getExplorer, dataManager::getExplorersAfter, dataManager::addExplorer,
+                dataManager::updateExplorer, dataManager::deleteExplorer, null));
+        server.createContext("/encounters", new EntityHandler<>(BulkEntity.ENCOUNTERS, dataManager, metrics("encounters"),
+                dataManager::getEncounter, dataManager::getEncountersAfter, dataManager::addEncounter,
+                dataManager::updateEncounter, dataManager::deleteEncounter,
+                parameters -> searchEncounters(dataManager, parameters)));
+        server.createContext("/metrics", exchange -> {
+            try {
+                EntityHandler.send(exchange, new EntityHandler.Response(200, metricsJson()));
+            } finally {
+                exchange.close();
+            }
+        });
+        if (dataManager instanceof MetricsDataManager) {
+            MetricsDataManager metricsDataManager = (MetricsDataManager) dataManager;
+            server.createContext("/metrics/data", exchange -> {
+                try {
+                    byte[] text = metricsDataManager.toText().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                    exchange.sendResponseHeaders(200, text.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(text);
+                    }
+                } finally {
+                    exchange.close();
+                }
+            });
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public long getRequestCount() {
+        return metrics.values().stream().mapToLong(RequestMetrics::getRequests).sum();
+    }
+
+    // Stops accepting requests and waits up to a second for the running ones
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private RequestMetrics metrics(String resource) {
+        RequestMetrics resourceMetrics = new RequestMetrics();
+        metrics.put(resource, resourceMetrics);
+        return resourceMetrics;
+    }
+
+    private String metricsJson() {
+        StringBuilder json = new StringBuilder("{");
+        for (Map.Entry<String, RequestMetrics> entry : metrics.entrySet()) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append('"').append(entry.getKey()).append("\":").append(entry.getValue().toJson());
+        }
+        return json.append('}').toString();
+    }
+
+    private static List<Encounter> searchEncounters(DataManager dataManager, Map<String, String> parameters) {
+        if (parameters.size() == 1 && parameters.containsKey("planetId")) {
+            return dataManager.findEncountersByPlanet(Integer.parseInt(parameters.get("planetId")));
+        }
+        if (parameters.size() == 1 && parameters.containsKey("alienId")) {
+            return dataManager.findEncountersByAlien(Integer.parseInt(parameters.get("alienId")));
+        }
+        if (parameters.size() == 1 && parameters.containsKey("explorerId")) {
+            return dataManager.findEncountersByExplorer(Integer.parseInt(parameters.get("explorerId")));
+        }
+        if (parameters.keySet().stream().allMatch(name -> name.equals("from") || name.equals("to"))) {
+            LocalDate from = parameters.containsKey("from") ? LocalDate.parse(parameters.get("from")) : LocalDate.MIN;
+            LocalDate to = parameters.containsKey("to") ? LocalDate.parse(parameters.get("to")) : LocalDate.MAX;
+            return dataManager.findEncountersBetween(from, to);
+        }
+        return null;
+    }
+
+    // Looked up by reflection so the server still compiles and runs on JVMs without virtual threads
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformThreadExecutor() {
+        AtomicInteger threads = new AtomicInteger();
+        return Executors.newFixedThreadPool(PLATFORM_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "http-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Run with: java extraterrestrialexploration.presentation.http.ApiServer [port]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        DataManager shared = DataManagerFactory.getShared("concurrent");
+        MetricsDataManager dataManager = shared instanceof MetricsDataManager
+                ? (MetricsDataManager) shared : new MetricsDataManager(shared);
+        dataManager.registerWithJmx();
+        ApiServer server = new ApiServer(dataManager, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            try {
+                dataManager.close();
+            } catch (IOException e) {
+                System.out.println("Failed to close the data: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Serving " + shared.getClass().getSimpleName() + " on http://localhost:" + server.getPort()
+                + (server.usesVirtualThreads() ? " with virtual threads" : " with " + PLATFORM_THREADS + " threads"));
+    }
+}
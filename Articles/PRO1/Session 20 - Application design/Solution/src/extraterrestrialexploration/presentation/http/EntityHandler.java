@@ -0,0 +1,222 @@
+package extraterrestrialexploration.presentation.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import extraterrestrialexploration.bulk.BulkEntity;
+import extraterrestrialexploration.persistence.DataManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+// Serves the entities of one type as JSON, in the same form as a bulk export (references as ids):
+//   GET    /planets?after=0&limit=100   the next page of planets by id, see DataManager.getPlanetsAfter
+//   GET    /planets/7                   one planet
+//   POST   /planets                     adds the planet in the body and returns it with its new id
+//   PUT    /planets/7                   replaces planet 7 with the body
+//   DELETE /planets/7
+// Invalid requests are answered with 400 and {"error": "..."}, unknown ids with 404.
+class EntityHandler<T> implements HttpHandler {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    interface PageQuery<T> {
+        List<T> after(int afterId, int limit);
+    }
+
+    private final String path;
+    private final BulkEntity<T> entity;
+    private final DataManager dataManager;
+    private final RequestMetrics metrics;
+    private final IntFunction<T> get;
+    private final PageQuery<T> page;
+    private final Consumer<T> add;
+    private final Consumer<T> update;
+    private final IntConsumer delete;
+    private final Function<Map<String, String>, List<T>> search;
+
+    // search answers GET requests with other parameters than after and limit, or returns null if it does not know them
+    EntityHandler(BulkEntity<T> entity, DataManager dataManager, RequestMetrics metrics, IntFunction<T> get,
+                  PageQuery<T> page, Consumer<T> add, Consumer<T> update, IntConsumer delete,
+                  Function<Map<String, String>, List<T>> search) {
+        this.path = "/" + entity.getName();
+        this.entity = entity;
+        this.dataManager = dataManager;
+        this.metrics = metrics;
+        this.get = get;
+        this.page = page;
+        this.add = add;
+        this.update = update;
+        this.delete = delete;
+        this.search = search;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        metrics.started();
+        int status = 500;
+        try {
+            Response response;
+            try {
+                response = respond(exchange);
+            } catch (IllegalArgumentException | DateTimeException e) {
+                response = error(400, e.getMessage());
+            } catch (RuntimeException e) {
+                response = error(500, e.getMessage());
+            }
+            status = response.status;
+            send(exchange, response);
+        } finally {
+            metrics.finished(status, System.nanoTime() - start);
+            exchange.close();
+        }
+    }
+
+    private Response respond(HttpExchange exchange) throws IOException {
+        String rest = exchange.getRequestURI().getPath().substring(path.length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    return list(parameters(exchange.getRequestURI().getRawQuery()));
+                case "POST":
+                    return create(body(exchange));
+                default:
+                    return error(405, "Use GET or POST on " + path);
+            }
+        }
+
+        int id;
+        try {
+            id = Integer.parseInt(rest.substring(1));
+        } catch (NumberFormatException e) {
+            return error(404, "No such resource " + exchange.getRequestURI().getPath());
+        }
+        T existing = get.apply(id);
+        if (existing == null) {
+            return error(404, "No " + entity.getName() + " with id " + id);
+        }
+        switch (exchange.getRequestMethod()) {
+            case "GET":
+                return new Response(200, entity.toJson(existing));
+            case "PUT":
+                return replace(id, body(exchange));
+            case "DELETE":
+                delete.accept(id);
+                return new Response(204, null);
+            default:
+                return error(405, "Use GET, PUT or DELETE on " + path + "/" + id);
+        }
+    }
+
+    private Response list(Map<String, String> parameters) {
+        int afterId = parameters.containsKey("after") ? Integer.parseInt(parameters.remove("after")) : 0;
+        int limit = parameters.containsKey("limit") ? Integer.parseInt(parameters.remove("limit")) : DEFAULT_PAGE_SIZE;
+        if (limit < 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 0 and " + MAX_PAGE_SIZE);
+        }
+        if (parameters.isEmpty()) {
+            return new Response(200, entity.toJson(page.after(afterId, limit)));
+        }
+        List<T> found = search == null ? null : search.apply(parameters);
+        if (found == null) {
+            throw new IllegalArgumentException("Unknown parameters " + parameters.keySet());
+        }
+        return new Response(200, entity.toJson(found.size() > limit ? found.subList(0, limit) : found));
+    }
+
+    // The id is handed out by the storage, so a client cannot pick one and move the id sequence
+    private Response create(String body) {
+        if (entity.hasId(body)) {
+            return error(400, "Leave out the id, it is given to the entity when it is created");
+        }
+        T created = entity.fromJson(body);
+        String problem = entity.checkReferences(dataManager, created);
+        if (problem != null) {
+            return error(400, problem);
+        }
+        add.accept(created);
+        return new Response(201, entity.toJson(created));
+    }
+
+    private Response replace(int id, String body) {
+        T replacement = entity.fromJson(body);
+        if (entity.idOf(replacement) != 0 && entity.idOf(replacement) != id) {
+            return error(400, "The id in the body does not match the id " + id + " in the path");
+        }
+        entity.setId(replacement, id);
+        String problem = entity.checkReferences(dataManager, replacement);
+        if (problem != null) {
+            return error(400, problem);
+        }
+        update.accept(replacement);
+        return new Response(200, entity.toJson(replacement));
+    }
+
+    private static String body(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    static Response error(int status, String message) {
+        return new Response(status, "{\"error\":" + quote(message == null ? "Unexpected error" : message) + "}");
+    }
+
+    static void send(HttpExchange exchange, Response response) throws IOException {
+        if (response.json == null) {
+            exchange.sendResponseHeaders(response.status, -1);
+            return;
+        }
+        byte[] bytes = response.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    static class Response {
+        private final int status;
+        private final String json;
+
+        Response(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+}
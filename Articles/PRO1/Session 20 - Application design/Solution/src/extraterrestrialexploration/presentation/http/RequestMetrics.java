@@ -0,0 +1,44 @@
+package extraterrestrialexploration.presentation.http;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counts the requests of one resource and how long they took. Safe to update from any number of threads.
+class RequestMetrics {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void finished(int status, long nanos) {
+        inFlight.decrementAndGet();
+        requests.increment();
+        if (status >= 500) {
+            serverErrors.increment();
+        } else if (status >= 400) {
+            clientErrors.increment();
+        }
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    long getRequests() {
+        return requests.sum();
+    }
+
+    String toJson() {
+        long count = requests.sum();
+        return String.format(Locale.ROOT,
+                "{\"requests\":%d,\"clientErrors\":%d,\"serverErrors\":%d,\"inFlight\":%d,\"meanMillis\":%.3f,\"maxMillis\":%.3f}",
+                count, clientErrors.sum(), serverErrors.sum(), inFlight.get(),
+                count == 0 ? 0.0 : totalNanos.sum() / (double) count / 1_000_000, maxNanos.get() / 1_000_000.0);
+    }
+}
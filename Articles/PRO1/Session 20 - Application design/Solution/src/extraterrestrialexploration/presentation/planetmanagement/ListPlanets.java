@@ -2,33 +2,52 @@ package extraterrestrialexploration.presentation.planetmanagement;
 
 import extraterrestrialexploration.domain.Planet;
 import extraterrestrialexploration.persistence.DataManager;
-import extraterrestrialexploration.persistence.FileDataManager;
 import java.util.List;
+import java.util.Scanner;
 
 public class ListPlanets {
+    private static final int PAGE_SIZE = 10;
+
     private DataManager dataManager;
+    private Scanner scanner;
 
-    public ListPlanets() {
-        this.dataManager = new FileDataManager();
+    public ListPlanets(DataManager dataManager) {
+        this.dataManager = dataManager;
+        this.scanner = new Scanner(System.in);
     }
 
     public void handleListPlanets() {
         System.out.println("\n=== List All Planets ===");
 
         try {
-            List<Planet> planets = dataManager.getAllPlanets();
-            
+            // One page at a time, each continuing after the last id shown
+            List<Planet> planets = dataManager.getPlanetsAfter(0, PAGE_SIZE);
+
             if (planets.isEmpty()) {
                 System.out.println("\nNo planets found.");
-            } else {
-                System.out.println("\nFound " + planets.size() + " planet(s):");
+                return;
+            }
+
+            int shown = 0;
+            while (!planets.isEmpty()) {
+                System.out.println();
                 for (Planet planet : planets) {
                     System.out.println(planet);
                 }
+                shown += planets.size();
+
+                int lastId = planets.get(planets.size() - 1).getId();
+                planets = planets.size() < PAGE_SIZE ? List.of() : dataManager.getPlanetsAfter(lastId, PAGE_SIZE);
+                if (!planets.isEmpty()) {
+                    System.out.print("\nShown " + shown + " planet(s). Press Enter for more, or q to stop: ");
+                    if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                        return;
+                    }
+                }
             }
+            System.out.println("\nShown all " + shown + " planet(s).");
         } catch (Exception e) {
             System.out.println("\nError retrieving planets: " + e.getMessage());
         }
     }
 }
-
@@ -1,11 +1,14 @@
 package extraterrestrialexploration.presentation.planetmanagement;
 
+import extraterrestrialexploration.persistence.DataManager;
 import java.util.Scanner;
 
 public class PlanetMenu {
+    private DataManager dataManager;
     private Scanner scanner;
 
-    public PlanetMenu() {
+    public PlanetMenu(DataManager dataManager) {
+        this.dataManager = dataManager;
         this.scanner = new Scanner(System.in);
     }
 
@@ -15,11 +18,11 @@ public class PlanetMenu {
             int choice = getUserChoice();
 
             switch (choice) {
-                case 1 -> new AddPlanet().handleAddPlanet();
-                case 2 -> new ShowPlanet().handleShowPlanet();
-                case 3 -> new ListPlanets().handleListPlanets();
-                case 4 -> new UpdatePlanet().handleUpdatePlanet();
-                case 5 -> new DeletePlanet().handleDeletePlanet();
+                case 1 -> new AddPlanet(dataManager).handleAddPlanet();
+                case 2 -> new ShowPlanet(dataManager).handleShowPlanet();
+                case 3 -> new ListPlanets(dataManager).handleListPlanets();
+                case 4 -> new UpdatePlanet(dataManager).handleUpdatePlanet();
+                case 5 -> new DeletePlanet(dataManager).handleDeletePlanet();
                 case 6 -> {
                     return; // Back to main menu
                 }
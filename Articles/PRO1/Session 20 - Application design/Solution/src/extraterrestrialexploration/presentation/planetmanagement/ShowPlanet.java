@@ -2,15 +2,14 @@ package extraterrestrialexploration.presentation.planetmanagement;
 
 import extraterrestrialexploration.domain.Planet;
 import extraterrestrialexploration.persistence.DataManager;
-import extraterrestrialexploration.persistence.FileDataManager;
 import java.util.Scanner;
 
 public class ShowPlanet {
     private DataManager dataManager;
     private Scanner scanner;
 
-    public ShowPlanet() {
-        this.dataManager = new FileDataManager();
+    public ShowPlanet(DataManager dataManager) {
+        this.dataManager = dataManager;
         this.scanner = new Scanner(System.in);
     }
 
@@ -2,15 +2,14 @@ package extraterrestrialexploration.presentation.planetmanagement;
 
 import extraterrestrialexploration.domain.Planet;
 import extraterrestrialexploration.persistence.DataManager;
-import extraterrestrialexploration.persistence.FileDataManager;
 import java.util.Scanner;
 
 public class UpdatePlanet {
     private DataManager dataManager;
     private Scanner scanner;
 
-    public UpdatePlanet() {
-        this.dataManager = new FileDataManager();
+    public UpdatePlanet(DataManager dataManager) {
+        this.dataManager = dataManager;
         this.scanner = new Scanner(System.in);
     }
 
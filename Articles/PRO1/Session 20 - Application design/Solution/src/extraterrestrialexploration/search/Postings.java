@@ -0,0 +1,86 @@
+package extraterrestrialexploration.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// The documents that contain one term, in increasing document order. Each posting is stored as the gap to
+// the previous document and the number of times the term occurs, both as variable-length integers
+// (7 bits per byte), so most postings take two bytes.
+final class Postings {
+    interface Visitor {
+        void visit(int document, int frequency);
+    }
+
+    private byte[] bytes = new byte[8];
+    private int length;
+    private int lastDocument = -1;
+    private int count;
+
+    // Documents have to be added in increasing order
+    void add(int document, int frequency) {
+        if (length + 10 > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+        }
+        writeVarInt(document - lastDocument);
+        writeVarInt(frequency);
+        lastDocument = document;
+        count++;
+    }
+
+    // The number of postings, including those of deleted documents that were not compacted away yet
+    int count() {
+        return count;
+    }
+
+    void forEach(Visitor visitor) {
+        int position = 0;
+        int document = -1;
+        while (position < length) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            document += value;
+
+            int frequency = 0;
+            shift = 0;
+            do {
+                b = bytes[position++];
+                frequency |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            visitor.visit(document, frequency);
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(count);
+        out.writeInt(lastDocument);
+        out.writeInt(length);
+        out.write(bytes, 0, length);
+    }
+
+    static Postings readFrom(DataInputStream in) throws IOException {
+        Postings postings = new Postings();
+        postings.count = in.readInt();
+        postings.lastDocument = in.readInt();
+        postings.length = in.readInt();
+        postings.bytes = new byte[postings.length];
+        in.readFully(postings.bytes);
+        return postings;
+    }
+
+    private void writeVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[length++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte) value;
+    }
+}
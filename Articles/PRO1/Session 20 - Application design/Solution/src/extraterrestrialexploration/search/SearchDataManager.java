@@ -0,0 +1,261 @@
+package extraterrestrialexploration.search;
+
+import extraterrestrialexploration.domain.*;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.ForwardingDataManager;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Full-text search over the planets' climate descriptions, the aliens' physical descriptions and the
+// descriptions of the encounters, kept up to date with every add, update and delete made through it.
+// A search returns the ids of the best matching entities, best first (see TextIndex for the ranking).
+//
+// The index is saved next to the data file (data.bin.search) by close() and saveIndex(), together with
+// the size and modification time of the data files at that moment (the data file and every file whose name
+// starts with it, such as deltas). At startup the index is loaded if those still match, and otherwise built
+// again from the data, e.g. after a crash or when another program changed the data.
+public class SearchDataManager extends ForwardingDataManager implements Closeable {
+    private static final int MAGIC = 0x45545349;
+    private static final int VERSION = 1;
+
+    private final Path dataPath;
+    private final Path indexPath;
+    private final TextIndex planets;
+    private final TextIndex aliens;
+    private final TextIndex encounters;
+    private final ReentrantLock changes;
+    // Inside a transaction the changes are collected here and only indexed once it has succeeded
+    private final List<Runnable> pending;
+    private final boolean loadedIndex;
+
+    public SearchDataManager(DataManager delegate, String dataFilePath) {
+        super(delegate);
+        dataPath = Paths.get(dataFilePath).toAbsolutePath().normalize();
+        indexPath = dataPath.resolveSibling(dataPath.getFileName() + ".search");
+        changes = new ReentrantLock();
+        pending = null;
+
+        TextIndex[] loaded = loadIndex();
+        loadedIndex = loaded != null;
+        if (loaded == null) {
+            loaded = new TextIndex[]{new TextIndex(), new TextIndex(), new TextIndex()};
+            TextIndex planetIndex = loaded[0];
+            TextIndex alienIndex = loaded[1];
+            TextIndex encounterIndex = loaded[2];
+            try (Stream<Planet> all = delegate.streamPlanets()) {
+                all.forEach(planet -> planetIndex.put(planet.getId(), planet.getClimateDescription()));
+            }
+            try (Stream<Alien> all = delegate.streamAliens()) {
+                all.forEach(alien -> alienIndex.put(alien.getId(), alien.getPhysicalDescription()));
+            }
+            try (Stream<Encounter> all = delegate.streamEncounters()) {
+                all.forEach(encounter -> encounterIndex.put(encounter.getId(), encounter.getDescriptionOfTheEncounter()));
+            }
+        }
+        planets = loaded[0];
+        aliens = loaded[1];
+        encounters = loaded[2];
+    }
+
+    private SearchDataManager(DataManager batch, SearchDataManager parent, List<Runnable> pending) {
+        super(batch);
+        this.dataPath = parent.dataPath;
+        this.indexPath = parent.indexPath;
+        this.planets = parent.planets;
+        this.aliens = parent.aliens;
+        this.encounters = parent.encounters;
+        this.changes = new ReentrantLock();
+        this.pending = pending;
+        this.loadedIndex = parent.loadedIndex;
+    }
+
+    public List<SearchHit> searchPlanets(String query, int limit) {
+        return planets.search(query, limit);
+    }
+
+    public List<SearchHit> searchAliens(String query, int limit) {
+        return aliens.search(query, limit);
+    }
+
+    public List<SearchHit> searchEncounters(String query, int limit) {
+        return encounters.search(query, limit);
+    }
+
+    // True if the index was loaded from its file at startup instead of being built from the data
+    public boolean isIndexLoaded() {
+        return loadedIndex;
+    }
+
+    // Writes the index to a temporary file and moves it over the old one
+    public void saveIndex() {
+        changes.lock();
+        try {
+            Path temporary = Files.createTempFile(indexPath.getParent(), indexPath.getFileName() + ".", ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                    out.writeLong(fingerprint());
+                    planets.writeTo(out);
+                    aliens.writeTo(out);
+                    encounters.writeTo(out);
+                }
+                Files.move(temporary, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save search index: " + e.getMessage(), e);
+        } finally {
+            changes.unlock();
+        }
+    }
+
+    // Null if there is no index file, or it does not belong to the data files as they are now
+    private TextIndex[] loadIndex() {
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readLong() != fingerprint()) {
+                return null;
+            }
+            return new TextIndex[]{TextIndex.readFrom(in), TextIndex.readFrom(in), TextIndex.readFrom(in)};
+        } catch (IOException e) {
+            // A damaged index is simply built again
+            return null;
+        }
+    }
+
+    // Combines the names, sizes and modification times of the data files
+    private long fingerprint() throws IOException {
+        List<String> files = new ArrayList<>();
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(dataPath.getParent(), dataPath.getFileName() + "*")) {
+            for (Path file : siblings) {
+                String name = file.getFileName().toString();
+                if (file.equals(indexPath) || name.startsWith(indexPath.getFileName() + ".")
+                        || name.endsWith(".lock") || name.endsWith(".tmp")) {
+                    continue;
+                }
+                files.add(name + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis());
+            }
+        }
+        files.sort(null);
+        long fingerprint = 1125899906842597L;
+        for (String file : files) {
+            for (int i = 0; i < file.length(); i++) {
+                fingerprint = 31 * fingerprint + file.charAt(i);
+            }
+        }
+        return fingerprint;
+    }
+
+    // Closes the DataManager first, so the index is saved with the data files as they are left
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+        saveIndex();
+    }
+
+    @Override
+    public void transaction(Consumer<DataManager> work) {
+        if (pending != null) {
+            // A nested transaction that fails may be caught by the outer work, so its changes only join the
+            // outer ones once it has succeeded
+            List<Runnable> nestedChanges = new ArrayList<>();
+            delegate.transaction(batch -> work.accept(new SearchDataManager(batch, this, nestedChanges)));
+            pending.addAll(nestedChanges);
+            return;
+        }
+        changes.lock();
+        try {
+            List<Runnable> batchChanges = new ArrayList<>();
+            delegate.transaction(batch -> work.accept(new SearchDataManager(batch, this, batchChanges)));
+            batchChanges.forEach(Runnable::run);
+        } finally {
+            changes.unlock();
+        }
+    }
+
+    // Makes the change and then indexes it, or records the indexing until the transaction ends
+    private void change(Runnable change, Runnable index) {
+        if (pending != null) {
+            change.run();
+            pending.add(index);
+            return;
+        }
+        changes.lock();
+        try {
+            change.run();
+            index.run();
+        } finally {
+            changes.unlock();
+        }
+    }
+
+    // Planet methods
+    @Override
+    public void addPlanet(Planet planet) {
+        change(() -> delegate.addPlanet(planet), () -> planets.put(planet.getId(), planet.getClimateDescription()));
+    }
+
+    @Override
+    public void updatePlanet(Planet planet) {
+        change(() -> delegate.updatePlanet(planet), () -> planets.put(planet.getId(), planet.getClimateDescription()));
+    }
+
+    @Override
+    public void deletePlanet(int id) {
+        change(() -> delegate.deletePlanet(id), () -> planets.remove(id));
+    }
+
+    // Alien methods
+    @Override
+    public void addAlien(Alien alien) {
+        change(() -> delegate.addAlien(alien), () -> aliens.put(alien.getId(), alien.getPhysicalDescription()));
+    }
+
+    @Override
+    public void updateAlien(Alien alien) {
+        change(() -> delegate.updateAlien(alien), () -> aliens.put(alien.getId(), alien.getPhysicalDescription()));
+    }
+
+    @Override
+    public void deleteAlien(int id) {
+        change(() -> delegate.deleteAlien(id), () -> aliens.remove(id));
+    }
+
+    // Encounter methods
+    @Override
+    public void addEncounter(Encounter encounter) {
+        change(() -> delegate.addEncounter(encounter),
+                () -> encounters.put(encounter.getId(), encounter.getDescriptionOfTheEncounter()));
+    }
+
+    @Override
+    public void updateEncounter(Encounter encounter) {
+        change(() -> delegate.updateEncounter(encounter),
+                () -> encounters.put(encounter.getId(), encounter.getDescriptionOfTheEncounter()));
+    }
+
+    @Override
+    public void deleteEncounter(int id) {
+        change(() -> delegate.deleteEncounter(id), () -> encounters.remove(id));
+    }
+}
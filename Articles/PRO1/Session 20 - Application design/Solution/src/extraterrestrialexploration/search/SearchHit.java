@@ -0,0 +1,28 @@
+package extraterrestrialexploration.search;
+
+// The id of an entity that matched a search and how well it matched; higher scores are better matches
+public class SearchHit {
+    private final int id;
+    private final double score;
+
+    SearchHit(int id, double score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchHit{" +
+                "id=" + id +
+                ", score=" + score +
+                '}';
+    }
+}
@@ -0,0 +1,282 @@
+package extraterrestrialexploration.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// An inverted index over one text field: for every term, the Postings of the documents that contain it.
+//
+// Every time an entity is indexed it gets a new document number, so postings are only ever appended.
+// The document it had before is marked deleted, and once most documents are deleted the index is compacted:
+// the remaining documents are numbered again and the postings of deleted ones are dropped.
+// Results are ranked with BM25, which favours documents that contain a rare term often and are short.
+final class TextIndex {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_DELETED_BEFORE_COMPACTION = 10_000;
+
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] entityIds = new int[64];
+    private int[] lengths = new int[64];
+    private int documents;
+    private int deletedDocuments;
+    private long totalLength;
+    // Entity id to document number + 1; ids come from a sequence, so an array indexed by id stays small
+    private int[] documentOfId = new int[64];
+
+    void put(int id, String text) {
+        if (id <= 0) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            compactIfMostlyDeleted();
+            Map<String, int[]> frequencies = new HashMap<>();
+            int length = Tokenizer.forEachTerm(text, term -> frequencies.computeIfAbsent(term, t -> new int[1])[0]++);
+
+            if (documents == entityIds.length) {
+                entityIds = Arrays.copyOf(entityIds, documents * 2);
+                lengths = Arrays.copyOf(lengths, documents * 2);
+            }
+            if (id >= documentOfId.length) {
+                documentOfId = Arrays.copyOf(documentOfId, Math.max(id + 1, documentOfId.length * 2));
+            }
+            int document = documents++;
+            for (Map.Entry<String, int[]> entry : frequencies.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), t -> new Postings()).add(document, entry.getValue()[0]);
+            }
+            entityIds[document] = id;
+            lengths[document] = length;
+            totalLength += length;
+            documentOfId[id] = document + 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            compactIfMostlyDeleted();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Updates delete a document as well as removals do, so both check this
+    private void compactIfMostlyDeleted() {
+        if (deletedDocuments > documents / 2 && deletedDocuments >= MIN_DELETED_BEFORE_COMPACTION) {
+            compact();
+        }
+    }
+
+    private void removeDocument(int id) {
+        if (id <= 0 || id >= documentOfId.length || documentOfId[id] == 0) {
+            return;
+        }
+        int document = documentOfId[id] - 1;
+        deleted.set(document);
+        deletedDocuments++;
+        totalLength -= lengths[document];
+        documentOfId[id] = 0;
+    }
+
+    // The best matches for any of the query's terms, best first
+    List<SearchHit> search(String query, int limit) {
+        Set<String> queryTerms = new LinkedHashSet<>();
+        Tokenizer.forEachTerm(query, queryTerms::add);
+        if (limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int liveDocuments = documents - deletedDocuments;
+            if (liveDocuments == 0) {
+                return List.of();
+            }
+            Scores scores = new Scores(totalLength / (double) liveDocuments);
+            for (String term : queryTerms) {
+                Postings postings = terms.get(term);
+                if (postings != null) {
+                    int withTerm = Math.min(postings.count(), liveDocuments);
+                    scores.idf = Math.log(1 + (liveDocuments - withTerm + 0.5) / (withTerm + 0.5));
+                    postings.forEach(scores);
+                }
+            }
+            return scores.top(limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Adds up the BM25 score of every document a query term occurs in. The scores are kept in a small hash
+    // table of the documents the query touched, so a search costs nothing for the rest of the index
+    private class Scores implements Postings.Visitor {
+        private final double averageLength;
+        // Document number + 1 per slot, 0 for an empty one, found by linear probing
+        private int[] slots = new int[16];
+        private double[] score = new double[16];
+        private int touchedCount;
+        private double idf;
+
+        private Scores(double averageLength) {
+            this.averageLength = averageLength;
+        }
+
+        @Override
+        public void visit(int document, int frequency) {
+            if (deleted.get(document)) {
+                return;
+            }
+            double normalizedLength = 1 - B + B * lengths[document] / averageLength;
+            // Found first, as finding it may grow the table
+            int slot = slotOf(document);
+            score[slot] += idf * frequency * (K1 + 1) / (frequency + K1 * normalizedLength);
+        }
+
+        private int slotOf(int document) {
+            int mask = slots.length - 1;
+            int hash = document * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (slots[slot] != 0) {
+                if (slots[slot] == document + 1) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = document + 1;
+            // Kept at most half full so probe sequences stay short
+            if (++touchedCount * 2 > slots.length) {
+                grow();
+                return slotOf(document);
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldSlots = slots;
+            double[] oldScore = score;
+            slots = new int[oldSlots.length * 2];
+            score = new double[oldSlots.length * 2];
+            touchedCount = 0;
+            for (int slot = 0; slot < oldSlots.length; slot++) {
+                if (oldSlots[slot] != 0) {
+                    int moved = slotOf(oldSlots[slot] - 1);
+                    score[moved] = oldScore[slot];
+                }
+            }
+        }
+
+        private List<SearchHit> top(int limit) {
+            Comparator<SearchHit> worstFirst = Comparator.comparingDouble(SearchHit::getScore)
+                    .thenComparing(Comparator.comparingInt(SearchHit::getId).reversed());
+            PriorityQueue<SearchHit> best = new PriorityQueue<>(worstFirst);
+            for (int slot = 0; slot < slots.length; slot++) {
+                if (slots[slot] == 0) {
+                    continue;
+                }
+                int document = slots[slot] - 1;
+                if (best.size() < limit || score[slot] > best.peek().getScore()) {
+                    best.add(new SearchHit(entityIds[document], score[slot]));
+                    if (best.size() > limit) {
+                        best.poll();
+                    }
+                }
+            }
+            List<SearchHit> hits = new ArrayList<>(best);
+            hits.sort(worstFirst.reversed());
+            return hits;
+        }
+    }
+
+    // Numbers the live documents again, keeping their order, and drops the postings of deleted ones
+    private void compact() {
+        int[] renumbered = new int[documents];
+        int live = 0;
+        for (int document = 0; document < documents; document++) {
+            if (deleted.get(document)) {
+                renumbered[document] = -1;
+            } else {
+                entityIds[live] = entityIds[document];
+                lengths[live] = lengths[document];
+                documentOfId[entityIds[live]] = live + 1;
+                renumbered[document] = live++;
+            }
+        }
+        terms.replaceAll((term, postings) -> {
+            Postings compacted = new Postings();
+            postings.forEach((document, frequency) -> {
+                if (renumbered[document] >= 0) {
+                    compacted.add(renumbered[document], frequency);
+                }
+            });
+            return compacted;
+        });
+        terms.values().removeIf(postings -> postings.count() == 0);
+        documents = live;
+        deleted.clear();
+        deletedDocuments = 0;
+    }
+
+    // Compacts first, so the file holds no deleted documents
+    void writeTo(DataOutputStream out) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (deletedDocuments > 0) {
+                compact();
+            }
+            out.writeInt(documents);
+            for (int document = 0; document < documents; document++) {
+                out.writeInt(entityIds[document]);
+                out.writeInt(lengths[document]);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().writeTo(out);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static TextIndex readFrom(DataInputStream in) throws IOException {
+        TextIndex index = new TextIndex();
+        int documents = in.readInt();
+        index.entityIds = new int[Math.max(64, documents)];
+        index.lengths = new int[Math.max(64, documents)];
+        int maxId = 0;
+        for (int document = 0; document < documents; document++) {
+            index.entityIds[document] = in.readInt();
+            index.lengths[document] = in.readInt();
+            index.totalLength += index.lengths[document];
+            maxId = Math.max(maxId, index.entityIds[document]);
+        }
+        index.documents = documents;
+        index.documentOfId = new int[Math.max(64, maxId + 1)];
+        for (int document = 0; document < documents; document++) {
+            index.documentOfId[index.entityIds[document]] = document + 1;
+        }
+        int termCount = in.readInt();
+        for (int i = 0; i < termCount; i++) {
+            index.terms.put(in.readUTF(), Postings.readFrom(in));
+        }
+        return index;
+    }
+}
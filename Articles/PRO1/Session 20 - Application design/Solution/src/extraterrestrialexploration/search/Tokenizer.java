@@ -0,0 +1,42 @@
+package extraterrestrialexploration.search;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Splits free text into search terms: runs of letters and digits, lower-cased. Single characters and a few
+// very common English words are left out, since nearly every description has them.
+final class Tokenizer {
+    private static final Set<String> STOP_WORDS = Set.of(
+            "an", "and", "are", "as", "at", "be", "by", "for", "from", "has", "in", "is", "it", "its",
+            "of", "on", "or", "that", "the", "to", "was", "were", "with");
+
+    private Tokenizer() {
+    }
+
+    // Returns the number of terms passed on
+    static int forEachTerm(String text, Consumer<String> consumer) {
+        if (text == null) {
+            return 0;
+        }
+        int count = 0;
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean inWord = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                if (i - start > 1) {
+                    String term = text.substring(start, i).toLowerCase(Locale.ROOT);
+                    if (!STOP_WORDS.contains(term)) {
+                        consumer.accept(term);
+                        count++;
+                    }
+                }
+                start = -1;
+            }
+        }
+        return count;
+    }
+}
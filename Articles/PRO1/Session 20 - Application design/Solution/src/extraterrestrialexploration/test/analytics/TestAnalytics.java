@@ -0,0 +1,248 @@
+package extraterrestrialexploration.test.analytics;
+
+import extraterrestrialexploration.analytics.Analytics;
+import extraterrestrialexploration.analytics.AnalyticsDataManager;
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.InMemoryDataManager;
+import extraterrestrialexploration.persistence.SnapshotDataManager;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.DoubleSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+public class TestAnalytics {
+    private static final int PLANETS = 200_000;
+    private static final int ALIENS = 40;
+    private static final int ENCOUNTERS = 300_000;
+    private static final String[] SPECIES = {"Grey", "Reptilian", "Nordic", "Insectoid", "Crystalline"};
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final String FILE_PATH = "analytics-data.bin";
+
+    public static void main(String[] args) {
+        SnapshotDataManager data;
+        AnalyticsDataManager dataManager;
+        Analytics analytics;
+
+        try {
+            System.out.println("=== Setup: " + PLANETS + " planets and " + ENCOUNTERS + " encounters in columns ===");
+            Random random = new Random(7);
+            deleteFiles();
+            // Keeps the data in memory like the reports, but rolls back failed transactions
+            data = new SnapshotDataManager(FILE_PATH);
+            List<Planet> planets = new ArrayList<>();
+            for (int i = 0; i < PLANETS; i++) {
+                planets.add(new Planet("Planet " + i, "Varied", random.nextDouble() * 40,
+                        random.nextBoolean(), random.nextInt(10) == 0));
+            }
+            data.addPlanets(planets);
+            List<Alien> aliens = new ArrayList<>();
+            for (int i = 0; i < ALIENS; i++) {
+                aliens.add(new Alien("Alien " + i, SPECIES[i % SPECIES.length], "Seen"));
+            }
+            data.addAliens(aliens);
+            List<Encounter> encounters = new ArrayList<>();
+            for (int i = 0; i < ENCOUNTERS; i++) {
+                LocalDate date = FIRST_DAY.plusDays(random.nextInt(1000));
+                // Both date formats the application accepts
+                String text = i % 2 == 0 ? date.toString()
+                        : date.getDayOfMonth() + "/" + date.getMonthValue() + "/" + date.getYear();
+                encounters.add(new Encounter(text, 1 + random.nextInt(ALIENS), 1 + random.nextInt(1000), 0, "Met"));
+            }
+            data.addEncounters(encounters);
+
+            long start = System.nanoTime();
+            dataManager = new AnalyticsDataManager(data);
+            analytics = dataManager.getAnalytics();
+            System.out.println("Columns built in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Reports match the same reports computed from the entities ===");
+            long start = System.nanoTime();
+            DoubleSummaryStatistics withLife = analytics.distanceFromStar(null, true);
+            SortedMap<Integer, SortedMap<YearMonth, Long>> perMonth =
+                    analytics.encountersPerPlanetPerMonth(LocalDate.of(2021, 1, 1), LocalDate.of(2021, 12, 31));
+            List<Map.Entry<String, Long>> topSpecies = analytics.topSpeciesByEncounters(3);
+            long columnar = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            boolean matches = matches(dataManager, analytics);
+            long fromEntities = System.nanoTime() - start;
+            System.out.printf("Average distance of planets with life %.3f AU over %d planets, %d planets with encounters in 2021%n",
+                    withLife.getAverage(), withLife.getCount(), perMonth.size());
+            System.out.println("Top species: " + topSpecies);
+            System.out.println("Columns " + columnar / 1_000_000 + " ms, entities " + fromEntities / 1_000_000 + " ms");
+
+            if (matches && topSpecies.size() == 3) {
+                System.out.println("\n✓ Test PASSED: The column reports are correct!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The column reports differ from the entities!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Changes are applied to the columns, failed transactions are not ===");
+            for (int id = 1; id <= 20; id++) {
+                Planet planet = dataManager.getPlanet(id);
+                planet.setHasLife(!planet.hasLife());
+                planet.setDistanceFromStarAU(planet.getDistanceFromStarAU() + 1);
+                dataManager.updatePlanet(planet);
+            }
+            dataManager.transaction(changes -> {
+                for (int id = 21; id <= 5000; id++) {
+                    Planet planet = changes.getPlanet(id);
+                    planet.setHasLife(!planet.hasLife());
+                    changes.updatePlanet(planet);
+                }
+                for (int id = 1; id <= 100_000; id += 2) {
+                    changes.deleteEncounter(id);
+                }
+                // Enough to compact the columns
+                for (int id = PLANETS; id > PLANETS - 150_000; id--) {
+                    changes.deletePlanet(id);
+                }
+            });
+            Alien alien = dataManager.getAlien(1);
+            alien.setSpecies("Renamed");
+            dataManager.updateAlien(alien);
+            dataManager.addEncounter(new Encounter("2021-06-15", 2, 3, 0, "Added"));
+
+            boolean rolledBack = false;
+            try {
+                dataManager.transaction(batch -> {
+                    batch.addEncounter(new Encounter("2021-06-15", 2, 3, 0, "Never stored"));
+                    throw new IllegalStateException("Rolled back");
+                });
+            } catch (IllegalStateException e) {
+                rolledBack = true;
+            }
+            List<Encounter> batch = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                batch.add(new Encounter("2021-07-0" + (1 + i % 9), 3, 4, 0, "Batch"));
+            }
+            dataManager.addEncounters(batch);
+
+            boolean matches = matches(dataManager, analytics);
+            System.out.println("After the changes the reports " + (matches ? "still match" : "differ"));
+
+            if (rolledBack && matches) {
+                System.out.println("\n✓ Test PASSED: The columns followed every change!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The columns did not follow the changes!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: A failed nested transaction leaves the columns alone ===");
+            // In memory, where a nested transaction is rolled back on its own
+            AnalyticsDataManager nested = new AnalyticsDataManager(new InMemoryDataManager());
+            nested.transaction(outer -> {
+                outer.addPlanet(new Planet("Kept", "Calm", 1, true, true));
+                try {
+                    outer.transaction(inner -> {
+                        inner.addPlanet(new Planet("Rolled Back", "Calm", 2, true, true));
+                        throw new IllegalStateException("Rolled back");
+                    });
+                } catch (IllegalStateException e) {
+                    // Expected
+                }
+            });
+            long inColumns = nested.getAnalytics().distanceFromStar(null, null).getCount();
+            System.out.println(nested.getAllPlanets().size() + " planet stored, " + inColumns + " in the columns");
+
+            if (inColumns == 1 && matches(nested, nested.getAnalytics())) {
+                System.out.println("\n✓ Test PASSED: Only the outer transaction reached the columns!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The columns kept a rolled back change!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            data.close();
+            deleteFiles();
+        } catch (Exception e) {
+            System.out.println("Error cleaning up: " + e.getMessage());
+        }
+    }
+
+    private static void deleteFiles() throws Exception {
+        try (DirectoryStream<Path> deltas = Files.newDirectoryStream(Paths.get("."), FILE_PATH + ".*.delta")) {
+            for (Path delta : deltas) {
+                Files.delete(delta);
+            }
+        }
+        Files.deleteIfExists(Paths.get(FILE_PATH));
+        Files.deleteIfExists(Paths.get(FILE_PATH + ".lock"));
+    }
+
+    // Computes the reports from the entities and compares them with the columns
+    private static boolean matches(DataManager dataManager, Analytics analytics) {
+        List<Planet> planets = dataManager.getAllPlanets();
+        for (Boolean atmosphere : new Boolean[]{null, true, false}) {
+            for (Boolean life : new Boolean[]{null, true, false}) {
+                DoubleSummaryStatistics expected = planets.stream()
+                        .filter(planet -> atmosphere == null || planet.hasAtmosphere() == atmosphere)
+                        .filter(planet -> life == null || planet.hasLife() == life)
+                        .mapToDouble(Planet::getDistanceFromStarAU).summaryStatistics();
+                DoubleSummaryStatistics actual = analytics.distanceFromStar(atmosphere, life);
+                if (expected.getCount() != actual.getCount() || Math.abs(expected.getSum() - actual.getSum()) > 1e-6
+                        || expected.getMax() != actual.getMax()) {
+                    System.out.println("Distances differ for atmosphere " + atmosphere + ", life " + life);
+                    return false;
+                }
+            }
+        }
+
+        LocalDate from = LocalDate.of(2021, 1, 1);
+        LocalDate to = LocalDate.of(2021, 12, 31);
+        List<Encounter> encounters = dataManager.getAllEncounters();
+        SortedMap<Integer, SortedMap<YearMonth, Long>> expectedPerMonth = new TreeMap<>();
+        for (Encounter encounter : encounters) {
+            LocalDate date = encounter.getDate();
+            if (!date.isBefore(from) && !date.isAfter(to)) {
+                expectedPerMonth.computeIfAbsent(encounter.getPlanetId(), id -> new TreeMap<>())
+                        .merge(YearMonth.from(date), 1L, Long::sum);
+            }
+        }
+        if (!expectedPerMonth.equals(analytics.encountersPerPlanetPerMonth(from, to))) {
+            System.out.println("Encounters per planet per month differ");
+            return false;
+        }
+
+        Map<String, Long> expectedSpecies = encounters.stream()
+                .collect(Collectors.groupingBy(encounter -> dataManager.getAlien(encounter.getAlienId()).getSpecies(),
+                        Collectors.counting()));
+        Map<String, Long> actualSpecies = analytics.topSpeciesByEncounters(Integer.MAX_VALUE).stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        if (!expectedSpecies.equals(actualSpecies)) {
+            System.out.println("Species counts differ: " + expectedSpecies + " " + actualSpecies);
+            return false;
+        }
+        return true;
+    }
+}
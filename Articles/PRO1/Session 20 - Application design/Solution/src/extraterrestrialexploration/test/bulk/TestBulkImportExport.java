@@ -0,0 +1,168 @@
+package extraterrestrialexploration.test.bulk;
+
+import extraterrestrialexploration.bulk.BulkEntity;
+import extraterrestrialexploration.bulk.BulkExporter;
+import extraterrestrialexploration.bulk.BulkFormat;
+import extraterrestrialexploration.bulk.BulkImporter;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import extraterrestrialexploration.persistence.InMemoryDataManager;
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class TestBulkImportExport {
+    private static final int PLANETS = 20000;
+    private static final int ENCOUNTERS = 50000;
+    private static final String[] FILES = {
+            "bulk.bin", "bulk-copy.bin", "bulk-planets.csv", "bulk-encounters.ndjson",
+            "bulk-invalid.csv", "bulk-export.csv", "bulk-export.ndjson"
+    };
+
+    public static void main(String[] args) {
+        DataManager dataManager;
+
+        try {
+            System.out.println("=== Setup: Writing catalogs of " + PLANETS + " planets and " + ENCOUNTERS + " encounters ===");
+            for (String file : FILES) {
+                Files.deleteIfExists(Paths.get(file));
+            }
+            dataManager = new FileDataManager("bulk.bin");
+
+            // Columns in a different order than exported, quoted fields and a missing climate
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get("bulk-planets.csv")))) {
+                out.println("name,distanceFromStarAU,hasAtmosphere,hasLife,climateDescription");
+                out.println("\"Quoted, \"\"Planet\"\"\",0.5,true,false,\"Two\nlines\"");
+                out.println("No Climate,0.7,false,false,");
+                for (int i = 2; i < PLANETS; i++) {
+                    out.println("Catalog Planet " + i + "," + i * 0.01 + "," + (i % 2 == 0) + ",false,Climate " + i);
+                }
+            }
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get("bulk-encounters.ndjson")))) {
+                for (int i = 0; i < ENCOUNTERS; i++) {
+                    out.println("{\"date\": \"2024-03-14\", \"planetId\": " + (i % PLANETS + 1)
+                            + ", \"description\": \"Encounter \\\"" + i + "\\\"\"}");
+                }
+            }
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get("bulk-invalid.csv")))) {
+                out.println("name,distanceFromStarAU,hasAtmosphere,hasLife,climateDescription");
+                out.println("Valid Planet,1.0,true,false,Fine");
+                out.println("Far Planet,very far,true,false,Fine");
+                out.println(",1.0,true,false,No name");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Importing, exporting and importing again ===");
+            BulkImporter importer = new BulkImporter(dataManager);
+            long start = System.nanoTime();
+            BulkImporter.Result planets = importer.importFile(BulkEntity.PLANETS, Paths.get("bulk-planets.csv"));
+            BulkImporter.Result encounters = importer.importFile(BulkEntity.ENCOUNTERS, Paths.get("bulk-encounters.ndjson"));
+            System.out.println("Planets: " + planets + ", encounters: " + encounters + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+
+            boolean rejected = false;
+            try {
+                importer.importFile(BulkEntity.PLANETS, Paths.get("bulk-invalid.csv"));
+            } catch (IllegalArgumentException e) {
+                rejected = true;
+                System.out.println("Rejected: " + e.getMessage());
+            }
+            boolean nothingAdded = dataManager.getAllPlanets().size() == PLANETS;
+            BulkImporter.Result skipped = new BulkImporter(dataManager).skipInvalid(true)
+                    .importFile(BulkEntity.PLANETS, Paths.get("bulk-invalid.csv"));
+            System.out.println("Skipping invalid records: " + skipped);
+
+            Planet quoted = dataManager.getPlanet(1);
+            Planet noClimate = dataManager.getPlanet(2);
+            Encounter encounter = dataManager.getEncounter(3);
+
+            BulkExporter exporter = new BulkExporter(dataManager);
+            long exportedPlanets = exporter.exportFile(BulkEntity.PLANETS, Paths.get("bulk-export.csv"));
+            long exportedEncounters = exporter.exportFile(BulkEntity.ENCOUNTERS, Paths.get("bulk-export.ndjson"));
+            DataManager copy = new FileDataManager("bulk-copy.bin");
+            BulkImporter copyImporter = new BulkImporter(copy);
+            copyImporter.importFile(BulkEntity.PLANETS, Paths.get("bulk-export.csv"));
+            copyImporter.importFile(BulkEntity.ENCOUNTERS, Paths.get("bulk-export.ndjson"));
+            boolean copied = same(dataManager.getAllPlanets(), copy.getAllPlanets())
+                    && copy.getAllEncounters().size() == ENCOUNTERS
+                    && copy.getEncounter(3).getDescriptionOfTheEncounter().equals(encounter.getDescriptionOfTheEncounter())
+                    && copy.getEncounter(3).getPlanetId() == encounter.getPlanetId();
+            System.out.println("Exported " + exportedPlanets + " planets and " + exportedEncounters + " encounters");
+
+            if (planets.getImported() == PLANETS
+                    && encounters.getImported() == ENCOUNTERS
+                    && quoted.getName().equals("Quoted, \"Planet\"")
+                    && quoted.getClimateDescription().equals("Two\nlines")
+                    && noClimate.getClimateDescription() == null
+                    && encounter.getDescriptionOfTheEncounter().equals("Encounter \"2\"")
+                    && encounter.getOnPlanet().getId() == 3
+                    && rejected && nothingAdded
+                    && skipped.getImported() == 1 && skipped.getSkipped() == 2 && skipped.getErrors().size() == 2
+                    && copied) {
+                System.out.println("\n✓ Test PASSED: Catalogs were imported, validated and exported without changes!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Bulk import or export lost or changed records!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Records with and without ids in one file ===");
+            DataManager mixed = new InMemoryDataManager();
+            String csv = "id,name,climateDescription,distanceFromStarAU,hasAtmosphere,hasLife\n"
+                    + "1,A,Given id,1.0,true,false\n"
+                    + ",B,No id,2.0,true,false\n"
+                    + "3,C,Given id,3.0,true,false\n"
+                    + ",D,No id,4.0,true,false\n";
+            BulkImporter.Result result = new BulkImporter(mixed).importFrom(BulkEntity.PLANETS,
+                    new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), BulkFormat.CSV);
+            Planet b = mixed.getAllPlanets().get(1);
+            Planet d = mixed.getAllPlanets().get(3);
+            System.out.println("Imported " + result + ": " + mixed.getAllPlanets());
+
+            if (result.getImported() == 4
+                    && mixed.getPlanet(1).getName().equals("A") && mixed.getPlanet(3).getName().equals("C")
+                    && b.getName().equals("B") && b.getId() > 3
+                    && d.getName().equals("D") && d.getId() > 3 && d.getId() != b.getId()) {
+                System.out.println("\n✓ Test PASSED: Records without an id were numbered after the file's own ids!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Records without an id clashed with the file's own ids!");
+            }
+            for (String file : FILES) {
+                Files.deleteIfExists(Paths.get(file));
+                Files.deleteIfExists(Paths.get(file + ".lock"));
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean same(List<Planet> expected, List<Planet> actual) {
+        if (expected.size() != actual.size()) {
+            return false;
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            Planet a = expected.get(i);
+            Planet b = actual.get(i);
+            if (a.getId() != b.getId() || !a.getName().equals(b.getName())
+                    || !String.valueOf(a.getClimateDescription()).equals(String.valueOf(b.getClimateDescription()))
+                    || a.getDistanceFromStarAU() != b.getDistanceFromStarAU()
+                    || a.hasAtmosphere() != b.hasAtmosphere() || a.hasLife() != b.hasLife()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,119 @@
+package extraterrestrialexploration.test.http;
+
+import extraterrestrialexploration.persistence.ConcurrentDataManager;
+import extraterrestrialexploration.presentation.http.ApiServer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for the HTTP service: keeps a number of requests in flight at all times for a while and reports
+// the requests per second and latency percentiles. Nine in ten requests read a planet, one in ten updates one.
+// Run with: java extraterrestrialexploration.test.http.BenchmarkApiServer [concurrency] [seconds] [url]
+//   concurrency  requests in flight at once, default 200
+//   seconds      how long to run, default 10
+//   url          a running server to test, e.g. http://localhost:8080; by default one is started in this JVM
+//                on benchmark-api.bin, writing changes in groups every 20 ms
+public class BenchmarkApiServer {
+    private static final int PLANETS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        ApiServer server = null;
+        ConcurrentDataManager dataManager = null;
+        String base;
+        if (args.length > 2) {
+            base = args[2];
+        } else {
+            Files.deleteIfExists(Paths.get("benchmark-api.bin"));
+            dataManager = new ConcurrentDataManager("benchmark-api.bin", Duration.ofMillis(20), 10_000);
+            server = new ApiServer(dataManager, 0);
+            server.start();
+            base = "http://localhost:" + server.getPort();
+            System.out.println("Started server on " + base + (server.usesVirtualThreads() ? " with virtual threads" : " with a thread pool"));
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        int[] ids = new int[PLANETS];
+        for (int i = 0; i < PLANETS; i++) {
+            HttpResponse<String> created = client.send(post(base, i), HttpResponse.BodyHandlers.ofString());
+            String body = created.body();
+            ids[i] = Integer.parseInt(body.substring(body.indexOf("\"id\":") + 5, body.indexOf(',')));
+        }
+
+        System.out.println("Running " + concurrency + " concurrent requests for " + seconds + " s against " + base);
+        Semaphore inFlight = new Semaphore(concurrency);
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            int id = ids[ThreadLocalRandom.current().nextInt(PLANETS)];
+            HttpRequest request = ThreadLocalRandom.current().nextInt(10) == 0 ? put(base, id) : get(base, id);
+            long requestStart = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+                if (failure != null || response.statusCode() >= 400) {
+                    errors.incrementAndGet();
+                }
+                latencies.add(System.nanoTime() - requestStart);
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(concurrency);
+        double elapsed = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("%d requests in %.1f s: %.0f requests per second, %d errors%n",
+                sorted.length, elapsed, sorted.length / elapsed, errors.get());
+        System.out.printf("Latency ms: p50 %.2f, p90 %.2f, p99 %.2f, max %.2f%n",
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 100));
+        System.out.println("Server metrics: " + client.send(HttpRequest.newBuilder(URI.create(base + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+
+        if (server != null) {
+            server.close();
+            dataManager.close();
+            Files.deleteIfExists(Paths.get("benchmark-api.bin"));
+            Files.deleteIfExists(Paths.get("benchmark-api.bin.lock"));
+        }
+    }
+
+    private static HttpRequest get(String base, int id) {
+        return HttpRequest.newBuilder(URI.create(base + "/planets/" + id)).build();
+    }
+
+    private static HttpRequest post(String base, int i) {
+        return HttpRequest.newBuilder(URI.create(base + "/planets"))
+                .POST(HttpRequest.BodyPublishers.ofString(planetJson(0, i)))
+                .build();
+    }
+
+    private static HttpRequest put(String base, int id) {
+        return HttpRequest.newBuilder(URI.create(base + "/planets/" + id))
+                .PUT(HttpRequest.BodyPublishers.ofString(planetJson(id, ThreadLocalRandom.current().nextInt(1000))))
+                .build();
+    }
+
+    private static String planetJson(int id, int variant) {
+        return "{" + (id == 0 ? "" : "\"id\":" + id + ",") + "\"name\":\"Load Planet\",\"climateDescription\":\"Variant "
+                + variant + "\",\"distanceFromStarAU\":" + variant + ",\"hasAtmosphere\":true,\"hasLife\":false}";
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+}
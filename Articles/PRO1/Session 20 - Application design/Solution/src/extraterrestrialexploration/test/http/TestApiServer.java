@@ -0,0 +1,116 @@
+package extraterrestrialexploration.test.http;
+
+import extraterrestrialexploration.persistence.ConcurrentDataManager;
+import extraterrestrialexploration.presentation.http.ApiServer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class TestApiServer {
+    private static final String FILE_PATH = "api-test.bin";
+    private static final int PARALLEL_REQUESTS = 500;
+    private static final Pattern ID = Pattern.compile("\"id\":(\\d+)");
+
+    private static HttpClient client = HttpClient.newHttpClient();
+    private static String base;
+
+    public static void main(String[] args) {
+        ConcurrentDataManager dataManager;
+        ApiServer server;
+
+        try {
+            System.out.println("=== Setup: Starting the server ===");
+            Files.deleteIfExists(Paths.get(FILE_PATH));
+            dataManager = new ConcurrentDataManager(FILE_PATH);
+            server = new ApiServer(dataManager, 0);
+            server.start();
+            base = "http://localhost:" + server.getPort();
+            System.out.println("Listening on " + base + (server.usesVirtualThreads() ? " with virtual threads" : ""));
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: CRUD over HTTP ===");
+            HttpResponse<String> created = send("POST", "/planets",
+                    "{\"name\":\"Http Planet\",\"climateDescription\":\"Networked\",\"distanceFromStarAU\":1.2,\"hasAtmosphere\":true,\"hasLife\":false}");
+            int planetId = id(created.body());
+            HttpResponse<String> updated = send("PUT", "/planets/" + planetId,
+                    "{\"name\":\"Http Planet\",\"climateDescription\":\"Updated\",\"distanceFromStarAU\":1.2,\"hasAtmosphere\":true,\"hasLife\":true}");
+            HttpResponse<String> fetched = send("GET", "/planets/" + planetId, null);
+            HttpResponse<String> alien = send("POST", "/aliens", "{\"name\":\"Http Alien\",\"species\":\"Packet\",\"physicalDescription\":\"Small\"}");
+            HttpResponse<String> encounter = send("POST", "/encounters", "{\"date\":\"2024-03-14\",\"alienId\":" + id(alien.body())
+                    + ",\"planetId\":" + planetId + ",\"description\":\"Handshake\"}");
+            HttpResponse<String> onPlanet = send("GET", "/encounters?planetId=" + planetId, null);
+            HttpResponse<String> missingPlanet = send("POST", "/encounters", "{\"date\":\"2024-03-14\",\"planetId\":999999}");
+            HttpResponse<String> invalid = send("POST", "/planets", "{\"name\":\"No Distance\"");
+            HttpResponse<String> withId = send("POST", "/planets",
+                    "{\"id\":2147483647,\"name\":\"Last Id\",\"distanceFromStarAU\":1,\"hasAtmosphere\":false,\"hasLife\":false}");
+
+            // Many clients at once
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < PARALLEL_REQUESTS; i++) {
+                responses.add(client.sendAsync(request("POST", "/planets",
+                        "{\"name\":\"Parallel " + i + "\",\"distanceFromStarAU\":" + i + ",\"hasAtmosphere\":false,\"hasLife\":false}"),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            Set<Integer> parallelIds = new HashSet<>();
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                if (response.join().statusCode() == 201) {
+                    parallelIds.add(id(response.join().body()));
+                }
+            }
+
+            HttpResponse<String> page = send("GET", "/planets?after=" + planetId + "&limit=10", null);
+            HttpResponse<String> deleted = send("DELETE", "/planets/" + planetId, null);
+            HttpResponse<String> gone = send("GET", "/planets/" + planetId, null);
+            HttpResponse<String> metrics = send("GET", "/metrics", null);
+            server.close();
+            dataManager.close();
+            System.out.println("Metrics: " + metrics.body());
+
+            if (created.statusCode() == 201 && updated.statusCode() == 200
+                    && fetched.body().contains("\"climateDescription\":\"Updated\"") && fetched.body().contains("\"hasLife\":true")
+                    && encounter.statusCode() == 201 && onPlanet.body().contains("Handshake")
+                    && missingPlanet.statusCode() == 400 && invalid.statusCode() == 400 && withId.statusCode() == 400
+                    && parallelIds.size() == PARALLEL_REQUESTS
+                    && page.statusCode() == 200 && page.body().split("\"id\"").length == 11
+                    && deleted.statusCode() == 204 && gone.statusCode() == 404
+                    && metrics.body().contains("\"planets\":{\"requests\":")) {
+                System.out.println("\n✓ Test PASSED: The server handled CRUD requests and " + PARALLEL_REQUESTS + " parallel clients!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The server answered requests wrongly!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static HttpResponse<String> send(String method, String path, String body) throws Exception {
+        return client.send(request(method, path, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest request(String method, String path, String body) {
+        return HttpRequest.newBuilder(URI.create(base + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .header("Content-Type", "application/json")
+                .build();
+    }
+
+    private static int id(String json) {
+        Matcher matcher = ID.matcher(json);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+}
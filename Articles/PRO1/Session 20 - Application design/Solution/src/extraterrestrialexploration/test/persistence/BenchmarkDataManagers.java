@@ -0,0 +1,237 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+// Benchmarks the DataManager operations of every implementation on data sets of different sizes.
+// Run with: java extraterrestrialexploration.test.persistence.BenchmarkDataManagers [sizes] [implementations] [csv file]
+//   sizes            comma separated, default 10,1000,100000,1000000
+//   implementations  comma separated, default File,Caching,Concurrent,Log,Snapshot,CopyOnWrite,InMemory,OffHeap,Mapped,Partitioned
+//   csv file         also writes the results there, to compare later runs against
+//
+// Each operation is warmed up first and then timed one call at a time, until MAX_OPERATIONS calls were
+// made or TIME_BUDGET_NANOS has passed. Reported are the calls per second, latency percentiles and the bytes
+// the calling thread allocated per call (work done on background threads is not included).
+// The operations use planets; the other entity types go through the same code in every implementation.
+public class BenchmarkDataManagers {
+    private static final int WARMUP_OPERATIONS = 100;
+    private static final int MIN_OPERATIONS = 5;
+    private static final int MAX_OPERATIONS = 2000;
+    private static final long TIME_BUDGET_NANOS = 1_000_000_000L;
+
+    private static final String[] BENCHMARK_FILES = {
+            "benchmark.bin", "benchmark.bin.lock", "benchmark.log", "benchmark.log.compact",
+            "benchmark-planets.dat", "benchmark-planets.str"
+    };
+    // The encounter partitions of the Partitioned implementation
+    private static final String BENCHMARK_PARTITIONS = "benchmark.bin.encounters";
+
+    private static final Map<String, Supplier<DataManager>> IMPLEMENTATIONS = new LinkedHashMap<>();
+
+    static {
+        IMPLEMENTATIONS.put("File", () -> new FileDataManager("benchmark.bin"));
+        IMPLEMENTATIONS.put("Caching", () -> new CachingDataManager("benchmark.bin"));
+        IMPLEMENTATIONS.put("Concurrent", () -> new ConcurrentDataManager("benchmark.bin"));
+        IMPLEMENTATIONS.put("Log", () -> new LogDataManager("benchmark.log"));
+        IMPLEMENTATIONS.put("Snapshot", () -> new SnapshotDataManager("benchmark.bin"));
+        IMPLEMENTATIONS.put("CopyOnWrite", () -> new CopyOnWriteDataManager("benchmark.bin"));
+        IMPLEMENTATIONS.put("InMemory", InMemoryDataManager::new);
+        IMPLEMENTATIONS.put("OffHeap", OffHeapDataManager::new);
+        IMPLEMENTATIONS.put("Mapped", () -> new MappedDataManager("benchmark.bin", "benchmark-planets.dat", "benchmark-planets.str"));
+        IMPLEMENTATIONS.put("Partitioned", () -> new PartitionedDataManager("benchmark.bin"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = Arrays.stream((args.length > 0 ? args[0] : "10,1000,100000,1000000").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+        String[] names = args.length > 1 ? args[1].split(",") : IMPLEMENTATIONS.keySet().toArray(new String[0]);
+        List<String> csv = new ArrayList<>();
+        csv.add("implementation,size,operation,operations,ops_per_second,p50_us,p90_us,p99_us,max_us,bytes_per_op");
+
+        System.out.printf("%-11s %8s %-7s %6s %12s %10s %10s %10s %10s %12s%n",
+                "Manager", "Size", "Op", "Calls", "Ops/s", "p50 us", "p90 us", "p99 us", "max us", "Bytes/op");
+        for (String name : names) {
+            Supplier<DataManager> implementation = IMPLEMENTATIONS.get(name);
+            if (implementation == null) {
+                System.out.println("Unknown implementation " + name + ", choose from " + IMPLEMENTATIONS.keySet());
+                continue;
+            }
+            for (int size : sizes) {
+                for (Result result : run(implementation, size)) {
+                    result.print(name, size);
+                    csv.add(result.csv(name, size));
+                }
+            }
+        }
+
+        if (args.length > 2) {
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(args[2])))) {
+                csv.forEach(out::println);
+            }
+            System.out.println("Results written to " + args[2]);
+        }
+    }
+
+    private static List<Result> run(Supplier<DataManager> implementation, int size) throws IOException {
+        deleteBenchmarkFiles();
+        System.gc();
+        DataManager dataManager = implementation.get();
+        try {
+            List<Planet> planets = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                planets.add(new Planet("Benchmark Planet " + i, "Benchmark Climate", i, i % 2 == 0, false));
+            }
+            dataManager.addPlanets(planets);
+
+            Random random = new Random(42);
+            Deque<Integer> added = new ArrayDeque<>();
+            int[] updates = new int[1];
+            List<Result> results = new ArrayList<>();
+            results.add(measure("get", () -> {
+                dataManager.getPlanet(planets.get(random.nextInt(size)).getId());
+                return true;
+            }));
+            results.add(measure("update", () -> {
+                Planet planet = planets.get(random.nextInt(size));
+                planet.setClimateDescription("Updated " + updates[0]++);
+                dataManager.updatePlanet(planet);
+                return true;
+            }));
+            results.add(measure("getAll", () -> {
+                dataManager.getAllPlanets();
+                return true;
+            }));
+            results.add(measure("add", () -> {
+                Planet planet = new Planet("Added Planet", "Added Climate", 1.0, false, false);
+                dataManager.addPlanet(planet);
+                added.push(planet.getId());
+                return true;
+            }));
+            // Deletes the planets added above, so each size ends where it started
+            results.add(measure("delete", () -> {
+                if (added.isEmpty()) {
+                    return false;
+                }
+                dataManager.deletePlanet(added.pop());
+                return true;
+            }));
+            return results;
+        } finally {
+            if (dataManager instanceof Closeable) {
+                ((Closeable) dataManager).close();
+            }
+            deleteBenchmarkFiles();
+        }
+    }
+
+    // The operation returns false when it has nothing left to do
+    private static Result measure(String operation, BooleanSupplier call) {
+        long warmupEnd = System.nanoTime() + TIME_BUDGET_NANOS / 4;
+        for (int i = 0; i < WARMUP_OPERATIONS && System.nanoTime() < warmupEnd; i++) {
+            if (!call.getAsBoolean()) {
+                break;
+            }
+        }
+
+        long[] latencies = new long[MAX_OPERATIONS];
+        int count = 0;
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        while (count < MAX_OPERATIONS && (count < MIN_OPERATIONS || System.nanoTime() - start < TIME_BUDGET_NANOS)) {
+            long callStart = System.nanoTime();
+            if (!call.getAsBoolean()) {
+                break;
+            }
+            latencies[count++] = System.nanoTime() - callStart;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = allocatedBytes() - allocatedBefore;
+        return new Result(operation, Arrays.copyOf(latencies, count), elapsed, allocatedBefore < 0 ? -1 : allocated);
+    }
+
+    // Bytes allocated by this thread so far, or -1 if the JVM cannot tell
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static void deleteBenchmarkFiles() throws IOException {
+        for (String file : BENCHMARK_FILES) {
+            Files.deleteIfExists(Paths.get(file));
+        }
+        try (DirectoryStream<Path> deltas = Files.newDirectoryStream(Paths.get("."), "benchmark.bin.*.delta")) {
+            for (Path delta : deltas) {
+                Files.delete(delta);
+            }
+        }
+        Path partitions = Paths.get(BENCHMARK_PARTITIONS);
+        if (Files.isDirectory(partitions)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(partitions)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(partitions);
+        }
+    }
+
+    private static class Result {
+        private final String operation;
+        private final long[] latencies;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+
+        private Result(String operation, long[] latencies, long elapsedNanos, long allocatedBytes) {
+            this.operation = operation;
+            this.latencies = latencies;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            Arrays.sort(latencies);
+        }
+
+        private double opsPerSecond() {
+            return latencies.length / (elapsedNanos / 1_000_000_000.0);
+        }
+
+        private double percentileMicros(double percentile) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1000.0;
+        }
+
+        private long bytesPerOperation() {
+            return allocatedBytes < 0 || latencies.length == 0 ? -1 : allocatedBytes / latencies.length;
+        }
+
+        private void print(String implementation, int size) {
+            System.out.printf("%-11s %8d %-7s %6d %12.0f %10.1f %10.1f %10.1f %10.1f %12s%n",
+                    implementation, size, operation, latencies.length, opsPerSecond(),
+                    percentileMicros(50), percentileMicros(90), percentileMicros(99), percentileMicros(100),
+                    bytesPerOperation() < 0 ? "n/a" : String.valueOf(bytesPerOperation()));
+        }
+
+        private String csv(String implementation, int size) {
+            return String.format(Locale.ROOT, "%s,%d,%s,%d,%.0f,%.1f,%.1f,%.1f,%.1f,%d",
+                    implementation, size, operation, latencies.length, opsPerSecond(),
+                    percentileMicros(50), percentileMicros(90), percentileMicros(99), percentileMicros(100),
+                    bytesPerOperation());
+        }
+    }
+}
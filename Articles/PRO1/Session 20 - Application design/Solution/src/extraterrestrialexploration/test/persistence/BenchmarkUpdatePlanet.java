@@ -0,0 +1,101 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataContainer;
+import extraterrestrialexploration.persistence.FileDataManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the single-pass updatePlanet with the old delete-then-add update on the same data.
+// Run with: java extraterrestrialexploration.test.persistence.BenchmarkUpdatePlanet [planets] [updates]
+public class BenchmarkUpdatePlanet {
+    private static final String DATA_PATH = "benchmark-update.bin";
+
+    public static void main(String[] args) throws IOException {
+        int planetCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int updateCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        deleteFiles();
+        CountingFileDataManager dataManager = new CountingFileDataManager();
+        List<Planet> planets = new ArrayList<>();
+        for (int i = 0; i < planetCount; i++) {
+            planets.add(new Planet("Benchmark Planet " + i, "Benchmark Climate", i, true, false));
+        }
+        dataManager.addPlanets(planets);
+        System.out.println("Data file holds " + dataManager.getAllPlanets().size() + " planets, "
+                + new File(DATA_PATH).length() + " bytes");
+
+        // Warm up both paths before measuring
+        runSinglePass(dataManager, planets, updateCount / 10 + 1);
+        runDeleteThenAdd(dataManager, planets, updateCount / 10 + 1);
+
+        dataManager.resetCounters();
+        long start = System.nanoTime();
+        runDeleteThenAdd(dataManager, planets, updateCount);
+        report("Delete then add (old update)", dataManager, updateCount, System.nanoTime() - start);
+
+        dataManager.resetCounters();
+        start = System.nanoTime();
+        runSinglePass(dataManager, planets, updateCount);
+        report("Single-pass updatePlanet", dataManager, updateCount, System.nanoTime() - start);
+        deleteFiles();
+    }
+
+    private static void runSinglePass(CountingFileDataManager dataManager, List<Planet> planets, int updates) {
+        for (int i = 0; i < updates; i++) {
+            Planet planet = planets.get(i % planets.size());
+            planet.setClimateDescription("Updated " + i);
+            dataManager.updatePlanet(planet);
+        }
+    }
+
+    // What updatePlanet used to do: a delete with its own load and save, then a second load and save to add
+    private static void runDeleteThenAdd(CountingFileDataManager dataManager, List<Planet> planets, int updates) {
+        for (int i = 0; i < updates; i++) {
+            Planet planet = planets.get(i % planets.size());
+            planet.setClimateDescription("Updated " + i);
+            dataManager.deletePlanet(planet.getId());
+            dataManager.transaction(transaction -> transaction.addPlanet(planet));
+        }
+    }
+
+    private static void report(String name, CountingFileDataManager dataManager, int updates, long nanos) {
+        System.out.printf("%-30s %6d updates: %4d loads, %4d saves, %7.2f ms per update%n",
+                name, updates, dataManager.loads, dataManager.saves, nanos / 1_000_000.0 / updates);
+    }
+
+    private static void deleteFiles() throws IOException {
+        Files.deleteIfExists(Paths.get(DATA_PATH));
+        Files.deleteIfExists(Paths.get(DATA_PATH + ".lock"));
+    }
+
+    private static class CountingFileDataManager extends FileDataManager {
+        private int loads;
+        private int saves;
+
+        private CountingFileDataManager() {
+            super(DATA_PATH);
+        }
+
+        @Override
+        protected DataContainer loadData() {
+            loads++;
+            return super.loadData();
+        }
+
+        @Override
+        protected void saveData(DataContainer data) {
+            saves++;
+            super.saveData(data);
+        }
+
+        private void resetCounters() {
+            loads = 0;
+            saves = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.CachingDataManager;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCachingDataManager {
+    public static void main(String[] args) {
+        DataManager cachingManager;
+        int cachedPlanetId;
+
+        try {
+            System.out.println("=== Setup: Adding planet through the cache ===");
+            cachingManager = new CachingDataManager();
+            Planet planet = new Planet("Cached Planet", "Cached Climate", 1.2, true, false);
+            cachingManager.addPlanet(planet);
+            cachedPlanetId = planet.getId();
+            System.out.println("Cached planet added with ID: " + cachedPlanetId);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Reading from the cache ===");
+            Planet first = cachingManager.getPlanet(cachedPlanetId);
+            first.setName("Unsaved edit");
+            Planet second = cachingManager.getPlanet(cachedPlanetId);
+            Planet inList = cachingManager.getAllPlanets().stream()
+                    .filter(planet -> planet.getId() == cachedPlanetId).findFirst().orElse(null);
+            if (second == null || second == first || !second.getName().equals("Cached Planet")
+                    || inList == null || !inList.getName().equals("Cached Planet")) {
+                System.out.println("\n✗ Test FAILED: A change to a read planet reached the cache without a save!");
+                return;
+            }
+
+            System.out.println("\n=== Test: Picking up a change made outside the cache ===");
+            DataManager otherManager = new FileDataManager();
+            Planet external = new Planet("External Planet", "External Climate", 3.4, false, false);
+            otherManager.addPlanet(external);
+            System.out.println("External planet added with ID: " + external.getId());
+
+            Planet seenByCache = cachingManager.getPlanet(external.getId());
+            if (seenByCache != null && seenByCache.getName().equals("External Planet")) {
+                System.out.println("\n✓ Test PASSED: Cache kept its planets to itself and noticed the external change!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Cache did not notice the external change!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Reading from many threads while the cache is updated ===");
+            CachingDataManager sharedManager = new CachingDataManager();
+            Planet changing = new Planet("Changing Planet", "Climate 0", 1.0, true, false);
+            sharedManager.addPlanet(changing);
+            AtomicInteger failures = new AtomicInteger();
+            AtomicBoolean writing = new AtomicBoolean(true);
+            List<Thread> readers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                readers.add(new Thread(() -> {
+                    while (writing.get()) {
+                        try {
+                            Planet seen = sharedManager.getPlanet(changing.getId());
+                            if (seen == null || !seen.getClimateDescription().startsWith("Climate")
+                                    || sharedManager.getAllPlanets().isEmpty()) {
+                                failures.incrementAndGet();
+                            }
+                        } catch (RuntimeException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            readers.forEach(Thread::start);
+            for (int i = 1; i <= 200; i++) {
+                Planet update = new Planet("Changing Planet", "Climate " + i, 1.0, true, false);
+                update.setId(changing.getId());
+                sharedManager.updatePlanet(update);
+                sharedManager.addPlanet(new Planet("Extra Planet " + i, "Passing", i, false, false));
+            }
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            String lastClimate = sharedManager.getPlanet(changing.getId()).getClimateDescription();
+            System.out.println(failures.get() + " failed reads, last climate: " + lastClimate);
+
+            if (failures.get() == 0 && lastClimate.equals("Climate 200")) {
+                System.out.println("\n✓ Test PASSED: Readers never saw a container being changed!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Readers saw the cache in the middle of a change!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
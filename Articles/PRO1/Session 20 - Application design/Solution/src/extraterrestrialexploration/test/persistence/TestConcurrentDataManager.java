@@ -0,0 +1,101 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.ConcurrentDataManager;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestConcurrentDataManager {
+    private static final int THREADS = 32;
+    private static final int PLANETS_PER_THREAD = 200;
+
+    public static void main(String[] args) {
+        ConcurrentLinkedQueue<Planet> added = new ConcurrentLinkedQueue<>();
+        AtomicInteger failures = new AtomicInteger();
+        int planetsBefore;
+
+        try {
+            System.out.println("=== Setup: " + THREADS + " threads adding, updating and reading planets at once ===");
+            ConcurrentDataManager dataManager = new ConcurrentDataManager();
+            planetsBefore = dataManager.getAllPlanets().size();
+
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        start.await();
+                        for (int i = 0; i < PLANETS_PER_THREAD; i++) {
+                            Planet planet = new Planet("Thread " + thread + " Planet " + i, "Original", i, false, false);
+                            dataManager.addPlanet(planet);
+                            added.add(planet);
+
+                            Planet update = new Planet(planet.getName(), "Updated by thread " + thread, i, true, false);
+                            update.setId(planet.getId());
+                            dataManager.updatePlanet(update);
+
+                            if (dataManager.getPlanet(planet.getId()) == null) {
+                                failures.incrementAndGet();
+                            }
+                            if (i % 50 == 0) {
+                                dataManager.getAllPlanets();
+                            }
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                        System.out.println("Error in thread " + thread + ": " + e.getMessage());
+                    }
+                }));
+            }
+
+            long startTime = System.nanoTime();
+            threads.forEach(Thread::start);
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            dataManager.close();
+            System.out.println("Finished " + added.size() + " adds and updates in "
+                    + (System.nanoTime() - startTime) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Every change reached the file ===");
+            ConcurrentDataManager dataManager = new ConcurrentDataManager();
+            Set<Integer> ids = new HashSet<>();
+            int missing = 0;
+            for (Planet planet : added) {
+                ids.add(planet.getId());
+                Planet loaded = dataManager.getPlanet(planet.getId());
+                if (loaded == null || !loaded.getClimateDescription().startsWith("Updated") || !loaded.hasAtmosphere()) {
+                    missing++;
+                }
+            }
+            int planetsAfter = dataManager.getAllPlanets().size();
+            dataManager.close();
+            System.out.println(ids.size() + " distinct ids, " + missing + " lost changes, "
+                    + (planetsAfter - planetsBefore) + " new planets in the file");
+
+            if (failures.get() == 0
+                    && ids.size() == THREADS * PLANETS_PER_THREAD
+                    && missing == 0
+                    && planetsAfter - planetsBefore == THREADS * PLANETS_PER_THREAD) {
+                System.out.println("\n✓ Test PASSED: No adds or updates were lost under concurrent use!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Concurrent changes were lost!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
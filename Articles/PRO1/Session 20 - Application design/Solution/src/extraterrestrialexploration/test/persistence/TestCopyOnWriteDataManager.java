@@ -0,0 +1,238 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.CopyOnWriteDataManager;
+import extraterrestrialexploration.persistence.DataManager;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public class TestCopyOnWriteDataManager {
+    private static final String FILE_PATH = "cow-data.bin";
+    private static final int PLANETS = 100_000;
+    private static final int READERS = 3;
+    private static final int TRANSACTIONS = 200;
+
+    public static void main(String[] args) {
+        CopyOnWriteDataManager dataManager;
+        List<Planet> planets = new ArrayList<>();
+
+        try {
+            System.out.println("=== Setup: " + PLANETS + " planets behind immutable versions ===");
+            deleteFiles();
+            dataManager = new CopyOnWriteDataManager(FILE_PATH);
+            for (int i = 0; i < PLANETS; i++) {
+                planets.add(new Planet("Version Planet " + i, "Shared", i, false, false));
+            }
+            dataManager.addPlanets(planets);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Reads keep their point in time and cannot change the stored data ===");
+            long start = System.nanoTime();
+            List<Planet> before = dataManager.getAllPlanets();
+            long getAllNanos = System.nanoTime() - start;
+            DataManager snapshot = dataManager.snapshot();
+
+            Planet first = planets.get(0);
+            first.setName("Renamed");
+            dataManager.updatePlanet(first);
+            boolean readOnly;
+            try {
+                before.add(first);
+                readOnly = false;
+            } catch (UnsupportedOperationException e) {
+                readOnly = true;
+            }
+            Planet returned = dataManager.getPlanet(planets.get(1).getId());
+            returned.setName("Changed without update");
+            before.get(1).setName("Changed in a list");
+            boolean storedUnchanged = dataManager.getPlanet(returned.getId()).getName().equals("Version Planet 1")
+                    && dataManager.getAllPlanets().get(1).getName().equals("Version Planet 1");
+            // The list hands out one copy per element, so it finds its own elements again
+            boolean listBehaves = before.get(2) == before.get(2) && before.indexOf(before.get(2)) == 2
+                    && before.contains(before.get(3)) && before.get(1).getName().equals("Changed in a list");
+            System.out.printf("getAllPlanets of %d planets took %.1f us, the list before the update shows \"%s\", now \"%s\"%n",
+                    before.size(), getAllNanos / 1000.0, before.get(0).getName(), dataManager.getAllPlanets().get(0).getName());
+
+            if (before.get(0).getName().equals("Version Planet 0")
+                    && snapshot.getPlanet(first.getId()).getName().equals("Version Planet 0")
+                    && dataManager.getPlanet(first.getId()).getName().equals("Renamed")
+                    && storedUnchanged && listBehaves
+                    && readOnly) {
+                System.out.println("\n✓ Test PASSED: Readers kept their version while the data changed!");
+            } else {
+                System.out.println("\n✗ Test FAILED: A read changed under its reader!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Readers see a transaction completely or not at all ===");
+            AtomicBoolean writing = new AtomicBoolean(true);
+            AtomicLong reads = new AtomicLong();
+            AtomicLong torn = new AtomicLong();
+            List<Thread> readers = new ArrayList<>();
+            for (int r = 0; r < READERS; r++) {
+                readers.add(new Thread(() -> {
+                    while (writing.get()) {
+                        List<Planet> version = dataManager.getAllPlanets();
+                        if (!version.get(0).getClimateDescription().equals(version.get(1).getClimateDescription())) {
+                            torn.incrementAndGet();
+                        }
+                        reads.incrementAndGet();
+                    }
+                }));
+            }
+            readers.forEach(Thread::start);
+            Planet a = planets.get(0);
+            Planet b = planets.get(1);
+            for (int i = 0; i < TRANSACTIONS; i++) {
+                String round = "Round " + i;
+                dataManager.transaction(transaction -> {
+                    a.setClimateDescription(round);
+                    transaction.updatePlanet(a);
+                    b.setClimateDescription(round);
+                    transaction.updatePlanet(b);
+                });
+            }
+            writing.set(false);
+            for (Thread reader : readers) {
+                reader.join();
+            }
+            System.out.println(reads.get() + " reads during " + TRANSACTIONS + " transactions, " + torn.get() + " saw half of one");
+
+            if (torn.get() == 0 && reads.get() > 0
+                    && dataManager.getPlanet(b.getId()).getClimateDescription().equals("Round " + (TRANSACTIONS - 1))) {
+                System.out.println("\n✓ Test PASSED: Every read saw whole transactions!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Readers saw half-applied transactions!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: References are looked up in the reader's own version ===");
+            Planet planet = new Planet("Old", "Referenced", 1.0, false, false);
+            dataManager.addPlanet(planet);
+            Alien alien = new Alien("Referenced Alien", "Grey", "Small");
+            dataManager.addAlien(alien);
+            Explorer explorer = new Explorer("Referenced Explorer", planet);
+            dataManager.addExplorer(explorer);
+            Encounter encounter = new Encounter(LocalDate.of(2024, 3, 14), alien, planet, explorer, "Seen");
+            dataManager.addEncounter(encounter);
+            DataManager snapshot = dataManager.snapshot();
+            planet.setName("New");
+            dataManager.updatePlanet(planet);
+            String snapshotName = snapshot.getEncounter(encounter.getId()).getOnPlanet().getName();
+            String latestName = dataManager.getEncounter(encounter.getId()).getOnPlanet().getName();
+
+            String[] inTransaction = new String[1];
+            dataManager.transaction(transaction -> {
+                Planet added = new Planet("Added In Transaction", "Referenced", 2.0, false, false);
+                transaction.addPlanet(added);
+                Explorer moved = transaction.getExplorer(explorer.getId());
+                moved.setCurrentPlanet(added);
+                transaction.updateExplorer(moved);
+                Planet current = transaction.getExplorer(explorer.getId()).getCurrentPlanet();
+                inTransaction[0] = current != null ? current.getName() : null;
+            });
+            System.out.println("Snapshot sees \"" + snapshotName + "\", latest \"" + latestName
+                    + "\", inside the transaction \"" + inTransaction[0] + "\"");
+
+            if (snapshotName.equals("Old") && latestName.equals("New")
+                    && "Added In Transaction".equals(inTransaction[0])) {
+                System.out.println("\n✓ Test PASSED: References matched the version they were read from!");
+            } else {
+                System.out.println("\n✗ Test FAILED: A reference was looked up in another version!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Random changes match a plain map and survive a restart ===");
+            TreeMap<Integer, String> expected = new TreeMap<>();
+            dataManager.getAllPlanets().forEach(planet -> expected.put(planet.getId(), planet.getName()));
+            Random random = new Random(3);
+            for (int i = 0; i < 5000; i++) {
+                if (random.nextBoolean()) {
+                    Planet planet = new Planet("Random " + i, "Changed", i, true, false);
+                    dataManager.addPlanet(planet);
+                    expected.put(planet.getId(), planet.getName());
+                } else {
+                    int id = 1 + random.nextInt(PLANETS + i);
+                    dataManager.deletePlanet(id);
+                    expected.remove(id);
+                }
+            }
+            try {
+                dataManager.transaction(transaction -> {
+                    transaction.deletePlanet(expected.firstKey());
+                    throw new IllegalStateException("Rolled back");
+                });
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+            int afterId = PLANETS / 2;
+            boolean pagesMatch = ids(dataManager.getPlanetsAfter(afterId, 100))
+                    .equals(new ArrayList<>(expected.tailMap(afterId, false).keySet()).subList(0, 100))
+                    && ids(dataManager.getPlanets(10, 5)).equals(new ArrayList<>(expected.keySet()).subList(10, 15));
+            boolean matches = names(dataManager).equals(new ArrayList<>(expected.values()));
+            dataManager.close();
+
+            CopyOnWriteDataManager reopened = new CopyOnWriteDataManager(FILE_PATH);
+            boolean reopenedMatches = names(reopened).equals(new ArrayList<>(expected.values()));
+            reopened.close();
+            System.out.println(expected.size() + " planets, pages match: " + pagesMatch + ", all match: " + matches
+                    + ", after a restart: " + reopenedMatches);
+
+            if (pagesMatch && matches && reopenedMatches) {
+                System.out.println("\n✓ Test PASSED: The versions hold exactly the stored planets!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The versions differ from the stored planets!");
+            }
+            deleteFiles();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static List<Integer> ids(List<Planet> planets) {
+        return planets.stream().map(Planet::getId).collect(Collectors.toList());
+    }
+
+    private static List<String> names(DataManager dataManager) {
+        return dataManager.getAllPlanets().stream().map(Planet::getName).collect(Collectors.toList());
+    }
+
+    private static void deleteFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("."), FILE_PATH + "*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}
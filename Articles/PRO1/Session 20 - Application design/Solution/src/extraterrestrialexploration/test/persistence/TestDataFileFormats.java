@@ -0,0 +1,201 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataContainer;
+import extraterrestrialexploration.persistence.FileDataManager;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+
+public class TestDataFileFormats {
+    private static final String SERIALIZED_PATH = "format-serialized.bin";
+    private static final String VERSION_1_PATH = "format-v1.bin";
+    private static final int MAGIC = 0x45545844;
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("=== Setup: Writing data files in the older formats ===");
+            deleteFiles();
+            writeSerializedFile();
+            writeVersion1File();
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: A Java serialized data file is loaded and converted ===");
+            boolean serializedBefore = startsWithSerializationMagic(SERIALIZED_PATH);
+            FileDataManager dataManager = new FileDataManager(SERIALIZED_PATH);
+            Planet planet = dataManager.getPlanet(2);
+            Explorer explorer = dataManager.getExplorer(1);
+            Encounter encounter = dataManager.getEncounter(1);
+            boolean convertedOnLoad = !startsWithSerializationMagic(SERIALIZED_PATH);
+
+            Planet added = new Planet("Added After Conversion", "New", 4.0, false, false);
+            dataManager.addPlanet(added);
+            System.out.println("Planet 2: " + planet + ", explorer on " + explorer.getCurrentPlanet().getName()
+                    + ", encounter on " + encounter.getDate() + ", next planet id " + added.getId());
+
+            if (serializedBefore && convertedOnLoad
+                    && planet != null && planet.getName().equals("Serialized Planet 2")
+                    && dataManager.getPlanet(1) == null
+                    && explorer.getCurrentPlanet().getId() == 2
+                    && encounter.getDate().equals(LocalDate.of(2024, 3, 14))
+                    && encounter.getAlienEncountered().getName().equals("Serialized Alien")
+                    && added.getId() == 11) {
+                System.out.println("\n✓ Test PASSED: The serialized file kept its ids, dates and id sequences!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The serialized file did not load as it was written!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: A version 1 file with text dates is loaded and saved as version 2 ===");
+            FileDataManager dataManager = new FileDataManager(VERSION_1_PATH);
+            LocalDate isoDate = dataManager.getEncounter(3).getDate();
+            LocalDate typedDate = dataManager.getEncounter(5).getDate();
+            LocalDate unreadableDate = dataManager.getEncounter(6).getDate();
+            Explorer explorer = dataManager.getExplorer(4);
+            Encounter encounter = dataManager.getEncounter(3);
+
+            Alien added = new Alien("Added After Loading", "New", "Unknown");
+            dataManager.addAlien(added);
+            int versionAfterSave = readVersion(VERSION_1_PATH);
+            Encounter reloaded = new FileDataManager(VERSION_1_PATH).getEncounter(5);
+            System.out.println("Dates: " + isoDate + ", " + typedDate + ", " + unreadableDate
+                    + "; next alien id " + added.getId() + ", version after saving " + versionAfterSave);
+
+            if (isoDate.equals(LocalDate.of(2021, 7, 1))
+                    && typedDate.equals(LocalDate.of(2024, 3, 14))
+                    && unreadableDate == null
+                    && explorer.getCurrentPlanet().getName().equals("Version 1 Planet")
+                    && encounter.getByExplorer().getId() == 4
+                    && encounter.getDescriptionOfTheEncounter().equals("Lights over the ridge")
+                    && added.getId() == 9
+                    && versionAfterSave == 2
+                    && reloaded.getDate().equals(LocalDate.of(2024, 3, 14))) {
+                System.out.println("\n✓ Test PASSED: The version 1 file kept its ids, dates and id sequences!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The version 1 file did not load as it was written!");
+            }
+            deleteFiles();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // The format data.bin had before the binary codec: a DataContainer written with ObjectOutputStream.
+    // Planet 1 and planet ids up to 10 were used and deleted, so the sequence is ahead of the stored ids
+    private static void writeSerializedFile() throws IOException {
+        DataContainer data = new DataContainer();
+        data.reservePlanetIds(10);
+        data.reserveAlienIds(1);
+        data.reserveExplorerIds(1);
+        data.reserveEncounterIds(1);
+        Planet planet = new Planet("Serialized Planet 2", "Old", 2.0, true, true);
+        planet.setId(2);
+        data.addPlanet(planet);
+        Alien alien = new Alien("Serialized Alien", "Grey", "Tall");
+        alien.setId(1);
+        data.addAlien(alien);
+        Explorer explorer = new Explorer("Serialized Explorer", 2);
+        explorer.setId(1);
+        data.addExplorer(explorer);
+        Encounter encounter = new Encounter(LocalDate.of(2024, 3, 14), 1, 2, 1, "Seen from orbit");
+        encounter.setId(1);
+        data.addEncounter(encounter);
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(SERIALIZED_PATH))) {
+            out.writeObject(data);
+        }
+    }
+
+    // Version 1 of the binary format, written field by field: the header, then planets, aliens, explorers
+    // and encounters, with the encounter dates as the text that was typed
+    private static void writeVersion1File() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(VERSION_1_PATH))) {
+            out.writeInt(MAGIC);
+            out.writeInt(1);
+            out.writeInt(3);
+            out.writeInt(8);
+            out.writeInt(4);
+            out.writeInt(6);
+
+            out.writeInt(1);
+            out.writeInt(3);
+            writeString(out, "Version 1 Planet");
+            writeString(out, "Dusty");
+            out.writeDouble(3.5);
+            out.writeBoolean(false);
+            out.writeBoolean(true);
+
+            out.writeInt(1);
+            out.writeInt(8);
+            writeString(out, "Version 1 Alien");
+            writeString(out, "Insectoid");
+            writeString(out, null);
+
+            out.writeInt(1);
+            out.writeInt(4);
+            writeString(out, "Version 1 Explorer");
+            out.writeInt(3);
+
+            out.writeInt(3);
+            writeEncounter(out, 3, "2021-07-01", "Lights over the ridge");
+            writeEncounter(out, 5, "14/03/2024", "Tracks in the dust");
+            writeEncounter(out, 6, "someday", "Never dated");
+        }
+    }
+
+    private static void writeEncounter(DataOutputStream out, int id, String date, String description) throws IOException {
+        out.writeInt(id);
+        writeString(out, date);
+        out.writeInt(8);
+        out.writeInt(3);
+        out.writeInt(4);
+        writeString(out, description);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static boolean startsWithSerializationMagic(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            return in.readUnsignedShort() == 0xACED;
+        }
+    }
+
+    private static int readVersion(String path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(path))) {
+            return in.readInt() == MAGIC ? in.readInt() : -1;
+        }
+    }
+
+    private static void deleteFiles() throws IOException {
+        for (String path : new String[]{SERIALIZED_PATH, VERSION_1_PATH}) {
+            Files.deleteIfExists(Paths.get(path));
+            Files.deleteIfExists(Paths.get(path + ".lock"));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.DataManagerFactory;
+import java.io.Closeable;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+public class TestDataManagerFactory {
+    private static final String[] FACTORY_FILES = {
+            "factory.bin", "factory.bin.lock", "factory.log", "factory.log.compact",
+            "factory-planets.dat", "factory-planets.str"
+    };
+
+    public static void main(String[] args) {
+        List<String> engines;
+
+        try {
+            System.out.println("=== Setup: Finding the storage engines ===");
+            engines = DataManagerFactory.getEngineNames();
+            System.out.println("Engines: " + engines);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Every engine stores and finds a planet ===");
+            int working = 0;
+            for (String engine : engines) {
+                deleteFactoryFiles();
+                String location = engine.equals("log") ? "factory.log" : "factory.bin";
+                DataManager dataManager = DataManagerFactory.create(engine, location);
+                Planet planet = new Planet("Factory Planet", "Configured", 1.5, true, false);
+                dataManager.addPlanet(planet);
+                Planet loaded = dataManager.getPlanet(planet.getId());
+                if (dataManager instanceof Closeable) {
+                    ((Closeable) dataManager).close();
+                }
+                System.out.println(engine + ": " + dataManager.getClass().getSimpleName()
+                        + (loaded != null && loaded.getName().equals("Factory Planet") ? " works" : " lost the planet"));
+                if (loaded != null && loaded.getName().equals("Factory Planet")) {
+                    working++;
+                }
+            }
+            deleteFactoryFiles();
+
+            boolean unknownRejected = false;
+            try {
+                DataManagerFactory.create("no-such-engine", null);
+            } catch (IllegalArgumentException e) {
+                unknownRejected = true;
+            }
+
+            System.setProperty(DataManagerFactory.ENGINE_PROPERTY, "in-memory");
+            boolean sharedOnce = DataManagerFactory.getShared() == DataManagerFactory.getShared();
+
+            if (engines.containsAll(List.of("file", "cached", "concurrent", "log", "snapshot", "copy-on-write", "partitioned", "mmap", "in-memory", "off-heap"))
+                    && working == engines.size()
+                    && unknownRejected
+                    && sharedOnce) {
+                System.out.println("\n✓ Test PASSED: The factory created every engine and shares one instance!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The factory did not create the configured engines!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void deleteFactoryFiles() throws Exception {
+        for (String file : FACTORY_FILES) {
+            Files.deleteIfExists(Paths.get(file));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+
+public class TestEncounterReferences {
+    public static void main(String[] args) {
+        Planet planet;
+        Explorer explorer;
+        Encounter encounter;
+
+        try {
+            System.out.println("=== Setup: Adding an encounter and renaming its planet ===");
+            DataManager dataManager = new FileDataManager();
+            planet = new Planet("Referenced Planet", "Foggy", 3.0, true, false);
+            Alien alien = new Alien("Referenced Alien", "Grey", "Tall and quiet");
+            dataManager.addPlanet(planet);
+            dataManager.addAlien(alien);
+            explorer = new Explorer("Referencing Explorer", planet);
+            dataManager.addExplorer(explorer);
+            encounter = new Encounter("2024-05-01", alien, planet, explorer, "Exchanged greetings");
+            dataManager.addEncounter(encounter);
+
+            planet.setName("Renamed Planet");
+            dataManager.updatePlanet(planet);
+            System.out.println("Added " + encounter);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: References resolve by id to the current entities ===");
+            DataManager dataManager = new FileDataManager();
+            boolean[] sameObjects = new boolean[1];
+            dataManager.transaction(transaction -> {
+                Encounter loaded = transaction.getEncounter(encounter.getId());
+                Explorer loadedExplorer = transaction.getExplorer(explorer.getId());
+                sameObjects[0] = loaded.getOnPlanet() == transaction.getPlanet(planet.getId())
+                        && loadedExplorer.getCurrentPlanet() == loaded.getOnPlanet()
+                        && loaded.getByExplorer() == loadedExplorer;
+            });
+
+            Encounter loaded = dataManager.getEncounter(encounter.getId());
+            System.out.println("Loaded encounter: " + loaded);
+
+            if (loaded != null
+                    && loaded.getPlanetId() == planet.getId()
+                    && loaded.getOnPlanet().getName().equals("Renamed Planet")
+                    && loaded.getAlienEncountered().getName().equals("Referenced Alien")
+                    && loaded.getByExplorer().getCurrentPlanet().getName().equals("Renamed Planet")
+                    && sameObjects[0]) {
+                System.out.println("\n✓ Test PASSED: References followed the planet update and resolved to shared objects!");
+            } else {
+                System.out.println("\n✗ Test FAILED: References were stale or not shared!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataContainer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// The entity tables of a DataContainer find entities through an open addressing index that shifts entries
+// back on removal, grow as entities are added and squeeze out the gaps left by removals
+public class TestEntityTable {
+    // The index of a table holding 17 to 32 entities has 64 slots
+    private static final int SLOTS = 64;
+
+    public static void main(String[] args) {
+        List<Integer> sameSlot;
+        List<Integer> lastSlots;
+
+        try {
+            System.out.println("=== Setup: Finding ids that share a slot in the index ===");
+            sameSlot = idsWithHomeSlot(5, 6);
+            // Chains that start at the end of the index wrap around to its first slots
+            lastSlots = new ArrayList<>(idsWithHomeSlot(SLOTS - 1, 4));
+            lastSlots.addAll(idsWithHomeSlot(0, 2));
+            System.out.println("Ids in slot 5: " + sameSlot + ", ids at the end and start: " + lastSlots);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Removing from colliding chains keeps every other id reachable ===");
+            int lost = 0;
+            List<Integer> chain = new ArrayList<>(sameSlot);
+            chain.addAll(lastSlots);
+            // Remove each id of the chains in turn from a fresh table holding all of them and some others
+            for (int removed : chain) {
+                DataContainer data = new DataContainer();
+                for (int id = 1; id <= 12; id++) {
+                    data.addPlanet(planet(1000 + id));
+                }
+                for (int id : chain) {
+                    data.addPlanet(planet(id));
+                }
+                data.removePlanet(removed);
+                for (int id : chain) {
+                    boolean found = data.getPlanet(id) != null;
+                    if (found == (id == removed)) {
+                        lost++;
+                    }
+                }
+            }
+            System.out.println(chain.size() + " removals, " + lost + " ids lost or left behind");
+
+            if (lost == 0) {
+                System.out.println("\n✓ Test PASSED: Backward shifting kept the colliding ids reachable!");
+            } else {
+                System.out.println("\n✗ Test FAILED: An id in a colliding chain could no longer be found!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Growing and compacting keep every entity in insertion order ===");
+            DataContainer data = new DataContainer();
+            Map<Integer, Planet> expected = new LinkedHashMap<>();
+            Random random = new Random(42);
+            int mismatches = 0;
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 2000; i++) {
+                    int id = random.nextInt(50_000) + 1;
+                    if (!expected.containsKey(id)) {
+                        Planet planet = planet(id);
+                        data.addPlanet(planet);
+                        expected.put(id, planet);
+                    }
+                }
+                // Removing most of them leaves more gaps than entities, which makes the table compact
+                List<Integer> ids = new ArrayList<>(expected.keySet());
+                for (int id : ids) {
+                    if (random.nextInt(10) < 8) {
+                        data.removePlanet(id);
+                        expected.remove(id);
+                    }
+                }
+                for (int id : ids) {
+                    if ((data.getPlanet(id) != null) != expected.containsKey(id)) {
+                        mismatches++;
+                    }
+                }
+                if (!data.getPlanets().equals(new ArrayList<>(expected.values()))) {
+                    mismatches++;
+                }
+            }
+            System.out.println(expected.size() + " planets left after 20 rounds, " + mismatches + " mismatches");
+
+            if (mismatches == 0 && data.getPlanets().size() == expected.size()) {
+                System.out.println("\n✓ Test PASSED: The table matched a plain map through growing and compacting!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The table lost entities or their order!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // The same hash the index uses to find the home slot of an id
+    private static List<Integer> idsWithHomeSlot(int slot, int count) {
+        List<Integer> ids = new ArrayList<>();
+        for (int id = 1; ids.size() < count; id++) {
+            int hash = id * 0x9E3779B9;
+            if (((hash ^ (hash >>> 16)) & (SLOTS - 1)) == slot) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static Planet planet(int id) {
+        Planet planet = new Planet("Table Planet " + id, "Indexed", id, false, false);
+        planet.setId(id);
+        return planet;
+    }
+}
@@ -0,0 +1,70 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import java.time.LocalDate;
+import java.util.List;
+
+public class TestFindEncounters {
+    public static void main(String[] args) {
+        Planet dusty = new Planet("Dusty Planet", "Dry", 1.2, true, false);
+        Planet icy = new Planet("Icy Planet", "Frozen", 6.0, false, false);
+        Alien alien = new Alien("Query Alien", "Blue", "Small and curious");
+        Explorer explorer = new Explorer("Query Explorer", dusty);
+        Encounter march = new Encounter("2024-03-10", alien, dusty, explorer, "First contact");
+        Encounter lateMarch = new Encounter("31/03/2024", alien, icy, explorer, "Second contact");
+        Encounter april = new Encounter("2024-04-02", alien, dusty, explorer, "Third contact");
+
+        try {
+            System.out.println("=== Setup: Adding encounters on two planets ===");
+            DataManager dataManager = new FileDataManager();
+            dataManager.addPlanet(dusty);
+            dataManager.addPlanet(icy);
+            dataManager.addAlien(alien);
+            dataManager.addExplorer(explorer);
+            dataManager.addEncounter(march);
+            dataManager.addEncounter(lateMarch);
+            dataManager.addEncounter(april);
+
+            // Moving an encounter to another planet must move it in the index too
+            april.setOnPlanet(icy);
+            dataManager.updateEncounter(april);
+            System.out.println("Added encounters " + march.getId() + ", " + lateMarch.getId() + " and " + april.getId());
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Querying encounters by planet, explorer, alien and date ===");
+            DataManager dataManager = new FileDataManager();
+            List<Encounter> onDusty = dataManager.findEncountersByPlanet(dusty.getId());
+            List<Encounter> onIcy = dataManager.findEncountersByPlanet(icy.getId());
+            List<Encounter> inMarch = dataManager.findEncountersBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+            System.out.println("On " + dusty.getName() + ": " + onDusty);
+            System.out.println("On " + icy.getName() + ": " + onIcy);
+            System.out.println("In March 2024: " + inMarch);
+
+            dataManager.deleteEncounter(march.getId());
+
+            if (onDusty.size() == 1 && onDusty.get(0).getId() == march.getId()
+                    && onIcy.size() == 2 && onIcy.get(1).getId() == april.getId()
+                    && inMarch.size() == 2 && inMarch.get(0).getId() == march.getId()
+                    && inMarch.get(1).getId() == lateMarch.getId()
+                    && dataManager.findEncountersByExplorer(explorer.getId()).size() == 2
+                    && dataManager.findEncountersByAlien(alien.getId()).size() == 2
+                    && dataManager.findEncountersByPlanet(dusty.getId()).isEmpty()) {
+                System.out.println("\n✓ Test PASSED: Encounter queries returned the indexed encounters!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Encounter queries returned unexpected encounters!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.ConcurrentDataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class TestGroupCommit {
+    private static final String FILE_PATH = "group-commit.bin";
+    private static final String FAILING_FILE_PATH = "failed-commit.bin";
+    private static final int THREADS = 8;
+    private static final int PLANETS_PER_THREAD = 500;
+
+    public static void main(String[] args) {
+        ConcurrentLinkedQueue<CompletableFuture<Void>> commits = new ConcurrentLinkedQueue<>();
+        long writes;
+
+        try {
+            System.out.println("=== Setup: Adding planets with one write per 50 ms or 1000 changes ===");
+            Files.deleteIfExists(Paths.get(FILE_PATH));
+
+            // For comparison: every change rewrites the file before it returns
+            FileDataManager fileDataManager = new FileDataManager(FILE_PATH);
+            long start = System.nanoTime();
+            for (int i = 0; i < 200; i++) {
+                fileDataManager.addPlanet(new Planet("Single Write Planet " + i, "Plain", i, false, false));
+            }
+            report("One write per change", 200, System.nanoTime() - start);
+            Files.deleteIfExists(Paths.get(FILE_PATH));
+
+            ConcurrentDataManager dataManager = new ConcurrentDataManager(FILE_PATH, Duration.ofMillis(50), 1000);
+            start = System.nanoTime();
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < PLANETS_PER_THREAD; i++) {
+                        Planet planet = new Planet("Thread " + thread + " Planet " + i, "Grouped", i, true, false);
+                        commits.add(dataManager.addPlanetAsync(planet));
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            CompletableFuture.allOf(commits.toArray(new CompletableFuture<?>[0])).join();
+            report("Group commit", THREADS * PLANETS_PER_THREAD, System.nanoTime() - start);
+            writes = dataManager.getWriteCount();
+            dataManager.close();
+            System.out.println("Data file written " + writes + " times for " + commits.size() + " changes");
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Every acknowledged change is in the file ===");
+            FileDataManager dataManager = new FileDataManager(FILE_PATH);
+            int planets = dataManager.getAllPlanets().size();
+            System.out.println(planets + " planets in the file");
+
+            if (planets == THREADS * PLANETS_PER_THREAD && writes < commits.size() / 10) {
+                System.out.println("\n✓ Test PASSED: Changes were committed in groups and none were lost!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Group commit lost changes or wrote too often!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: A write that fails is reported to the caller and saved later ===");
+            Path path = Paths.get(FAILING_FILE_PATH);
+            Files.deleteIfExists(path);
+            ConcurrentDataManager dataManager = new ConcurrentDataManager(FAILING_FILE_PATH);
+            dataManager.addPlanet(new Planet("Saved Planet", "Calm", 1, true, false));
+
+            // A directory that is not empty cannot be replaced by the new file, so the next write fails
+            Files.delete(path);
+            Files.createDirectory(path);
+            Path blocker = Files.createFile(path.resolve("blocker"));
+            boolean failureReported;
+            try {
+                dataManager.addPlanet(new Planet("Unsaved Planet", "Stormy", 2, true, false));
+                failureReported = false;
+            } catch (RuntimeException e) {
+                System.out.println("Add failed as expected: " + e.getMessage());
+                failureReported = true;
+            }
+
+            Files.delete(blocker);
+            Files.delete(path);
+            dataManager.addPlanet(new Planet("Retried Planet", "Calm", 3, true, false));
+            dataManager.close();
+            int planets = new FileDataManager(FAILING_FILE_PATH).getAllPlanets().size();
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(Paths.get(FAILING_FILE_PATH + ".lock"));
+            System.out.println("Failure reported: " + failureReported + ", " + planets + " planets in the file");
+
+            if (failureReported && planets == 3) {
+                System.out.println("\n✓ Test PASSED: The failed write was reported and its change saved by the next one!");
+            } else {
+                System.out.println("\n✗ Test FAILED: A failed write was reported as saved or its change was lost!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void report(String name, int changes, long nanos) {
+        System.out.printf("%-22s %5d changes in %6d ms, %8.0f changes per second%n",
+                name, changes, nanos / 1_000_000, changes / (nanos / 1_000_000_000.0));
+    }
+}
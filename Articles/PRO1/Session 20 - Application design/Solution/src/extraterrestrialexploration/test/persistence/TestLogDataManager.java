@@ -0,0 +1,108 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.LogDataManager;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestLogDataManager {
+    private static final String COMPACTION_LOG = "compaction.log";
+
+    public static void main(String[] args) {
+        int keptId;
+        int deletedId;
+
+        try {
+            System.out.println("=== Setup: Writing planets to the log ===");
+            LogDataManager dataManager = new LogDataManager();
+            Planet kept = new Planet("Logged Planet", "Original Climate", 1.0, true, false);
+            Planet deleted = new Planet("Short-lived Planet", "Gone soon", 2.0, false, false);
+            dataManager.addPlanet(kept);
+            dataManager.addPlanet(deleted);
+            keptId = kept.getId();
+            deletedId = deleted.getId();
+
+            Planet updated = new Planet("Logged Planet", "Updated Climate", 1.0, true, true);
+            updated.setId(keptId);
+            dataManager.updatePlanet(updated);
+            dataManager.deletePlanet(deletedId);
+            dataManager.close();
+            System.out.println("Added, updated and deleted planets " + keptId + " and " + deletedId);
+
+            // Simulate a crash in the middle of writing a record
+            try (FileOutputStream out = new FileOutputStream("data.log", true)) {
+                out.write(new byte[]{0, 0, 0, 42, 1, 2, 3});
+            }
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Replaying the log ===");
+            LogDataManager dataManager = new LogDataManager();
+            Planet replayed = dataManager.getPlanet(keptId);
+            System.out.println("Replayed planet: " + replayed);
+
+            if (replayed != null
+                    && replayed.getClimateDescription().equals("Updated Climate")
+                    && dataManager.getPlanet(deletedId) == null) {
+                System.out.println("\n✓ Test PASSED: Log replay restored the latest state!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Log replay did not restore the latest state!");
+            }
+            dataManager.close();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Changes made while the log is compacted are kept ===");
+            LogDataManager dataManager = new LogDataManager(COMPACTION_LOG);
+            for (int i = 0; i < 20_000; i++) {
+                Planet planet = new Planet("Rewritten " + i, "First", i, false, false);
+                dataManager.addPlanet(planet);
+                planet.setClimateDescription("Second");
+                dataManager.updatePlanet(planet);
+            }
+
+            // The compactions run while planets keep being added
+            AtomicInteger compactions = new AtomicInteger();
+            Thread compactor = new Thread(() -> {
+                for (int i = 0; i < 5; i++) {
+                    dataManager.compact();
+                    compactions.incrementAndGet();
+                }
+            });
+            compactor.start();
+            int added = 0;
+            while (compactor.isAlive()) {
+                dataManager.addPlanet(new Planet("Added Meanwhile " + added, "New", added, true, false));
+                added++;
+            }
+            compactor.join();
+            dataManager.close();
+
+            LogDataManager reopened = new LogDataManager(COMPACTION_LOG);
+            int planets = reopened.getAllPlanets().size();
+            System.out.println(compactions.get() + " compactions, " + added + " planets added meanwhile, "
+                    + planets + " planets after replaying the compacted log");
+
+            if (compactions.get() == 5 && planets == 20_000 + added
+                    && reopened.getLastCompactionFailure() == null) {
+                System.out.println("\n✓ Test PASSED: The compacted log kept every change!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Changes were lost in the compaction!");
+            }
+            reopened.close();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            new File(COMPACTION_LOG).delete();
+            new File(COMPACTION_LOG + ".compact").delete();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.FileDataManager;
+import extraterrestrialexploration.persistence.MappedDataManager;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class TestMappedDataManager {
+    private static final String FILE_PATH = "mapped.bin";
+    private static final String[] FILES = {"mapped.bin", "mapped.bin.lock", "mapped-planets.dat", "mapped-planets.str"};
+
+    public static void main(String[] args) {
+        int keptId;
+        int deletedId;
+        int explorerId;
+
+        try {
+            System.out.println("=== Setup: Storing planets in the mapped store ===");
+            deleteFiles();
+            MappedDataManager dataManager = new MappedDataManager(FILE_PATH);
+            Planet kept = new Planet("Mapped Planet", "Original Climate", 1.5, true, false);
+            Planet deleted = new Planet("Unmapped Planet", "Gone soon", 2.5, false, false);
+            dataManager.addPlanet(kept);
+            dataManager.addPlanet(deleted);
+            keptId = kept.getId();
+            deletedId = deleted.getId();
+
+            kept.setClimateDescription("Updated Climate");
+            kept.setHasLife(true);
+            dataManager.updatePlanet(kept);
+            dataManager.deletePlanet(deletedId);
+
+            Explorer explorer = new Explorer("Mapped Explorer", kept);
+            dataManager.addExplorer(explorer);
+            explorerId = explorer.getId();
+            dataManager.close();
+            System.out.println("Stored planets " + keptId + " and " + deletedId + ", explorer " + explorerId);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Reopening the mapped store ===");
+            MappedDataManager dataManager = new MappedDataManager(FILE_PATH);
+            Planet reopened = dataManager.getPlanet(keptId);
+            Explorer explorer = dataManager.getExplorer(explorerId);
+            System.out.println("Reopened planet: " + reopened);
+            System.out.println("Reopened explorer: " + explorer);
+
+            boolean missingIdRejected = false;
+            try {
+                Planet missing = new Planet("Missing Planet", "Nowhere", 0, false, false);
+                missing.setId(deletedId);
+                dataManager.updatePlanet(missing);
+            } catch (IllegalArgumentException e) {
+                missingIdRejected = true;
+            }
+
+            if (reopened != null
+                    && reopened.getClimateDescription().equals("Updated Climate")
+                    && reopened.hasLife()
+                    && dataManager.getPlanet(deletedId) == null
+                    && explorer != null
+                    && explorer.getCurrentPlanet() != null
+                    && explorer.getCurrentPlanet().getId() == keptId
+                    && missingIdRejected) {
+                System.out.println("\n✓ Test PASSED: Mapped planets were updated in place and kept across restarts!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Mapped planets were not stored as expected!");
+            }
+            dataManager.close();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Planets already in the data file move into a new store ===");
+            deleteFiles();
+            FileDataManager fileDataManager = new FileDataManager(FILE_PATH);
+            Planet first = new Planet("Filed Planet", "Before the store", 1.0, true, false);
+            Planet removed = new Planet("Removed Planet", "Gone before the store", 2.0, false, false);
+            fileDataManager.addPlanet(first);
+            fileDataManager.addPlanet(removed);
+            fileDataManager.deletePlanet(removed.getId());
+            Explorer explorer = new Explorer("Filed Explorer", first);
+            fileDataManager.addExplorer(explorer);
+
+            MappedDataManager dataManager = new MappedDataManager(FILE_PATH);
+            Planet moved = dataManager.getPlanet(first.getId());
+            Planet added = new Planet("New Planet", "After the store", 3.0, false, false);
+            dataManager.addPlanet(added);
+            Explorer reopened = dataManager.getExplorer(explorer.getId());
+            dataManager.close();
+            int planetsLeftInFile = new FileDataManager(FILE_PATH).getAllPlanets().size();
+            boolean storeFiles = Files.exists(Paths.get("mapped-planets.dat")) && Files.exists(Paths.get("mapped-planets.str"));
+            deleteFiles();
+            System.out.println("Moved planet: " + moved + ", new planet id " + added.getId()
+                    + ", planets left in the data file: " + planetsLeftInFile);
+
+            if (moved != null && moved.getName().equals("Filed Planet")
+                    && added.getId() > removed.getId()
+                    && reopened != null && reopened.getCurrentPlanet() != null
+                    && reopened.getCurrentPlanet().getName().equals("Filed Planet")
+                    && planetsLeftInFile == 0 && storeFiles) {
+                System.out.println("\n✓ Test PASSED: The planets moved into the store with their ids!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The planets of the data file were not moved into the store!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void deleteFiles() throws IOException {
+        for (String file : FILES) {
+            Files.deleteIfExists(Paths.get(file));
+        }
+    }
+}
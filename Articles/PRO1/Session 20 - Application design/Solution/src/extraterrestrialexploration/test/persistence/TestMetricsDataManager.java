@@ -0,0 +1,143 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.FileDataManager;
+import extraterrestrialexploration.persistence.LatencyHistogram;
+import extraterrestrialexploration.persistence.MetricsDataManager;
+import extraterrestrialexploration.persistence.StorageStatistics;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import javax.management.ObjectName;
+
+public class TestMetricsDataManager {
+    private static final String FILE_PATH = "metrics-data.bin";
+    private static final int PLANETS = 200;
+
+    public static void main(String[] args) {
+        MetricsDataManager dataManager;
+        int failedUpdates = 0;
+
+        try {
+            System.out.println("=== Setup: Adding, reading and updating planets through a MetricsDataManager ===");
+            Files.deleteIfExists(Paths.get(FILE_PATH));
+            dataManager = new MetricsDataManager(new FileDataManager(FILE_PATH), "test");
+            dataManager.registerWithJmx();
+            for (int i = 0; i < PLANETS; i++) {
+                Planet planet = new Planet("Metrics Planet " + i, "Measured", i, i % 2 == 0, false);
+                dataManager.addPlanet(planet);
+                dataManager.getPlanet(planet.getId());
+            }
+            for (int i = 0; i < 3; i++) {
+                Planet missing = new Planet("Missing Planet", "Nowhere", 1, false, false);
+                missing.setId(-1 - i);
+                try {
+                    dataManager.updatePlanet(missing);
+                } catch (IllegalArgumentException e) {
+                    failedUpdates++;
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Calls, errors and latencies are counted per operation ===");
+            MetricsDataManager.Operation adds = dataManager.getOperation("addPlanet");
+            MetricsDataManager.Operation updates = dataManager.getOperation("updatePlanet");
+            System.out.printf("addPlanet: %d calls, p50 %.3f ms, p99 %.3f ms, p999 %.3f ms, max %.3f ms%n",
+                    adds.getCount(), adds.getP50Millis(), adds.getP99Millis(), adds.getP999Millis(), adds.getMaxMillis());
+            System.out.println("updatePlanet: " + updates.getCount() + " calls, " + updates.getErrors() + " errors");
+
+            if (adds.getCount() == PLANETS
+                    && dataManager.getOperation("getPlanet").getCount() == PLANETS
+                    && updates.getCount() == 3 && updates.getErrors() == 3 && failedUpdates == 3
+                    && adds.getErrors() == 0
+                    && adds.getP50Millis() > 0
+                    && adds.getP50Millis() <= adds.getP99Millis()
+                    && adds.getP99Millis() <= adds.getP999Millis()
+                    && adds.getP999Millis() <= adds.getMaxMillis()
+                    && dataManager.getOperation("deletePlanet") == null) {
+                System.out.println("\n✓ Test PASSED: Every call was counted with its latency!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Calls were not counted correctly!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Loads, saves and bytes of the data file are counted ===");
+            StorageStatistics storage = dataManager.getStorageStatistics();
+            long fileSize = Files.size(Paths.get(FILE_PATH));
+            System.out.println(storage.getSaves().getCount() + " saves wrote " + storage.getBytesWritten() + " bytes, "
+                    + storage.getLoads().getCount() + " loads read " + storage.getBytesRead() + " bytes, "
+                    + storage.getPlanetCount() + " planets, file is " + fileSize + " bytes");
+
+            if (storage.getSaves().getCount() >= PLANETS
+                    && storage.getLoads().getCount() > 0
+                    && storage.getBytesWritten() >= fileSize * (PLANETS / 2)
+                    && storage.getBytesRead() > 0
+                    && storage.getPlanetCount() == PLANETS) {
+                System.out.println("\n✓ Test PASSED: The data file's loads, saves and sizes were counted!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The data file's loads and saves were not counted!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: The numbers are published as text and through JMX ===");
+            String text = dataManager.toText();
+            ObjectName name = new ObjectName(
+                    "extraterrestrialexploration:type=DataManager,name=\"test\",operation=\"addPlanet\"");
+            long jmxCount = (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Count");
+            dataManager.close();
+            boolean unregistered = !ManagementFactory.getPlatformMBeanServer().isRegistered(name);
+            System.out.print(text);
+
+            if (text.contains("datamanager_operations_total{operation=\"addPlanet\"} " + PLANETS)
+                    && text.contains("datamanager_operation_errors_total{operation=\"updatePlanet\"} 3")
+                    && text.contains("datamanager_operation_seconds{operation=\"getPlanet\",quantile=\"0.99\"}")
+                    && text.contains("datamanager_entities{type=\"planets\"} " + PLANETS)
+                    && jmxCount == PLANETS
+                    && unregistered) {
+                System.out.println("\n✓ Test PASSED: The metrics were published!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The metrics were not published correctly!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Histogram percentiles are within 2% of the exact values ===");
+            LatencyHistogram histogram = new LatencyHistogram();
+            for (long nanos = 1; nanos <= 1_000_000; nanos++) {
+                histogram.record(nanos * 1000);
+            }
+            long p50 = histogram.getValueAtPercentile(50);
+            long p99 = histogram.getValueAtPercentile(99);
+            long p999 = histogram.getValueAtPercentile(99.9);
+            System.out.println("p50 " + p50 + " ns, p99 " + p99 + " ns, p999 " + p999 + " ns");
+
+            if (Math.abs(p50 - 500_000_000.0) / 500_000_000 < 0.02
+                    && Math.abs(p99 - 990_000_000.0) / 990_000_000 < 0.02
+                    && Math.abs(p999 - 999_000_000.0) / 999_000_000 < 0.02
+                    && histogram.getMaxNanos() == 1_000_000_000L) {
+                System.out.println("\n✓ Test PASSED: The histogram's percentiles are accurate!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The histogram's percentiles are off!");
+            }
+            Files.deleteIfExists(Paths.get(FILE_PATH));
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
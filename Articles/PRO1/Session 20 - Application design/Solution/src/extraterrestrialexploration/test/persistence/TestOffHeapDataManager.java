@@ -0,0 +1,157 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.OffHeapDataManager;
+import java.time.LocalDate;
+import java.util.List;
+
+public class TestOffHeapDataManager {
+    private static final int FIRST_BATCH = 200_000;
+    private static final int SECOND_BATCH = 800_000;
+    private static final LocalDate START = LocalDate.of(2020, 1, 1);
+
+    public static void main(String[] args) {
+        OffHeapDataManager dataManager;
+        Planet planet;
+        Alien alien;
+        Explorer explorer;
+
+        try {
+            System.out.println("=== Setup: Off-heap store with one planet, alien and explorer ===");
+            dataManager = new OffHeapDataManager();
+            planet = new Planet("Ærø Prime", "Windy", 1.2, true, false);
+            dataManager.addPlanet(planet);
+            alien = new Alien("Zorg", "Grey", "Tall");
+            dataManager.addAlien(alien);
+            explorer = new Explorer("Ripley", planet);
+            dataManager.addExplorer(explorer);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: The heap stays flat while encounters are added ===");
+            addEncounters(dataManager, 0, FIRST_BATCH, alien, planet, explorer);
+            long heapBefore = usedHeap();
+            long offHeapBefore = dataManager.getOffHeapBytes();
+            addEncounters(dataManager, FIRST_BATCH, SECOND_BATCH, alien, planet, explorer);
+            long heapAfter = usedHeap();
+            long offHeapAfter = dataManager.getOffHeapBytes();
+            System.out.printf("%d more encounters: heap %+.1f MB, off-heap %+.1f MB (%.1f MB in total)%n",
+                    SECOND_BATCH, (heapAfter - heapBefore) / 1e6, (offHeapAfter - offHeapBefore) / 1e6, offHeapAfter / 1e6);
+
+            if (heapAfter - heapBefore < 8_000_000 && offHeapAfter - offHeapBefore > 40_000_000) {
+                System.out.println("\n✓ Test PASSED: The encounters went off the heap!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The heap grew with the encounters!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Views read the stored records and keep their own changes ===");
+            Encounter view = dataManager.getEncounter(7);
+            Encounter other = dataManager.getEncounter(7);
+            boolean readsRecord = view.getDate().equals(START.plusDays(6))
+                    && view.getDescriptionOfTheEncounter().equals("Sighting 6 near Ærø Prime")
+                    && view.getAlienEncountered().getName().equals("Zorg")
+                    && view.getByExplorer().getCurrentPlanet().getName().equals("Ærø Prime");
+
+            other.setDescriptionOfTheEncounter("Changed");
+            boolean changeStaysOnView = view.getDescriptionOfTheEncounter().startsWith("Sighting 6");
+            dataManager.updateEncounter(other);
+            boolean updateShows = view.getDescriptionOfTheEncounter().equals("Changed");
+
+            String longText = "x".repeat(100_000);
+            other.setDescriptionOfTheEncounter(longText);
+            dataManager.updateEncounter(other);
+            boolean longTextStored = view.getDescriptionOfTheEncounter().equals(longText);
+            other.setDescriptionOfTheEncounter("Short again");
+            dataManager.updateEncounter(other);
+
+            List<Encounter> between = dataManager.findEncountersBetween(START.plusDays(10), START.plusDays(12));
+            List<Encounter> page = dataManager.getEncountersAfter(FIRST_BATCH + SECOND_BATCH - 2, 10);
+            int byAlien = dataManager.findEncountersByAlien(alien.getId()).size();
+
+            dataManager.deleteEncounter(7);
+            boolean deletedThrows;
+            try {
+                view.getDescriptionOfTheEncounter();
+                deletedThrows = false;
+            } catch (IllegalStateException e) {
+                deletedThrows = true;
+            }
+            System.out.println("Read: " + readsRecord + ", setter kept on view: " + changeStaysOnView
+                    + ", update shown: " + updateShows + ", long text: " + longTextStored
+                    + ", between: " + between.size() + ", page: " + page.size() + ", by alien: " + byAlien
+                    + ", deleted view throws: " + deletedThrows);
+
+            if (readsRecord && changeStaysOnView && updateShows && longTextStored
+                    && view.getId() == 7 && dataManager.getEncounter(7) == null
+                    && between.size() == 3 && between.get(0).getDate().equals(START.plusDays(10))
+                    && page.size() == 2 && byAlien == FIRST_BATCH + SECOND_BATCH && deletedThrows) {
+                System.out.println("\n✓ Test PASSED: The views follow the store!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The views do not match the store!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Freed string blocks are used again ===");
+            Planet stored = dataManager.getPlanet(planet.getId());
+            // Ids are never handed out twice, so every alien takes a new record; the rounds stay within the
+            // first 65536 records, which are allocated in one go
+            long before = 0;
+            for (int i = 0; i < 60_000; i++) {
+                stored.setClimateDescription("Storm number " + i);
+                dataManager.updatePlanet(stored);
+                Alien added = new Alien("Temporary " + i, "Passing", "Gone soon");
+                dataManager.addAlien(added);
+                dataManager.deleteAlien(added.getId());
+                // The first round may start a slab for a block size that was not used yet
+                if (i == 0) {
+                    before = dataManager.getOffHeapBytes();
+                }
+            }
+            long after = dataManager.getOffHeapBytes();
+            System.out.println("60000 climates replaced and 60000 aliens added and deleted, off-heap grew by "
+                    + (after - before) + " bytes");
+
+            if (after == before && dataManager.getPlanet(planet.getId()).getClimateDescription().equals("Storm number 59999")
+                    && dataManager.getAllAliens().size() == 1) {
+                System.out.println("\n✓ Test PASSED: Changing strings took no new memory!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Freed strings were not reused!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    // The encounters are created one at a time and dropped once added, so only the store keeps them
+    private static void addEncounters(OffHeapDataManager dataManager, int from, int count,
+                                      Alien alien, Planet planet, Explorer explorer) {
+        for (int i = from; i < from + count; i++) {
+            dataManager.addEncounter(new Encounter(START.plusDays(i), alien, planet, explorer,
+                    "Sighting " + i + " near Ærø Prime"));
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
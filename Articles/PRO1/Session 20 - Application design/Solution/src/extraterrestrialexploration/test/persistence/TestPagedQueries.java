@@ -0,0 +1,117 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import extraterrestrialexploration.persistence.MappedDataManager;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class TestPagedQueries {
+    private static final String FILE_PATH = "paged.bin";
+    private static final int PLANETS = 1000;
+    private static final int ENCOUNTERS = 5000;
+
+    public static void main(String[] args) {
+        DataManager dataManager;
+        MappedDataManager mappedDataManager;
+        int deletedId;
+
+        try {
+            System.out.println("=== Setup: Storing " + PLANETS + " planets and " + ENCOUNTERS + " encounters ===");
+            for (String file : new String[]{FILE_PATH, "paged-mapped.bin", "paged-planets.dat", "paged-planets.str"}) {
+                Files.deleteIfExists(Paths.get(file));
+            }
+            dataManager = new FileDataManager(FILE_PATH);
+            mappedDataManager = new MappedDataManager("paged-mapped.bin", "paged-planets.dat", "paged-planets.str");
+
+            List<Planet> planets = new ArrayList<>();
+            for (int i = 0; i < PLANETS; i++) {
+                planets.add(new Planet("Paged Planet " + i, "Climate " + i, i, i % 2 == 0, false));
+            }
+            dataManager.addPlanets(planets);
+            for (int i = 0; i < PLANETS; i++) {
+                mappedDataManager.addPlanet(new Planet("Mapped Planet " + i, "Climate " + i, i, false, false));
+            }
+
+            Alien alien = new Alien("Paged Alien", "Streamer", "Long");
+            dataManager.addAlien(alien);
+            Explorer explorer = new Explorer("Paged Explorer", planets.get(0));
+            dataManager.addExplorer(explorer);
+            List<Encounter> encounters = new ArrayList<>();
+            for (int i = 0; i < ENCOUNTERS; i++) {
+                encounters.add(new Encounter("2024-01-01", alien, planets.get(i % PLANETS), explorer, "Encounter " + i));
+            }
+            dataManager.addEncounters(encounters);
+
+            // A gap in the ids, which keyset pages must step over
+            deletedId = planets.get(PLANETS / 2).getId();
+            dataManager.deletePlanet(deletedId);
+            mappedDataManager.deletePlanet(deletedId);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Streaming and paging through the entities ===");
+            List<Integer> allIds = ids(dataManager.getAllPlanets());
+            List<Integer> streamedIds;
+            try (Stream<Planet> planets = dataManager.streamPlanets()) {
+                streamedIds = planets.map(Planet::getId).collect(Collectors.toList());
+            }
+            List<Integer> pageIds = ids(dataManager.getPlanets(100, 25));
+
+            long encountersOnFirstPlanet;
+            try (Stream<Encounter> encounters = dataManager.streamEncounters()) {
+                encountersOnFirstPlanet = encounters
+                        .filter(encounter -> encounter.getOnPlanet() != null && encounter.getOnPlanet().getName().equals("Paged Planet 0"))
+                        .count();
+            }
+
+            List<Integer> fileKeysetIds = keysetWalk(dataManager, 64);
+            List<Integer> mappedKeysetIds = keysetWalk(mappedDataManager, 64);
+            List<Integer> mappedIds = ids(mappedDataManager.getAllPlanets());
+            mappedDataManager.close();
+            System.out.println(streamedIds.size() + " planets streamed, " + fileKeysetIds.size() + " and "
+                    + mappedKeysetIds.size() + " found page by page, " + encountersOnFirstPlanet
+                    + " streamed encounters on the first planet");
+
+            if (streamedIds.equals(allIds)
+                    && pageIds.equals(allIds.subList(100, 125))
+                    && fileKeysetIds.equals(allIds)
+                    && mappedKeysetIds.equals(mappedIds)
+                    && mappedKeysetIds.size() == PLANETS - 1
+                    && !fileKeysetIds.contains(deletedId)
+                    && encountersOnFirstPlanet == ENCOUNTERS / PLANETS) {
+                System.out.println("\n✓ Test PASSED: Streams and pages returned every entity exactly once!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Streams or pages lost or repeated entities!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static List<Integer> keysetWalk(DataManager dataManager, int pageSize) {
+        List<Integer> ids = new ArrayList<>();
+        List<Planet> page = dataManager.getPlanetsAfter(0, pageSize);
+        while (!page.isEmpty()) {
+            ids.addAll(ids(page));
+            page = dataManager.getPlanetsAfter(ids.get(ids.size() - 1), pageSize);
+        }
+        return ids;
+    }
+
+    private static List<Integer> ids(List<Planet> planets) {
+        return planets.stream().map(Planet::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,207 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.persistence.PartitionedDataManager;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class TestPartitionedEncounters {
+    private static final String FILE_PATH = "partitioned-data.bin";
+    private static final Path PARTITIONS = Paths.get(FILE_PATH + ".encounters");
+    private static final int ENCOUNTERS = 120_000;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    public static void main(String[] args) {
+        PartitionedDataManager dataManager;
+
+        try {
+            System.out.println("=== Setup: An old data file with text dates, then " + ENCOUNTERS + " encounters over five years ===");
+            deleteFiles();
+            writeTextDateFile();
+            dataManager = new PartitionedDataManager(FILE_PATH);
+
+            Random random = new Random(5);
+            List<Encounter> encounters = new ArrayList<>();
+            for (int i = 0; i < ENCOUNTERS; i++) {
+                encounters.add(new Encounter(FIRST_DAY.plusDays(random.nextInt(5 * 365)), 1, 1 + random.nextInt(100), 0, "Seen"));
+            }
+            dataManager.addEncounters(encounters);
+            dataManager.compact();
+            dataManager.close();
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Dates are parsed when given, and old text dates are converted ===");
+            boolean typoRejected;
+            try {
+                new Encounter("2024-13-45", 0, 0, 0, "Mistyped");
+                typoRejected = false;
+            } catch (IllegalArgumentException e) {
+                typoRejected = true;
+            }
+            dataManager = new PartitionedDataManager(FILE_PATH);
+            Encounter iso = dataManager.getEncounter(1);
+            Encounter dayMonthYear = dataManager.getEncounter(2);
+            Encounter unreadable = dataManager.getEncounter(3);
+            int version = readVersion();
+            System.out.println("Converted: " + iso.getDate() + ", " + dayMonthYear.getDate() + ", " + unreadable.getDate()
+                    + ", data file version " + version + ", first new id " + dataManager.getEncounter(4).getId());
+
+            if (typoRejected
+                    && iso.getDate().equals(LocalDate.of(2019, 3, 14))
+                    && dayMonthYear.getDate().equals(LocalDate.of(2019, 4, 2))
+                    && unreadable.getDate() == null && unreadable.getDescriptionOfTheEncounter().equals("Kept")
+                    && version == 2
+                    && dataManager.getAllEncounters().size() == ENCOUNTERS + 3) {
+                System.out.println("\n✓ Test PASSED: Dates are typed and old files were converted!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Dates were not typed or converted correctly!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: A date range only reads the partitions of its months ===");
+            LocalDate from = LocalDate.of(2022, 6, 10);
+            LocalDate to = LocalDate.of(2022, 7, 20);
+            long readBefore = dataManager.getPartitionsRead();
+            long start = System.nanoTime();
+            List<Encounter> found = dataManager.findEncountersBetween(from, to);
+            long rangeTime = System.nanoTime() - start;
+            long partitionsRead = dataManager.getPartitionsRead() - readBefore;
+
+            start = System.nanoTime();
+            List<Encounter> expected = dataManager.getAllEncounters().stream()
+                    .filter(encounter -> encounter.getDate() != null
+                            && !encounter.getDate().isBefore(from) && !encounter.getDate().isAfter(to))
+                    .sorted(Comparator.comparing(Encounter::getDate).thenComparingInt(Encounter::getId))
+                    .collect(Collectors.toList());
+            long scanTime = System.nanoTime() - start;
+            System.out.printf("%d encounters from %d of %d partitions in %.1f ms, %.1f ms reading all of them%n",
+                    found.size(), partitionsRead, dataManager.getPartitionCount(), rangeTime / 1e6, scanTime / 1e6);
+
+            if (partitionsRead == 2 && !found.isEmpty() && ids(found).equals(ids(expected))) {
+                System.out.println("\n✓ Test PASSED: Only the months in the range were read!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The range query read too much or returned the wrong encounters!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Changes are logged, survive a restart and are compacted into the partitions ===");
+            Encounter moved = dataManager.getEncounter(10);
+            moved.setDate(LocalDate.of(2030, 1, 1));
+            dataManager.updateEncounter(moved);
+            dataManager.deleteEncounter(11);
+            try {
+                dataManager.transaction(batch -> {
+                    batch.deleteEncounter(12);
+                    throw new IllegalStateException("Rolled back");
+                });
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+            dataManager.close();
+
+            PartitionedDataManager reopened = new PartitionedDataManager(FILE_PATH);
+            boolean logged = reopened.findEncountersBetween(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 31)).size() == 1
+                    && reopened.getEncounter(11) == null && reopened.getEncounter(12) != null;
+            reopened.compact();
+            reopened.close();
+
+            reopened = new PartitionedDataManager(FILE_PATH);
+            boolean compacted = reopened.getEncounter(10).getDate().equals(LocalDate.of(2030, 1, 1))
+                    && reopened.getEncounter(11) == null
+                    && reopened.getAllEncounters().size() == ENCOUNTERS + 2
+                    && Files.size(PARTITIONS.resolve("changes.log")) < 100;
+            int partitions = reopened.getPartitionCount();
+            reopened.close();
+            System.out.println("After restart: " + logged + ", after compaction: " + compacted + ", " + partitions + " partitions");
+
+            if (logged && compacted) {
+                System.out.println("\n✓ Test PASSED: Changes were kept and compacted!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Changes were lost!");
+            }
+            deleteFiles();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static List<Integer> ids(List<Encounter> encounters) {
+        return encounters.stream().map(Encounter::getId).collect(Collectors.toList());
+    }
+
+    // A data file as version 1 wrote it, with the encounter dates as text
+    private static void writeTextDateFile() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(Paths.get(FILE_PATH)))) {
+            out.writeInt(0x45545844);
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(3);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(3);
+            writeTextDateEncounter(out, 1, "2019-03-14", "Written as an ISO date");
+            writeTextDateEncounter(out, 2, "2/4/2019", "Written as day/month/year");
+            writeTextDateEncounter(out, 3, "sometime in spring", "Kept");
+        }
+    }
+
+    private static void writeTextDateEncounter(DataOutputStream out, int id, String date, String description) throws IOException {
+        out.writeInt(id);
+        writeString(out, date);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(0);
+        writeString(out, description);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int readVersion() throws IOException {
+        byte[] header = Files.readAllBytes(Paths.get(FILE_PATH));
+        return ((header[4] & 0xFF) << 24) | ((header[5] & 0xFF) << 16) | ((header[6] & 0xFF) << 8) | (header[7] & 0xFF);
+    }
+
+    private static void deleteFiles() throws IOException {
+        if (Files.exists(PARTITIONS)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(PARTITIONS)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(PARTITIONS);
+        }
+        Files.deleteIfExists(Paths.get(FILE_PATH));
+        Files.deleteIfExists(Paths.get(FILE_PATH + ".lock"));
+    }
+}
@@ -0,0 +1,107 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+
+public class TestPlanetIds {
+    public static void main(String[] args) {
+        int deletedId = -1;
+
+        try {
+            System.out.println("=== Setup: Adding and deleting the newest planet ===");
+            DataManager dataManager = new FileDataManager();
+            Planet planet = new Planet("Deleted Planet", "Gone", 1.0, false, false);
+            dataManager.addPlanet(planet);
+            deletedId = planet.getId();
+            dataManager.deletePlanet(deletedId);
+            System.out.println("Planet added and deleted with ID: " + deletedId);
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Ids are not reused and can be reserved ===");
+            DataManager dataManager = new FileDataManager();
+
+            Planet next = new Planet("Next Planet", "New", 2.0, true, false);
+            dataManager.addPlanet(next);
+            System.out.println("Next planet got ID: " + next.getId());
+
+            int firstReserved = dataManager.reservePlanetIds(10);
+            System.out.println("Reserved IDs " + firstReserved + " to " + (firstReserved + 9));
+
+            Planet imported = new Planet("Imported Planet", "Reserved", 3.0, true, true);
+            imported.setId(firstReserved + 3);
+            dataManager.addPlanet(imported);
+
+            // Ids that were never reserved would move the sequence, up to where no id is left, so they are replaced
+            int replaced = 0;
+            for (int unreserved : new int[]{Integer.MAX_VALUE, firstReserved + 10, -5}) {
+                Planet chosen = new Planet("Chosen Id", "Replaced", 5.0, false, false);
+                chosen.setId(unreserved);
+                dataManager.addPlanet(chosen);
+                if (chosen.getId() > firstReserved + 9 && chosen.getId() <= firstReserved + 12) {
+                    replaced++;
+                }
+            }
+            System.out.println(replaced + " of 3 planets with unreserved ids got the next id instead");
+
+            Planet afterReservation = new Planet("After Reservation", "New", 4.0, false, false);
+            dataManager.addPlanet(afterReservation);
+            System.out.println("Planet added after the reservation got ID: " + afterReservation.getId());
+
+            if (next.getId() > deletedId
+                    && firstReserved > next.getId()
+                    && dataManager.getPlanet(firstReserved + 3) != null
+                    && afterReservation.getId() == firstReserved + 13
+                    && replaced == 3
+                    && dataManager.getPlanet(Integer.MAX_VALUE) == null) {
+                System.out.println("\n✓ Test PASSED: Ids were allocated from the sequence!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Ids were not allocated from the sequence!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Ids that were used before are never given out again ===");
+            DataManager dataManager = new FileDataManager();
+
+            Planet deleted = new Planet("Deleted Again", "Gone", 6.0, false, false);
+            deleted.setId(deletedId);
+            dataManager.addPlanet(deleted);
+            System.out.println("Planet added with deleted ID " + deletedId + " got ID: " + deleted.getId());
+
+            Planet stored = dataManager.getPlanet(deleted.getId());
+            int storedId = stored.getId();
+            dataManager.addPlanet(stored);
+            System.out.println("Stored planet added again got ID: " + stored.getId());
+
+            int reserved = dataManager.reservePlanetIds(1);
+            Planet first = new Planet("First Use", "Reserved", 7.0, false, false);
+            first.setId(reserved);
+            dataManager.addPlanet(first);
+            Planet second = new Planet("Second Use", "Reserved", 8.0, false, false);
+            second.setId(reserved);
+            dataManager.addPlanet(second);
+            System.out.println("Reserved ID " + reserved + " used twice, the second planet got ID: " + second.getId());
+
+            if (deleted.getId() != deletedId
+                    && stored.getId() != storedId
+                    && dataManager.getPlanet(storedId).getName().equals("Deleted Again")
+                    && first.getId() == reserved
+                    && second.getId() > reserved) {
+                System.out.println("\n✓ Test PASSED: Used ids were replaced by fresh ones!");
+            } else {
+                System.out.println("\n✗ Test FAILED: An id was given out twice!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Starts several JVMs that add planets to the same data file while this one keeps reading it.
+public class TestSharedDataFile {
+    private static final String FILE_PATH = "shared-data.bin";
+    private static final int PROCESSES = 4;
+    private static final int PLANETS_PER_PROCESS = 50;
+
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("worker")) {
+            DataManager dataManager = new FileDataManager(FILE_PATH);
+            for (int i = 0; i < PLANETS_PER_PROCESS; i++) {
+                dataManager.addPlanet(new Planet("Process " + args[1] + " Planet " + i, "Shared", i, false, false));
+            }
+            return;
+        }
+
+        int readErrors = 0;
+        int reads = 0;
+
+        try {
+            System.out.println("=== Setup: " + PROCESSES + " processes adding planets to " + FILE_PATH + " ===");
+            Files.deleteIfExists(Paths.get(FILE_PATH));
+            DataManager dataManager = new FileDataManager(FILE_PATH);
+
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            List<Process> processes = new ArrayList<>();
+            for (int p = 0; p < PROCESSES; p++) {
+                processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        TestSharedDataFile.class.getName(), "worker", String.valueOf(p)).inheritIO().start());
+            }
+
+            // Reading while the other processes write must never see a half-written file
+            while (processes.stream().anyMatch(Process::isAlive)) {
+                try {
+                    dataManager.getAllPlanets();
+                    reads++;
+                } catch (RuntimeException e) {
+                    readErrors++;
+                }
+            }
+            for (Process process : processes) {
+                if (process.waitFor() != 0) {
+                    System.out.println("A worker process failed with exit code " + process.exitValue());
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Every process's planets are in the file ===");
+            DataManager dataManager = new FileDataManager(FILE_PATH);
+            List<Planet> planets = dataManager.getAllPlanets();
+            Set<Integer> ids = new HashSet<>();
+            for (Planet planet : planets) {
+                ids.add(planet.getId());
+            }
+            System.out.println(planets.size() + " planets with " + ids.size() + " distinct ids, "
+                    + reads + " reads during the writes, " + readErrors + " failed");
+
+            if (planets.size() == PROCESSES * PLANETS_PER_PROCESS
+                    && ids.size() == planets.size()
+                    && readErrors == 0) {
+                System.out.println("\n✓ Test PASSED: Processes shared the data file without losing or corrupting data!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Sharing the data file lost or corrupted data!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
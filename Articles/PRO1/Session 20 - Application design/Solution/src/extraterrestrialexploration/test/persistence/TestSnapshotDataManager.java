@@ -0,0 +1,160 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.FileDataManager;
+import extraterrestrialexploration.persistence.SnapshotDataManager;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestSnapshotDataManager {
+    private static final String FILE_PATH = "snapshot-data.bin";
+    private static final int PLANETS = 20000;
+    private static final int UPDATES = 50;
+
+    public static void main(String[] args) {
+        SnapshotDataManager dataManager;
+        long snapshotSize;
+        long largestDelta;
+
+        try {
+            System.out.println("=== Setup: " + PLANETS + " planets in a snapshot, then " + UPDATES + " single updates ===");
+            deleteFiles();
+            dataManager = new SnapshotDataManager(FILE_PATH);
+            List<Planet> planets = new ArrayList<>();
+            for (int i = 0; i < PLANETS; i++) {
+                planets.add(new Planet("Snapshot Planet " + i, "Stored", i, false, false));
+            }
+            dataManager.addPlanets(planets);
+            dataManager.addAlien(new Alien("Zorg", "Grey", "Tall"));
+            dataManager.merge();
+            snapshotSize = Files.size(Paths.get(FILE_PATH));
+
+            long start = System.nanoTime();
+            for (int i = 0; i < UPDATES; i++) {
+                Planet planet = dataManager.getPlanet(planets.get(i * 100).getId());
+                planet.setClimateDescription("Updated " + i);
+                dataManager.updatePlanet(planet);
+            }
+            dataManager.deletePlanet(planets.get(1).getId());
+            long elapsed = System.nanoTime() - start;
+
+            largestDelta = 0;
+            for (Path delta : deltaFiles()) {
+                largestDelta = Math.max(largestDelta, Files.size(delta));
+            }
+            System.out.printf("Snapshot is %d bytes, the largest delta %d bytes, %.2f ms per change%n",
+                    snapshotSize, largestDelta, elapsed / 1_000_000.0 / (UPDATES + 1));
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: A change writes only the changed entity ===");
+            int deltasBefore = dataManager.getDeltaCount();
+            // Stored unchanged, so there is nothing to write
+            dataManager.updatePlanet(dataManager.getPlanet(dataManager.getAllPlanets().get(5).getId()));
+            int deltasAfter = dataManager.getDeltaCount();
+            System.out.println(deltasBefore + " deltas, " + deltasAfter + " after updating an unchanged planet");
+
+            if (deltasBefore == UPDATES + 1 && deltasAfter == deltasBefore && largestDelta < 200) {
+                System.out.println("\n✓ Test PASSED: Each change wrote a small delta instead of the whole data!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Changes were not written as small deltas!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Deltas are replayed when the data is opened again ===");
+            dataManager.close();
+            SnapshotDataManager reopened = new SnapshotDataManager(FILE_PATH);
+            boolean updated = reopened.getPlanet(100 * (UPDATES - 1) + 1).getClimateDescription().equals("Updated " + (UPDATES - 1));
+            boolean deleted = reopened.getPlanet(2) == null;
+            int planets = reopened.getAllPlanets().size();
+            reopened.close();
+            System.out.println(planets + " planets, last update " + (updated ? "found" : "missing")
+                    + ", deleted planet " + (deleted ? "gone" : "still there"));
+
+            if (updated && deleted && planets == PLANETS - 1) {
+                System.out.println("\n✓ Test PASSED: The snapshot and deltas together hold every change!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Changes were lost when the data was opened again!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Merging folds the deltas into the snapshot, even when a merge is interrupted ===");
+            Path saved = Files.createTempDirectory("deltas");
+            for (Path delta : deltaFiles()) {
+                Files.copy(delta, saved.resolve(delta.getFileName()));
+            }
+            SnapshotDataManager merging = new SnapshotDataManager(FILE_PATH);
+            merging.merge();
+            int deltasLeft = deltaFiles().size();
+            merging.close();
+
+            // The snapshot alone now holds every change
+            FileDataManager snapshot = new FileDataManager(FILE_PATH);
+            boolean inSnapshot = snapshot.getPlanet(1).getClimateDescription().equals("Updated 0")
+                    && snapshot.getPlanet(2) == null
+                    && snapshot.getAllPlanets().size() == PLANETS - 1;
+
+            // A crash before the merged deltas were deleted leaves them behind; replaying them changes nothing
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(saved)) {
+                for (Path delta : files) {
+                    Files.move(delta, Paths.get(delta.getFileName().toString()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.delete(saved);
+            SnapshotDataManager afterCrash = new SnapshotDataManager(FILE_PATH);
+            Planet added = new Planet("After Crash", "New", 1, true, true);
+            afterCrash.addPlanet(added);
+            boolean consistent = afterCrash.getAllPlanets().size() == PLANETS
+                    && afterCrash.getPlanet(1).getClimateDescription().equals("Updated 0")
+                    && afterCrash.getPlanet(2) == null
+                    && added.getId() == PLANETS + 1;
+            afterCrash.close();
+            System.out.println(deltasLeft + " deltas left after merging, snapshot up to date: " + inSnapshot
+                    + ", consistent after replaying merged deltas: " + consistent);
+
+            if (deltasLeft == 0 && inSnapshot && consistent) {
+                System.out.println("\n✓ Test PASSED: Merging kept every change!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Merging lost or repeated changes!");
+            }
+            deleteFiles();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static List<Path> deltaFiles() throws IOException {
+        List<Path> deltas = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("."), FILE_PATH + ".*.delta")) {
+            files.forEach(deltas::add);
+        }
+        return deltas;
+    }
+
+    private static void deleteFiles() throws IOException {
+        for (Path delta : deltaFiles()) {
+            Files.delete(delta);
+        }
+        Files.deleteIfExists(Paths.get(FILE_PATH));
+        Files.deleteIfExists(Paths.get(FILE_PATH + ".lock"));
+    }
+}
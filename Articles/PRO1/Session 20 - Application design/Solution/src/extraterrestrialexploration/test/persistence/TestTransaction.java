@@ -0,0 +1,108 @@
+package extraterrestrialexploration.test.persistence;
+
+import extraterrestrialexploration.domain.Alien;
+import extraterrestrialexploration.domain.Explorer;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.DataManager;
+import extraterrestrialexploration.persistence.FileDataManager;
+import extraterrestrialexploration.persistence.InMemoryDataManager;
+import extraterrestrialexploration.persistence.OffHeapDataManager;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TestTransaction {
+    public static void main(String[] args) {
+        List<Planet> batch = new ArrayList<>();
+
+        try {
+            System.out.println("=== Setup: Adding 1000 planets in one batch ===");
+            DataManager dataManager = new FileDataManager();
+            for (int i = 0; i < 1000; i++) {
+                batch.add(new Planet("Batch Planet " + i, "Batch Climate", i, i % 2 == 0, false));
+            }
+            long start = System.nanoTime();
+            dataManager.addPlanets(batch);
+            System.out.println("Batch added in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Batch was saved and a failed transaction saves nothing ===");
+            DataManager dataManager = new FileDataManager();
+
+            boolean allSaved = true;
+            for (Planet planet : batch) {
+                if (dataManager.getPlanet(planet.getId()) == null) {
+                    allSaved = false;
+                }
+            }
+
+            int planetsBefore = dataManager.getAllPlanets().size();
+            int explorersBefore = dataManager.getAllExplorers().size();
+            try {
+                dataManager.transaction(transaction -> {
+                    Planet planet = new Planet("Rolled Back Planet", "Never saved", 9.9, false, false);
+                    transaction.addPlanet(planet);
+                    transaction.addExplorer(new Explorer("Rolled Back Explorer", planet));
+                    throw new IllegalStateException("Import aborted");
+                });
+            } catch (IllegalStateException e) {
+                System.out.println("Transaction failed as expected: " + e.getMessage());
+            }
+
+            if (allSaved
+                    && dataManager.getAllPlanets().size() == planetsBefore
+                    && dataManager.getAllExplorers().size() == explorersBefore) {
+                System.out.println("\n✓ Test PASSED: Batch was saved once and the failed transaction left no trace!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Transactions did not behave as expected!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: A failed transaction is taken back by the in-memory engines ===");
+            int restored = 0;
+            for (DataManager dataManager : List.of(new InMemoryDataManager(), new OffHeapDataManager())) {
+                Planet planet = new Planet("Kept Planet", "Original Climate", 1.0, true, false);
+                dataManager.addPlanet(planet);
+                Alien alien = new Alien("Kept Alien", "Grey", "Small");
+                dataManager.addAlien(alien);
+                try {
+                    dataManager.transaction(transaction -> {
+                        Planet changed = transaction.getPlanet(planet.getId());
+                        changed.setClimateDescription("Changed Climate");
+                        transaction.updatePlanet(changed);
+                        transaction.deleteAlien(alien.getId());
+                        Planet added = new Planet("Rolled Back Planet", "Never kept", 9.9, false, false);
+                        transaction.addPlanet(added);
+                        transaction.addExplorer(new Explorer("Rolled Back Explorer", added));
+                        throw new IllegalStateException("Import aborted");
+                    });
+                } catch (IllegalStateException e) {
+                    System.out.println(dataManager.getClass().getSimpleName() + " transaction failed as expected");
+                }
+                Alien kept = dataManager.getAlien(alien.getId());
+                if (dataManager.getPlanet(planet.getId()).getClimateDescription().equals("Original Climate")
+                        && kept != null && kept.getName().equals("Kept Alien")
+                        && dataManager.getAllPlanets().size() == 1
+                        && dataManager.getAllExplorers().isEmpty()) {
+                    restored++;
+                }
+            }
+
+            if (restored == 2) {
+                System.out.println("\n✓ Test PASSED: The failed transactions left no trace in memory!");
+            } else {
+                System.out.println("\n✗ Test FAILED: A failed transaction left changes behind!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package extraterrestrialexploration.test.persistence;
 import extraterrestrialexploration.domain.Planet;
 import extraterrestrialexploration.persistence.DataManager;
 import extraterrestrialexploration.persistence.FileDataManager;
+import java.util.List;
 
 public class TestUpdatePlanet {
     public static void main(String[] args) {
@@ -46,6 +47,45 @@ public class TestUpdatePlanet {
             System.out.println("Error during test: " + e.getMessage());
             e.printStackTrace();
         }
+
+        try {
+            System.out.println("\n=== Test: Update keeps the order and reports missing planets ===");
+            DataManager dataManager = new FileDataManager();
+
+            int positionBefore = positionOf(dataManager, planetId);
+            Planet updatedAgain = new Planet("Updated Again", "Updated Climate", 2.5, false, true);
+            updatedAgain.setId(planetId);
+            dataManager.updatePlanet(updatedAgain);
+            int positionAfter = positionOf(dataManager, planetId);
+
+            boolean missingReported = false;
+            Planet missing = new Planet("Missing Planet", "Nowhere", 0.0, false, false);
+            missing.setId(Integer.MAX_VALUE);
+            try {
+                dataManager.updatePlanet(missing);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Updating a missing planet failed with: " + e.getMessage());
+                missingReported = true;
+            }
+
+            if (positionBefore == positionAfter && missingReported && dataManager.getPlanet(Integer.MAX_VALUE) == null) {
+                System.out.println("\n✓ Test PASSED: Planet kept its place and the missing planet was reported!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Update moved the planet or inserted the missing one!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
     }
-}
 
+    private static int positionOf(DataManager dataManager, int planetId) {
+        List<Planet> planets = dataManager.getAllPlanets();
+        for (int i = 0; i < planets.size(); i++) {
+            if (planets.get(i).getId() == planetId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,209 @@
+package extraterrestrialexploration.test.search;
+
+import extraterrestrialexploration.domain.Encounter;
+import extraterrestrialexploration.domain.Planet;
+import extraterrestrialexploration.persistence.InMemoryDataManager;
+import extraterrestrialexploration.persistence.SnapshotDataManager;
+import extraterrestrialexploration.search.SearchDataManager;
+import extraterrestrialexploration.search.SearchHit;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class TestSearchDataManager {
+    private static final String FILE_PATH = "search-data.bin";
+    private static final int ENCOUNTERS = 300_000;
+    private static final int UPDATES = 50_000;
+    private static final String[] WORDS = {
+            "bright", "cold", "signal", "metallic", "craft", "hovering", "silent", "tall", "figure", "lights",
+            "forest", "desert", "ocean", "cave", "ridge", "glowing", "humming", "swift", "distant", "shadow",
+            "trail", "footprints", "sample", "beacon", "storm", "dust", "ice", "crater", "valley", "orbit"
+    };
+
+    public static void main(String[] args) {
+        SearchDataManager dataManager;
+        int rareEncounters = 0;
+
+        try {
+            System.out.println("=== Setup: Indexing " + ENCOUNTERS + " encounter descriptions ===");
+            deleteFiles();
+            Random random = new Random(11);
+            List<Encounter> encounters = new ArrayList<>();
+            for (int i = 0; i < ENCOUNTERS; i++) {
+                StringBuilder description = new StringBuilder("The team saw");
+                for (int w = 0; w < 8; w++) {
+                    description.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                if (i % 1000 == 0) {
+                    description.append(" crystalline");
+                    rareEncounters++;
+                }
+                encounters.add(new Encounter("2024-05-01", 0, 0, 0, description.toString()));
+            }
+            SnapshotDataManager data = new SnapshotDataManager(FILE_PATH);
+            data.addEncounters(encounters);
+            data.addPlanet(new Planet("Kepler", "Crystalline ice storms", 1, true, false));
+
+            long start = System.nanoTime();
+            dataManager = new SearchDataManager(data, FILE_PATH);
+            System.out.println("Index built in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            System.out.println("Error during setup: " + e.getMessage());
+            return;
+        }
+
+        try {
+            System.out.println("\n=== Test: Searches find every match and rank the best first ===");
+            List<SearchHit> rare = dataManager.searchEncounters("CRYSTALLINE", ENCOUNTERS);
+            // Adds an encounter that mentions both terms twice, which should rank first
+            Encounter best = new Encounter("2024-05-02", 0, 0, 0, "Crystalline beacon, a crystalline beacon!");
+            dataManager.addEncounter(best);
+
+            long start = System.nanoTime();
+            List<SearchHit> ranked = dataManager.searchEncounters("crystalline beacon", 10);
+            long elapsed = System.nanoTime() - start;
+            List<SearchHit> planets = dataManager.searchPlanets("storms", 10);
+            System.out.println(rare.size() + " encounters mention crystalline, best match for \"crystalline beacon\": "
+                    + ranked.get(0) + " in " + elapsed / 1000 + " us");
+
+            if (rare.size() == rareEncounters
+                    && ranked.size() == 10
+                    && ranked.get(0).getId() == best.getId()
+                    && ranked.get(1).getScore() <= ranked.get(0).getScore()
+                    && planets.size() == 1
+                    && dataManager.searchEncounters("the", 10).isEmpty()) {
+                System.out.println("\n✓ Test PASSED: Searches returned ranked matches!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Searches returned the wrong matches!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Updates, deletes and transactions keep the index up to date ===");
+            Encounter changed = dataManager.getEncounter(2);
+            changed.setDescriptionOfTheEncounter("A zeppelin drifted past");
+            dataManager.updateEncounter(changed);
+            dataManager.deleteEncounter(1001);
+
+            try {
+                dataManager.transaction(batch -> {
+                    batch.addEncounter(new Encounter("2024-05-03", 0, 0, 0, "An unrecorded kraken"));
+                    throw new IllegalStateException("Rolled back");
+                });
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+            dataManager.transaction(batch -> batch.addEncounter(new Encounter("2024-05-04", 0, 0, 0, "A recorded kraken")));
+
+            // A nested transaction fails and the outer work carries on without it
+            SearchDataManager nested = new SearchDataManager(new InMemoryDataManager(), FILE_PATH + ".nested");
+            nested.transaction(outer -> {
+                outer.addEncounter(new Encounter("2024-05-03", 0, 0, 0, "A recorded griffin"));
+                try {
+                    outer.transaction(inner -> {
+                        inner.addEncounter(new Encounter("2024-05-03", 0, 0, 0, "An unrecorded griffin"));
+                        throw new IllegalStateException("Rolled back");
+                    });
+                } catch (IllegalStateException e) {
+                    // Expected
+                }
+            });
+            List<SearchHit> griffin = nested.searchEncounters("griffin", 10);
+            boolean nestedRolledBack = griffin.size() == 1 && nested.getAllEncounters().size() == 1
+                    && nested.getEncounter(griffin.get(0).getId()).getDescriptionOfTheEncounter().equals("A recorded griffin");
+
+            boolean updated = dataManager.searchEncounters("zeppelin", 10).size() == 1;
+            boolean deleted = dataManager.searchEncounters("crystalline", ENCOUNTERS).stream()
+                    .noneMatch(hit -> hit.getId() == 1001);
+            List<SearchHit> kraken = dataManager.searchEncounters("kraken", 10);
+            System.out.println("Updated found: " + updated + ", deleted gone: " + deleted + ", kraken hits: " + kraken.size()
+                    + ", griffin hits after a failed nested transaction: " + griffin.size());
+
+            if (updated && deleted && kraken.size() == 1 && nestedRolledBack
+                    && dataManager.getEncounter(kraken.get(0).getId()).getDescriptionOfTheEncounter().equals("A recorded kraken")) {
+                System.out.println("\n✓ Test PASSED: The index followed every change!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The index missed changes!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: Searches stay fast when one entity is updated over and over ===");
+            // Kept in memory and never saved, so this test leaves no files
+            SearchDataManager updated = new SearchDataManager(new InMemoryDataManager(), FILE_PATH + ".updates");
+            Planet planet = new Planet("Restless", "Calm skies", 1, true, false);
+            updated.addPlanet(planet);
+            for (int i = 0; i < UPDATES; i++) {
+                planet.setClimateDescription("Storms round " + i);
+                updated.updatePlanet(planet);
+            }
+            long start = System.nanoTime();
+            List<SearchHit> hits = null;
+            for (int i = 0; i < 100; i++) {
+                hits = updated.searchPlanets("storms", 10);
+            }
+            double averageMillis = (System.nanoTime() - start) / 100 / 1e6;
+            System.out.printf("%d updates, a search takes %.3f ms%n", UPDATES, averageMillis);
+
+            if (hits.size() == 1 && hits.get(0).getId() == planet.getId()
+                    && updated.searchPlanets("calm", 10).isEmpty() && averageMillis < 5) {
+                System.out.println("\n✓ Test PASSED: The replaced documents were compacted away!");
+            } else {
+                System.out.println("\n✗ Test FAILED: Searches slowed down with the replaced documents!");
+            }
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        try {
+            System.out.println("\n=== Test: The saved index is loaded, unless the data changed without it ===");
+            dataManager.close();
+            long start = System.nanoTime();
+            SearchDataManager reopened = new SearchDataManager(new SnapshotDataManager(FILE_PATH), FILE_PATH);
+            long loadTime = System.nanoTime() - start;
+            boolean loaded = reopened.isIndexLoaded();
+            boolean sameResults = reopened.searchEncounters("zeppelin", 10).size() == 1
+                    && reopened.searchEncounters("crystalline", ENCOUNTERS).size() == rareEncounters;
+            reopened.close();
+
+            // Changed without the index, so the next start has to build it again
+            SnapshotDataManager withoutIndex = new SnapshotDataManager(FILE_PATH);
+            withoutIndex.addEncounter(new Encounter("2024-05-05", 0, 0, 0, "A quasar flickered"));
+            withoutIndex.close();
+            SearchDataManager rebuilt = new SearchDataManager(new SnapshotDataManager(FILE_PATH), FILE_PATH);
+            boolean stale = !rebuilt.isIndexLoaded() && rebuilt.searchEncounters("quasar", 10).size() == 1;
+            rebuilt.close();
+            System.out.println("Index loaded in " + loadTime / 1_000_000 + " ms: " + loaded
+                    + ", rebuilt after an outside change: " + stale);
+
+            if (loaded && sameResults && stale) {
+                System.out.println("\n✓ Test PASSED: The index was saved with the data!");
+            } else {
+                System.out.println("\n✗ Test FAILED: The saved index was not used correctly!");
+            }
+            deleteFiles();
+        } catch (Exception e) {
+            System.out.println("Error during test: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private static void deleteFiles() throws Exception {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("."), FILE_PATH + "*")) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+    }
+}